@@ -0,0 +1,125 @@
+package com.mistrapitos.benchmarks;
+
+import com.mistrapitos.dao.DetalleVentaDao;
+import com.mistrapitos.dao.ProductoDao;
+import com.mistrapitos.dao.ResumenVentasDao;
+import com.mistrapitos.dao.VentaDao;
+import com.mistrapitos.models.DetalleVenta;
+import com.mistrapitos.models.Venta;
+import com.mistrapitos.utils.DatabaseUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Edición de una venta: VentaDao.update con la sentencia que compara líneas y aplica el
+ * stock neto, frente al ciclo anterior que borraba y reinsertaba cada línea y movía el
+ * stock producto por producto con su propia conexión.
+ * <p>
+ * Cada invocación hace una edición típica: cambia la cantidad de una de cada cinco líneas,
+ * quita la última y agrega una nueva. Al preparar se comprueba que registrar la venta
+ * descontó su stock y la sumó a los resúmenes, y al terminar que los resúmenes cuadran
+ * con las ventas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ActualizarVentaBenchmark {
+
+    private static final int PRODUCTOS = 10000;
+
+    @Param({"5", "50"})
+    public int lineas;
+
+    private VentaDao ventaDao;
+    private DetalleVentaDao detalleVentaDao;
+    private ProductoDao productoDao;
+    private ResumenVentasDao resumenVentasDao;
+    private Venta venta;
+    private int vuelta;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        BaseDatosBenchmark.preparar(PRODUCTOS, 1000, 1000);
+        ventaDao = new VentaDao();
+        detalleVentaDao = new DetalleVentaDao();
+        productoDao = new ProductoDao();
+        resumenVentasDao = new ResumenVentasDao();
+
+        venta = new Venta(0, 1, LocalDateTime.now(), "Efectivo", 0);
+        for (int i = 0; i < lineas; i++) {
+            venta.getDetalles().add(new DetalleVenta(0, 0, 1 + (i * 97) % PRODUCTOS, 1, 250, 0));
+        }
+        venta.setTotal(250.0 * lineas);
+        BaseDatosBenchmark.Totales antes = BaseDatosBenchmark.totales();
+        ventaDao.save(venta);
+        // Cada línea es de un producto distinto y una pieza
+        long ponderado = venta.getDetalles().stream().mapToLong(DetalleVenta::getIdProducto).sum();
+        BaseDatosBenchmark.comprobarIguales(new BaseDatosBenchmark.Totales(antes.stock() - lineas,
+                        antes.stockPorProducto() - ponderado, antes.ventasResumen() + 1,
+                        antes.totalResumen().add(BigDecimal.valueOf(250L * lineas, 0)).setScale(2), antes.piezasResumen() + lineas),
+                BaseDatosBenchmark.totales(), "Registrar la venta no descontó su stock o no la sumó a los resúmenes");
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() throws Exception {
+        BaseDatosBenchmark.comprobarResumenes();
+        BaseDatosBenchmark.detener();
+    }
+
+    @Benchmark
+    public Venta actualizar() {
+        editar();
+        return ventaDao.update(venta);
+    }
+
+    @Benchmark
+    public int lineaPorLinea() throws Exception {
+        editar();
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            resumenVentasDao.restarVenta(venta.getIdVenta(), conn);
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "UPDATE ventas SET id_cliente = ?, fecha = ?, metodo_pago = ?, total = ? WHERE id_venta = ?")) {
+                stmt.setInt(1, venta.getIdCliente());
+                stmt.setTimestamp(2, Timestamp.valueOf(venta.getFecha()));
+                stmt.setString(3, venta.getMetodoPago());
+                stmt.setDouble(4, venta.getTotal());
+                stmt.setInt(5, venta.getIdVenta());
+                stmt.executeUpdate();
+            }
+            for (DetalleVenta detalle : detalleVentaDao.findByVenta(venta.getIdVenta())) {
+                productoDao.updateStock(detalle.getIdProducto(), detalle.getCantidad());
+                detalleVentaDao.delete(detalle.getIdDetalle(), conn);
+            }
+            for (DetalleVenta detalle : venta.getDetalles()) {
+                detalle.setIdVenta(venta.getIdVenta());
+                detalleVentaDao.save(detalle, conn);
+                productoDao.updateStock(detalle.getIdProducto(), -detalle.getCantidad());
+            }
+            resumenVentasDao.sumarVenta(venta.getIdVenta(), conn);
+            conn.commit();
+            conn.setAutoCommit(true);
+            return venta.getIdVenta();
+        }
+    }
+
+    private void editar() {
+        vuelta++;
+        List<DetalleVenta> detalles = venta.getDetalles();
+        for (int i = 0; i < detalles.size(); i += 5) {
+            detalles.get(i).setCantidad(1 + vuelta % 2);
+        }
+        detalles.remove(detalles.size() - 1);
+        detalles.add(new DetalleVenta(0, venta.getIdVenta(), 1 + (vuelta * 31) % PRODUCTOS, 1, 250, 0));
+    }
+}
@@ -0,0 +1,124 @@
+package com.mistrapitos.benchmarks;
+
+import com.mistrapitos.dao.DetalleVentaDao;
+import com.mistrapitos.dao.ProductoDao;
+import com.mistrapitos.dao.ResumenVentasDao;
+import com.mistrapitos.dao.VentaDao;
+import com.mistrapitos.models.DetalleVenta;
+import com.mistrapitos.models.ResultadoAnulacion;
+import com.mistrapitos.models.Venta;
+import com.mistrapitos.utils.DatabaseUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Anulación de un grupo de ventas: VentaDao.anularVentas, con el stock devuelto en una sola
+ * sentencia y los borrados por lotes, frente al ciclo anterior de VentaDao.delete que
+ * devolvía el stock línea por línea, cada una con su propia conexión.
+ * <p>
+ * Antes de cada invocación se registran las ventas a anular, de 5 líneas cada una. Después
+ * se comprueba que el stock y los resúmenes diarios volvieron a como estaban antes de
+ * registrarlas; en la simulación, que no cambiaron, y luego se anulan de verdad.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class AnularVentasBenchmark {
+
+    private static final int PRODUCTOS = 10000;
+    private static final int LINEAS = 5;
+
+    @Param({"10", "200"})
+    public int ventas;
+
+    private VentaDao ventaDao;
+    private DetalleVentaDao detalleVentaDao;
+    private ProductoDao productoDao;
+    private ResumenVentasDao resumenVentasDao;
+    private List<Integer> ids;
+    private int vuelta;
+    private BaseDatosBenchmark.Totales antes;
+    private BaseDatosBenchmark.Totales registradas;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        BaseDatosBenchmark.preparar(PRODUCTOS, 1000, 1000);
+        ventaDao = new VentaDao();
+        detalleVentaDao = new DetalleVentaDao();
+        productoDao = new ProductoDao();
+        resumenVentasDao = new ResumenVentasDao();
+    }
+
+    @Setup(Level.Invocation)
+    public void registrarVentas() throws Exception {
+        antes = BaseDatosBenchmark.totales();
+        ids = new ArrayList<>(ventas);
+        for (int i = 0; i < ventas; i++) {
+            vuelta++;
+            Venta venta = new Venta(0, 1 + vuelta % 1000, LocalDateTime.now(), "Efectivo", 250.0 * LINEAS);
+            for (int j = 0; j < LINEAS; j++) {
+                venta.getDetalles().add(new DetalleVenta(0, 0, 1 + (vuelta * 31 + j * 97) % PRODUCTOS, 1, 250, 0));
+            }
+            ids.add(ventaDao.save(venta).getIdVenta());
+        }
+        registradas = BaseDatosBenchmark.totales();
+    }
+
+    @TearDown(Level.Invocation)
+    public void comprobar(BenchmarkParams parametros) throws Exception {
+        if (parametros.getBenchmark().endsWith(".simularAnulacion")) {
+            BaseDatosBenchmark.comprobarIguales(registradas, BaseDatosBenchmark.totales(),
+                    "La simulación cambió el stock o los resúmenes");
+            ventaDao.anularVentas(ids, false);
+        }
+        BaseDatosBenchmark.comprobarIguales(antes, BaseDatosBenchmark.totales(),
+                "La anulación no devolvió el stock o los resúmenes a como estaban");
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() throws Exception {
+        BaseDatosBenchmark.comprobarResumenes();
+        BaseDatosBenchmark.detener();
+    }
+
+    @Benchmark
+    public ResultadoAnulacion anularVentas() throws Exception {
+        return ventaDao.anularVentas(ids, false);
+    }
+
+    @Benchmark
+    public ResultadoAnulacion simularAnulacion() throws Exception {
+        return ventaDao.anularVentas(ids, true);
+    }
+
+    @Benchmark
+    public int unaPorUna() throws Exception {
+        for (Integer id : ids) {
+            try (Connection conn = DatabaseUtil.getConnection()) {
+                conn.setAutoCommit(false);
+                for (DetalleVenta detalle : detalleVentaDao.findByVenta(id)) {
+                    productoDao.updateStock(detalle.getIdProducto(), detalle.getCantidad());
+                }
+                resumenVentasDao.restarVenta(id, conn);
+                detalleVentaDao.deleteByVenta(id, conn);
+                try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM ventas WHERE id_venta = ?")) {
+                    stmt.setInt(1, id);
+                    stmt.executeUpdate();
+                }
+                conn.commit();
+                conn.setAutoCommit(true);
+            }
+        }
+        return ids.size();
+    }
+}
@@ -0,0 +1,79 @@
+package com.mistrapitos.benchmarks;
+
+import com.mistrapitos.dao.ClienteDao;
+import com.mistrapitos.models.Cliente;
+import com.mistrapitos.services.DirectorioClientes;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Autocompletado de clientes del historial de la caja: DirectorioClientes, con índice de
+ * prefijos y como mucho clientes.sugerencias resultados, frente al filtro anterior que pasaba
+ * a minúsculas todos los nombres y buscaba la coincidencia exacta con un stream en cada
+ * tecla. Cada invocación escribe "cliente 4242" letra por letra.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AutocompletarClientesBenchmark {
+
+    private static final String CONSULTA = "cliente 4242";
+
+    @Param({"10000", "100000"})
+    public int clientes;
+
+    private DirectorioClientes directorio;
+    private List<Cliente> lista;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        BaseDatosBenchmark.preparar(1000, clientes, 10);
+        directorio = DirectorioClientes.getInstancia();
+        directorio.cargar();
+        lista = new ClienteDao().findAll();
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        BaseDatosBenchmark.detener();
+    }
+
+    @Benchmark
+    public int directorio() {
+        int encontrados = 0;
+        for (int n = 1; n <= CONSULTA.length(); n++) {
+            String texto = CONSULTA.substring(0, n);
+            encontrados = directorio.buscar(texto).size();
+            if (directorio.buscarExacto(texto).isPresent()) {
+                encontrados++;
+            }
+        }
+        return encontrados;
+    }
+
+    @Benchmark
+    public int filtroAnterior() {
+        int encontrados = 0;
+        for (int n = 1; n <= CONSULTA.length(); n++) {
+            String texto = CONSULTA.substring(0, n);
+            encontrados = lista.stream()
+                    .filter(c -> c.getNombre().toLowerCase().contains(texto.toLowerCase()))
+                    .collect(Collectors.toList())
+                    .size();
+            Cliente match = lista.stream()
+                    .filter(c -> c.getNombre().equalsIgnoreCase(texto))
+                    .findFirst()
+                    .orElse(null);
+            if (match != null) {
+                encontrados++;
+            }
+        }
+        return encontrados;
+    }
+}
@@ -0,0 +1,157 @@
+package com.mistrapitos.benchmarks;
+
+import com.mistrapitos.utils.DatabaseUtil;
+import com.mistrapitos.utils.MigracionUtil;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * PostgreSQL embebido (binarios reales, sin contenedores) con datos sintéticos para los benchmarks.
+ * Escucha en el puerto de config.properties de este módulo, así que los DAO lo usan sin cambios.
+ */
+public final class BaseDatosBenchmark {
+
+    private static final int PUERTO = 54329;
+    private static EmbeddedPostgres postgres;
+
+    /**
+     * Stock y resúmenes diarios sumados, para comprobar qué dejó una operación en la base.
+     * @param stock Suma del stock de todos los productos
+     * @param stockPorProducto Suma de stock * id_producto, para notar stock movido entre productos
+     * @param ventasResumen Ventas contadas en resumen_ventas_dia
+     * @param totalResumen Importe cobrado según resumen_ventas_dia
+     * @param piezasResumen Piezas vendidas según resumen_ventas_producto_dia
+     */
+    public record Totales(long stock, long stockPorProducto, long ventasResumen, BigDecimal totalResumen,
+                          long piezasResumen) {
+    }
+
+    private BaseDatosBenchmark() {
+    }
+
+    /**
+     * Arranca la base embebida (una vez por JVM) y la llena desde cero.
+     * @param productos Número de productos
+     * @param clientes Número de clientes
+     * @param ventas Número de ventas (con 3 líneas cada una)
+     */
+    public static synchronized void preparar(int productos, int clientes, int ventas) throws Exception {
+        if (postgres == null) {
+            postgres = EmbeddedPostgres.builder().setPort(PUERTO).start();
+            Runtime.getRuntime().addShutdownHook(new Thread(BaseDatosBenchmark::detener));
+        }
+
+        try (Connection conn = postgres.getPostgresDatabase().getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP SCHEMA public CASCADE; CREATE SCHEMA public;");
+            stmt.execute(leerRecurso("/bench/esquema.sql"));
+
+            stmt.execute("INSERT INTO categorias (nombre) SELECT 'Categoria ' || g FROM generate_series(1, 20) g");
+            ejecutar(conn, "INSERT INTO productos (nombre, descripcion, id_categoria, precio, stock, sizes, colors, descuento, barcode) " +
+                    "SELECT (ARRAY['Camisa','Pantalon','Vestido','Blusa','Chamarra'])[1 + g % 5] || ' ' || g, " +
+                    "'Producto de prueba', 1 + g % 20, 100 + g % 900, 1000000000, 'S,M,L', 'Rojo,Azul', g % 30, " +
+                    "lpad(g::text, 13, '0') FROM generate_series(1, ?) g", productos);
+            ejecutar(conn, "INSERT INTO clientes (nombre, direccion, correo, telefono, ciudad) " +
+                    "SELECT 'Cliente ' || g, 'Calle ' || g, 'cliente' || g || '@correo.com', lpad(g::text, 10, '5'), " +
+                    "(ARRAY['Guadalajara','Zapopan','Tlaquepaque','Tonala'])[1 + g % 4] FROM generate_series(1, ?) g", clientes);
+            ejecutar(conn, "INSERT INTO ventas (id_cliente, fecha, metodo_pago, total) " +
+                    "SELECT 1 + g % " + clientes + ", now() - (g % 730) * interval '1 day' - (g % 600) * interval '1 minute', " +
+                    "(ARRAY['Efectivo','Tarjeta','Transferencia'])[1 + g % 3], 0 FROM generate_series(1, ?) g", ventas);
+            stmt.execute("INSERT INTO detalle_venta (id_venta, id_producto, cantidad, precio_unitario, descuento_aplicado) " +
+                    "SELECT v.id_venta, 1 + (v.id_venta * 7 + l * 13) % " + productos + ", 1 + l, 250, 0 " +
+                    "FROM ventas v CROSS JOIN generate_series(0, 2) l");
+            stmt.execute("UPDATE ventas v SET total = d.total FROM (" +
+                    "SELECT id_venta, SUM(cantidad * precio_unitario) AS total FROM detalle_venta GROUP BY id_venta) d " +
+                    "WHERE d.id_venta = v.id_venta");
+            stmt.execute("ANALYZE");
+        }
+
+        MigracionUtil.aplicarPendientes();
+    }
+
+    /**
+     * Cierra el pool de la aplicación y detiene la base embebida.
+     */
+    public static synchronized void detener() {
+        DatabaseUtil.close();
+        if (postgres != null) {
+            try {
+                postgres.close();
+            } catch (IOException ignored) {
+            }
+            postgres = null;
+        }
+    }
+
+    /**
+     * @return Stock y resúmenes actuales, leídos con el pool de la aplicación
+     */
+    public static Totales totales() throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT (SELECT SUM(stock)::bigint FROM productos), " +
+                     "       (SELECT SUM(stock::bigint * id_producto)::bigint FROM productos), " +
+                     "       (SELECT COALESCE(SUM(num_ventas), 0)::bigint FROM resumen_ventas_dia), " +
+                     "       (SELECT COALESCE(SUM(total), 0)::numeric(16, 2) FROM resumen_ventas_dia), " +
+                     "       (SELECT COALESCE(SUM(cantidad), 0)::bigint FROM resumen_ventas_producto_dia)")) {
+            rs.next();
+            return new Totales(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getBigDecimal(4), rs.getLong(5));
+        }
+    }
+
+    /**
+     * Falla si los resúmenes diarios no cuadran con ventas y detalle_venta, es decir si alguna
+     * operación medida los dejó desfasados.
+     * @throws IllegalStateException Si no cuadran; JMH da el benchmark por fallido
+     */
+    public static void comprobarResumenes() throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT (SELECT COALESCE(SUM(num_ventas), 0) FROM resumen_ventas_dia) " +
+                     "           - (SELECT COUNT(*) FROM ventas), " +
+                     "       (SELECT COALESCE(SUM(total), 0) FROM resumen_ventas_dia) " +
+                     "           - (SELECT COALESCE(SUM(total), 0) FROM ventas), " +
+                     "       (SELECT COALESCE(SUM(cantidad), 0) FROM resumen_ventas_producto_dia) " +
+                     "           - (SELECT COALESCE(SUM(cantidad), 0) FROM detalle_venta)")) {
+            rs.next();
+            if (rs.getLong(1) != 0 || rs.getBigDecimal(2).signum() != 0 || rs.getLong(3) != 0) {
+                throw new IllegalStateException("Los resúmenes diarios no cuadran con las ventas: diferencia de "
+                        + rs.getLong(1) + " ventas, " + rs.getBigDecimal(2) + " de importe y "
+                        + rs.getLong(3) + " piezas");
+            }
+        }
+    }
+
+    /**
+     * @throws IllegalStateException Con el mensaje y ambos valores si no son iguales
+     */
+    public static void comprobarIguales(Totales esperados, Totales obtenidos, String mensaje) {
+        if (!esperados.equals(obtenidos)) {
+            throw new IllegalStateException(mensaje + ": se esperaba " + esperados + " y quedó " + obtenidos);
+        }
+    }
+
+    private static void ejecutar(Connection conn, String sql, int cantidad) throws Exception {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, cantidad);
+            stmt.executeUpdate();
+        }
+    }
+
+    private static String leerRecurso(String ruta) throws IOException {
+        try (InputStream in = BaseDatosBenchmark.class.getResourceAsStream(ruta)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
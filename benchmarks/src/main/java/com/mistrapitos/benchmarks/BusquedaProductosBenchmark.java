@@ -0,0 +1,74 @@
+package com.mistrapitos.benchmarks;
+
+import com.mistrapitos.models.Producto;
+import com.mistrapitos.utils.IndiceProductos;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Búsqueda de productos mientras se escribe: IndiceProductos, con trigramas y refinando el
+ * resultado anterior, frente al filtro anterior de ProductoController que pasaba a minúsculas
+ * cada campo de cada producto en cada tecla. Cada invocación escribe "camisa azul" letra por letra.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BusquedaProductosBenchmark {
+
+    private static final String CONSULTA = "camisa azul";
+    private static final String[] PRENDAS = {"Camisa", "Pantalón", "Blusa", "Vestido", "Chamarra", "Suéter", "Falda", "Playera"};
+    private static final String[] COLORES = {"azul", "negro", "blanco", "rojo", "verde", "café", "gris", "rosa"};
+    private static final String[] CATEGORIAS = {"Caballero", "Dama", "Niño", "Niña", "Accesorios"};
+
+    @Param({"10000", "100000"})
+    public int productos;
+
+    private List<Producto> lista;
+    private IndiceProductos indice;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        lista = new ArrayList<>(productos);
+        for (int i = 0; i < productos; i++) {
+            Producto p = new Producto(i + 1, PRENDAS[i % PRENDAS.length] + " " + COLORES[(i / 8) % COLORES.length] + " modelo " + i,
+                    "", 1, 100 + i % 500, 10, "M", "", 0, String.format("750%010d", i));
+            p.setCategoriaNombre(CATEGORIAS[i % CATEGORIAS.length]);
+            lista.add(p);
+        }
+        indice = new IndiceProductos(lista);
+    }
+
+    @Benchmark
+    public int indice() {
+        int encontrados = 0;
+        for (int n = 1; n <= CONSULTA.length(); n++) {
+            encontrados = indice.contar(CONSULTA.substring(0, n));
+        }
+        // La siguiente invocación empieza una búsqueda nueva, como al borrar el campo
+        indice.contar("");
+        return encontrados;
+    }
+
+    @Benchmark
+    public int filtroAnterior() {
+        int encontrados = 0;
+        for (int n = 1; n <= CONSULTA.length(); n++) {
+            String filtroLower = CONSULTA.substring(0, n).toLowerCase();
+            if (filtroLower.matches("\\d+(\\.\\d+)?")) {
+                continue;
+            }
+            Predicate<Producto> pred = p -> (p.getNombre() != null && p.getNombre().toLowerCase().contains(filtroLower))
+                    || (p.getBarcode() != null && p.getBarcode().toLowerCase().contains(filtroLower))
+                    || (p.getCategoriaNombre() != null && p.getCategoriaNombre().toLowerCase().contains(filtroLower));
+            encontrados = (int) lista.stream().filter(pred).count();
+        }
+        return encontrados;
+    }
+}
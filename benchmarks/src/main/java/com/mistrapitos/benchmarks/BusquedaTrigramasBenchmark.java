@@ -0,0 +1,90 @@
+package com.mistrapitos.benchmarks;
+
+import com.mistrapitos.dao.ClienteDao;
+import com.mistrapitos.dao.ProductoDao;
+import com.mistrapitos.models.Cliente;
+import com.mistrapitos.models.Producto;
+import com.mistrapitos.utils.DatabaseUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Búsqueda de productos y clientes con los índices de trigramas de la migración V007
+ * (ProductoDao.findByNombreOrBarcode y ClienteDao.findByTermino, 50 resultados) frente a la
+ * consulta anterior con ILIKE '%término%', que siempre recorre la tabla completa.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BusquedaTrigramasBenchmark {
+
+    private static final String PRODUCTO = "vestido 4242";
+    private static final String CLIENTE = "cliente 4242";
+    private static final int LIMITE = 50;
+
+    @Param({"100000", "1000000"})
+    public int filas;
+
+    private ProductoDao productoDao;
+    private ClienteDao clienteDao;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        BaseDatosBenchmark.preparar(filas, filas, 1000);
+        productoDao = new ProductoDao();
+        clienteDao = new ClienteDao();
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        BaseDatosBenchmark.detener();
+    }
+
+    @Benchmark
+    public List<Producto> productosTrigramas() {
+        return productoDao.findByNombreOrBarcode(PRODUCTO, LIMITE);
+    }
+
+    @Benchmark
+    public int productosIlike() throws Exception {
+        return contar("SELECT p.id_producto, p.nombre, p.descripcion, p.id_categoria, p.precio, " +
+                "p.stock, p.sizes, p.colors, p.descuento, p.barcode, c.nombre as categoria_nombre " +
+                "FROM productos p LEFT JOIN categorias c ON p.id_categoria = c.id_categoria " +
+                "WHERE p.nombre ILIKE ? OR p.barcode ILIKE ? ORDER BY p.nombre", PRODUCTO, 2);
+    }
+
+    @Benchmark
+    public List<Cliente> clientesTrigramas() {
+        return clienteDao.findByTermino(CLIENTE, LIMITE);
+    }
+
+    @Benchmark
+    public int clientesIlike() throws Exception {
+        return contar("SELECT id_cliente, nombre, direccion, correo, telefono, ciudad FROM clientes " +
+                "WHERE nombre ILIKE ? OR correo ILIKE ? OR telefono ILIKE ? ORDER BY nombre", CLIENTE, 3);
+    }
+
+    private static int contar(String sql, String termino, int parametros) throws Exception {
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 1; i <= parametros; i++) {
+                stmt.setString(i, "%" + termino + "%");
+            }
+            int filas = 0;
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    filas++;
+                }
+            }
+            return filas;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.mistrapitos.benchmarks;
+
+import com.mistrapitos.models.ProductoEnCarrito;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cálculo del total del carrito (suma de ProductoEnCarrito.getSubtotal) para carritos grandes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CarritoBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int lineas;
+
+    private List<ProductoEnCarrito> carrito;
+
+    @Setup
+    public void preparar() {
+        carrito = new ArrayList<>(lineas);
+        for (int i = 0; i < lineas; i++) {
+            ProductoEnCarrito item = new ProductoEnCarrito();
+            item.setIdProducto(i + 1);
+            item.setNombre("Producto " + i);
+            item.setCantidad(1 + i % 5);
+            item.setPrecioUnitario(100 + i % 900);
+            item.setDescuento(i % 30);
+            carrito.add(item);
+        }
+    }
+
+    @Benchmark
+    public double total() {
+        return carrito.stream().mapToDouble(ProductoEnCarrito::getSubtotal).sum();
+    }
+}
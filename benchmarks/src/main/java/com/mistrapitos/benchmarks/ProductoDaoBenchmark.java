@@ -0,0 +1,44 @@
+package com.mistrapitos.benchmarks;
+
+import com.mistrapitos.dao.ProductoDao;
+import com.mistrapitos.models.Producto;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Búsqueda de productos por nombre o código de barras contra PostgreSQL embebido.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductoDaoBenchmark {
+
+    @Param({"10000", "100000"})
+    public int productos;
+
+    @Param({"Vestido 12", "0000000004242"})
+    public String termino;
+
+    private ProductoDao productoDao;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        BaseDatosBenchmark.preparar(productos, 1000, 1000);
+        productoDao = new ProductoDao();
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        BaseDatosBenchmark.detener();
+    }
+
+    @Benchmark
+    public List<Producto> findByNombreOrBarcode() {
+        return productoDao.findByNombreOrBarcode(termino);
+    }
+}
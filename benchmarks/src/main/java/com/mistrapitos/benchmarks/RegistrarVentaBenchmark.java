@@ -0,0 +1,95 @@
+package com.mistrapitos.benchmarks;
+
+import com.mistrapitos.dao.ProductoDao;
+import com.mistrapitos.dao.VentaDao;
+import com.mistrapitos.models.Cliente;
+import com.mistrapitos.models.ProductoEnCarrito;
+import com.mistrapitos.models.Usuario;
+import com.mistrapitos.models.Venta;
+import com.mistrapitos.services.IndiceBarcode;
+import com.mistrapitos.services.VentaService;
+import com.mistrapitos.utils.DatabaseUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registro de una venta completa: ruta actual de VentaService.registrarVenta frente al
+ * ciclo anterior de un INSERT y un UPDATE de stock por línea del carrito.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RegistrarVentaBenchmark {
+
+    private static final int PRODUCTOS = 10000;
+
+    @Param({"5", "50"})
+    public int lineas;
+
+    private VentaService ventaService;
+    private VentaDao ventaDao;
+    private ProductoDao productoDao;
+    private List<ProductoEnCarrito> carrito;
+    private Cliente cliente;
+    private Usuario usuario;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        BaseDatosBenchmark.preparar(PRODUCTOS, 1000, 1000);
+        // Igual que en la aplicación: el índice de códigos de barras se refresca en su propio hilo
+        IndiceBarcode.getInstancia().iniciar();
+        ventaService = new VentaService();
+        ventaDao = new VentaDao();
+        productoDao = new ProductoDao();
+
+        carrito = new ArrayList<>(lineas);
+        for (int i = 0; i < lineas; i++) {
+            ProductoEnCarrito item = new ProductoEnCarrito();
+            item.setIdProducto(1 + (i * 97) % PRODUCTOS);
+            item.setNombre("Producto " + i);
+            item.setCantidad(1);
+            item.setPrecioUnitario(250);
+            carrito.add(item);
+        }
+        cliente = new Cliente();
+        cliente.setIdCliente(1);
+        usuario = new Usuario();
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        IndiceBarcode.getInstancia().detener();
+        BaseDatosBenchmark.detener();
+    }
+
+    @Benchmark
+    public VentaService.ResultadoVenta registrarVenta() {
+        return ventaService.registrarVenta(carrito, cliente, usuario, "Efectivo");
+    }
+
+    @Benchmark
+    public int lineaPorLinea() throws Exception {
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            Venta venta = new Venta();
+            venta.setIdCliente(cliente.getIdCliente());
+            venta.setMetodoPago("Efectivo");
+            venta.setTotal(carrito.stream().mapToDouble(ProductoEnCarrito::getSubtotal).sum());
+            int idVenta = ventaDao.insertar(venta, conn);
+            for (ProductoEnCarrito item : carrito) {
+                ventaDao.insertarDetalleVenta(idVenta, item.getIdProducto(), item.getCantidad(), item.getPrecioUnitario(), item.getDescuento(), conn);
+                productoDao.actualizarStock(item.getIdProducto(), -item.getCantidad(), conn);
+            }
+            conn.commit();
+            conn.setAutoCommit(true);
+            return idVenta;
+        }
+    }
+}
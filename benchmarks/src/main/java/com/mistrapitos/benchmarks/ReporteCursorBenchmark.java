@@ -0,0 +1,61 @@
+package com.mistrapitos.benchmarks;
+
+import com.mistrapitos.utils.ProgresoReporte;
+import com.mistrapitos.utils.ReporteUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reportes que leen ventas y productos directo de la base con un cursor, sin armar la lista en memoria.
+ * Se corre con -Xmx256m para comprobar que la memoria no crece con el rango;
+ * comparar contra ReporteUtilBenchmark, que necesita la lista completa.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx256m"})
+public class ReporteCursorBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int filas;
+
+    private File destino;
+    private LocalDate inicio;
+    private LocalDate fin;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        BaseDatosBenchmark.preparar(filas, 1_000, filas);
+        // Las ventas sintéticas cubren los últimos dos años
+        fin = LocalDate.now();
+        inicio = fin.minusYears(3);
+        destino = Files.createTempFile("reporte-cursor-bench", ".tmp").toFile();
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        destino.delete();
+        BaseDatosBenchmark.detener();
+    }
+
+    @Benchmark
+    public boolean ventasExcel() {
+        return ReporteUtil.generarReporteVentasExcel(inicio, fin, destino.getAbsolutePath());
+    }
+
+    @Benchmark
+    public boolean ventasPDF() {
+        return ReporteUtil.generarReporteVentasPDF(inicio, fin, destino.getAbsolutePath(), ProgresoReporte.NINGUNO);
+    }
+
+    @Benchmark
+    public boolean inventarioPDF() {
+        return ReporteUtil.generarReporteInventarioPDF(destino.getAbsolutePath(), ProgresoReporte.NINGUNO);
+    }
+}
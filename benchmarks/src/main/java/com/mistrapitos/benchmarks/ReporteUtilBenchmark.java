@@ -0,0 +1,77 @@
+package com.mistrapitos.benchmarks;
+
+import com.mistrapitos.models.Producto;
+import com.mistrapitos.models.Venta;
+import com.mistrapitos.utils.ReporteUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generación de reportes Excel y PDF de ReporteUtil para 10k, 100k y 1M filas.
+ * Con 1M filas los generadores en memoria pueden requerir -Xmx grande (o fallar); ese es el punto de partida a medir.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ReporteUtilBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int filas;
+
+    private List<Venta> ventas;
+    private List<Producto> productos;
+    private File destino;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        ventas = new ArrayList<>(filas);
+        productos = new ArrayList<>(filas);
+        LocalDateTime fecha = LocalDateTime.of(2025, 1, 1, 10, 0);
+        for (int i = 1; i <= filas; i++) {
+            Venta venta = new Venta(i, 1 + i % 1000, fecha.plusMinutes(i), i % 2 == 0 ? "Efectivo" : "Tarjeta", 250.0 * (1 + i % 5));
+            venta.setClienteNombre("Cliente " + i % 1000);
+            ventas.add(venta);
+
+            Producto producto = new Producto(i, "Camisa " + i, "Producto de prueba", 1 + i % 20, 100.0 + i % 900,
+                    i % 50, "S,M,L", "Rojo,Azul", i % 30, String.format("%013d", i));
+            producto.setCategoriaNombre("Categoria " + i % 20);
+            productos.add(producto);
+        }
+        destino = Files.createTempFile("reporte-bench", ".tmp").toFile();
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        destino.delete();
+    }
+
+    @Benchmark
+    public boolean ventasExcel() {
+        return ReporteUtil.generarReporteVentasExcel(ventas, destino.getAbsolutePath());
+    }
+
+    @Benchmark
+    public boolean ventasPDF() {
+        return ReporteUtil.generarReporteVentasPDF(ventas, destino.getAbsolutePath());
+    }
+
+    @Benchmark
+    public boolean inventarioExcel() {
+        return ReporteUtil.generarReporteInventarioExcel(productos, destino.getAbsolutePath());
+    }
+
+    @Benchmark
+    public boolean inventarioPDF() {
+        return ReporteUtil.generarReporteInventarioPDF(productos, destino.getAbsolutePath());
+    }
+}
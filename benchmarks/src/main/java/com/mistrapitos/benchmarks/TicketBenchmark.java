@@ -0,0 +1,127 @@
+package com.mistrapitos.benchmarks;
+
+import com.mistrapitos.models.Ticket;
+import com.mistrapitos.utils.RenderizadorTicket;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.text.DecimalFormat;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tickets generados por segundo con RenderizadorTicket en texto, ESC/POS y PDF, frente a
+ * la generación anterior con String.format y relleno carácter a carácter. Corre en 4
+ * hilos para simular varias cajas cobrando a la vez.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class TicketBenchmark {
+
+    private static final int ANCHO_TICKET = 40;
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+
+    @Param({"5", "50"})
+    public int lineas;
+
+    private Ticket ticket;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        List<Ticket.Linea> detalle = new ArrayList<>(lineas);
+        double total = 0;
+        for (int i = 0; i < lineas; i++) {
+            double descuento = i % 3 == 0 ? 10 : 0;
+            double precio = 250 * (1 - descuento / 100);
+            int cantidad = 1 + i % 4;
+            detalle.add(new Ticket.Linea("Camisa manga larga talla " + i, cantidad, precio, descuento, precio * cantidad));
+            total += precio * cantidad;
+        }
+        ticket = new Ticket(12345, LocalDateTime.of(2025, 1, 1, 10, 0), "Cliente de prueba", "5551234567",
+                null, "Efectivo", detalle, total);
+    }
+
+    @Benchmark
+    public String texto() {
+        return RenderizadorTicket.texto(ticket);
+    }
+
+    @Benchmark
+    public byte[] escPos() {
+        return RenderizadorTicket.escPos(ticket);
+    }
+
+    @Benchmark
+    public void pdf() throws Exception {
+        RenderizadorTicket.pdf(ticket, OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public String textoAnterior() {
+        return textoConFormat(ticket);
+    }
+
+    // Generación anterior de TicketUtil.generarContenidoTicket, como punto de comparación
+    private static String textoConFormat(Ticket t) {
+        DecimalFormat decimalFormat = new DecimalFormat("#,##0.00");
+        StringBuilder sb = new StringBuilder();
+        sb.append(centrarTexto("MIS TRAPITOS", ANCHO_TICKET)).append("\n");
+        sb.append(centrarTexto("TIENDA DE ROPA", ANCHO_TICKET)).append("\n");
+        sb.append(repetirCaracter('-', ANCHO_TICKET)).append("\n");
+        sb.append("TICKET DE VENTA #").append(t.getNumero()).append("\n");
+        sb.append("FECHA: ").append(t.getFecha().format(DATE_FORMATTER)).append("\n");
+        sb.append("CLIENTE: ").append(t.getCliente()).append("\n");
+        sb.append("TELÉFONO: ").append(t.getTelefono()).append("\n");
+        sb.append(repetirCaracter('-', ANCHO_TICKET)).append("\n");
+        sb.append(String.format("%-20s %5s %7s %7s", "PRODUCTO", "CANT", "PRECIO", "TOTAL")).append("\n");
+        sb.append(repetirCaracter('-', ANCHO_TICKET)).append("\n");
+        for (Ticket.Linea linea : t.getLineas()) {
+            String nombreProducto = linea.getProducto();
+            if (nombreProducto.length() > 20) {
+                nombreProducto = nombreProducto.substring(0, 17) + "...";
+            }
+            sb.append(String.format("%-20s %5d %7s %7s",
+                    nombreProducto,
+                    linea.getCantidad(),
+                    "$" + decimalFormat.format(linea.getPrecio()),
+                    "$" + decimalFormat.format(linea.getSubtotal()))).append("\n");
+            if (linea.getDescuento() > 0) {
+                sb.append(String.format("  Desc: %.0f%% aplicado", linea.getDescuento())).append("\n");
+            }
+        }
+        sb.append(repetirCaracter('-', ANCHO_TICKET)).append("\n");
+        sb.append(String.format("%32s %7s", "TOTAL:", "$" + decimalFormat.format(t.getTotal()))).append("\n");
+        sb.append(repetirCaracter('-', ANCHO_TICKET)).append("\n");
+        sb.append("MÉTODO DE PAGO: ").append(t.getMetodoPago()).append("\n");
+        sb.append(repetirCaracter('-', ANCHO_TICKET)).append("\n");
+        sb.append(centrarTexto("¡GRACIAS POR SU COMPRA!", ANCHO_TICKET)).append("\n");
+        sb.append(centrarTexto("VUELVA PRONTO", ANCHO_TICKET)).append("\n");
+        sb.append("\n\n\n\n");
+        return sb.toString();
+    }
+
+    private static String centrarTexto(String texto, int ancho) {
+        if (texto.length() >= ancho) {
+            return texto;
+        }
+        int espaciosIzquierda = (ancho - texto.length()) / 2;
+        int espaciosDerecha = ancho - texto.length() - espaciosIzquierda;
+        return repetirCaracter(' ', espaciosIzquierda) + texto + repetirCaracter(' ', espaciosDerecha);
+    }
+
+    private static String repetirCaracter(char caracter, int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            sb.append(caracter);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,63 @@
+package com.mistrapitos.benchmarks;
+
+import com.mistrapitos.dao.VentaDao;
+import com.mistrapitos.models.FiltroVentas;
+import com.mistrapitos.models.Venta;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listado de ventas: todo el historial con findAll frente a una página por llave (fecha, id_venta),
+ * tanto la primera como una al fondo del historial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VentaDaoBenchmark {
+
+    private static final int TAMANO_PAGINA = 100;
+
+    @Param({"100000", "1000000"})
+    public int ventas;
+
+    private VentaDao ventaDao;
+    private Venta cursorProfundo;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        BaseDatosBenchmark.preparar(1000, 1000, ventas);
+        ventaDao = new VentaDao();
+        // Recorre las páginas hasta el 90 % del historial para tener un cursor profundo
+        Venta ultima = null;
+        for (int i = 0; i < ventas * 9 / 10 / TAMANO_PAGINA; i++) {
+            List<Venta> pagina = ventaDao.findPagina(FiltroVentas.todas(), ultima, TAMANO_PAGINA);
+            ultima = pagina.get(pagina.size() - 1);
+        }
+        cursorProfundo = ultima;
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        BaseDatosBenchmark.detener();
+    }
+
+    @Benchmark
+    public List<Venta> findAll() {
+        return ventaDao.findAll();
+    }
+
+    @Benchmark
+    public List<Venta> primeraPagina() {
+        return ventaDao.findPagina(FiltroVentas.todas(), null, TAMANO_PAGINA);
+    }
+
+    @Benchmark
+    public List<Venta> paginaProfunda() {
+        return ventaDao.findPagina(FiltroVentas.todas(), cursorProfundo, TAMANO_PAGINA);
+    }
+}
@@ -0,0 +1,60 @@
+package com.mistrapitos.dao;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ResultSet en memoria sobre filas grabadas, para medir el mapeo de filas sin red ni driver.
+ * Solo implementa los métodos que usan los mapeadores de los DAO.
+ */
+final class FixtureResultSet {
+
+    private FixtureResultSet() {
+    }
+
+    /**
+     * Crea un ResultSet que recorre las filas indicadas.
+     * @param columnas Nombres de las columnas
+     * @param filas Valores de cada fila, en el orden de las columnas
+     * @return ResultSet de solo avance
+     */
+    static ResultSet de(String[] columnas, List<Object[]> filas) {
+        Map<String, Integer> indices = new HashMap<>();
+        for (int i = 0; i < columnas.length; i++) {
+            indices.put(columnas[i], i);
+        }
+        int[] actual = {-1};
+        Object[] ultimo = {null};
+
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, metodo, args) -> {
+                    switch (metodo.getName()) {
+                        case "next":
+                            return ++actual[0] < filas.size();
+                        case "wasNull":
+                            return ultimo[0] == null;
+                        case "close":
+                            return null;
+                        case "getInt":
+                        case "getString":
+                        case "getDouble":
+                        case "getTimestamp":
+                        case "getObject":
+                            Object valor = filas.get(actual[0])[indices.get((String) args[0])];
+                            ultimo[0] = valor;
+                            if (metodo.getName().equals("getInt")) {
+                                return valor == null ? 0 : ((Number) valor).intValue();
+                            }
+                            if (metodo.getName().equals("getDouble")) {
+                                return valor == null ? 0.0 : ((Number) valor).doubleValue();
+                            }
+                            return valor;
+                        default:
+                            throw new UnsupportedOperationException(metodo.getName());
+                    }
+                });
+    }
+}
@@ -0,0 +1,69 @@
+package com.mistrapitos.dao;
+
+import com.mistrapitos.models.Producto;
+import com.mistrapitos.models.Venta;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de mapear filas a Producto y Venta (mapResultSetToProducto / mapResultSetToVenta)
+ * sobre filas grabadas en memoria. Está en el paquete dao para acceder a los mapeadores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapeoFilasBenchmark {
+
+    private static final String[] COLUMNAS_PRODUCTO = {"id_producto", "nombre", "descripcion", "id_categoria",
+            "precio", "stock", "sizes", "colors", "descuento", "barcode", "categoria_nombre"};
+    private static final String[] COLUMNAS_VENTA = {"id_venta", "id_cliente", "fecha", "metodo_pago", "total",
+            "cliente_nombre"};
+
+    @Param({"1000"})
+    public int filas;
+
+    private final ProductoDao productoDao = new ProductoDao();
+    private final VentaDao ventaDao = new VentaDao();
+    private List<Object[]> filasProducto;
+    private List<Object[]> filasVenta;
+
+    @Setup
+    public void preparar() {
+        filasProducto = new ArrayList<>(filas);
+        filasVenta = new ArrayList<>(filas);
+        Timestamp fecha = Timestamp.valueOf("2025-06-01 12:00:00");
+        for (int i = 1; i <= filas; i++) {
+            filasProducto.add(new Object[]{i, "Camisa " + i, "Producto de prueba", 1 + i % 20, 100.0 + i % 900,
+                    i % 50, "S,M,L", "Rojo,Azul", (double) (i % 30), String.format("%013d", i), "Categoria " + i % 20});
+            filasVenta.add(new Object[]{i, 1 + i % 1000, fecha, "Efectivo", 250.0 * (1 + i % 5), "Cliente " + i});
+        }
+    }
+
+    @Benchmark
+    public void mapearProductos(Blackhole bh) throws SQLException {
+        ResultSet rs = FixtureResultSet.de(COLUMNAS_PRODUCTO, filasProducto);
+        while (rs.next()) {
+            Producto producto = productoDao.mapResultSetToProducto(rs);
+            bh.consume(producto);
+        }
+    }
+
+    @Benchmark
+    public void mapearVentas(Blackhole bh) throws SQLException {
+        ResultSet rs = FixtureResultSet.de(COLUMNAS_VENTA, filasVenta);
+        while (rs.next()) {
+            Venta venta = ventaDao.mapResultSetToVenta(rs);
+            bh.consume(venta);
+        }
+    }
+}
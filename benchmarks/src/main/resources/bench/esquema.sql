@@ -0,0 +1,54 @@
+-- Esquema mínimo de la aplicación para los benchmarks (tablas usadas por ventas e inventario).
+CREATE TABLE categorias (
+    id_categoria SERIAL PRIMARY KEY,
+    nombre VARCHAR(100) NOT NULL UNIQUE
+);
+
+CREATE TABLE productos (
+    id_producto SERIAL PRIMARY KEY,
+    nombre VARCHAR(150) NOT NULL,
+    descripcion TEXT,
+    id_categoria INTEGER REFERENCES categorias (id_categoria),
+    precio NUMERIC(10, 2) NOT NULL,
+    stock INTEGER NOT NULL DEFAULT 0,
+    sizes VARCHAR(100),
+    colors VARCHAR(100),
+    descuento NUMERIC(5, 2) DEFAULT 0,
+    barcode VARCHAR(50)
+);
+
+CREATE TABLE clientes (
+    id_cliente SERIAL PRIMARY KEY,
+    nombre VARCHAR(150) NOT NULL,
+    direccion VARCHAR(200),
+    correo VARCHAR(150),
+    telefono VARCHAR(20),
+    ciudad VARCHAR(100)
+);
+
+CREATE TABLE ventas (
+    id_venta SERIAL PRIMARY KEY,
+    id_cliente INTEGER REFERENCES clientes (id_cliente),
+    fecha TIMESTAMP NOT NULL DEFAULT now(),
+    metodo_pago VARCHAR(30) NOT NULL,
+    total NUMERIC(12, 2) NOT NULL
+);
+
+CREATE TABLE detalle_venta (
+    id_detalle SERIAL PRIMARY KEY,
+    id_venta INTEGER NOT NULL REFERENCES ventas (id_venta),
+    id_producto INTEGER NOT NULL REFERENCES productos (id_producto),
+    cantidad INTEGER NOT NULL,
+    precio_unitario NUMERIC(10, 2) NOT NULL,
+    descuento_aplicado NUMERIC(5, 2) DEFAULT 0
+);
+
+CREATE TABLE proveedores (
+    id_proveedor SERIAL PRIMARY KEY,
+    nombre VARCHAR(150) NOT NULL,
+    contacto VARCHAR(150),
+    direccion VARCHAR(200),
+    telefono VARCHAR(20),
+    correo VARCHAR(150),
+    productos_vendidos TEXT
+);
@@ -0,0 +1,47 @@
+package com.mistrapitos.dao;
+
+import com.mistrapitos.benchmarks.BaseDatosBenchmark;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Las búsquedas por texto con un argumento traen todas las coincidencias; solo la
+ * sobrecarga con límite recorta, contra PostgreSQL real.
+ */
+class BusquedaTextoTest {
+
+    // Más coincidencias que el busqueda.limite por omisión (200)
+    private static final int REGISTROS = 1500;
+
+    private final ProductoDao productoDao = new ProductoDao();
+    private final ClienteDao clienteDao = new ClienteDao();
+
+    @BeforeAll
+    static void preparar() throws Exception {
+        BaseDatosBenchmark.preparar(REGISTROS, REGISTROS, 0);
+    }
+
+    @AfterAll
+    static void cerrar() {
+        BaseDatosBenchmark.detener();
+    }
+
+    @Test
+    void sinLimiteTraeTodasLasCoincidencias() {
+        // Uno de cada cinco productos es camisa
+        assertEquals(REGISTROS / 5, productoDao.findByNombreOrBarcode("Camisa").size());
+        assertEquals(REGISTROS, clienteDao.findByTermino("Cliente").size());
+    }
+
+    @Test
+    void conLimiteRecorta() {
+        assertEquals(25, productoDao.findByNombreOrBarcode("Camisa", 25).size());
+        assertEquals(25, clienteDao.findByTermino("Cliente", 25).size());
+        assertThrows(IllegalArgumentException.class, () -> productoDao.findByNombreOrBarcode("Camisa", 0));
+        assertThrows(IllegalArgumentException.class, () -> clienteDao.findByTermino("Cliente", 0));
+    }
+}
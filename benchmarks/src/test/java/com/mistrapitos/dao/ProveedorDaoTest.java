@@ -0,0 +1,69 @@
+package com.mistrapitos.dao;
+
+import com.mistrapitos.benchmarks.BaseDatosBenchmark;
+import com.mistrapitos.models.Proveedor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Productos de un proveedor guardados en proveedor_productos, contra PostgreSQL real.
+ */
+class ProveedorDaoTest {
+
+    private static final ProveedorDao proveedorDao = new ProveedorDao();
+
+    @BeforeAll
+    static void preparar() throws Exception {
+        BaseDatosBenchmark.preparar(10, 1, 0);
+    }
+
+    @AfterAll
+    static void cerrar() {
+        BaseDatosBenchmark.detener();
+    }
+
+    @Test
+    void guardaLosProductosNombrados() {
+        Proveedor proveedor = proveedorDao.save(nuevo("Telas del Norte", "Pantalon 1, Vestido 2"));
+
+        assertTrue(proveedor.getIdProveedor() > 0);
+        assertEquals(List.of(1, 2), proveedorDao.getProductosAsociados(proveedor.getIdProveedor()));
+        assertEquals("Pantalon 1, Vestido 2", proveedorDao.findById(proveedor.getIdProveedor())
+                .orElseThrow().getProductosVendidos());
+    }
+
+    @Test
+    void rechazaUnAltaConProductosInexistentes() {
+        int antes = proveedorDao.findAll().size();
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> proveedorDao.save(nuevo("Hilos Sur", "Pantalon 1, Corbata, Vestido 2, Bufanda")));
+
+        assertEquals("No existen los productos: Bufanda, Corbata", error.getMessage());
+        assertEquals(antes, proveedorDao.findAll().size(), "el proveedor no debe quedar guardado");
+    }
+
+    @Test
+    void rechazaUnCambioConProductosInexistentesSinTocarLosAnteriores() {
+        Proveedor proveedor = proveedorDao.save(nuevo("Botones Centro", "Blusa 3"));
+        proveedor.setNombre("Botones Centro y Sur");
+        proveedor.setProductosVendidos("Blusa 3, Chamarra 4, Corbata");
+
+        assertThrows(IllegalArgumentException.class, () -> proveedorDao.update(proveedor));
+
+        Proveedor guardado = proveedorDao.findById(proveedor.getIdProveedor()).orElseThrow();
+        assertEquals("Botones Centro", guardado.getNombre());
+        assertEquals(List.of(3), proveedorDao.getProductosAsociados(proveedor.getIdProveedor()));
+    }
+
+    private static Proveedor nuevo(String nombre, String productos) {
+        return new Proveedor(0, nombre, "Contacto", "Calle 1", "3300000000", "ventas@proveedor.com", productos);
+    }
+}
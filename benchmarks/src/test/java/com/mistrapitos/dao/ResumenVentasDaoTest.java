@@ -0,0 +1,108 @@
+package com.mistrapitos.dao;
+
+import com.mistrapitos.benchmarks.BaseDatosBenchmark;
+import com.mistrapitos.models.DetalleVenta;
+import com.mistrapitos.models.ProductoVentaResumen;
+import com.mistrapitos.models.Venta;
+import com.mistrapitos.utils.DatabaseUtil;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Resúmenes diarios repartidos en ranuras y restados con la categoría y ciudad con que se
+ * sumaron, contra PostgreSQL real.
+ */
+class ResumenVentasDaoTest {
+
+    private static final int VENTAS = 20;
+
+    @BeforeAll
+    static void preparar() throws Exception {
+        BaseDatosBenchmark.preparar(100, 10, 0);
+    }
+
+    @AfterAll
+    static void cerrar() {
+        BaseDatosBenchmark.detener();
+    }
+
+    @Test
+    void lasVentasDelDiaSeRepartenEnRanurasYLosReportesLasSuman() throws SQLException {
+        VentaDao ventaDao = new VentaDao();
+        ResumenVentasDao resumenVentasDao = new ResumenVentasDao();
+        LocalDate hoy = LocalDate.now();
+        for (int i = 0; i < VENTAS; i++) {
+            Venta venta = new Venta(0, 1, LocalDateTime.now(), "Efectivo", 250.0 * (i + 1));
+            venta.getDetalles().add(new DetalleVenta(0, 0, 1 + i % 3, i + 1, 250.0, 0));
+            ventaDao.save(venta);
+        }
+
+        int filas = consultarEntero("SELECT COUNT(*) FROM resumen_ventas_dia WHERE dia = CURRENT_DATE");
+        assertTrue(filas > 1, "todas las ventas del día cayeron en una sola fila");
+        assertEquals(VENTAS, resumenVentasDao.obtenerNumeroVentas(hoy, hoy));
+        assertEquals(250.0 * VENTAS * (VENTAS + 1) / 2, resumenVentasDao.obtenerTotal(hoy, hoy), 0.001);
+        assertEquals(1, resumenVentasDao.obtenerMetodosPago(hoy, hoy).size());
+        assertEquals(VENTAS * (VENTAS + 1) / 2, resumenVentasDao.obtenerProductosMasVendidos(hoy, hoy).stream()
+                .mapToInt(ProductoVentaResumen::getCantidadVendida).sum());
+    }
+
+    @Test
+    void editarYAnularRestanDeLaCategoriaYCiudadConQueSeSumo() throws SQLException {
+        VentaDao ventaDao = new VentaDao();
+        // Un día sin otras ventas, para revisar todas sus filas de resumen
+        LocalDateTime fecha = LocalDateTime.now().minusYears(8);
+        Venta venta = new Venta(0, 2, fecha, "Tarjeta", 500.0);
+        venta.getDetalles().add(new DetalleVenta(0, 0, 5, 2, 100.0, 0));
+        venta.getDetalles().add(new DetalleVenta(0, 0, 6, 3, 100.0, 0));
+        ventaDao.save(venta);
+        String dia = "DATE '" + fecha.toLocalDate() + "'";
+        int categoria = consultarEntero("SELECT id_categoria FROM productos WHERE id_producto = 5");
+
+        ejecutar("UPDATE productos SET id_categoria = 1 + id_categoria % 20 WHERE id_producto = 5");
+        ejecutar("UPDATE clientes SET ciudad = 'Mudado' WHERE id_cliente = 2");
+
+        venta.getDetalles().get(0).setCantidad(4);
+        venta.setTotal(700.0);
+        ventaDao.update(venta);
+        assertEquals(0, consultarEntero("SELECT COUNT(*) FROM resumen_ventas_producto_dia WHERE dia = " + dia +
+                " AND (cantidad < 0 OR ciudad = 'Mudado' OR (id_producto = 5 AND id_categoria <> " + categoria + "))"));
+        assertEquals(4, consultarEntero("SELECT SUM(cantidad) FROM resumen_ventas_producto_dia WHERE dia = " + dia +
+                " AND id_producto = 5 AND id_categoria = " + categoria));
+        assertEquals(1, consultarEntero("SELECT SUM(num_ventas) FROM resumen_ventas_dia WHERE dia = " + dia +
+                " AND ciudad <> 'Mudado'"));
+
+        ventaDao.anularVentas(List.of(venta.getIdVenta()), false);
+        assertEquals(0, consultarEntero("SELECT COUNT(*) FROM resumen_ventas_producto_dia WHERE dia = " + dia +
+                " AND (cantidad <> 0 OR importe <> 0)"));
+        assertEquals(0, consultarEntero("SELECT COUNT(*) FROM resumen_ventas_dia WHERE dia = " + dia +
+                " AND (num_ventas <> 0 OR total <> 0)"));
+    }
+
+    private static int consultarEntero(String sql) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static void ejecutar(String sql) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.mistrapitos.dao;
+
+import com.mistrapitos.benchmarks.BaseDatosBenchmark;
+import com.mistrapitos.models.DetalleVenta;
+import com.mistrapitos.models.FaltanteStock;
+import com.mistrapitos.models.Venta;
+import com.mistrapitos.services.StockInsuficienteException;
+import com.mistrapitos.utils.DatabaseUtil;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Edición de ventas con VentaDao.update, contra PostgreSQL real.
+ */
+class VentaDaoTest {
+
+    private static final VentaDao ventaDao = new VentaDao();
+
+    @BeforeAll
+    static void preparar() throws Exception {
+        BaseDatosBenchmark.preparar(20, 1, 0);
+    }
+
+    @AfterAll
+    static void cerrar() {
+        BaseDatosBenchmark.detener();
+    }
+
+    @Test
+    void lasLineasNuevasRecibenElIdDeSuPosicion() throws SQLException {
+        Venta venta = nueva(new DetalleVenta(0, 0, 6, 1, 100, 0), new DetalleVenta(0, 0, 7, 1, 100, 0));
+        int stock8 = consultarEntero("SELECT stock FROM productos WHERE id_producto = ?", 8);
+
+        List<DetalleVenta> detalles = venta.getDetalles();
+        detalles.get(0).setCantidad(2);
+        detalles.remove(1);
+        // Varias altas en desorden de producto, para que un ID mal asignado se note
+        detalles.add(new DetalleVenta(0, 0, 9, 4, 100, 0));
+        detalles.add(new DetalleVenta(0, 0, 8, 3, 100, 0));
+        detalles.add(new DetalleVenta(0, 0, 10, 5, 100, 0));
+        ventaDao.update(venta);
+
+        for (DetalleVenta detalle : detalles) {
+            assertTrue(detalle.getIdDetalle() > 0);
+            assertEquals(detalle.getIdProducto(), consultarEntero(
+                    "SELECT id_producto FROM detalle_venta WHERE id_detalle = ?", detalle.getIdDetalle()));
+            assertEquals(detalle.getCantidad(), consultarEntero(
+                    "SELECT cantidad FROM detalle_venta WHERE id_detalle = ?", detalle.getIdDetalle()));
+        }
+        assertEquals(4, consultarEntero("SELECT COUNT(*) FROM detalle_venta WHERE id_venta = ?", venta.getIdVenta()));
+        assertEquals(stock8 - 3, consultarEntero("SELECT stock FROM productos WHERE id_producto = ?", 8));
+    }
+
+    @Test
+    void unaEdicionSinStockSeRechazaYLaVentaQuedaComoEstaba() throws SQLException {
+        Venta venta = nueva(new DetalleVenta(0, 0, 11, 2, 100, 0));
+        int idDetalle = venta.getDetalles().get(0).getIdDetalle();
+        ejecutar("UPDATE productos SET stock = 1 WHERE id_producto = 12");
+        // Al producto 11 le sobra stock: solo debe aparecer el 12
+        ejecutar("UPDATE productos SET stock = 0 WHERE id_producto = 11");
+
+        venta.getDetalles().get(0).setCantidad(1);
+        venta.getDetalles().add(new DetalleVenta(0, 0, 12, 3, 100, 0));
+        venta.setTotal(400);
+        StockInsuficienteException error = assertThrows(StockInsuficienteException.class, () -> ventaDao.update(venta));
+
+        List<FaltanteStock> faltantes = error.getFaltantes();
+        assertEquals(1, faltantes.size());
+        assertEquals(12, faltantes.get(0).getIdProducto());
+        assertEquals(3, faltantes.get(0).getSolicitado());
+        assertEquals(1, faltantes.get(0).getDisponible());
+        assertEquals(0, venta.getDetalles().get(1).getIdDetalle(), "la línea rechazada no recibe ID");
+        assertEquals(1, consultarEntero("SELECT stock FROM productos WHERE id_producto = ?", 12));
+        assertEquals(0, consultarEntero("SELECT stock FROM productos WHERE id_producto = ?", 11));
+        assertEquals(2, consultarEntero("SELECT cantidad FROM detalle_venta WHERE id_detalle = ?", idDetalle));
+        assertEquals(1, consultarEntero("SELECT COUNT(*) FROM detalle_venta WHERE id_venta = ?", venta.getIdVenta()));
+        assertEquals(200, consultarEntero("SELECT total::int FROM ventas WHERE id_venta = ?", venta.getIdVenta()));
+    }
+
+    private static Venta nueva(DetalleVenta... detalles) {
+        Venta venta = new Venta(0, 1, LocalDateTime.now(), "Efectivo", 0);
+        double total = 0;
+        for (DetalleVenta detalle : detalles) {
+            venta.getDetalles().add(detalle);
+            total += detalle.getCantidad() * detalle.getPrecioUnitario();
+        }
+        venta.setTotal(total);
+        return ventaDao.save(venta);
+    }
+
+    private static int consultarEntero(String sql, int parametro) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, parametro);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    private static void ejecutar(String sql) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.executeUpdate();
+        }
+    }
+}
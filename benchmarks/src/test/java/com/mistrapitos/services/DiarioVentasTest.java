@@ -0,0 +1,181 @@
+package com.mistrapitos.services;
+
+import com.mistrapitos.benchmarks.BaseDatosBenchmark;
+import com.mistrapitos.models.Cliente;
+import com.mistrapitos.models.ProductoEnCarrito;
+import com.mistrapitos.models.Usuario;
+import com.mistrapitos.utils.DatabaseUtil;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reenvío del diario local de ventas a PostgreSQL real: registros incompletos al final del
+ * archivo, reenvíos repetidos, ventas para las que ya no alcanza el stock y cobros mientras
+ * quedan ventas en el diario.
+ */
+class DiarioVentasTest {
+
+    @BeforeAll
+    static void preparar() throws Exception {
+        BaseDatosBenchmark.preparar(10, 1, 0);
+        IndiceBarcode.getInstancia().iniciar();
+    }
+
+    @AfterAll
+    static void cerrar() {
+        IndiceBarcode.getInstancia().detener();
+        BaseDatosBenchmark.detener();
+    }
+
+    @Test
+    void unRegistroCortadoSeDescartaYReenviarDosVecesNoDuplica(@TempDir Path directorio) throws Exception {
+        Cliente cliente = new Cliente(1, "Cliente 1", "", "", "", "");
+        List<DiarioVentas.VentaPendiente> ventas = List.of(
+                pendiente(cliente, 4, 2, 150.0),
+                pendiente(null, 4, 1, 75.0),
+                pendiente(null, 5, 3, 90.0));
+        int stockAntes = stock(4);
+        DiarioVentas diario = new DiarioVentas(directorio);
+        for (DiarioVentas.VentaPendiente venta : ventas) {
+            diario.registrar(venta);
+        }
+        diario.detener();
+        // La caja se apagó a media escritura del siguiente registro
+        Path archivo = directorio.resolve("ventas.diario");
+        Files.write(archivo, new byte[]{0, 0, 0, 64, 1, 2, 3}, StandardOpenOption.APPEND);
+        Path copia = Files.copy(archivo, directorio.resolve("copia.diario"));
+
+        reenviar(directorio);
+        // Se cerró entre el commit y la marca en el diario: las mismas ventas vuelven a estar pendientes
+        Files.copy(copia, archivo, StandardCopyOption.REPLACE_EXISTING);
+        reenviar(directorio);
+
+        for (DiarioVentas.VentaPendiente venta : ventas) {
+            assertEquals(1, contar("SELECT COUNT(*) FROM ventas WHERE uuid_venta = ?", venta.uuid()));
+            assertEquals(venta.total(), total(venta.uuid()), 0.001, "cada ID generado va con su venta");
+            assertEquals(venta.productos().get(0).getCantidad(), contar(
+                    "SELECT SUM(d.cantidad) FROM detalle_venta d JOIN ventas v ON v.id_venta = d.id_venta " +
+                    "WHERE v.uuid_venta = ?", venta.uuid()));
+        }
+        assertEquals(stockAntes - 3, stock(4), "el stock se descuenta una sola vez");
+        assertEquals(0, Files.size(archivo), "sin pendientes el diario queda vacío");
+    }
+
+    @Test
+    void unaVentaSinStockSeGuardaYQuedaAnotada(@TempDir Path directorio) throws Exception {
+        ejecutar("UPDATE productos SET stock = 2 WHERE id_producto = 3");
+        DiarioVentas.VentaPendiente alcanza = pendiente(null, 3, 2, 100.0);
+        DiarioVentas.VentaPendiente noAlcanza = pendiente(null, 3, 1, 50.0);
+        DiarioVentas diario = new DiarioVentas(directorio);
+        diario.registrar(alcanza);
+        diario.registrar(noAlcanza);
+
+        assertEquals(2, diario.sincronizar(), "una venta ya cobrada no se rechaza por falta de stock");
+        diario.detener();
+
+        assertFalse(diario.hayPendientes());
+        assertEquals(-1, stock(3), "el stock queda negativo para revisarlo");
+        assertEquals(1, contar("SELECT COUNT(*) FROM ventas WHERE uuid_venta = ?", alcanza.uuid()));
+        assertEquals(1, contar("SELECT COUNT(*) FROM ventas WHERE uuid_venta = ?", noAlcanza.uuid()));
+        assertFalse(Files.exists(directorio.resolve("ventas-rechazadas.txt")));
+        String sinStock = Files.readString(directorio.resolve("ventas-sin-stock.txt"), StandardCharsets.UTF_8);
+        assertTrue(sinStock.contains(noAlcanza.uuid().toString()), sinStock);
+    }
+
+    @Test
+    void conVentasEnElDiarioElCobroSigueIntentandoLaBase() throws Exception {
+        DiarioVentas diario = DiarioVentas.getInstancia();
+        DiarioVentas.VentaPendiente anterior = pendiente(null, 6, 1, 80.0);
+        diario.registrar(anterior);
+        try {
+            ProductoEnCarrito item = pendiente(null, 7, 1, 90.0).productos().get(0);
+            Cliente cliente = new Cliente(1, "Cliente 1", "", "", "", "");
+
+            assertEquals(VentaService.ResultadoVenta.REGISTRADA,
+                    new VentaService().registrarVenta(List.of(item), cliente, new Usuario(), "Efectivo"));
+            assertTrue(diario.hayPendientes(), "la venta anterior sigue esperando su envío");
+        } finally {
+            diario.sincronizar();
+            diario.detener();
+        }
+        assertEquals(1, contar("SELECT COUNT(*) FROM ventas WHERE uuid_venta = ?", anterior.uuid()));
+    }
+
+    /**
+     * Abre el diario como al iniciar la caja y espera a que se envíe lo pendiente.
+     */
+    private static void reenviar(Path directorio) {
+        DiarioVentas diario = new DiarioVentas(directorio);
+        diario.iniciar();
+        try {
+            // Espera al envío que programó iniciar, si ya empezó, y envía lo que quede
+            diario.sincronizar();
+            assertFalse(diario.hayPendientes(), "el registro cortado no debe impedir enviar los anteriores");
+        } finally {
+            diario.detener();
+        }
+    }
+
+    private static DiarioVentas.VentaPendiente pendiente(Cliente cliente, int idProducto, int cantidad, double total) {
+        ProductoEnCarrito item = new ProductoEnCarrito();
+        item.setIdProducto(idProducto);
+        item.setNombre("Producto " + idProducto);
+        item.setCantidad(cantidad);
+        item.setPrecioUnitario(total / cantidad);
+        return new DiarioVentas.VentaPendiente(UUID.randomUUID(), LocalDateTime.now(), cliente, "Efectivo",
+                total, List.of(item));
+    }
+
+    private static int stock(int idProducto) throws SQLException {
+        return contar("SELECT stock FROM productos WHERE id_producto = ?", idProducto);
+    }
+
+    private static double total(UUID uuid) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT total FROM ventas WHERE uuid_venta = ?")) {
+            stmt.setObject(1, uuid);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getDouble(1);
+            }
+        }
+    }
+
+    private static int contar(String sql, Object parametro) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setObject(1, parametro);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    private static void ejecutar(String sql) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.mistrapitos.services;
+
+import com.mistrapitos.benchmarks.BaseDatosBenchmark;
+import com.mistrapitos.dao.ClienteDao;
+import com.mistrapitos.models.Cliente;
+import com.mistrapitos.utils.DatabaseUtil;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * El directorio de clientes ve las altas y cambios hechos en otra caja (directo en la base,
+ * sin pasar por ClienteService) al refrescarse, sin volver a leer la tabla completa.
+ */
+class DirectorioClientesTest {
+
+    @BeforeAll
+    static void preparar() throws Exception {
+        BaseDatosBenchmark.preparar(1, 50, 0);
+    }
+
+    @AfterAll
+    static void cerrar() {
+        BaseDatosBenchmark.detener();
+    }
+
+    @Test
+    void refrescarTraeAltasYCambiosDeOtraCaja() throws SQLException {
+        DirectorioClientes directorio = new DirectorioClientes(new ClienteDao());
+        directorio.cargar();
+        assertTrue(directorio.buscar("Zacarias").isEmpty());
+
+        ejecutar("INSERT INTO clientes (nombre, direccion, correo, telefono, ciudad) " +
+                "VALUES ('Zacarías Otra Caja', 'Calle 1', 'zacarias@correo.com', '3300000000', 'Zapopan')");
+        ejecutar("UPDATE clientes SET nombre = 'Renombrado Otra Caja' WHERE nombre = 'Cliente 7'");
+        assertTrue(directorio.buscar("Zacarias").isEmpty());
+
+        directorio.refrescar();
+        List<Cliente> nuevos = directorio.buscar("Zacarias");
+        assertEquals(1, nuevos.size());
+        assertEquals("Zapopan", nuevos.get(0).getCiudad());
+        assertEquals(1, directorio.buscar("renombrado").size());
+        assertTrue(directorio.buscarExacto("Cliente 7").isEmpty());
+        // Los cambios se reemplazan, no se duplican, aunque el margen los vuelva a traer
+        directorio.refrescar();
+        assertEquals(2, directorio.buscar("otra caja").size());
+    }
+
+    private static void ejecutar(String sql) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
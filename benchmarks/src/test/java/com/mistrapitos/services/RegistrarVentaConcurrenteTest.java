@@ -0,0 +1,143 @@
+package com.mistrapitos.services;
+
+import com.mistrapitos.benchmarks.BaseDatosBenchmark;
+import com.mistrapitos.models.Cliente;
+import com.mistrapitos.models.ProductoEnCarrito;
+import com.mistrapitos.models.Usuario;
+import com.mistrapitos.utils.DatabaseUtil;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Muchos vendedores cobrando a la vez los mismos productos con poco stock, contra PostgreSQL
+ * real. Cada vendedor es un hilo virtual y son muchos más que las conexiones del pool, así que
+ * los cobros esperan por una conexión y compiten por las mismas filas de productos.
+ */
+class RegistrarVentaConcurrenteTest {
+
+    private static final int VENDEDORES = 500;
+    private static final int VENTAS_POR_VENDEDOR = 2;
+    private static final int STOCK_ESCASO = 300;
+    private static final int STOCK_HOLGADO = 450;
+
+    @BeforeAll
+    static void preparar() throws Exception {
+        BaseDatosBenchmark.preparar(100, 10, 0);
+        ejecutar("UPDATE productos SET stock = " + STOCK_ESCASO + " WHERE id_producto = 1");
+        ejecutar("UPDATE productos SET stock = " + STOCK_HOLGADO + " WHERE id_producto = 2");
+        // Igual que en la aplicación: el índice de códigos de barras se refresca en su propio hilo
+        IndiceBarcode.getInstancia().iniciar();
+    }
+
+    @AfterAll
+    static void cerrar() {
+        IndiceBarcode.getInstancia().detener();
+        BaseDatosBenchmark.detener();
+    }
+
+    @Test
+    void elStockNuncaQuedaNegativo() throws Exception {
+        VentaService ventaService = new VentaService();
+        Cliente cliente = new Cliente();
+        cliente.setIdCliente(1);
+        AtomicInteger registradas = new AtomicInteger();
+        AtomicInteger rechazadas = new AtomicInteger();
+        AtomicInteger otras = new AtomicInteger();
+        AtomicInteger menorStock = new AtomicInteger(Integer.MAX_VALUE);
+        AtomicBoolean cobrando = new AtomicBoolean(true);
+        CountDownLatch salida = new CountDownLatch(1);
+
+        ExecutorService vendedores = Executors.newVirtualThreadPerTaskExecutor();
+        // Mientras se cobra, otra conexión vigila que ningún producto baje de cero
+        Future<?> vigilante = vendedores.submit(() -> {
+            try (Connection conn = DatabaseUtil.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                while (cobrando.get()) {
+                    try (ResultSet rs = stmt.executeQuery("SELECT MIN(stock) FROM productos WHERE id_producto IN (1, 2)")) {
+                        rs.next();
+                        menorStock.accumulateAndGet(rs.getInt(1), Math::min);
+                    }
+                }
+            }
+            return null;
+        });
+        List<Future<?>> ventas = new ArrayList<>();
+        for (int v = 0; v < VENDEDORES; v++) {
+            int vendedor = v;
+            ventas.add(vendedores.submit(() -> {
+                salida.await();
+                for (int i = 0; i < VENTAS_POR_VENDEDOR; i++) {
+                    // Los vendedores pares llevan los productos en orden inverso, para cruzar los bloqueos
+                    List<ProductoEnCarrito> carrito = vendedor % 2 == 0
+                            ? List.of(linea(2, 1), linea(1, 1))
+                            : List.of(linea(1, 1), linea(2, 1));
+                    try {
+                        VentaService.ResultadoVenta resultado = ventaService.registrarVenta(carrito, cliente, new Usuario(), "Efectivo");
+                        (resultado == VentaService.ResultadoVenta.REGISTRADA ? registradas : otras).incrementAndGet();
+                    } catch (StockInsuficienteException e) {
+                        rechazadas.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        salida.countDown();
+        for (Future<?> venta : ventas) {
+            venta.get(2, TimeUnit.MINUTES);
+        }
+        cobrando.set(false);
+        vigilante.get(1, TimeUnit.MINUTES);
+        vendedores.shutdown();
+
+        assertEquals(0, otras.get(), "ninguna venta debe fallar ni quedar pendiente");
+        assertEquals(STOCK_ESCASO, registradas.get(), "se vende exactamente el stock del producto escaso");
+        assertEquals(VENDEDORES * VENTAS_POR_VENDEDOR - STOCK_ESCASO, rechazadas.get());
+        assertTrue(menorStock.get() >= 0, "stock negativo durante las ventas: " + menorStock.get());
+        assertEquals(0, consultarEntero("SELECT stock FROM productos WHERE id_producto = 1"));
+        assertEquals(STOCK_HOLGADO - STOCK_ESCASO, consultarEntero("SELECT stock FROM productos WHERE id_producto = 2"));
+        assertEquals(2 * STOCK_ESCASO, consultarEntero("SELECT COALESCE(SUM(cantidad), 0) FROM detalle_venta"));
+    }
+
+    private static ProductoEnCarrito linea(int idProducto, int cantidad) {
+        ProductoEnCarrito item = new ProductoEnCarrito();
+        item.setIdProducto(idProducto);
+        item.setNombre("Producto " + idProducto);
+        item.setCantidad(cantidad);
+        item.setPrecioUnitario(250);
+        return item;
+    }
+
+    private static void ejecutar(String sql) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    private static int consultarEntero(String sql) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.mistrapitos.utils;
+
+import com.mistrapitos.models.ProductoEnCarrito;
+import com.mistrapitos.models.Ticket;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cola de impresión sin interfaz ni impresora: los tickets van a {@link ImpresoraArchivo}
+ * en target/pruebas/tickets (impresion.impresora=archivo en la configuración de surefire).
+ */
+class ColaImpresionTest {
+
+    @AfterEach
+    void detener() {
+        ColaImpresion.detener();
+    }
+
+    @Test
+    void elTicketEncoladoLlegaALaImpresoraArchivo() throws Exception {
+        Path directorio = Path.of(System.getenv("MISTRAPITOS_IMPRESION_DIRECTORIO"));
+        Set<Path> antes = tickets(directorio);
+        ProductoEnCarrito item = new ProductoEnCarrito();
+        item.setNombre("Camisa 5");
+        item.setCantidad(2);
+        item.setPrecioUnitario(199.5);
+        Ticket ticket = Ticket.deCarrito(List.of(item), "Cliente 1", null);
+
+        assertTrue(TicketUtil.encolarTicket(ticket).get(10, TimeUnit.SECONDS));
+
+        Set<Path> nuevos = tickets(directorio);
+        nuevos.removeAll(antes);
+        assertEquals(1, nuevos.size());
+        assertEquals(RenderizadorTicket.texto(ticket),
+                Files.readString(nuevos.iterator().next(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void alCerrarLosTrabajosQueNoSalieronTerminanConError() throws Exception {
+        CountDownLatch imprimiendo = new CountDownLatch(1);
+        CompletableFuture<Boolean> atorado = ColaImpresion.encolar("atorado", () -> {
+            imprimiendo.countDown();
+            new CountDownLatch(1).await();
+            return true;
+        });
+        CompletableFuture<Boolean> enCola = ColaImpresion.encolar("enCola", () -> true);
+        assertTrue(imprimiendo.await(5, TimeUnit.SECONDS));
+
+        // Con el hilo interrumpido detener no espera a que se vacíe la cola
+        Thread.currentThread().interrupt();
+        ColaImpresion.detener();
+        assertTrue(Thread.interrupted(), "detener debe conservar la interrupción");
+
+        assertFalse(atorado.get(5, TimeUnit.SECONDS), "el trabajo interrumpido no se reintenta");
+        assertThrows(CancellationException.class, () -> enCola.get(5, TimeUnit.SECONDS));
+        assertEquals(0, ColaImpresion.pendientes());
+    }
+
+    private static Set<Path> tickets(Path directorio) throws Exception {
+        if (!Files.isDirectory(directorio)) {
+            return new HashSet<>();
+        }
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            return archivos.collect(Collectors.toCollection(HashSet::new));
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.mistrapitos.utils;
+
+import com.mistrapitos.benchmarks.BaseDatosBenchmark;
+import com.mistrapitos.services.IndiceBarcode;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Medición de sentencias de las conexiones de DatabaseUtil y de los escaneos de códigos de
+ * barras, contra PostgreSQL real. El CSV de métricas se escribe en target/pruebas/metricas
+ * (ver la configuración de surefire).
+ */
+class ConexionMedidaTest {
+
+    @BeforeAll
+    static void preparar() throws Exception {
+        BaseDatosBenchmark.preparar(10, 1, 0);
+    }
+
+    @AfterAll
+    static void cerrar() {
+        BaseDatosBenchmark.detener();
+    }
+
+    @Test
+    void mideCadaExecuteConSuOrigenYLasFilasLeidasYModificadas() throws Exception {
+        assertTrue(Metricas.habilitadas());
+        // Deja en el CSV lo acumulado por otras pruebas, para medir solo lo de esta
+        Metricas.exportarCsv();
+
+        renombrarCategorias();
+        assertEquals(20, leerCategorias());
+        Metricas.exportarCsv();
+
+        List<String> csv = leerCsv();
+        String[] renombrar = ultimaFila(csv, "consulta", "ConexionMedidaTest.renombrarCategorias");
+        assertEquals("4", renombrar[3], "tres executeUpdate y un executeBatch");
+        assertEquals("0", renombrar[4]);
+        assertEquals("5", renombrar[5], "filas modificadas");
+        assertEquals("0", renombrar[6]);
+        String[] leer = ultimaFila(csv, "consulta", "ConexionMedidaTest.leerCategorias");
+        assertEquals("1", leer[3]);
+        assertEquals("0", leer[5]);
+        assertEquals("20", leer[6], "filas leídas, informadas al terminar de recorrerlas");
+    }
+
+    @Test
+    void losEscaneosQuedanEnLasMetricas() throws Exception {
+        Metricas.exportarCsv();
+
+        // Si otra prueba ya cargó el índice, solo el código inexistente se busca en la base
+        IndiceBarcode indice = IndiceBarcode.getInstancia();
+        assertTrue(indice.buscar("0000000000001").isPresent());
+        assertTrue(indice.buscar("0000000000002").isPresent());
+        assertFalse(indice.buscar("no-existe").isPresent());
+        Metricas.exportarCsv();
+
+        List<String> csv = leerCsv();
+        String[] escaneos = ultimaFila(csv, "escaneo", "IndiceBarcode.buscar");
+        assertEquals("3", escaneos[3]);
+        assertEquals("0", escaneos[4]);
+        int enBase = Integer.parseInt(ultimaFila(csv, "escaneo", "IndiceBarcode.buscar.base")[3]);
+        assertTrue(enBase >= 1 && enBase <= 3);
+    }
+
+    private void renombrarCategorias() throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("UPDATE categorias SET nombre = ? WHERE id_categoria = ?")) {
+            for (int i = 1; i <= 3; i++) {
+                stmt.setString(1, "Medida " + i);
+                stmt.setInt(2, i);
+                stmt.executeUpdate();
+            }
+            for (int i = 4; i <= 5; i++) {
+                stmt.setString(1, "Medida " + i);
+                stmt.setInt(2, i);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private int leerCategorias() throws SQLException {
+        int filas = 0;
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT nombre FROM categorias");
+             ResultSet rs = stmt.executeQuery()) {
+            assertFalse(Proxy.isProxyClass(rs.getClass()), "el ResultSet no debe envolverse");
+            while (rs.next()) {
+                filas++;
+            }
+            Metricas.filasLeidas(stmt, filas);
+        }
+        return filas;
+    }
+
+    private static List<String> leerCsv() throws Exception {
+        return Files.readAllLines(Path.of(System.getenv("MISTRAPITOS_METRICAS_DIRECTORIO"),
+                "metricas-" + LocalDate.now() + ".csv"), StandardCharsets.UTF_8);
+    }
+
+    private static String[] ultimaFila(List<String> csv, String tipo, String nombre) {
+        for (int i = csv.size() - 1; i >= 0; i--) {
+            String[] campos = csv.get(i).split(",");
+            if (campos[1].equals(tipo) && campos[2].equals(nombre)) {
+                return campos;
+            }
+        }
+        throw new AssertionError("No hay fila de " + nombre + " en el CSV de métricas");
+    }
+}
@@ -0,0 +1,76 @@
+package com.mistrapitos.utils;
+
+import com.mistrapitos.benchmarks.BaseDatosBenchmark;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lecturas desviadas a la réplica y vuelta a la base principal cuando la réplica cae,
+ * con dos PostgreSQL embebidos. Corre en su propia ejecución de surefire (ver pom.xml),
+ * que define db.replica.url, db.replica.esperaMaximaMs=1000 y db.replica.pausaMs=3000.
+ */
+class DatabaseUtilReplicaTest {
+
+    private static final int PUERTO_PRINCIPAL = 54329;
+    private static final int PUERTO_REPLICA = 54330;
+    private static final long PAUSA_MS = 3000;
+    private static final long HIKARI_SIN_VALIDAR_MS = 500;
+
+    private static EmbeddedPostgres replica;
+
+    @BeforeAll
+    static void preparar() throws Exception {
+        replica = EmbeddedPostgres.builder().setPort(PUERTO_REPLICA).start();
+        BaseDatosBenchmark.preparar(10, 1, 0);
+    }
+
+    @AfterAll
+    static void cerrar() throws IOException {
+        BaseDatosBenchmark.detener();
+        if (replica != null) {
+            replica.close();
+        }
+    }
+
+    @Test
+    void usaLaPrincipalMientrasLaReplicaEstaCaidaYVuelveALaReplicaTrasLaPausa() throws Exception {
+        assertEquals(PUERTO_REPLICA, puerto(DatabaseUtil.getReadOnlyConnection()), "con la réplica arriba se lee de ella");
+        assertEquals(PUERTO_PRINCIPAL, puerto(DatabaseUtil.getConnection()), "las escrituras siguen en la principal");
+
+        replica.close();
+        replica = null;
+        // Hikari no revalida una conexión usada hace menos de 500 ms; pasado ese tiempo la descarta al prestarla
+        Thread.sleep(HIKARI_SIN_VALIDAR_MS + 100);
+        assertEquals(PUERTO_PRINCIPAL, puerto(DatabaseUtil.getReadOnlyConnection()), "réplica caída: se lee de la principal");
+
+        // Durante la pausa ni siquiera se intenta la réplica, así que no se espera su tiempo de conexión
+        long inicio = System.nanoTime();
+        assertEquals(PUERTO_PRINCIPAL, puerto(DatabaseUtil.getReadOnlyConnection()));
+        long esperaMs = (System.nanoTime() - inicio) / 1_000_000;
+        assertTrue(esperaMs < 900, "en pausa se esperó " + esperaMs + " ms por la réplica");
+
+        replica = EmbeddedPostgres.builder().setPort(PUERTO_REPLICA).start();
+        Thread.sleep(PAUSA_MS + 200);
+        assertEquals(PUERTO_REPLICA, puerto(DatabaseUtil.getReadOnlyConnection()), "pasada la pausa se vuelve a la réplica");
+    }
+
+    private static int puerto(Connection conexion) throws SQLException {
+        try (Connection conn = conexion;
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT inet_server_port()")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
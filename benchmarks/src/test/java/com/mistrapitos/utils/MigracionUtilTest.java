@@ -0,0 +1,67 @@
+package com.mistrapitos.utils;
+
+import com.mistrapitos.benchmarks.BaseDatosBenchmark;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Una migración que falla detiene el arranque en lugar de dejar a la aplicación con el
+ * esquema a medias, contra PostgreSQL real.
+ */
+class MigracionUtilTest {
+
+    private static final String MIGRACION = "V010__clientes_actualizado_en.sql";
+
+    @BeforeAll
+    static void preparar() throws Exception {
+        BaseDatosBenchmark.preparar(1, 1, 0);
+    }
+
+    @AfterAll
+    static void cerrar() {
+        BaseDatosBenchmark.detener();
+    }
+
+    @Test
+    void unaMigracionFallidaLanzaExcepcionYNoSeRegistra() throws SQLException {
+        // La función ya existe con otro tipo de retorno, así que CREATE OR REPLACE falla
+        ejecutar("DELETE FROM schema_migraciones WHERE version = '" + MIGRACION + "'");
+        ejecutar("DROP TRIGGER trg_clientes_actualizado_en ON clientes");
+        ejecutar("DROP FUNCTION clientes_marcar_actualizado()");
+        ejecutar("CREATE FUNCTION clientes_marcar_actualizado() RETURNS integer AS 'SELECT 1' LANGUAGE sql");
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, MigracionUtil::aplicarPendientes);
+        assertTrue(error.getMessage().contains(MIGRACION), error.getMessage());
+        assertEquals(0, contarRegistros());
+
+        ejecutar("DROP FUNCTION clientes_marcar_actualizado()");
+        MigracionUtil.aplicarPendientes();
+        assertEquals(1, contarRegistros());
+    }
+
+    private static int contarRegistros() throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM schema_migraciones WHERE version = '" + MIGRACION + "'")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static void ejecutar(String sql) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
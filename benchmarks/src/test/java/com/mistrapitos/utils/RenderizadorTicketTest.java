@@ -0,0 +1,40 @@
+package com.mistrapitos.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.text.DecimalFormat;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Los importes formateados a mano deben salir igual que con el DecimalFormat que usaba
+ * el ticket antes.
+ */
+class RenderizadorTicketTest {
+
+    private static final DecimalFormat FORMATO_ANTERIOR = new DecimalFormat("#,##0.00");
+
+    @Test
+    void losImportesCoincidenConDecimalFormat() {
+        double[] casos = {0, -0.0, 0.005, 0.015, 0.125, 0.135, 1.005, 1.015, 2.675, 10.125, 999.995,
+                1234567.125, -0.001, -1.005, -2.5, 0.1 + 0.2, 199.5 * 3, Double.NaN,
+                Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (double valor : casos) {
+            comparar(valor);
+        }
+        Random azar = new Random(20);
+        for (int i = 0; i < 20_000; i++) {
+            // Medios centavos exactos y cercanos, donde un redondeo distinto se notaría
+            comparar(azar.nextInt(2_000_000) / 1000.0);
+            comparar(azar.nextInt(400_000) * 0.005);
+            comparar((azar.nextDouble() - 0.1) * 100_000);
+        }
+    }
+
+    private static void comparar(double valor) {
+        StringBuilder sb = new StringBuilder();
+        RenderizadorTicket.agregarImporte(sb, valor);
+        assertEquals(FORMATO_ANTERIOR.format(valor), sb.toString(), "importe " + valor);
+    }
+}
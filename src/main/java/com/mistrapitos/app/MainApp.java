@@ -1,10 +1,18 @@
 package com.mistrapitos.app;
 
+import com.mistrapitos.services.DiarioVentas;
+import com.mistrapitos.services.IndiceBarcode;
+import com.mistrapitos.utils.ColaImpresion;
 import com.mistrapitos.utils.DatabaseUtil;
+import com.mistrapitos.utils.Metricas;
+import com.mistrapitos.utils.MigracionUtil;
+import com.mistrapitos.utils.VerificadorIndices;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
+import javafx.scene.control.ButtonType;
 import javafx.scene.image.Image;
 import javafx.stage.Screen;
 import javafx.stage.Stage;
@@ -39,6 +47,21 @@ public class MainApp extends Application {
         try {
             // Inicializar la conexión a la base de datos
             DatabaseUtil.initialize();
+            Metricas.iniciar();
+            try {
+                MigracionUtil.aplicarPendientes();
+            } catch (IllegalStateException e) {
+                // Con el esquema a medias las pantallas fallarían con errores de SQL; mejor no abrirlas
+                detenerPorError("La base de datos no se pudo actualizar y la aplicación no puede iniciar.\n\n"
+                        + e.getMessage() + "\n\nRevise la conexión y el registro de la aplicación, o consulte a soporte.");
+                return;
+            }
+            VerificadorIndices.verificarEnSegundoPlano();
+
+            // Cargar en segundo plano el índice de códigos de barras para la caja
+            IndiceBarcode.getInstancia().iniciar();
+            // Reenviar las ventas que quedaron en el diario local de la caja
+            DiarioVentas.getInstancia().iniciar();
 
             // Cargar la vista de login
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/Login.fxml"));
@@ -78,12 +101,29 @@ public class MainApp extends Application {
         }
     }
 
+    /**
+     * Muestra un error que impide iniciar y termina el proceso.
+     * @param mensaje Mensaje para el usuario
+     */
+    private void detenerPorError(String mensaje) {
+        Alert alert = new Alert(Alert.AlertType.ERROR, mensaje, ButtonType.OK);
+        alert.setTitle("Mis Trapitos");
+        alert.setHeaderText("Error al iniciar");
+        alert.showAndWait();
+        DatabaseUtil.close();
+        System.exit(1);
+    }
+
     /**
      * Método que se ejecuta al cerrar la aplicación.
      */
     @Override
     public void stop() {
         // Cerrar la conexión a la base de datos
+        IndiceBarcode.getInstancia().detener();
+        DiarioVentas.getInstancia().detener();
+        ColaImpresion.detener();
+        Metricas.detener();
         DatabaseUtil.close();
         logger.info("Aplicación cerrada correctamente");
     }
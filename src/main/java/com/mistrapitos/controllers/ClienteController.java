@@ -3,6 +3,7 @@ package com.mistrapitos.controllers;
 
 import com.mistrapitos.models.Cliente;
 import com.mistrapitos.services.ClienteService;
+import com.mistrapitos.utils.CanalTareas;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -35,6 +36,7 @@ public class ClienteController {
     @FXML private TextField buscarField;
 
     private final ClienteService clienteService = new ClienteService();
+    private final CanalTareas canalClientes = new CanalTareas();
     private final ObservableList<Cliente> clientes = FXCollections.observableArrayList();
 
     // Método utilitario para obtener el Stage principal
@@ -77,8 +79,10 @@ public class ClienteController {
     }
 
     private void cargarClientes() {
-        clientes.setAll(clienteService.obtenerTodos());
-        tablaClientes.getItems().setAll(clientes);
+        canalClientes.ejecutar(clienteService::obtenerTodos, lista -> {
+            clientes.setAll(lista);
+            tablaClientes.getItems().setAll(clientes);
+        });
     }
 
     private void onBuscarAutocompletado(KeyEvent event) {
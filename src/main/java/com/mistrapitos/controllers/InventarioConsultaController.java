@@ -14,12 +14,15 @@ import org.slf4j.LoggerFactory;
 import com.mistrapitos.models.Producto;
 import com.mistrapitos.models.Categoria;
 import com.mistrapitos.models.ResumenCategoria;
+import com.mistrapitos.utils.CanalTareas;
 import com.mistrapitos.utils.DatabaseUtil;
 
 import java.math.BigDecimal;
 import java.net.URL;
 import java.sql.*;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
 
@@ -61,6 +64,7 @@ public class InventarioConsultaController implements Initializable {
     @FXML private Label bajoStockLabel;
     @FXML private Label valorInventarioLabel;
     @FXML private Button cerrarBtn;
+    @FXML private ProgressIndicator cargandoIndicador;
 
     // Listas para almacenar los datos
     private ObservableList<Producto> allProductos = FXCollections.observableArrayList();
@@ -69,8 +73,14 @@ public class InventarioConsultaController implements Initializable {
     private ObservableList<ResumenCategoria> resumenCategorias = FXCollections.observableArrayList();
     private ObservableList<Categoria> categorias = FXCollections.observableArrayList();
 
+    private CanalTareas canalDatos;
+
+    private record DatosInventario(List<Categoria> categorias, List<Producto> productos) {
+    }
+
     @Override
     public void initialize(URL url, ResourceBundle rb) {
+        canalDatos = new CanalTareas(cargandoIndicador);
         setupTableColumns();
         setupCategoriasCombo();
         loadData();
@@ -140,30 +150,48 @@ public class InventarioConsultaController implements Initializable {
     }
 
     private void loadData() {
-        loadCategorias();
-        loadProductos();
-        loadPocoStockProductos();
-        loadResumenCategorias();
-        updateStats();
+        // Las consultas van en segundo plano; las tablas y estadísticas se arman al terminar
+        canalDatos.ejecutar(() -> new DatosInventario(consultarCategorias(), consultarProductos()), datos -> {
+            allProductos.setAll(datos.productos());
+            filteredProductos = new FilteredList<>(allProductos, p -> true);
+            productosTable.setItems(filteredProductos);
+
+            // Al actualizar se conserva la categoría elegida
+            Categoria seleccionada = categoriasCombo.getValue();
+            int idSeleccionada = seleccionada != null ? seleccionada.getIdCategoria() : 0;
+            categorias.setAll(categorias.get(0));
+            categorias.addAll(datos.categorias());
+            categorias.stream()
+                    .filter(c -> c.getIdCategoria() == idSeleccionada)
+                    .findFirst()
+                    .ifPresentOrElse(categoriasCombo.getSelectionModel()::select,
+                            categoriasCombo.getSelectionModel()::selectFirst);
+            onFiltrarPorCategoria();
+            loadPocoStockProductos();
+            loadResumenCategorias();
+            updateStats();
+        });
     }
 
-    private void loadCategorias() {
-        try (Connection conn = DatabaseUtil.getConnection();
+    private List<Categoria> consultarCategorias() {
+        List<Categoria> lista = new ArrayList<>();
+        try (Connection conn = DatabaseUtil.getReadOnlyConnection();
              PreparedStatement stmt = conn.prepareStatement("SELECT id_categoria, nombre FROM categorias ORDER BY nombre")) {
 
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
-                categorias.add(new Categoria(rs.getInt("id_categoria"), rs.getString("nombre")));
+                lista.add(new Categoria(rs.getInt("id_categoria"), rs.getString("nombre")));
             }
-            logger.info("Categorías cargadas: " + (categorias.size() - 1));
+            logger.info("Categorías cargadas: " + lista.size());
         } catch (SQLException e) {
             logger.error("Error al cargar categorías", e);
         }
+        return lista;
     }
 
-    private void loadProductos() {
-        allProductos.clear();
-        try (Connection conn = DatabaseUtil.getConnection();
+    private List<Producto> consultarProductos() {
+        List<Producto> lista = new ArrayList<>();
+        try (Connection conn = DatabaseUtil.getReadOnlyConnection();
              PreparedStatement stmt = conn.prepareStatement(
                      "SELECT p.id_producto, p.nombre, p.descripcion, p.precio, p.stock, " +
                              "p.descuento, p.barcode, c.id_categoria, c.nombre as nombre_categoria " +
@@ -183,15 +211,13 @@ public class InventarioConsultaController implements Initializable {
                 producto.setBarcode(rs.getString("barcode"));
                 producto.setIdCategoria(rs.getInt("id_categoria"));
                 producto.setCategoriaNombre(rs.getString("nombre_categoria"));
-                allProductos.add(producto);
+                lista.add(producto);
             }
-
-            filteredProductos = new FilteredList<>(allProductos, p -> true);
-            productosTable.setItems(filteredProductos);
-            logger.info("Productos cargados: " + allProductos.size());
+            logger.info("Productos cargados: " + lista.size());
         } catch (SQLException e) {
             logger.error("Error al cargar productos", e);
         }
+        return lista;
     }
 
     private void loadPocoStockProductos() {
@@ -255,7 +281,7 @@ public class InventarioConsultaController implements Initializable {
     @FXML
     private void onFiltrarPorCategoria() {
         Categoria selectedCategoria = categoriasCombo.getSelectionModel().getSelectedItem();
-        if (selectedCategoria != null) {
+        if (selectedCategoria != null && filteredProductos != null) {
             if (selectedCategoria.getIdCategoria() == 0) {
                 filteredProductos.setPredicate(p -> true);
                 logger.info("Filtro aplicado: Todas las categorías");
@@ -3,9 +3,16 @@ package com.mistrapitos.controllers;
 import com.mistrapitos.models.Categoria;
 import com.mistrapitos.models.Producto;
 import com.mistrapitos.services.ProductoService;
+import com.mistrapitos.utils.CanalTareas;
+import com.mistrapitos.utils.Configuracion;
+import com.mistrapitos.utils.EjecutorUI;
+import com.mistrapitos.utils.IndiceProductos;
+import javafx.animation.PauseTransition;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.collections.transformation.SortedList;
 import javafx.fxml.FXML;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
@@ -16,16 +23,19 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.List;
 import java.io.InputStream;
 import java.util.Optional;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
+import java.util.regex.Pattern;
 
 public class ProductoController {
+    private static final Pattern PRECIO = Pattern.compile("\\d+(\\.\\d+)?");
+    // Pausa sin teclear antes de filtrar, para no buscar en cada tecla de una palabra
+    private static final long ESPERA_BUSQUEDA_MS = Configuracion.largo("busqueda.esperaMs", 150);
+
     @FXML private TableView<Producto> tablaProductos;
     @FXML private TableColumn<Producto, Integer> colId;
     @FXML private TableColumn<Producto, String> colNombre;
@@ -37,16 +47,23 @@ public class ProductoController {
     @FXML private TableColumn<Producto, Double> colDescuento;
     @FXML private TableColumn<Producto, Void> colAcciones;
     @FXML private TextField buscarField;
+    @FXML private ProgressIndicator cargandoIndicador;
 
     private final ProductoService productoService = new ProductoService();
     private final Logger logger = LoggerFactory.getLogger(ProductoController.class);
 
     // Fuente de verdad de productos
     private final ObservableList<Producto> productosOriginales = FXCollections.observableArrayList();
+    private final FilteredList<Producto> productosFiltrados = new FilteredList<>(productosOriginales);
+    private IndiceProductos indice;
+    private PauseTransition esperaBusqueda;
 
     // Lista observable de categorías para todos los ComboBox
     private final ObservableList<Categoria> categoriasObservable = FXCollections.observableArrayList();
 
+    private CanalTareas canalProductos;
+    private CanalTareas canalCategorias;
+
     // Método utilitario para obtener el Stage principal
     private Stage getMainStage() {
         return (Stage) tablaProductos.getScene().getWindow();
@@ -54,8 +71,10 @@ public class ProductoController {
 
     @FXML
     public void initialize() {
-        // Inicializa la tabla con una lista vacía para mantener la referencia
-        tablaProductos.setItems(FXCollections.observableArrayList());
+        // La tabla muestra siempre la misma lista: al buscar solo cambia el filtro
+        SortedList<Producto> productosOrdenados = new SortedList<>(productosFiltrados);
+        productosOrdenados.comparatorProperty().bind(tablaProductos.comparatorProperty());
+        tablaProductos.setItems(productosOrdenados);
 
         colId.setCellValueFactory(new PropertyValueFactory<>("idProducto"));
         colNombre.setCellValueFactory(new PropertyValueFactory<>("nombre"));
@@ -87,75 +106,64 @@ public class ProductoController {
             }
         });
 
+        canalProductos = new CanalTareas(cargandoIndicador);
+        canalCategorias = new CanalTareas();
         cargarCategorias();
         cargarProductos();
 
         // Búsqueda dinámica/autocompletada
-        buscarField.textProperty().addListener((obs, oldVal, newVal) -> filtrarProductos(newVal));
+        esperaBusqueda = new PauseTransition(Duration.millis(ESPERA_BUSQUEDA_MS));
+        esperaBusqueda.setOnFinished(e -> filtrarProductos(buscarField.getText()));
+        buscarField.textProperty().addListener((obs, oldVal, newVal) -> esperaBusqueda.playFromStart());
     }
 
     private void cargarProductos() {
-        List<Producto> productos = productoService.obtenerTodos();
-        productosOriginales.setAll(productos); // No cambies la referencia
-        tablaProductos.getItems().setAll(productosOriginales);
+        // El índice se arma en segundo plano junto con la consulta
+        canalProductos.ejecutar(() -> new IndiceProductos(productoService.obtenerTodos()), nuevo -> {
+            indice = nuevo;
+            productosOriginales.setAll(nuevo.getProductos()); // No cambies la referencia
+            filtrarProductos(buscarField.getText());
+        });
     }
 
     private void cargarCategorias() {
-        categoriasObservable.setAll(productoService.obtenerTodasCategorias());
+        canalCategorias.ejecutar(productoService::obtenerTodasCategorias, categoriasObservable::setAll);
     }
 
     private void filtrarProductos(String filtro) {
-        if (filtro == null || filtro.isBlank()) {
-            tablaProductos.getItems().setAll(productosOriginales);
+        if (filtro == null || filtro.isBlank() || indice == null) {
+            productosFiltrados.setPredicate(null);
             return;
         }
 
-        String filtroLower = filtro.toLowerCase();
-
         // Verificar si el filtro es un número (posible precio)
-        if (filtroLower.matches("\\d+(\\.\\d+)?")) {
+        if (PRECIO.matcher(filtro).matches()) {
             try {
-                double precioMinimo = Double.parseDouble(filtroLower);
+                double precioMinimo = Double.parseDouble(filtro);
 
                 // Filtrar productos con precio igual o mayor al valor ingresado
-                List<Producto> filtrados = productosOriginales.stream()
-                        .filter(p -> p.getPrecio() >= precioMinimo)
-                        .collect(Collectors.toList());
-
-                tablaProductos.getItems().setAll(filtrados);
+                productosFiltrados.setPredicate(p -> p.getPrecio() >= precioMinimo);
                 return;
             } catch (NumberFormatException e) {
                 logger.warn("Error al parsear precio: {}", e.getMessage());
             }
         }
 
-        // Filtrado normal por texto si no es un número
-        Predicate<Producto> pred = p -> (p.getNombre() != null && p.getNombre().toLowerCase().contains(filtroLower))
-                || (p.getBarcode() != null && p.getBarcode().toLowerCase().contains(filtroLower))
-                || (p.getCategoriaNombre() != null && p.getCategoriaNombre().toLowerCase().contains(filtroLower));
-
-        List<Producto> filtrados = productosOriginales.stream().filter(pred).collect(Collectors.toList());
-        tablaProductos.getItems().setAll(filtrados);
-
-        // Autocompletado: si hay solo una coincidencia y el nombre empieza igual, autocompleta
-        if (!filtrados.isEmpty()) {
-            for (Producto p : filtrados) {
-                String nombre = p.getNombre();
-                if (nombre != null && nombre.toLowerCase().startsWith(filtroLower) && !nombre.equalsIgnoreCase(filtro)) {
-                    buscarField.setText(nombre);
-                    buscarField.positionCaret(nombre.length());
-                    buscarField.selectRange(filtro.length(), nombre.length());
-                    break;
-                }
-            }
-        }
+        // Filtrado por nombre, código de barras o categoría, sin distinguir acentos
+        productosFiltrados.setPredicate(indice.buscar(filtro));
+
+        // Autocompletado: el primer nombre que empieza igual se completa con el resto seleccionado
+        indice.completar(filtro).ifPresent(nombre -> {
+            buscarField.setText(nombre);
+            buscarField.positionCaret(nombre.length());
+            buscarField.selectRange(filtro.length(), nombre.length());
+        });
     }
 
     @FXML
     private void onNuevoProducto() {
         Optional<Producto> result = mostrarDialogoProducto(null);
-        result.ifPresent(nuevo -> {
-            Producto guardado = productoService.guardar(nuevo);
+        result.ifPresent(nuevo -> EjecutorUI.ejecutar(() -> productoService.guardar(nuevo), guardado -> {
             boolean exito = guardado != null && guardado.getIdProducto() > 0;
             if (exito) {
                 mostrarAlerta("Producto agregado correctamente.", Alert.AlertType.INFORMATION);
@@ -163,16 +171,17 @@ public class ProductoController {
             } else {
                 mostrarAlerta("No se pudo agregar el producto.", Alert.AlertType.ERROR);
             }
-        });
+        }));
     }
 
     private void onEditar(Producto producto) {
         Optional<Producto> result = mostrarDialogoProducto(producto);
         result.ifPresent(editado -> {
             editado.setIdProducto(producto.getIdProducto());
-            productoService.actualizar(editado);
-            cargarProductos();
-            mostrarAlerta("Producto actualizado correctamente.", Alert.AlertType.INFORMATION);
+            EjecutorUI.ejecutar(() -> productoService.actualizar(editado), actualizado -> {
+                cargarProductos();
+                mostrarAlerta("Producto actualizado correctamente.", Alert.AlertType.INFORMATION);
+            });
         });
     }
 
@@ -196,9 +205,10 @@ public class ProductoController {
         });
         confirm.showAndWait().ifPresent(resp -> {
             if (resp == ButtonType.YES) {
-                productoService.eliminar(producto.getIdProducto());
-                cargarProductos();
-                mostrarAlerta("Producto eliminado.", Alert.AlertType.INFORMATION);
+                EjecutorUI.ejecutar(() -> productoService.eliminar(producto.getIdProducto()), eliminado -> {
+                    cargarProductos();
+                    mostrarAlerta("Producto eliminado.", Alert.AlertType.INFORMATION);
+                });
             }
         });
     }
@@ -225,13 +235,15 @@ public class ProductoController {
                 mostrarAlerta("El nombre de la categoría es obligatorio.", Alert.AlertType.ERROR);
                 return;
             }
-            Categoria nueva = productoService.guardarCategoria(nombre);
-            if (nueva != null && nueva.getIdCategoria() > 0) {
-                cargarCategorias(); // Actualiza la lista observable
-                mostrarAlerta("Categoría creada correctamente.", Alert.AlertType.INFORMATION);
-            } else {
-                mostrarAlerta("No se pudo crear la categoría (¿ya existe?).", Alert.AlertType.ERROR);
-            }
+            String nombreCategoria = nombre;
+            EjecutorUI.ejecutar(() -> productoService.guardarCategoria(nombreCategoria), nueva -> {
+                if (nueva != null && nueva.getIdCategoria() > 0) {
+                    cargarCategorias(); // Actualiza la lista observable
+                    mostrarAlerta("Categoría creada correctamente.", Alert.AlertType.INFORMATION);
+                } else {
+                    mostrarAlerta("No se pudo crear la categoría (¿ya existe?).", Alert.AlertType.ERROR);
+                }
+            });
         });
     }
 
@@ -2,6 +2,7 @@ package com.mistrapitos.controllers;
 
 import com.mistrapitos.models.PromocionVista;
 import com.mistrapitos.services.PromocionService;
+import com.mistrapitos.utils.CanalTareas;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
@@ -28,6 +29,7 @@ public class PromocionController {
     @FXML private TextField buscarField;
 
     private final PromocionService promocionService = new PromocionService();
+    private final CanalTareas canalPromociones = new CanalTareas();
     private final ObservableList<PromocionVista> promociones = FXCollections.observableArrayList();
 
     // Método utilitario para obtener el Stage principal
@@ -66,27 +68,37 @@ public class PromocionController {
         colDescuentoPromo.setSortType(TableColumn.SortType.DESCENDING);
 
         tablaPromociones.setItems(promociones);
-        cargarPromociones();
 
         // Aplicar orden automáticamente
         tablaPromociones.getSortOrder().setAll(colDescuentoPromo);
-        tablaPromociones.sort();
+        cargarPromociones();
 
         // Búsqueda dinámica y autocompletado
         buscarField.textProperty().addListener((obs, oldVal, newVal) -> filtrarPromociones(newVal));
     }
 
     private void cargarPromociones() {
-        promociones.setAll(promocionService.obtenerPromocionesYDescuentos());
+        canalPromociones.ejecutar(promocionService::obtenerPromocionesYDescuentos, this::mostrarPromociones);
+    }
+
+    private void mostrarPromociones(List<PromocionVista> lista) {
+        promociones.setAll(lista);
+        tablaPromociones.sort();
     }
 
     private void filtrarPromociones(String filtro) {
         if (filtro == null || filtro.isBlank()) {
-            promociones.setAll(promocionService.obtenerPromocionesYDescuentos());
+            cargarPromociones();
             return;
         }
-        List<PromocionVista> filtradas = promocionService.buscarPromocionesYDescuentosPorNombre(filtro);
-        promociones.setAll(filtradas);
+        // Se consulta en cada tecla; solo se muestra la respuesta de la última
+        canalPromociones.ejecutar(() -> promocionService.buscarPromocionesYDescuentosPorNombre(filtro), filtradas -> {
+            mostrarPromociones(filtradas);
+            autocompletar(filtro, filtradas);
+        });
+    }
+
+    private void autocompletar(String filtro, List<PromocionVista> filtradas) {
         // Autocompletado si solo una coincidencia que empiece igual
         if (!filtradas.isEmpty()) {
             String primer = filtradas.get(0).getNombreProducto();
@@ -4,6 +4,7 @@ import com.mistrapitos.models.Producto;
 import com.mistrapitos.models.Proveedor;
 import com.mistrapitos.services.ProductoService;
 import com.mistrapitos.services.ProveedorService;
+import com.mistrapitos.utils.CanalTareas;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
@@ -35,6 +36,7 @@ public class ProveedorController {
     @FXML private TextField buscarField;
 
     private final ProveedorService proveedorService = new ProveedorService();
+    private final CanalTareas canalProveedores = new CanalTareas();
     private ObservableList<Proveedor> proveedores = FXCollections.observableArrayList();
 
     // Método utilitario para obtener el Stage principal
@@ -78,15 +80,23 @@ public class ProveedorController {
     }
 
     private void cargarProveedores() {
-        proveedores = FXCollections.observableArrayList(proveedorService.obtenerTodos());
-        tablaProveedores.setItems(proveedores);
+        canalProveedores.ejecutar(proveedorService::obtenerTodos, lista -> {
+            proveedores = FXCollections.observableArrayList(lista);
+            tablaProveedores.setItems(proveedores);
+        });
     }
 
     @FXML
     private void onNuevoProveedor() {
         Optional<Proveedor> result = mostrarDialogoProveedor(null);
         result.ifPresent(nuevo -> {
-            Proveedor guardado = proveedorService.guardar(nuevo);
+            Proveedor guardado;
+            try {
+                guardado = proveedorService.guardar(nuevo);
+            } catch (IllegalArgumentException e) {
+                mostrarMensaje(e.getMessage(), false);
+                return;
+            }
             boolean exito = guardado != null && guardado.getIdProveedor() > 0;
             if (exito) {
                 mostrarMensaje("Proveedor registrado correctamente.", true);
@@ -265,7 +275,12 @@ public class ProveedorController {
         Optional<Proveedor> result = mostrarDialogoProveedor(proveedor);
         result.ifPresent(editado -> {
             editado.setIdProveedor(proveedor.getIdProveedor());
-            proveedorService.actualizar(editado);
+            try {
+                proveedorService.actualizar(editado);
+            } catch (IllegalArgumentException e) {
+                mostrarAlerta(e.getMessage(), Alert.AlertType.ERROR);
+                return;
+            }
             cargarProveedores();
             mostrarAlerta("Proveedor actualizado correctamente.", Alert.AlertType.INFORMATION);
         });
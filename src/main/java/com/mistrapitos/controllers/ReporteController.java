@@ -3,7 +3,12 @@ package com.mistrapitos.controllers;
 
 import com.mistrapitos.models.*;
 import com.mistrapitos.services.*;
+import com.mistrapitos.utils.CanalTareas;
+import com.mistrapitos.utils.EjecutorUI;
+import com.mistrapitos.utils.PaginadorTabla;
+import com.mistrapitos.utils.ProgresoReporte;
 import com.mistrapitos.utils.ReporteUtil;
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.collections.FXCollections;
@@ -24,11 +29,18 @@ import java.util.stream.Collectors;
 import javafx.scene.control.TableRow;
 import javafx.scene.control.TableView;
 import javafx.util.Callback;
+import javafx.util.Duration;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Callable;
 
 public class ReporteController {
 
+    private static final Logger logger = LoggerFactory.getLogger(ReporteController.class);
+
     @FXML private ComboBox<String> tipoReporteCombo;
     @FXML private ComboBox<String> formatoCombo;
     @FXML private DatePicker mesPicker;
@@ -40,10 +52,22 @@ public class ReporteController {
     @FXML private TableView<?> tablaReporte;
     @FXML private ComboBox<String> ciudadCombo;
     @FXML private CheckBox todasCiudadesCheck;
+    @FXML private CheckBox todosClientesCheck;
+    @FXML private Spinner<Integer> mesesSinVentaSpinner;
+    @FXML private Button generarBtn;
+    @FXML private ProgressIndicator progresoIndicador;
+    @FXML private ProgressIndicator cargandoIndicador;
+    private PauseTransition ocultarMensaje;
     private final VentaService ventaService         = new VentaService();
     private final ProductoService productoService   = new ProductoService();
     private final ProveedorService proveedorService = new ProveedorService();
     private final ClienteService clienteService     = new ClienteService();
+    private static final int VENTAS_POR_PAGINA = 100;
+    // Productos por cliente en "Comprados Más de una Vez" con todos los clientes
+    private static final int PRODUCTOS_REPETIDOS_POR_CLIENTE = 10;
+    private PaginadorTabla<Venta> paginadorVentas;
+    // Consultas de la tabla; elegir otro reporte descarta la que esté en curso
+    private CanalTareas canalReporte;
 
     // Método utilitario para obtener el Stage principal
     private Stage getMainStage() {
@@ -52,6 +76,7 @@ public class ReporteController {
 
     @FXML
     public void initialize() {
+        canalReporte = new CanalTareas(cargandoIndicador);
         clienteCombo.setConverter(new StringConverter<Cliente>() {
             @Override
             public String toString(Cliente cli) {
@@ -87,7 +112,7 @@ public class ReporteController {
                 "Producto con Más Stock",
                 "Productos de Proveedor",
                 "Comprados Más de una Vez",
-                "Productos no Vendidos 3 Meses"
+                "Productos sin Ventas"
         ));
         tipoReporteCombo.getSelectionModel().selectFirst();
 
@@ -104,8 +129,10 @@ public class ReporteController {
         fechaFinPicker.setPromptText("Fecha Fin");
 
         // Combo de clientes y proveedores
-        clienteCombo.setItems(FXCollections.observableArrayList(clienteService.obtenerTodos()));
-        proveedorCombo.setItems(FXCollections.observableArrayList(proveedorService.obtenerTodos()));
+        EjecutorUI.ejecutar(clienteService::obtenerTodos,
+                clientes -> clienteCombo.setItems(FXCollections.observableArrayList(clientes)));
+        EjecutorUI.ejecutar(proveedorService::obtenerTodos,
+                proveedores -> proveedorCombo.setItems(FXCollections.observableArrayList(proveedores)));
 
         // Listeners para ajustar visibilidad y recargar
         tipoReporteCombo.setOnAction(e -> ajustarControles());
@@ -115,9 +142,10 @@ public class ReporteController {
         clienteCombo.setOnAction(e -> cargarDatosReporte());
         proveedorCombo.setOnAction(e -> cargarDatosReporte());
         // Cargar las ciudades disponibles
-        List<String> ciudades = clienteService.obtenerCiudadesUnicas();
-        ciudadCombo.setItems(FXCollections.observableArrayList(ciudades));
-        ciudadCombo.getSelectionModel().selectFirst();
+        EjecutorUI.ejecutar(clienteService::obtenerCiudadesUnicas, ciudades -> {
+            ciudadCombo.setItems(FXCollections.observableArrayList(ciudades));
+            ciudadCombo.getSelectionModel().selectFirst();
+        });
 
         // Configurar el listener del checkbox
         todasCiudadesCheck.setOnAction(e -> {
@@ -126,6 +154,16 @@ public class ReporteController {
         });
 
         ciudadCombo.setOnAction(e -> cargarDatosReporte());
+        mesesSinVentaSpinner.setValueFactory(new SpinnerValueFactory.IntegerSpinnerValueFactory(1, 36, 3));
+        mesesSinVentaSpinner.valueProperty().addListener((obs, anterior, meses) -> {
+            if ("Productos sin Ventas".equals(tipoReporteCombo.getValue())) {
+                cargarDatosReporte();
+            }
+        });
+        todosClientesCheck.setOnAction(e -> {
+            clienteCombo.setDisable(todosClientesCheck.isSelected());
+            cargarDatosReporte();
+        });
         ajustarControles();
     }
 
@@ -142,6 +180,7 @@ public class ReporteController {
         boolean usaCliente     = tipo.equals("Comprados Más de una Vez");
         boolean usaProveedor   = tipo.equals("Productos de Proveedor");
         boolean usaCiudad = tipo.equals("Ventas por Ciudad");
+        boolean usaMesesSinVenta = tipo.equals("Productos sin Ventas");
 
         ciudadCombo.setVisible(usaCiudad);
         ciudadCombo.setDisable(!usaCiudad || todasCiudadesCheck.isSelected());
@@ -156,19 +195,23 @@ public class ReporteController {
         fechaFinPicker.setDisable(!usaRangoFechas);
 
         clienteCombo.setVisible(usaCliente);
-        clienteCombo.setDisable(!usaCliente);
+        clienteCombo.setDisable(!usaCliente || todosClientesCheck.isSelected());
+        todosClientesCheck.setVisible(usaCliente);
+        todosClientesCheck.setDisable(!usaCliente);
 
         proveedorCombo.setVisible(usaProveedor);
         proveedorCombo.setDisable(!usaProveedor);
 
+        mesesSinVentaSpinner.setVisible(usaMesesSinVenta);
+        mesesSinVentaSpinner.setDisable(!usaMesesSinVenta);
+
         cargarDatosReporte();
     }
 
-    /** Exporta y guarda el reporte tras actualizar la tabla */
+    /** Exporta y guarda el reporte; el archivo se genera en segundo plano */
     @FXML
     private void onGenerarReporte() {
-        // 1) Aseguramos que la tabla esté actualizada
-        cargarDatosReporte();
+        // 1) Los datos se vuelven a consultar al exportar, no se toman de la tabla
 
         // 2) Leemos el tipo de reporte y el formato
         String tipo    = tipoReporteCombo.getValue();
@@ -203,7 +246,9 @@ public class ReporteController {
         }
         else if (tipo.equals("Comprados Más de una Vez")) {
             Cliente cli = clienteCombo.getValue();
-            String nombreCli = (cli != null)
+            String nombreCli = todosClientesCheck.isSelected()
+                    ? "todos"
+                    : (cli != null)
                     ? cli.getNombre().trim().replaceAll("\\s+","_").toLowerCase()
                     : "sin_cliente";
             base += "_" + nombreCli;
@@ -220,6 +265,9 @@ public class ReporteController {
             ).toLowerCase();
             base += "_" + sufijoMes;
         }
+        else if (tipo.equals("Productos sin Ventas")) {
+            base += "_" + mesesSinVentaSpinner.getValue() + "_meses";
+        }
         else if (tipo.equals("Ventas por Categoría Mensual")) {
             LocalDate m = mesPicker.getValue() != null
                     ? mesPicker.getValue().withDayOfMonth(1)
@@ -242,97 +290,144 @@ public class ReporteController {
         File file = chooser.showSaveDialog(getMainStage());
         if (file == null) return;
 
-        // 6) Recogemos datos y disparamos ReporteUtil
-        boolean exito;
-        ObservableList<?> items = tablaReporte.getItems();
+        // 6) El archivo se arma en segundo plano con datos recién consultados
+        String ruta = file.getAbsolutePath();
+        boolean excel = formato.equals("Excel");
+        ProgresoReporte progreso = EjecutorUI.progresoEn(progresoIndicador);
+        Callable<Boolean> exportar;
         switch (tipo) {
             case "Ventas Diarias":
             case "Ventas Semanales":
             case "Ventas Mensuales":
             case "Ventas Últimos 3 Días": {
-                List<Venta> vs = items.stream().map(i -> (Venta) i).collect(Collectors.toList());
-                exito = formato.equals("Excel")
-                        ? ReporteUtil.generarReporteVentasExcel(vs, file.getAbsolutePath())
-                        : ReporteUtil.generarReporteVentasPDF(vs, file.getAbsolutePath());
+                // El archivo se arma directo desde la base de datos, sin pasar por la tabla
+                LocalDate[] rango = rangoVentas(tipo);
+                exportar = () -> excel
+                        ? ReporteUtil.generarReporteVentasExcel(rango[0], rango[1], ruta)
+                        : ReporteUtil.generarReporteVentasPDF(rango[0], rango[1], ruta, progreso);
                 break;
             }
             case "Inventario": {
-                List<Producto> ps = items.stream().map(i -> (Producto) i).collect(Collectors.toList());
-                exito = formato.equals("Excel")
-                        ? ReporteUtil.generarReporteInventarioExcel(ps, file.getAbsolutePath())
-                        : ReporteUtil.generarReporteInventarioPDF(ps, file.getAbsolutePath());
+                Callable<List<Producto>> consulta = consultaInventario();
+                exportar = () -> excel
+                        ? ReporteUtil.generarReporteInventarioExcel(consulta.call(), ruta)
+                        : ReporteUtil.generarReporteInventarioPDF(ruta, progreso);
                 break;
             }
             case "Productos Más Vendidos":
             case "Productos Más Vendidos en Mes": {
-                List<ProductoVentaResumen> pr = items.stream().map(i -> (ProductoVentaResumen) i).collect(Collectors.toList());
-                exito = formato.equals("Excel")
-                        ? ReporteUtil.generarReporteProductosMasVendidosExcel(pr, file.getAbsolutePath())
-                        : ReporteUtil.generarReporteProductosMasVendidosPDF(pr, file.getAbsolutePath());
+                Callable<List<ProductoVentaResumen>> consulta = tipo.equals("Productos Más Vendidos")
+                        ? consultaProductosMasVendidos()
+                        : consultaProductosMasVendidosMes();
+                exportar = () -> {
+                    List<ProductoVentaResumen> pr = consulta.call();
+                    return excel
+                            ? ReporteUtil.generarReporteProductosMasVendidosExcel(pr, ruta)
+                            : ReporteUtil.generarReporteProductosMasVendidosPDF(pr, ruta);
+                };
                 break;
             }
             case "Métodos de Pago": {
-                List<MetodoPagoResumen> mp = items.stream().map(i -> (MetodoPagoResumen) i).collect(Collectors.toList());
-                exito = formato.equals("Excel")
-                        ? ReporteUtil.generarReporteMetodosPagoExcel(mp, file.getAbsolutePath())
-                        : ReporteUtil.generarReporteMetodosPagoPDF(mp, file.getAbsolutePath());
+                Callable<List<MetodoPagoResumen>> consulta = consultaMetodosPago();
+                exportar = () -> {
+                    List<MetodoPagoResumen> mp = consulta.call();
+                    return excel
+                            ? ReporteUtil.generarReporteMetodosPagoExcel(mp, ruta)
+                            : ReporteUtil.generarReporteMetodosPagoPDF(mp, ruta);
+                };
                 break;
             }
             case "Producto con Más Stock": {
-                List<Producto> mayor = items.stream().map(i -> (Producto) i).collect(Collectors.toList());
-                exito = formato.equals("Excel")
-                        ? ReporteUtil.generarReporteProductoMayorStockExcel(mayor, file.getAbsolutePath())
-                        : ReporteUtil.generarReporteProductoMayorStockPDF(mayor, file.getAbsolutePath());
+                Callable<List<Producto>> consulta = consultaProductoMayorStock();
+                exportar = () -> {
+                    List<Producto> mayor = consulta.call();
+                    return excel
+                            ? ReporteUtil.generarReporteProductoMayorStockExcel(mayor, ruta)
+                            : ReporteUtil.generarReporteProductoMayorStockPDF(mayor, ruta);
+                };
                 break;
             }
             case "Productos de Proveedor": {
-                List<Producto> prov = items.stream().map(i -> (Producto) i).collect(Collectors.toList());
+                if (proveedorCombo.getValue() == null) {
+                    mostrarAlerta("Seleccione un proveedor.", Alert.AlertType.WARNING);
+                    return;
+                }
+                Callable<List<Producto>> consulta = consultaProductosPorProveedor();
                 String nombreProv = proveedorCombo.getValue().getNombre();
-                exito = formato.equals("Excel")
-                        ? ReporteUtil.generarReporteProductosPorProveedorExcel(nombreProv, prov, file.getAbsolutePath())
-                        : ReporteUtil.generarReporteProductosPorProveedorPDF(nombreProv, prov, file.getAbsolutePath());
+                exportar = () -> {
+                    List<Producto> prov = consulta.call();
+                    return excel
+                            ? ReporteUtil.generarReporteProductosPorProveedorExcel(nombreProv, prov, ruta)
+                            : ReporteUtil.generarReporteProductosPorProveedorPDF(nombreProv, prov, ruta);
+                };
                 break;
             }
             case "Comprados Más de una Vez": {
-                List<ReporteController.ProductoRepetido> rep = items.stream()
-                        .map(i -> (ReporteController.ProductoRepetido) i).collect(Collectors.toList());
-                String nombreCli = clienteCombo.getValue().getNombre();
-                exito = formato.equals("Excel")
-                        ? ReporteUtil.generarReporteCompradosMasDeUnaVezExcel(nombreCli, rep, file.getAbsolutePath())
-                        : ReporteUtil.generarReporteCompradosMasDeUnaVezPDF(nombreCli, rep, file.getAbsolutePath());
+                if (!todosClientesCheck.isSelected() && clienteCombo.getValue() == null) {
+                    mostrarAlerta("Seleccione un cliente.", Alert.AlertType.WARNING);
+                    return;
+                }
+                Callable<List<ProductoRepetido>> consulta = consultaCompradosMasDeUnaVez();
+                // Sin nombre de cliente el reporte incluye la columna Cliente
+                String nombreCli = todosClientesCheck.isSelected() ? null : clienteCombo.getValue().getNombre();
+                exportar = () -> {
+                    List<ProductoRepetido> rep = consulta.call();
+                    return excel
+                            ? ReporteUtil.generarReporteCompradosMasDeUnaVezExcel(nombreCli, rep, ruta)
+                            : ReporteUtil.generarReporteCompradosMasDeUnaVezPDF(nombreCli, rep, ruta);
+                };
                 break;
             }
             case "Ventas por Ciudad": {
-                List<VentaPorCiudad> ventasCiudad = items.stream()
-                        .map(i -> (VentaPorCiudad) i).collect(Collectors.toList());
-                exito = formato.equals("Excel")
-                        ? ReporteUtil.generarReporteVentasPorCiudadExcel(ventasCiudad, file.getAbsolutePath())
-                        : ReporteUtil.generarReporteVentasPorCiudadPDF(ventasCiudad, file.getAbsolutePath());
+                Callable<List<VentaPorCiudad>> consulta = consultaVentasPorCiudad();
+                exportar = () -> {
+                    List<VentaPorCiudad> ventasCiudad = consulta.call();
+                    return excel
+                            ? ReporteUtil.generarReporteVentasPorCiudadExcel(ventasCiudad, ruta)
+                            : ReporteUtil.generarReporteVentasPorCiudadPDF(ventasCiudad, ruta);
+                };
                 break;
             }
             case "Ventas por Categoría Mensual": {
-                List<CategoriaVentaResumen> data = items.stream()
-                        .map(i -> (CategoriaVentaResumen) i).collect(Collectors.toList());
-                exito = formato.equals("Excel")
-                        ? ReporteUtil.generarReporteVentasPorCategoriaExcel(data, file.getAbsolutePath())
-                        : ReporteUtil.generarReporteVentasPorCategoriaPDF(data, file.getAbsolutePath());
+                Callable<List<CategoriaVentaResumen>> consulta = consultaVentasPorCategoriaMes();
+                exportar = () -> {
+                    List<CategoriaVentaResumen> data = consulta.call();
+                    return excel
+                            ? ReporteUtil.generarReporteVentasPorCategoriaExcel(data, ruta)
+                            : ReporteUtil.generarReporteVentasPorCategoriaPDF(data, ruta);
+                };
                 break;
             }
-            case "Productos no Vendidos 3 Meses": {
-                List<Producto> nov = items.stream().map(i -> (Producto) i).collect(Collectors.toList());
-                exito = formato.equals("Excel")
-                        ? ReporteUtil.generarReporteProductosNoVendidos3MesesExcel(nov, file.getAbsolutePath())
-                        : ReporteUtil.generarReporteProductosNoVendidos3MesesPDF(nov, file.getAbsolutePath());
+            case "Productos sin Ventas": {
+                // El archivo se arma directo desde la base de datos, sin pasar por la tabla
+                LocalDate desde = inicioSinVentas();
+                exportar = () -> excel
+                        ? ReporteUtil.generarReporteProductosSinVentaExcel(desde, ruta)
+                        : ReporteUtil.generarReporteProductosSinVentaPDF(desde, ruta, progreso);
                 break;
             }
             default:
-                exito = true;
+                exportar = () -> true;
         }
 
         // 7) Mensaje final
-        mostrarAlerta(exito ? "Reporte generado correctamente." : "Error al generar el reporte.", exito ? Alert.AlertType.INFORMATION : Alert.AlertType.ERROR);
+        generarBtn.setDisable(true);
+        progresoIndicador.setProgress(ProgressIndicator.INDETERMINATE_PROGRESS);
+        progresoIndicador.setVisible(true);
+        EjecutorUI.ejecutar(exportar, exito -> {
+            terminarExportacion();
+            mostrarAlerta(exito ? "Reporte generado correctamente." : "Error al generar el reporte.", exito ? Alert.AlertType.INFORMATION : Alert.AlertType.ERROR);
+        }, error -> {
+            terminarExportacion();
+            logger.error("Error al generar el reporte " + tipo, error);
+            mostrarAlerta("Error al generar el reporte.", Alert.AlertType.ERROR);
+        });
     }
 
+    private void terminarExportacion() {
+        generarBtn.setDisable(false);
+        progresoIndicador.setVisible(false);
+    }
 
     @FXML
     public Callback<TableView<Producto>, TableRow<Producto>> stockRowFactory() {
@@ -359,6 +454,7 @@ public class ReporteController {
 
     /** Actualiza la tabla según el reporte seleccionado */
     private void cargarDatosReporte() {
+        canalReporte.cancelar();
         tablaReporte.getColumns().clear();
         tablaReporte.getItems().clear();
         String tipo = tipoReporteCombo.getValue();
@@ -376,43 +472,43 @@ public class ReporteController {
             case "Producto con Más Stock":   cargarProductoMayorStock(); break;
             case "Productos de Proveedor":   cargarProductosPorProveedor(); break;
             case "Comprados Más de una Vez": cargarCompradosMasDeUnaVez(); break;
-            case "Productos no Vendidos 3 Meses": cargarProductosNoVendidos3Meses(); break;
+            case "Productos sin Ventas":     cargarProductosSinVentas(); break;
         }
     }
 
+    /**
+     * Rango de fechas (inicio y fin, inclusive) que cubre cada reporte de ventas.
+     */
+    private LocalDate[] rangoVentas(String tipo) {
+        LocalDate hoy = LocalDate.now();
+        switch (tipo) {
+            case "Ventas Semanales": {
+                LocalDate ini = hoy.minusDays(hoy.getDayOfWeek().getValue() - 1);
+                return new LocalDate[]{ini, ini.plusDays(6)};
+            }
+            case "Ventas Mensuales": {
+                YearMonth ym = YearMonth.from(mesPicker.getValue() != null ? mesPicker.getValue() : hoy);
+                return new LocalDate[]{ym.atDay(1), ym.atEndOfMonth()};
+            }
+            case "Ventas Últimos 3 Días":
+                return new LocalDate[]{hoy.minusDays(2), hoy};
+            default:
+                return new LocalDate[]{hoy, hoy};
+        }
+    }
+
+    /**
+     * Mes elegido en mesPicker, o el actual si no hay ninguno.
+     */
+    private YearMonth mesSeleccionado() {
+        return YearMonth.from(mesPicker.getValue() != null ? mesPicker.getValue() : LocalDate.now());
+    }
+
     private void cargarVentasDiarias() {
-        ObservableList<Venta> obs = FXCollections.observableArrayList(
-                ventaService.buscarPorFecha(LocalDate.now())
-        );
-        TableColumn<Venta,Integer> c1 = new TableColumn<>("ID");
-        c1.setCellValueFactory(c -> c.getValue().idVentaProperty().asObject());
-        TableColumn<Venta,String> c2 = new TableColumn<>("Cliente");
-        c2.setCellValueFactory(c -> c.getValue().clienteNombreProperty());
-        TableColumn<Venta,String> c3 = new TableColumn<>("Fecha");
-        c3.setCellValueFactory(c -> new SimpleObjectProperty<>(
-                c.getValue().getFecha().format(DateTimeFormatter.ofPattern("dd/MM/yyyy - hh:mm a"))
-        ));
-        TableColumn<Venta,Double> c4 = new TableColumn<>("Total");
-        c4.setCellValueFactory(c -> c.getValue().totalProperty().asObject());
-        mostrarTabla(obs, Arrays.asList(c1,c2,c3,c4));
+        LocalDate[] rango = rangoVentas("Ventas Diarias");
+        cargarVentasRango(rango[0], rango[1]);
     }
     private void cargarVentasPorCategoriaMes() {
-        // 1) Determina mes de mesPicker (o actual)
-        LocalDate m = (mesPicker.getValue() != null)
-                ? mesPicker.getValue().withDayOfMonth(1)
-                : LocalDate.now().withDayOfMonth(1);
-        YearMonth ym = YearMonth.from(m);
-        LocalDate inicio = ym.atDay(1);
-        LocalDate fin    = ym.atEndOfMonth();
-
-        // 2) Pide al servicio el resumen por categoría
-        List<CategoriaVentaResumen> lista =
-                ventaService.obtenerVentasPorCategoria(inicio, fin);
-
-        // 3) Llena el TableView
-        ObservableList<CategoriaVentaResumen> obs =
-                FXCollections.observableArrayList(lista);
-
         TableColumn<CategoriaVentaResumen,String> colCat = new TableColumn<>("Categoría");
         colCat.setCellValueFactory(c ->
                 c.getValue().categoriaProperty());
@@ -421,27 +517,20 @@ public class ReporteController {
         colTot.setCellValueFactory(c ->
                 c.getValue().totalProperty().asObject());
 
-        mostrarTabla(obs, Arrays.asList(colCat, colTot));
+        cargarTabla(consultaVentasPorCategoriaMes(), Arrays.asList(colCat, colTot));
+    }
+
+    private Callable<List<CategoriaVentaResumen>> consultaVentasPorCategoriaMes() {
+        // Mes de mesPicker (o actual)
+        YearMonth ym = mesSeleccionado();
+        return () -> ventaService.obtenerVentasPorCategoria(ym.atDay(1), ym.atEndOfMonth());
     }
 
     private void cargarVentasSemanales() {
-        LocalDate hoy = LocalDate.now();
-        LocalDate ini = hoy.minusDays(hoy.getDayOfWeek().getValue() - 1);
-        LocalDate fin = ini.plusDays(6);
-        cargarVentasRango(ini, fin);
+        LocalDate[] rango = rangoVentas("Ventas Semanales");
+        cargarVentasRango(rango[0], rango[1]);
     }
     private void cargarVentasPorCiudad() {
-        List<VentaPorCiudad> ventas;
-        if (todasCiudadesCheck.isSelected()) {
-            ventas = ventaService.obtenerVentasPorCiudad();
-        } else {
-            String ciudad = ciudadCombo.getValue();
-            if (ciudad == null || ciudad.isEmpty()) return;
-            ventas = ventaService.obtenerVentasPorCiudad(ciudad);
-        }
-
-        ObservableList<VentaPorCiudad> obs = FXCollections.observableArrayList(ventas);
-
         TableColumn<VentaPorCiudad, String> c1 = new TableColumn<>("Ciudad");
         c1.setCellValueFactory(c -> new SimpleObjectProperty<>(c.getValue().getCiudad()));
 
@@ -456,16 +545,24 @@ public class ReporteController {
         c4.setCellValueFactory(c -> new SimpleObjectProperty<>(c.getValue().getProductos()));
         c4.setPrefWidth(600);  // opcional para que no quede muy estrecha
 
-        mostrarTabla(obs, Arrays.asList(c1, c2, c3, c4));
+        cargarTabla(consultaVentasPorCiudad(), Arrays.asList(c1, c2, c3, c4));
+    }
+
+    private Callable<List<VentaPorCiudad>> consultaVentasPorCiudad() {
+        if (todasCiudadesCheck.isSelected()) {
+            return ventaService::obtenerVentasPorCiudad;
+        }
+        String ciudad = ciudadCombo.getValue();
+        if (ciudad == null || ciudad.isEmpty()) {
+            return List::of;
+        }
+        return () -> ventaService.obtenerVentasPorCiudad(ciudad);
     }
 
 
     private void cargarVentasMensuales() {
-        LocalDate m = mesPicker.getValue() != null
-                ? mesPicker.getValue().withDayOfMonth(1)
-                : LocalDate.now().withDayOfMonth(1);
-        YearMonth ym = YearMonth.from(m);
-        cargarVentasRango(ym.atDay(1), ym.atEndOfMonth());
+        LocalDate[] rango = rangoVentas("Ventas Mensuales");
+        cargarVentasRango(rango[0], rango[1]);
     }
 
     private void cargarVentasUltimos3Dias() {
@@ -481,9 +578,6 @@ public class ReporteController {
 
     /** Genérico para cualquier rango */
     private void cargarVentasRango(LocalDate start, LocalDate end) {
-        ObservableList<Venta> obs = FXCollections.observableArrayList(
-                ventaService.buscarPorRangoFechas(start, end)
-        );
 
         // Columna ID
         TableColumn<Venta,Integer> c1 = new TableColumn<>("ID");
@@ -506,8 +600,18 @@ public class ReporteController {
         TableColumn<Venta,Double> c4 = new TableColumn<>("Total");
         c4.setCellValueFactory(c -> c.getValue().totalProperty().asObject());
 
-        // Ahora pasamos 4 columnas en lugar de 3
-        mostrarTabla(obs, Arrays.asList(c1, c2, c3, c4));
+        // Las ventas se traen por páginas conforme se desplaza la tabla
+        FiltroVentas filtro = FiltroVentas.rangoFechas(start, end);
+        mostrarTabla(FXCollections.observableArrayList(), Arrays.asList(c1, c2, c3, c4));
+        getPaginadorVentas().mostrar((ultima, tamano) -> ventaService.obtenerPagina(filtro, ultima, tamano));
+    }
+
+    @SuppressWarnings("unchecked")
+    private PaginadorTabla<Venta> getPaginadorVentas() {
+        if (paginadorVentas == null) {
+            paginadorVentas = new PaginadorTabla<>((TableView<Venta>) tablaReporte, VENTAS_POR_PAGINA);
+        }
+        return paginadorVentas;
     }
 
     public static class VentaPorCiudad {
@@ -530,9 +634,6 @@ public class ReporteController {
 
 
     private void cargarInventario() {
-        ObservableList<Producto> obs = FXCollections.observableArrayList(
-                productoService.obtenerTodos()
-        );
         TableColumn<Producto,Integer> c1 = new TableColumn<>("ID");
         c1.setCellValueFactory(c -> c.getValue().idProductoProperty().asObject());
         TableColumn<Producto,String> c2 = new TableColumn<>("Nombre");
@@ -549,32 +650,28 @@ public class ReporteController {
         c7.setCellValueFactory(c -> c.getValue().colorsProperty());
         TableColumn<Producto,Double> c8 = new TableColumn<>("Descuento");
         c8.setCellValueFactory(c -> c.getValue().descuentoProperty().asObject());
-        mostrarTabla(obs, Arrays.asList(c1,c2,c3,c4,c5,c6,c7,c8));
+        cargarTabla(consultaInventario(), Arrays.asList(c1,c2,c3,c4,c5,c6,c7,c8));
+    }
+
+    private Callable<List<Producto>> consultaInventario() {
+        return productoService::obtenerTodos;
     }
 
     private void cargarProductosMasVendidos() {
-        ObservableList<ProductoVentaResumen> obs = FXCollections.observableArrayList(
-                ventaService.obtenerProductosMasVendidos()
-        );
         TableColumn<ProductoVentaResumen,String> c1 = new TableColumn<>("Nombre");
         c1.setCellValueFactory(c -> new SimpleObjectProperty<>(c.getValue().getNombre()));
         TableColumn<ProductoVentaResumen,Integer> c2 = new TableColumn<>("Cantidad");
         c2.setCellValueFactory(c -> new SimpleObjectProperty<>(c.getValue().getCantidadVendida()));
         TableColumn<ProductoVentaResumen,Double> c3 = new TableColumn<>("Total");
         c3.setCellValueFactory(c -> new SimpleObjectProperty<>(c.getValue().getTotalVendido()));
-        mostrarTabla(obs, Arrays.asList(c1,c2,c3));
+        cargarTabla(consultaProductosMasVendidos(), Arrays.asList(c1,c2,c3));
     }
 
-    private void cargarProductosMasVendidosMes() {
-        LocalDate m = mesPicker.getValue() != null
-                ? mesPicker.getValue()
-                : LocalDate.now().withDayOfMonth(1);
-        YearMonth ym = YearMonth.from(m);
-        List<ProductoVentaResumen> lista =
-                new ReporteUtil().obtenerProductosMasVendidos(ym.atDay(1), ym.atEndOfMonth());
-
-        ObservableList<ProductoVentaResumen> obs = FXCollections.observableArrayList(lista);
+    private Callable<List<ProductoVentaResumen>> consultaProductosMasVendidos() {
+        return ventaService::obtenerProductosMasVendidos;
+    }
 
+    private void cargarProductosMasVendidosMes() {
         TableColumn<ProductoVentaResumen,String> c1 = new TableColumn<>("Nombre");
         c1.setCellValueFactory(c -> new SimpleObjectProperty<>(c.getValue().getNombre()));
 
@@ -585,40 +682,31 @@ public class ReporteController {
         TableColumn<ProductoVentaResumen,Double> c3 = new TableColumn<>("Total");
         c3.setCellValueFactory(c -> new SimpleObjectProperty<>(c.getValue().getTotalVendido()));
 
-        mostrarTabla(obs, Arrays.asList(c1,c2,c3));
+        cargarTabla(consultaProductosMasVendidosMes(), Arrays.asList(c1,c2,c3));
     }
-    private void cargarMetodosPago() {
-        // Obtén el mes seleccionado, o usa el mes actual por defecto
-        LocalDate m = mesPicker.getValue() != null
-                ? mesPicker.getValue().withDayOfMonth(1)
-                : LocalDate.now().withDayOfMonth(1);
-        YearMonth ym = YearMonth.from(m);
-        LocalDate inicio = ym.atDay(1);
-        LocalDate fin    = ym.atEndOfMonth();
-
-        // Llama al servicio con ese rango
-        List<MetodoPagoResumen> lista = ventaService.obtenerMetodosPagoMasUtilizados(inicio, fin);
-        ObservableList<MetodoPagoResumen> obs = FXCollections.observableArrayList(lista);
 
+    private Callable<List<ProductoVentaResumen>> consultaProductosMasVendidosMes() {
+        YearMonth ym = mesSeleccionado();
+        return () -> new ReporteUtil().obtenerProductosMasVendidos(ym.atDay(1), ym.atEndOfMonth());
+    }
+    private void cargarMetodosPago() {
         // Columnas
         TableColumn<MetodoPagoResumen,String> c1 = new TableColumn<>("Método");
         c1.setCellValueFactory(c -> c.getValue().metodoPagoProperty());
         TableColumn<MetodoPagoResumen,Integer> c2 = new TableColumn<>("Veces");
         c2.setCellValueFactory(c -> c.getValue().vecesProperty().asObject());
 
-        mostrarTabla(obs, Arrays.asList(c1, c2));
+        cargarTabla(consultaMetodosPago(), Arrays.asList(c1, c2));
     }
 
+    private Callable<List<MetodoPagoResumen>> consultaMetodosPago() {
+        // Mes seleccionado, o el mes actual por defecto
+        YearMonth ym = mesSeleccionado();
+        return () -> ventaService.obtenerMetodosPagoMasUtilizados(ym.atDay(1), ym.atEndOfMonth());
+    }
 
-    private void cargarProductoMayorStock() {
-        List<Producto> todos = productoService.obtenerTodos();
-        // Orden descendente por stock
-        List<Producto> ordenados = todos.stream()
-                .sorted(Comparator.comparingInt(Producto::getStock).reversed())
-                .collect(Collectors.toList());
-
-        ObservableList<Producto> obs = FXCollections.observableArrayList(ordenados);
 
+    private void cargarProductoMayorStock() {
         // Columna Nombre
         TableColumn<Producto,String> colNom = new TableColumn<>("Nombre");
         colNom.setCellValueFactory(c -> c.getValue().nombreProperty());
@@ -651,52 +739,51 @@ public class ReporteController {
             }
         });
 
-        @SuppressWarnings("unchecked")
-        TableView<Producto> tv = (TableView<Producto>) tablaReporte;
-        tv.getColumns().setAll(colNom, colSto);
-        tv.setItems(obs);
+        cargarTabla(consultaProductoMayorStock(), Arrays.asList(colNom, colSto));
     }
 
-    private void cargarCompradosMasDeUnaVez() {
-        Cliente cli = clienteCombo.getValue();
-        if (cli == null) return;
-
-        // 1) Detalles de venta del cliente
-        List<DetalleVenta> dets = ventaService.obtenerDetallesVenta(cli.getIdCliente());
-        // 2) Agrupamos por producto y sumamos cantidades
-        Map<Integer,Integer> counts = dets.stream()
-                .collect(Collectors.groupingBy(
-                        DetalleVenta::getIdProducto,
-                        Collectors.summingInt(DetalleVenta::getCantidad)
-                ));
-        // 3) Filtramos >=2 y resolvemos nombre
-        List<ProductoRepetido> rpt = counts.entrySet().stream()
-                .filter(e -> e.getValue() >= 2)
-                .flatMap(e ->
-                        productoService.obtenerPorId(e.getKey()).stream()
-                                .map(p -> new ProductoRepetido(p.getNombre(), e.getValue()))
-                )
+    private Callable<List<Producto>> consultaProductoMayorStock() {
+        return () -> productoService.obtenerTodos().stream()
+                // Orden descendente por stock
+                .sorted(Comparator.comparingInt(Producto::getStock).reversed())
                 .collect(Collectors.toList());
+    }
 
-        ObservableList<ProductoRepetido> data = FXCollections.observableArrayList(rpt);
+    private void cargarCompradosMasDeUnaVez() {
+        boolean todos = todosClientesCheck.isSelected();
+        if (!todos && clienteCombo.getValue() == null) return;
+
+        TableColumn<ProductoRepetido,String> colCli = new TableColumn<>("Cliente");
+        colCli.setCellValueFactory(c -> new SimpleObjectProperty<>(c.getValue().getCliente()));
         TableColumn<ProductoRepetido,String> colProd = new TableColumn<>("Producto");
         colProd.setCellValueFactory(c -> new SimpleObjectProperty<>(c.getValue().getNombre()));
         TableColumn<ProductoRepetido,Integer> colVeces = new TableColumn<>("Veces");
         colVeces.setCellValueFactory(c -> new SimpleObjectProperty<>(c.getValue().getVeces()));
 
-        @SuppressWarnings("unchecked")
-        TableView<ProductoRepetido> tv = (TableView<ProductoRepetido>) tablaReporte;
-        tv.getColumns().setAll(colProd, colVeces);
-        tv.setItems(data);
+        cargarTabla(consultaCompradosMasDeUnaVez(), todos
+                ? Arrays.asList(colCli, colProd, colVeces)
+                : Arrays.asList(colProd, colVeces));
+    }
+
+    private Callable<List<ProductoRepetido>> consultaCompradosMasDeUnaVez() {
+        if (todosClientesCheck.isSelected()) {
+            return () -> ventaService.obtenerProductosRepetidos(
+                    null, null, null, PRODUCTOS_REPETIDOS_POR_CLIENTE);
+        }
+        int idCliente = clienteCombo.getValue().getIdCliente();
+        return () -> ventaService.obtenerProductosRepetidos(idCliente, null, null, 0);
     }
 
     public static class ProductoRepetido {
+        private final String cliente;
         private final String nombre;
         private final int    veces;
-        public ProductoRepetido(String nombre,int veces) {
-            this.nombre = nombre;
+        public ProductoRepetido(String cliente,String nombre,int veces) {
+            this.cliente = cliente;
+            this.nombre  = nombre;
             this.veces   = veces;
         }
+        public String getCliente(){ return cliente; }
         public String getNombre(){ return nombre; }
         public int    getVeces() { return veces;   }
     }
@@ -711,43 +798,45 @@ public class ReporteController {
             return;
         }
 
-        Set<String> names = Arrays.stream(txt.split(","))
-                .map(String::trim)
-                .filter(s -> !s.isEmpty())
-                .collect(Collectors.toSet());
-
-        List<Producto> list = productoService.obtenerTodos().stream()
-                .filter(p -> names.contains(p.getNombre()))
-                .collect(Collectors.toList());
-
-        ObservableList<Producto> data = FXCollections.observableArrayList(list);
         TableColumn<Producto,String> colNom = new TableColumn<>("Producto");
         colNom.setCellValueFactory(c -> c.getValue().nombreProperty());
         TableColumn<Producto,Integer> colSto = new TableColumn<>("Stock");
         colSto.setCellValueFactory(c -> c.getValue().stockProperty().asObject());
 
-        @SuppressWarnings("unchecked")
-        TableView<Producto> tv = (TableView<Producto>) tablaReporte;
-        tv.getColumns().setAll(colNom, colSto);
-        tv.setItems(data);
+        cargarTabla(consultaProductosPorProveedor(), Arrays.asList(colNom, colSto));
     }
 
-    private void cargarProductosNoVendidos3Meses() {
-        LocalDate now = LocalDate.now();
-        Set<String> soldNames = new ReporteUtil()
-                .obtenerProductosMasVendidos(now.minusMonths(3), now)
-                .stream()
-                .map(ProductoVentaResumen::getNombre)
-                .collect(Collectors.toSet());
-        List<Producto> all = productoService.obtenerTodos();
-        ObservableList<Producto> obs = FXCollections.observableArrayList(
-                all.stream()
-                        .filter(p -> !soldNames.contains(p.getNombre()))
-                        .collect(Collectors.toList())
-        );
-        TableColumn<Producto,String> c1 = new TableColumn<>("Nombre");
-        c1.setCellValueFactory(c -> c.getValue().nombreProperty());
-        mostrarTabla(obs, Collections.singletonList(c1));
+    private Callable<List<Producto>> consultaProductosPorProveedor() {
+        int idProveedor = proveedorCombo.getValue().getIdProveedor();
+        return () -> productoService.buscarPorProveedor(idProveedor);
+    }
+
+    private void cargarProductosSinVentas() {
+        TableColumn<ProductoSinVentaResumen,String> colNom = new TableColumn<>("Nombre");
+        colNom.setCellValueFactory(c -> new SimpleObjectProperty<>(c.getValue().getNombre()));
+        TableColumn<ProductoSinVentaResumen,String> colCat = new TableColumn<>("Categoría");
+        colCat.setCellValueFactory(c -> new SimpleObjectProperty<>(c.getValue().getCategoria()));
+        TableColumn<ProductoSinVentaResumen,Integer> colSto = new TableColumn<>("Stock");
+        colSto.setCellValueFactory(c -> new SimpleObjectProperty<>(c.getValue().getStock()));
+        TableColumn<ProductoSinVentaResumen,String> colUlt = new TableColumn<>("Última Venta");
+        colUlt.setCellValueFactory(c -> new SimpleObjectProperty<>(c.getValue().getUltimaVenta() != null
+                ? c.getValue().getUltimaVenta().format(DateTimeFormatter.ofPattern("dd/MM/yyyy"))
+                : "Nunca"));
+        TableColumn<ProductoSinVentaResumen,String> colVal = new TableColumn<>("Valor Inventario");
+        colVal.setCellValueFactory(c -> new SimpleObjectProperty<>(
+                String.format("$%.2f", c.getValue().getValorInventario())));
+
+        cargarTabla(consultaProductosSinVentas(), Arrays.asList(colNom, colCat, colSto, colUlt, colVal));
+    }
+
+    private Callable<List<ProductoSinVentaResumen>> consultaProductosSinVentas() {
+        LocalDate desde = inicioSinVentas();
+        return () -> new ReporteUtil().obtenerProductosSinVenta(desde);
+    }
+
+    /** Primer día de la ventana de "Productos sin Ventas" según los meses elegidos */
+    private LocalDate inicioSinVentas() {
+        return LocalDate.now().minusMonths(mesesSinVentaSpinner.getValue());
     }
 
     // Método para mostrar Alert sobre pantalla completa
@@ -781,11 +870,21 @@ public class ReporteController {
         mensajeLabel.setText(exito ? "Reporte generado correctamente." : "Error al generar el reporte.");
         mensajeLabel.setStyle(exito ? "-fx-text-fill: #00b894" : "-fx-text-fill: #d63031");
         mensajeLabel.setVisible(true);
-        new Thread(() -> {
-            try { Thread.sleep(3000); }
-            catch (InterruptedException ignored) {}
-            Platform.runLater(() -> mensajeLabel.setVisible(false));
-        }).start();
+        // Se oculta a los 3 s; un mensaje nuevo reinicia la cuenta en lugar de abrir otro hilo
+        if (ocultarMensaje == null) {
+            ocultarMensaje = new PauseTransition(Duration.seconds(3));
+            ocultarMensaje.setOnFinished(e -> mensajeLabel.setVisible(false));
+        }
+        ocultarMensaje.playFromStart();
+    }
+
+    /**
+     * Muestra las columnas de inmediato y llena la tabla cuando termina la consulta,
+     * que corre en segundo plano.
+     */
+    private <T> void cargarTabla(Callable<List<T>> consulta, List<TableColumn<T, ?>> cols) {
+        mostrarTabla(FXCollections.observableArrayList(), cols);
+        canalReporte.ejecutar(consulta, lista -> mostrarTabla(FXCollections.observableArrayList(lista), cols));
     }
 
     @SuppressWarnings("unchecked")
@@ -3,6 +3,7 @@ package com.mistrapitos.controllers;
 
 import com.mistrapitos.models.Usuario;
 import com.mistrapitos.services.UsuarioService;
+import com.mistrapitos.utils.CanalTareas;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -31,6 +32,7 @@ public class UsuarioController {
     @FXML private TextField buscarField;
 
     private final UsuarioService usuarioService = new UsuarioService();
+    private final CanalTareas canalUsuarios = new CanalTareas();
     // Fuente de verdad de usuarios
     private final ObservableList<Usuario> usuariosOriginales = FXCollections.observableArrayList();
 
@@ -113,9 +115,10 @@ public class UsuarioController {
     }
 
     private void cargarUsuarios() {
-        List<Usuario> usuarios = usuarioService.obtenerTodos();
-        usuariosOriginales.setAll(usuarios); // No cambies la referencia
-        tablaUsuarios.getItems().setAll(usuariosOriginales);
+        canalUsuarios.ejecutar(usuarioService::obtenerTodos, usuarios -> {
+            usuariosOriginales.setAll(usuarios); // No cambies la referencia
+            tablaUsuarios.getItems().setAll(usuariosOriginales);
+        });
     }
 
     private void filtrarUsuarios(String filtro) {
@@ -2,10 +2,11 @@ package com.mistrapitos.controllers;
 
 import com.mistrapitos.models.Venta;
 import com.mistrapitos.models.DetalleVenta;
+import com.mistrapitos.models.FiltroVentas;
 import com.mistrapitos.services.VentaService;
+import com.mistrapitos.utils.EjecutorUI;
+import com.mistrapitos.utils.PaginadorTabla;
 import javafx.beans.property.SimpleObjectProperty;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.layout.HBox;
@@ -16,8 +17,6 @@ import javafx.scene.image.Image;
 import java.io.InputStream;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
 public class VentaController {
 
@@ -30,9 +29,11 @@ public class VentaController {
     @FXML private TableColumn<Venta, Void> colAcciones;
     @FXML private TextField buscarField;
 
+    private static final int VENTAS_POR_PAGINA = 100;
+
     private final VentaService ventaService = new VentaService();
-    // Fuente de verdad de ventas (mantiene la referencia de la lista original)
-    private final ObservableList<Venta> ventasOriginales = FXCollections.observableArrayList();
+    // Las ventas se traen por páginas conforme el usuario se desplaza
+    private PaginadorTabla<Venta> paginador;
 
     // Definimos un formateador para la fecha en el formato "dd/MM/yyyy - hh:mm a"
     private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("dd/MM/yyyy - hh:mm a");
@@ -75,6 +76,7 @@ public class VentaController {
             }
         });
 
+        paginador = new PaginadorTabla<>(tablaVentas, VENTAS_POR_PAGINA);
         cargarVentas();
 
         // Búsqueda dinámica/autocompletado
@@ -82,41 +84,45 @@ public class VentaController {
     }
 
     private void cargarVentas() {
-        List<Venta> ventas = ventaService.obtenerTodas();
-        // Usamos setAll para mantener la referencia
-        ventasOriginales.setAll(ventas);
-        tablaVentas.getItems().setAll(ventasOriginales);
+        filtrarVentas(buscarField.getText());
     }
 
     /**
      * Filtra la tabla de ventas por cliente o método de pago, con autocompletado.
-     * Se copia la lógica utilizada en ProductoController para que al borrar el campo de búsqueda
-     * se muestren los productos completos (con sus botones de acción).
+     * La búsqueda se hace en la base de datos y el resultado también se pagina;
+     * con el campo vacío se muestran todas las ventas.
      */
     private void filtrarVentas(String filtro) {
+        FiltroVentas criterio = (filtro == null || filtro.isBlank())
+                ? FiltroVentas.todas()
+                : FiltroVentas.texto(filtro);
         if (filtro == null || filtro.isBlank()) {
-            // Usamos getItems().setAll para volver a asignar la lista original
-            tablaVentas.getItems().setAll(ventasOriginales);
+            paginador.mostrar((ultima, tamano) -> ventaService.obtenerPagina(criterio, ultima, tamano));
+            return;
+        }
+        paginador.mostrar((ultima, tamano) -> ventaService.obtenerPagina(criterio, ultima, tamano),
+                () -> autocompletar(filtro));
+    }
+
+    /**
+     * Si alguna venta de la primera página tiene un cliente cuyo nombre empieza igual
+     * que lo ingresado, completa el campo de búsqueda con ese nombre.
+     */
+    private void autocompletar(String filtro) {
+        // Si el usuario siguió escribiendo, esta página ya no corresponde a lo que hay en el campo
+        if (!filtro.equals(buscarField.getText())) {
             return;
         }
         String filtroLower = filtro.toLowerCase();
-        Predicate<Venta> pred = v ->
-                (v.getClienteNombre() != null && v.getClienteNombre().toLowerCase().contains(filtroLower))
-                        || (v.getMetodoPago() != null && v.getMetodoPago().toLowerCase().contains(filtroLower));
-        List<Venta> filtradas = ventasOriginales.stream().filter(pred).collect(Collectors.toList());
-        // Se vuelve a setear la lista filtrada utilizando setAll para conservar la referencia y así que se muestren correctamente las celdas con botones
-        tablaVentas.getItems().setAll(filtradas);
-
-        // Autocompletado: si hay una coincidencia cuyo nombre de cliente empieza igual que lo ingresado, se autocompleta.
-        if (!filtradas.isEmpty()) {
-            for (Venta v : filtradas) {
-                String nombre = v.getClienteNombre();
-                if (nombre != null && nombre.toLowerCase().startsWith(filtroLower) && !nombre.equalsIgnoreCase(filtro)) {
-                    buscarField.setText(nombre);
-                    buscarField.positionCaret(nombre.length());
-                    buscarField.selectRange(filtro.length(), nombre.length());
-                    break;
-                }
+        // Copia: al autocompletar se vuelve a filtrar y la tabla cambia de contenido
+        List<Venta> filtradas = List.copyOf(tablaVentas.getItems());
+        for (Venta v : filtradas) {
+            String nombre = v.getClienteNombre();
+            if (nombre != null && nombre.toLowerCase().startsWith(filtroLower) && !nombre.equalsIgnoreCase(filtro)) {
+                buscarField.setText(nombre);
+                buscarField.positionCaret(nombre.length());
+                buscarField.selectRange(filtro.length(), nombre.length());
+                break;
             }
         }
     }
@@ -130,7 +136,11 @@ public class VentaController {
      * Muestra todos los detalles de la venta seleccionada en un diálogo.
      */
     private void onVer(Venta venta) {
-        List<DetalleVenta> detalles = ventaService.obtenerDetallesVenta(venta.getIdVenta());
+        EjecutorUI.ejecutar(() -> ventaService.obtenerDetallesVenta(venta.getIdVenta()),
+                detalles -> mostrarDetalles(venta, detalles));
+    }
+
+    private void mostrarDetalles(Venta venta, List<DetalleVenta> detalles) {
         StringBuilder sb = new StringBuilder();
         sb.append("ID Venta: ").append(venta.getIdVenta()).append("\n");
         sb.append("Cliente: ").append(venta.getClienteNombre()).append("\n");
@@ -188,9 +198,10 @@ public class VentaController {
 
         confirm.showAndWait().ifPresent(resp -> {
             if (resp == ButtonType.YES) {
-                ventaService.eliminarVenta(venta.getIdVenta());
-                cargarVentas();
-                mostrarAlerta("Venta eliminada.", Alert.AlertType.INFORMATION);
+                EjecutorUI.ejecutar(() -> ventaService.eliminarVenta(venta.getIdVenta()), eliminada -> {
+                    cargarVentas();
+                    mostrarAlerta("Venta eliminada.", Alert.AlertType.INFORMATION);
+                });
             }
         });
     }
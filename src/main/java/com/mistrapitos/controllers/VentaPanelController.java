@@ -3,12 +3,19 @@ package com.mistrapitos.controllers;
 import com.mistrapitos.models.Cliente;
 import com.mistrapitos.models.Producto;
 import com.mistrapitos.models.ProductoEnCarrito;
+import com.mistrapitos.models.Ticket;
 import com.mistrapitos.models.Usuario;
 import com.mistrapitos.models.Categoria;
 import com.mistrapitos.services.ClienteService;
+import com.mistrapitos.services.DirectorioClientes;
 import com.mistrapitos.services.ProductoService;
+import com.mistrapitos.services.StockInsuficienteException;
 import com.mistrapitos.services.VentaService;
+import com.mistrapitos.utils.CanalTareas;
+import com.mistrapitos.utils.ColaImpresion;
+import com.mistrapitos.utils.EjecutorUI;
 import com.mistrapitos.utils.ReporteUtil;
+import com.mistrapitos.utils.TicketUtil;
 import com.mistrapitos.utils.DatabaseUtil;
 import javafx.animation.FadeTransition;
 import javafx.animation.KeyFrame;
@@ -48,8 +55,14 @@ import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 public class VentaPanelController {
 
@@ -57,6 +70,7 @@ public class VentaPanelController {
     @FXML private Button logoutButton;
     @FXML private TextField barcodeField;
     @FXML private Label productoInfoLabel;
+    @FXML private ProgressIndicator cargandoIndicador;
     @FXML private TableView<ProductoEnCarrito> carritoTable;
     @FXML private TableColumn<ProductoEnCarrito, String> colProducto;
     @FXML private TableColumn<ProductoEnCarrito, Integer> colCantidad;
@@ -90,6 +104,11 @@ public class VentaPanelController {
     private final ObservableList<ProductoEnCarrito> carrito = FXCollections.observableArrayList();
     private Cliente clienteSeleccionado = null;
     private Random random = new Random();
+    private final CanalTareas canalCliente = new CanalTareas();
+    private int tareasPendientes = 0;
+    // Escaneos cuya búsqueda aún no vuelve, y si hay un cobro en curso: mientras tanto no se cobra ni se agrega
+    private int escaneosPendientes = 0;
+    private boolean cobrando = false;
 
     private Stage getMainStage() {
         // Usamos cualquier nodo de la escena principal, aquí barcodeField
@@ -160,9 +179,48 @@ public class VentaPanelController {
             mostrarMensaje("Ingrese o escanee un código de barras.", false);
             return;
         }
-        Optional<Producto> prodOpt = productoService.buscarPorBarcode(barcode);
+        if (cobrando) {
+            // Iría al carrito que se está cobrando y se borraría al terminar sin cobrarse
+            mostrarMensaje("Espere a que termine el cobro y vuelva a escanear el producto.", false);
+            return;
+        }
+        // Se limpia de inmediato para que el siguiente escaneo no espere a esta búsqueda
+        barcodeField.clear();
+        barcodeField.requestFocus();
+        escaneosPendientes++;
+        actualizarBotonCompletar();
+        enSegundoPlano(() -> productoService.buscarPorBarcode(barcode),
+                prodOpt -> {
+                    terminarEscaneo();
+                    agregarAlCarrito(barcode, prodOpt);
+                },
+                error -> {
+                    terminarEscaneo();
+                    mostrarMensaje("Error: " + error.getMessage(), false);
+                });
+    }
+
+    private void terminarEscaneo() {
+        escaneosPendientes--;
+        actualizarBotonCompletar();
+    }
+
+    /**
+     * Completar venta solo se habilita cuando el carrito ya tiene todo lo escaneado y no
+     * hay otro cobro en curso; si no, un producto que llega tarde no se cobraría.
+     */
+    private void actualizarBotonCompletar() {
+        completarVentaBtn.setDisable(cobrando || escaneosPendientes > 0);
+    }
+
+    private void terminarCobro() {
+        cobrando = false;
+        actualizarBotonCompletar();
+    }
+
+    private void agregarAlCarrito(String barcode, Optional<Producto> prodOpt) {
         if (prodOpt.isEmpty()) {
-            mostrarMensaje("Producto no encontrado.", false);
+            mostrarMensaje("Producto no encontrado: " + barcode, false);
             productoInfoLabel.setText("");
             return;
         }
@@ -178,8 +236,6 @@ public class VentaPanelController {
                 } else {
                     mostrarMensaje("No hay suficiente stock.", false);
                 }
-                barcodeField.clear();
-                barcodeField.requestFocus();
                 return;
             }
         }
@@ -190,19 +246,22 @@ public class VentaPanelController {
         } else {
             mostrarMensaje("No hay stock disponible.", false);
         }
-        barcodeField.clear();
-        barcodeField.requestFocus();
     }
 
     @FXML
     private void onBuscarCliente() {
         String texto = clienteField.getText();
         if (texto == null || texto.isBlank()) {
+            canalCliente.cancelar();
             clienteInfoLabel.setText("");
             clienteSeleccionado = null;
             return;
         }
-        Optional<Cliente> clienteOpt = clienteService.buscarPorNombreOId(texto);
+        // Se busca en cada tecla; solo cuenta la respuesta de la última
+        canalCliente.ejecutar(() -> clienteService.buscarPorNombreOId(texto), this::mostrarClienteEncontrado);
+    }
+
+    private void mostrarClienteEncontrado(Optional<Cliente> clienteOpt) {
         if (clienteOpt.isPresent()) {
             Cliente c = clienteOpt.get();
             clienteInfoLabel.setText("Cliente: " + c.getNombre() +
@@ -297,9 +356,9 @@ public class VentaPanelController {
         });
 
         Optional<Cliente> result = dialog.showAndWait();
-        result.ifPresent(nuevo -> {
-            Cliente guardado = clienteService.registrarCliente(nuevo);
+        result.ifPresent(nuevo -> enSegundoPlano(() -> clienteService.registrarCliente(nuevo), guardado -> {
             if (guardado != null && guardado.getIdCliente() > 0) {
+                canalCliente.cancelar();
                 clienteField.setText(String.valueOf(guardado.getIdCliente()));
                 clienteInfoLabel.setText("Cliente: " + guardado.getNombre() +
                         (guardado.getCorreo() != null && !guardado.getCorreo().isBlank() ? " | " + guardado.getCorreo() : "") +
@@ -311,11 +370,15 @@ public class VentaPanelController {
             } else {
                 mostrarMensaje("No se pudo registrar el cliente.", false);
             }
-        });
+        }));
     }
 
     @FXML
     private void onCompletarVenta() {
+        if (cobrando || escaneosPendientes > 0) {
+            mostrarMensaje("Espere a que terminen de cargarse los productos escaneados.", false);
+            return;
+        }
         if (carrito.isEmpty()) {
             mostrarMensaje("El carrito está vacío.", false);
             return;
@@ -329,6 +392,8 @@ public class VentaPanelController {
             mostrarMensaje("Seleccione el método de pago.", false);
             return;
         }
+        cobrando = true;
+        actualizarBotonCompletar();
         if ("Tarjeta".equals(metodoPago)) {
             mostrarAnimacionPagoTarjeta();
             return;
@@ -378,6 +443,7 @@ public class VentaPanelController {
                         mensajeTerminalLabel.setText("La transacción ha sido rechazada. Por favor intente con otro método de pago.");
                         terminalProgress.setProgress(0);
                         cerrarTerminalBtn.setVisible(true);
+                        terminarCobro();
                     }
                 })
         );
@@ -398,8 +464,55 @@ public class VentaPanelController {
 
     private void procesarVenta() {
         String metodoPago = metodoPagoCombo.getValue();
-        boolean exito = ventaService.registrarVenta(carrito, clienteSeleccionado, usuarioActual, metodoPago);
-        if (exito) {
+        // Copia: el servicio trabaja en otro hilo y el carrito es de la interfaz
+        List<ProductoEnCarrito> productos = List.copyOf(carrito);
+        Cliente cliente = clienteSeleccionado;
+        enSegundoPlano(() -> ventaService.registrarVenta(productos, cliente, usuarioActual, metodoPago),
+                resultado -> {
+                    // Si se guardó, el cobro termina al limpiar el carrito, después del aviso
+                    if (resultado == VentaService.ResultadoVenta.FALLIDA) {
+                        terminarCobro();
+                    }
+                    if (resultado != VentaService.ResultadoVenta.FALLIDA && TicketUtil.imprimirAlCobrar()) {
+                        imprimirTicketCobrado(productos, cliente);
+                    }
+                    mostrarResultadoVenta(resultado);
+                },
+                error -> {
+                    terminarCobro();
+                    if (error instanceof StockInsuficienteException e) {
+                        mostrarMensaje("Stock insuficiente: " + e.getFaltantes().stream()
+                                .map(f -> f.getNombre() + " (disponible: " + f.getDisponible() + ")")
+                                .collect(Collectors.joining(", ")), false);
+                    } else {
+                        mostrarMensaje("Error al registrar la venta.", false);
+                    }
+                });
+    }
+
+    /**
+     * Manda el ticket de la venta recién cobrada a la cola de impresión; si no sale, se
+     * avisa en la pantalla sin detener el cobro.
+     */
+    private void imprimirTicketCobrado(List<ProductoEnCarrito> productos, Cliente cliente) {
+        Ticket ticket = Ticket.deCarrito(productos, cliente.getNombre(), usuarioActual);
+        try {
+            TicketUtil.encolarTicket(ticket).whenComplete((exito, error) -> {
+                if (!Boolean.TRUE.equals(exito)) {
+                    Platform.runLater(() -> mostrarMensaje("No se pudo imprimir el ticket; puede generarlo en PDF.", false));
+                }
+            });
+        } catch (IllegalStateException e) {
+            mostrarMensaje(e.getMessage(), false);
+        }
+    }
+
+    private void mostrarResultadoVenta(VentaService.ResultadoVenta resultado) {
+        if (resultado == VentaService.ResultadoVenta.PENDIENTE) {
+            // Cobrada sin conexión: queda en el diario de la caja y se envía sola al volver la red
+            mostrarMensaje("Venta guardada en esta caja sin conexión; se enviará al servidor al recuperar la conexión", true);
+            limpiarFormulario();
+        } else if (resultado == VentaService.ResultadoVenta.REGISTRADA) {
             mostrarMensaje("Venta registrada correctamente. Imprima el ticket para entregarlo al cliente", true);
             Timeline timeline = new Timeline(
                     new KeyFrame(Duration.seconds(0.7), evt -> {
@@ -474,6 +587,7 @@ public class VentaPanelController {
             // Mostrar mensaje de error en la interfaz
             mostrarMensaje("Error al limpiar el formulario: " + e.getMessage(), false);
         }
+        terminarCobro();
     }
 
     @FXML
@@ -488,39 +602,46 @@ public class VentaPanelController {
         // MODIFICACIÓN: usar getMainStage() como owner
         File file = fileChooser.showSaveDialog(getMainStage());
         if (file == null) return;
-        new Thread(() -> {
-            boolean exito = ReporteUtil.generarTicketVentaPDF(
-                    carrito,
-                    clienteSeleccionado != null ? clienteSeleccionado.getNombre() : "",
+        List<ProductoEnCarrito> productos = List.copyOf(carrito);
+        String nombreCliente = clienteSeleccionado != null ? clienteSeleccionado.getNombre() : "";
+        CompletableFuture<Boolean> ticket;
+        try {
+            ticket = ColaImpresion.encolar("ticketPdf", () -> ReporteUtil.generarTicketVentaPDF(
+                    productos,
+                    nombreCliente,
                     usuarioActual,
                     file.getAbsolutePath()
-            );
-            Platform.runLater(() -> {
-                if (exito) {
-                    mostrarMensaje("Ticket generado correctamente.", true);
-                    limpiarFormulario();
-                    Alert alert = new Alert(Alert.AlertType.INFORMATION);
-                    alert.setTitle("Ticket Generado");
-                    alert.setHeaderText("El ticket ha sido generado correctamente");
-                    alert.setContentText("El archivo se ha guardado en la ubicación seleccionada.");
-                    DialogPane dialogPane = alert.getDialogPane();
-                    dialogPane.getStylesheets().add(getClass().getResource("/css/ventaPanel.css").toExternalForm());
-                    dialogPane.getStyleClass().add("dialog-pane");
-                    // MODIFICACIÓN: asegurar que el alert esté encima y modal
-                    alert.setOnShown(evt -> {
-                        Stage stage = (Stage) alert.getDialogPane().getScene().getWindow();
-                        stage.getIcons().add(
-                                new Image(getClass().getResourceAsStream("/images/logo.jpg"))
-                        );
-                    });
-                    alert.initOwner(getMainStage());
-                    alert.initModality(Modality.WINDOW_MODAL);
-                    alert.show();
-                } else {
-                    mostrarMensaje("Error al generar el ticket.", false);
-                }
-            });
-        }).start();
+            ));
+        } catch (IllegalStateException e) {
+            mostrarMensaje(e.getMessage(), false);
+            return;
+        }
+        mostrarMensaje("Generando ticket...", true);
+        ticket.whenComplete((exito, error) -> Platform.runLater(() -> {
+            if (Boolean.TRUE.equals(exito)) {
+                mostrarMensaje("Ticket generado correctamente.", true);
+                limpiarFormulario();
+                Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                alert.setTitle("Ticket Generado");
+                alert.setHeaderText("El ticket ha sido generado correctamente");
+                alert.setContentText("El archivo se ha guardado en la ubicación seleccionada.");
+                DialogPane dialogPane = alert.getDialogPane();
+                dialogPane.getStylesheets().add(getClass().getResource("/css/ventaPanel.css").toExternalForm());
+                dialogPane.getStyleClass().add("dialog-pane");
+                // MODIFICACIÓN: asegurar que el alert esté encima y modal
+                alert.setOnShown(evt -> {
+                    Stage stage = (Stage) alert.getDialogPane().getScene().getWindow();
+                    stage.getIcons().add(
+                            new Image(getClass().getResourceAsStream("/images/logo.jpg"))
+                    );
+                });
+                alert.initOwner(getMainStage());
+                alert.initModality(Modality.WINDOW_MODAL);
+                alert.show();
+            } else {
+                mostrarMensaje("Error al generar el ticket.", false);
+            }
+        }));
     }
 
     @FXML
@@ -636,6 +757,33 @@ public class VentaPanelController {
         ft.play();
     }
 
+    /**
+     * Ejecuta un trabajo fuera del hilo de JavaFX y muestra el indicador del panel
+     * mientras quede alguna tarea pendiente. Los errores se informan en el mensaje del panel.
+     */
+    private <T> void enSegundoPlano(Callable<T> trabajo, Consumer<? super T> alTerminar) {
+        enSegundoPlano(trabajo, alTerminar, error -> mostrarMensaje("Error: " + error.getMessage(), false));
+    }
+
+    private <T> void enSegundoPlano(Callable<T> trabajo, Consumer<? super T> alTerminar, Consumer<Exception> alFallar) {
+        tareasPendientes++;
+        cargandoIndicador.setVisible(true);
+        EjecutorUI.ejecutar(trabajo,
+                resultado -> {
+                    terminarTarea();
+                    alTerminar.accept(resultado);
+                },
+                error -> {
+                    terminarTarea();
+                    alFallar.accept(error);
+                });
+    }
+
+    private void terminarTarea() {
+        tareasPendientes--;
+        cargandoIndicador.setVisible(tareasPendientes > 0);
+    }
+
     private void mostrarMensaje(String mensaje, boolean exito) {
         mensajeLabel.setText(mensaje);
         mensajeLabel.setStyle("-fx-text-fill: " + (exito ? "#00b894" : "#d63031"));
@@ -683,15 +831,7 @@ public class VentaPanelController {
         // ComboBox con categorías
         ComboBox<Categoria> cbCategoria = new ComboBox<>();
         ObservableList<Categoria> listaCategorias = FXCollections.observableArrayList();
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement("SELECT id_categoria, nombre FROM categorias ORDER BY nombre")) {
-            ResultSet rs = stmt.executeQuery();
-            while (rs.next()) {
-                listaCategorias.add(new Categoria(rs.getInt("id_categoria"), rs.getString("nombre")));
-            }
-        } catch(Exception e) {
-            e.printStackTrace();
-        }
+        enSegundoPlano(VentaPanelController::consultarCategorias, listaCategorias::setAll);
         cbCategoria.setItems(listaCategorias);
         cbCategoria.setPromptText("Seleccione Categoría");
         cbCategoria.setConverter(new StringConverter<Categoria>() {
@@ -763,12 +903,14 @@ public class VentaPanelController {
                     String colors = tfColors.getText();
                     double descuento = Double.parseDouble(tfDescuento.getText());
                     String barcode = tfBarcode.getText();
-                    boolean result = insertarProducto(nombre, descripcion, idCategoria, precio, stock, sizes, colors, descuento, barcode);
-                    if (result) {
-                        mostrarMensaje("Producto agregado correctamente.", true);
-                    } else {
-                        mostrarMensaje("Error al agregar el producto.", false);
-                    }
+                    enSegundoPlano(() -> insertarProducto(nombre, descripcion, idCategoria, precio, stock, sizes, colors, descuento, barcode),
+                            result -> {
+                                if (result) {
+                                    mostrarMensaje("Producto agregado correctamente.", true);
+                                } else {
+                                    mostrarMensaje("Error al agregar el producto.", false);
+                                }
+                            });
                 } catch (NumberFormatException ex) {
                     mostrarMensaje("Error en el formato de los campos numéricos.", false);
                 }
@@ -833,29 +975,7 @@ public class VentaPanelController {
 
         // Obtén la lista completa de productos de la base de datos
         ObservableList<Producto> listaProductos = FXCollections.observableArrayList();
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT id_producto, nombre, descripcion, id_categoria, precio, stock, sizes, colors, descuento, barcode " +
-                             "FROM productos ORDER BY nombre"
-             )) {
-            ResultSet rs = stmt.executeQuery();
-            while (rs.next()) {
-                Producto prod = new Producto();
-                prod.setIdProducto(rs.getInt("id_producto"));
-                prod.setNombre(rs.getString("nombre"));
-                prod.setDescripcion(rs.getString("descripcion"));
-                prod.setIdCategoria(rs.getInt("id_categoria"));
-                prod.setPrecio(rs.getDouble("precio"));
-                prod.setStock(rs.getInt("stock"));
-                prod.setSizes(rs.getString("sizes"));
-                prod.setColors(rs.getString("colors"));
-                prod.setDescuento(rs.getDouble("descuento"));
-                prod.setBarcode(rs.getString("barcode"));
-                listaProductos.add(prod);
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        enSegundoPlano(VentaPanelController::consultarProductos, listaProductos::setAll);
 
         // Crear una FilteredList para el autocompletar
         FilteredList<Producto> filteredProductos = new FilteredList<>(listaProductos, p -> true);
@@ -902,16 +1022,7 @@ public class VentaPanelController {
         // ComboBox para Categorías
         ComboBox<Categoria> cbCategoria = new ComboBox<>();
         ObservableList<Categoria> listaCategorias = FXCollections.observableArrayList();
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement("SELECT id_categoria, nombre FROM categorias ORDER BY nombre")) {
-            ResultSet rs = stmt.executeQuery();
-            while (rs.next()) {
-                Categoria cat = new Categoria(rs.getInt("id_categoria"), rs.getString("nombre"));
-                listaCategorias.add(cat);
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        enSegundoPlano(VentaPanelController::consultarCategorias, listaCategorias::setAll);
         cbCategoria.setItems(listaCategorias);
         cbCategoria.setPromptText("Seleccione Categoría");
         cbCategoria.setConverter(new StringConverter<Categoria>() {
@@ -1008,7 +1119,10 @@ public class VentaPanelController {
                         double nuevoDescuento = Double.parseDouble(tfDescuento.getText());
                         String nuevoBarcode = tfBarcode.getText();
 
-                        boolean actualizado = actualizarProducto(
+                        // El diálogo se cierra cuando la base de datos confirma el cambio
+                        event.consume();
+                        saveBtn.setDisable(true);
+                        enSegundoPlano(() -> actualizarProducto(
                                 seleccionado.getIdProducto(),
                                 nuevoNombre,
                                 nuevaDescripcion,
@@ -1019,14 +1133,15 @@ public class VentaPanelController {
                                 nuevosColors,
                                 nuevoDescuento,
                                 nuevoBarcode
-                        );
-                        if (actualizado) {
-                            mostrarMensaje("Producto actualizado correctamente.", true);
-                            dialog.close();
-                        } else {
-                            mostrarMensaje("Error al actualizar el producto.", false);
-                            event.consume();
-                        }
+                        ), actualizado -> {
+                            saveBtn.setDisable(false);
+                            if (actualizado) {
+                                mostrarMensaje("Producto actualizado correctamente.", true);
+                                dialog.close();
+                            } else {
+                                mostrarMensaje("Error al actualizar el producto.", false);
+                            }
+                        });
                     } catch (NumberFormatException ex) {
                         mostrarMensaje("Error en el formato de los campos numéricos.", false);
                         event.consume();
@@ -1112,29 +1227,18 @@ public class VentaPanelController {
         ComboBox<Cliente> cbCliente = new ComboBox<>();
         cbCliente.setEditable(true);
 
-        // Obtener clientes
-        ObservableList<Cliente> listaClientes = FXCollections.observableArrayList();
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT id_cliente, nombre, direccion, correo, telefono " +
-                             "FROM clientes ORDER BY nombre")) {
-            ResultSet rs = stmt.executeQuery();
-            while (rs.next()) {
-                Cliente c = new Cliente();
-                c.setIdCliente(rs.getInt("id_cliente"));
-                c.setNombre(rs.getString("nombre"));
-                c.setDireccion(rs.getString("direccion"));
-                c.setCorreo(rs.getString("correo"));
-                c.setTelefono(rs.getString("telefono"));
-                listaClientes.add(c);
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+        // Sugerencias del directorio compartido: la tabla completa solo se lee la primera vez;
+        // al abrir el diálogo se traen los clientes nuevos o modificados, también en otras cajas
+        DirectorioClientes directorio = DirectorioClientes.getInstancia();
+        ObservableList<Cliente> sugerencias = FXCollections.observableArrayList();
+        cbCliente.setItems(sugerencias);
+        if (directorio.estaCargado()) {
+            sugerencias.setAll(directorio.buscar(""));
         }
-
-        // FilteredList para autocompletar
-        FilteredList<Cliente> filteredClientes = new FilteredList<>(listaClientes, c -> true);
-        cbCliente.setItems(filteredClientes);
+        enSegundoPlano(() -> {
+            directorio.refrescar();
+            return null;
+        }, listo -> sugerencias.setAll(directorio.buscar(cbCliente.getEditor().getText())));
         cbCliente.setConverter(new StringConverter<Cliente>() {
             @Override
             public String toString(Cliente object) {
@@ -1143,10 +1247,7 @@ public class VentaPanelController {
             @Override
             public Cliente fromString(String string) {
                 if (string == null || string.isEmpty()) return null;
-                return listaClientes.stream()
-                        .filter(c -> c.getNombre().equalsIgnoreCase(string))
-                        .findFirst()
-                        .orElse(null);
+                return directorio.buscarExacto(string).orElse(null);
             }
         });
 
@@ -1156,29 +1257,18 @@ public class VentaPanelController {
         cbCliente.getEditor().textProperty().addListener((obs, oldVal, newVal) -> {
             if (ignore[0]) return;
 
-            // 1) Actualizar filtro
-            filteredClientes.setPredicate(cliente -> {
-                if (newVal == null || newVal.isEmpty()) {
-                    return true;
-                }
-                return cliente.getNombre().toLowerCase().contains(newVal.toLowerCase());
-            });
+            // 1) Actualizar sugerencias (como mucho clientes.sugerencias)
+            sugerencias.setAll(directorio.buscar(newVal));
 
-            // 2) Refrescar desplegable: ocultar y volver a mostrar si hay elementos
-            Platform.runLater(() -> {
-                if (filteredClientes.isEmpty()) {
-                    cbCliente.hide();
-                } else {
-                    cbCliente.hide();
-                    cbCliente.show();
-                }
-            });
+            // 2) Mostrar el desplegable solo si hay sugerencias y no está abierto
+            if (sugerencias.isEmpty()) {
+                cbCliente.hide();
+            } else if (!cbCliente.isShowing()) {
+                cbCliente.show();
+            }
 
             // 3) Selección exacta
-            Cliente match = listaClientes.stream()
-                    .filter(c -> c.getNombre().equalsIgnoreCase(newVal))
-                    .findFirst()
-                    .orElse(null);
+            Cliente match = directorio.buscarExacto(newVal).orElse(null);
             if (match != null && cbCliente.getValue() != match) {
                 ignore[0] = true;
                 cbCliente.setValue(match);
@@ -1218,33 +1308,20 @@ public class VentaPanelController {
         dialog.getDialogPane().setContent(vbox);
         dialog.getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
 
-        // Al seleccionar cliente, cargar ventas
+        // Al seleccionar cliente, cargar ventas; si se cambia de cliente antes de que
+        // terminen, se descartan las del anterior
+        CanalTareas canalVentas = new CanalTareas();
         cbCliente.valueProperty().addListener((obs, oldVal, newVal) -> {
             if (newVal != null) {
-                ObservableList<Object[]> ventasData = FXCollections.observableArrayList();
-                try (Connection conn = DatabaseUtil.getConnection();
-                     PreparedStatement stmt = conn.prepareStatement(
-                             "SELECT id_venta, fecha, metodo_pago, total " +
-                                     "FROM ventas WHERE id_cliente = ? ORDER BY fecha DESC")) {
-                    stmt.setInt(1, newVal.getIdCliente());
-                    ResultSet rs = stmt.executeQuery();
-                    while (rs.next()) {
-                        Object[] row = {
-                                rs.getInt("id_venta"),
-                                rs.getTimestamp("fecha").toString(),
-                                rs.getString("metodo_pago"),
-                                rs.getBigDecimal("total").toString()
-                        };
-                        ventasData.add(row);
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-                ventasTable.setItems(ventasData);
+                int idCliente = newVal.getIdCliente();
+                canalVentas.ejecutar(() -> consultarVentasCliente(idCliente),
+                        filas -> ventasTable.setItems(FXCollections.observableArrayList(filas)));
             } else {
+                canalVentas.cancelar();
                 ventasTable.getItems().clear();
             }
         });
+        dialog.setOnHidden(evt -> canalVentas.cancelar());
 
         dialog.initOwner(getMainStage());
         dialog.initModality(Modality.WINDOW_MODAL);
@@ -1258,5 +1335,70 @@ public class VentaPanelController {
         dialog.showAndWait();
     }
 
+    // Consultas de los diálogos; se ejecutan en segundo plano
 
-}
\ No newline at end of file
+    private static List<Categoria> consultarCategorias() {
+        List<Categoria> categorias = new ArrayList<>();
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT id_categoria, nombre FROM categorias ORDER BY nombre");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                categorias.add(new Categoria(rs.getInt("id_categoria"), rs.getString("nombre")));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return categorias;
+    }
+
+    private static List<Producto> consultarProductos() {
+        List<Producto> productos = new ArrayList<>();
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT id_producto, nombre, descripcion, id_categoria, precio, stock, sizes, colors, descuento, barcode " +
+                             "FROM productos ORDER BY nombre"
+             );
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                Producto prod = new Producto();
+                prod.setIdProducto(rs.getInt("id_producto"));
+                prod.setNombre(rs.getString("nombre"));
+                prod.setDescripcion(rs.getString("descripcion"));
+                prod.setIdCategoria(rs.getInt("id_categoria"));
+                prod.setPrecio(rs.getDouble("precio"));
+                prod.setStock(rs.getInt("stock"));
+                prod.setSizes(rs.getString("sizes"));
+                prod.setColors(rs.getString("colors"));
+                prod.setDescuento(rs.getDouble("descuento"));
+                prod.setBarcode(rs.getString("barcode"));
+                productos.add(prod);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return productos;
+    }
+
+    private static List<Object[]> consultarVentasCliente(int idCliente) {
+        List<Object[]> filas = new ArrayList<>();
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT id_venta, fecha, metodo_pago, total " +
+                             "FROM ventas WHERE id_cliente = ? ORDER BY fecha DESC")) {
+            stmt.setInt(1, idCliente);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    filas.add(new Object[]{
+                            rs.getInt("id_venta"),
+                            rs.getTimestamp("fecha").toString(),
+                            rs.getString("metodo_pago"),
+                            rs.getBigDecimal("total").toString()
+                    });
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return filas;
+    }
+}
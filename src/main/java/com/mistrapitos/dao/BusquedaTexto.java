@@ -0,0 +1,60 @@
+package com.mistrapitos.dao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Apoyo común de las búsquedas por texto de los DAO. Con pg_trgm y la función
+ * busqueda_normalizar de la migración V007 las búsquedas usan índices de trigramas, ordenan
+ * por parecido y no distinguen acentos; sin ellos se sigue usando ILIKE.
+ */
+final class BusquedaTexto {
+
+    private static final Logger logger = LoggerFactory.getLogger(BusquedaTexto.class);
+
+    private static volatile Boolean trigramas;
+
+    private BusquedaTexto() {
+    }
+
+    /**
+     * Indica si la base tiene pg_trgm y busqueda_normalizar. Se consulta una vez por ejecución.
+     * @param conn Conexión activa
+     */
+    static boolean conTrigramas(Connection conn) throws SQLException {
+        Boolean disponible = trigramas;
+        if (disponible == null) {
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(
+                         "SELECT EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'pg_trgm') " +
+                         "AND to_regprocedure('busqueda_normalizar(text)') IS NOT NULL")) {
+                rs.next();
+                disponible = rs.getBoolean(1);
+            }
+            trigramas = disponible;
+            logger.info("Búsqueda de texto con {}", disponible ? "índices de trigramas (pg_trgm)" : "ILIKE");
+        }
+        return disponible;
+    }
+
+    /**
+     * Patrón LIKE/ILIKE que busca el término en cualquier parte, con los comodines del
+     * término escapados para que se busquen literalmente.
+     */
+    static String contiene(String termino) {
+        StringBuilder sb = new StringBuilder(termino.length() + 2).append('%');
+        for (int i = 0; i < termino.length(); i++) {
+            char c = termino.charAt(i);
+            if (c == '%' || c == '_' || c == '\\') {
+                sb.append('\\');
+            }
+            sb.append(c);
+        }
+        return sb.append('%').toString();
+    }
+}
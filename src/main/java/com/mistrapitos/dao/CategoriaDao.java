@@ -2,6 +2,7 @@ package com.mistrapitos.dao;
 
 import com.mistrapitos.models.Categoria;
 import com.mistrapitos.utils.DatabaseUtil;
+import com.mistrapitos.utils.Metricas;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,13 +31,16 @@ public class CategoriaDao implements Dao<Categoria, Integer> {
              PreparedStatement stmt = conn.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
             
+            int leidas = 0;
             while (rs.next()) {
+                leidas++;
                 Categoria categoria = new Categoria(
                     rs.getInt("id_categoria"),
                     rs.getString("nombre")
                 );
                 categorias.add(categoria);
             }
+            Metricas.filasLeidas(stmt, leidas);
         } catch (SQLException e) {
             logger.error("Error al obtener todas las categorías", e);
         }
@@ -57,7 +61,7 @@ public class CategoriaDao implements Dao<Categoria, Integer> {
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
                     categoria.setIdCategoria(rs.getInt(1));
-                    logger.info("Categoría guardada correctamente: " + categoria.getNombre());
+                    logger.info("Categoría guardada correctamente: {}", categoria.getNombre());
                     return categoria;
                 }
             }
@@ -144,9 +148,9 @@ public class CategoriaDao implements Dao<Categoria, Integer> {
             
             int rowsAffected = stmt.executeUpdate();
             if (rowsAffected > 0) {
-                logger.info("Categoría actualizada correctamente: " + categoria.getNombre());
+                logger.info("Categoría actualizada correctamente: {}", categoria.getNombre());
             } else {
-                logger.warn("No se actualizó ninguna categoría con ID: " + categoria.getIdCategoria());
+                logger.warn("No se actualizó ninguna categoría con ID: {}", categoria.getIdCategoria());
             }
         } catch (SQLException e) {
             logger.error("Error al actualizar categoría: " + categoria.getNombre(), e);
@@ -171,10 +175,10 @@ public class CategoriaDao implements Dao<Categoria, Integer> {
             
             int rowsAffected = stmt.executeUpdate();
             if (rowsAffected > 0) {
-                logger.info("Categoría eliminada correctamente con ID: " + id);
+                logger.info("Categoría eliminada correctamente con ID: {}", id);
                 return true;
             } else {
-                logger.warn("No se eliminó ninguna categoría con ID: " + id);
+                logger.warn("No se eliminó ninguna categoría con ID: {}", id);
             }
         } catch (SQLException e) {
             logger.error("Error al eliminar categoría con ID: " + id, e);
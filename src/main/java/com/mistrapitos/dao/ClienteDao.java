@@ -3,6 +3,7 @@ package com.mistrapitos.dao;
 
 import com.mistrapitos.models.Cliente;
 import com.mistrapitos.utils.DatabaseUtil;
+import com.mistrapitos.utils.Metricas;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.sql.SQLException;
@@ -17,6 +18,19 @@ import java.util.Optional;
 public class ClienteDao implements Dao<Cliente, Integer> {
 
     private static final Logger logger = LoggerFactory.getLogger(ClienteDao.class);
+    private static final String SQL_BUSCAR_ILIKE =
+            "SELECT id_cliente, nombre, direccion, correo, telefono, ciudad FROM clientes " +
+            "WHERE nombre ILIKE ? OR correo ILIKE ? OR telefono ILIKE ? " +
+            "ORDER BY nombre LIMIT ?";
+    // Las expresiones coinciden con los índices de V007__busqueda_trigramas.sql
+    private static final String SQL_BUSCAR_TRIGRAMAS =
+            "SELECT id_cliente, nombre, direccion, correo, telefono, ciudad FROM clientes " +
+            "CROSS JOIN (SELECT busqueda_normalizar(?) AS patron, busqueda_normalizar(?) AS termino) b " +
+            "WHERE busqueda_normalizar(nombre) LIKE b.patron OR busqueda_normalizar(correo) LIKE b.patron " +
+            "OR busqueda_normalizar(telefono) LIKE b.patron " +
+            "ORDER BY GREATEST(word_similarity(b.termino, busqueda_normalizar(nombre)), " +
+            "word_similarity(b.termino, busqueda_normalizar(correo)), " +
+            "word_similarity(b.termino, busqueda_normalizar(telefono))) DESC, nombre LIMIT ?";
 
     /**
      * Obtiene todos los clientes de la base de datos.
@@ -29,7 +43,9 @@ public class ClienteDao implements Dao<Cliente, Integer> {
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
+            int leidas = 0;
             while (rs.next()) {
+                leidas++;
                 Cliente c = new Cliente(
                         rs.getInt("id_cliente"),
                         rs.getString("nombre"),
@@ -40,6 +56,7 @@ public class ClienteDao implements Dao<Cliente, Integer> {
                 );
                 lista.add(c);
             }
+            Metricas.filasLeidas(stmt, leidas);
         } catch (SQLException e) {
             logger.error("Error al obtener todos los clientes", e);
         }
@@ -81,35 +98,108 @@ public class ClienteDao implements Dao<Cliente, Integer> {
     }
 
     /**
-     * Busca clientes por nombre, correo o teléfono.
-     * @param termino Término de búsqueda
-     * @return Lista de clientes que coinciden con el término
+     * Obtiene los clientes dados de alta o modificados a partir de un instante, según la columna actualizado_en.
+     * @param desde Instante a partir del cual buscar cambios (hora del servidor)
+     * @return Lista de clientes nuevos o modificados
+     * @throws SQLException Si ocurre un error o la columna no existe todavía
      */
-    public List<Cliente> findByTermino(String termino) {
-        List<Cliente> clientes = new ArrayList<>();
-        String sql = "SELECT id_cliente, nombre, direccion, correo, telefono, ciudad FROM clientes " +
-                "WHERE nombre ILIKE ? OR correo ILIKE ? OR telefono ILIKE ? " +
-                "ORDER BY nombre";
-
+    public List<Cliente> findActualizadosDesde(Timestamp desde) throws SQLException {
+        String sql = "SELECT id_cliente, nombre, direccion, correo, telefono, ciudad FROM clientes WHERE actualizado_en >= ?";
+        List<Cliente> lista = new ArrayList<>();
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            String searchTerm = "%" + termino + "%";
-            stmt.setString(1, searchTerm);
-            stmt.setString(2, searchTerm);
-            stmt.setString(3, searchTerm);
-
+            stmt.setTimestamp(1, desde);
             try (ResultSet rs = stmt.executeQuery()) {
+                int leidas = 0;
                 while (rs.next()) {
-                    Cliente cliente = new Cliente(
+                    leidas++;
+                    lista.add(new Cliente(
                             rs.getInt("id_cliente"),
                             rs.getString("nombre"),
                             rs.getString("direccion"),
                             rs.getString("correo"),
                             rs.getString("telefono"),
                             rs.getString("ciudad")
-                    );
-                    clientes.add(cliente);
+                    ));
+                }
+                Metricas.filasLeidas(stmt, leidas);
+            }
+        }
+        return lista;
+    }
+
+    /**
+     * Obtiene la hora actual del servidor de base de datos.
+     * @return Hora del servidor
+     * @throws SQLException Si ocurre un error al consultar
+     */
+    public Timestamp obtenerHoraServidor() throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT CAST(now() AS TIMESTAMP)");
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getTimestamp(1);
+        }
+    }
+
+    /**
+     * Busca clientes por nombre, correo o teléfono, sin límite de resultados. Con pg_trgm
+     * no distingue acentos y ordena por parecido con el término; sin la extensión usa ILIKE
+     * y ordena por nombre.
+     * @param termino Término de búsqueda
+     * @return Lista de clientes que coinciden con el término
+     */
+    public List<Cliente> findByTermino(String termino) {
+        return buscar(termino, null);
+    }
+
+    /**
+     * Busca clientes por nombre, correo o teléfono, como mucho {@code limite}
+     * resultados: los más parecidos al término con pg_trgm, o los primeros por nombre sin ella.
+     * @param termino Término de búsqueda
+     * @param limite Máximo de resultados, mayor que cero
+     * @return Lista de clientes que coinciden con el término
+     */
+    public List<Cliente> findByTermino(String termino, int limite) {
+        if (limite < 1) {
+            throw new IllegalArgumentException("El límite de resultados debe ser mayor que cero");
+        }
+        return buscar(termino, limite);
+    }
+
+    /**
+     * @param limite Máximo de resultados, o null para traerlos todos ({@code LIMIT NULL})
+     */
+    private List<Cliente> buscar(String termino, Integer limite) {
+        List<Cliente> clientes = new ArrayList<>();
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            boolean trigramas = BusquedaTexto.conTrigramas(conn);
+            try (PreparedStatement stmt = conn.prepareStatement(trigramas ? SQL_BUSCAR_TRIGRAMAS : SQL_BUSCAR_ILIKE)) {
+                String patron = BusquedaTexto.contiene(termino);
+                stmt.setString(1, patron);
+                stmt.setString(2, trigramas ? termino : patron);
+                if (trigramas) {
+                    stmt.setObject(3, limite, Types.INTEGER);
+                } else {
+                    stmt.setString(3, patron);
+                    stmt.setObject(4, limite, Types.INTEGER);
+                }
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    int leidas = 0;
+                    while (rs.next()) {
+                        leidas++;
+                        Cliente cliente = new Cliente(
+                                rs.getInt("id_cliente"),
+                                rs.getString("nombre"),
+                                rs.getString("direccion"),
+                                rs.getString("correo"),
+                                rs.getString("telefono"),
+                                rs.getString("ciudad")
+                        );
+                        clientes.add(cliente);
+                    }
+                    Metricas.filasLeidas(stmt, leidas);
                 }
             }
         } catch (SQLException e) {
@@ -140,7 +230,7 @@ public class ClienteDao implements Dao<Cliente, Integer> {
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
                     cliente.setIdCliente(rs.getInt(1));
-                    logger.info("Cliente guardado correctamente: " + cliente.getNombre());
+                    logger.info("Cliente guardado correctamente: {}", cliente.getNombre());
                     return cliente;
                 }
             }
@@ -169,7 +259,7 @@ public class ClienteDao implements Dao<Cliente, Integer> {
                 if (rs.next()) {
                     int id = rs.getInt("id_cliente");
                     cliente.setIdCliente(id);
-                    logger.info("Cliente guardado correctamente (transacción): " + cliente.getNombre());
+                    logger.info("Cliente guardado correctamente (transacción): {}", cliente.getNombre());
                     return id;
                 }
             }
@@ -253,9 +343,9 @@ public class ClienteDao implements Dao<Cliente, Integer> {
 
             int rowsAffected = stmt.executeUpdate();
             if (rowsAffected > 0) {
-                logger.info("Cliente actualizado correctamente: " + cliente.getNombre());
+                logger.info("Cliente actualizado correctamente: {}", cliente.getNombre());
             } else {
-                logger.warn("No se actualizó ningún cliente con ID: " + cliente.getIdCliente());
+                logger.warn("No se actualizó ningún cliente con ID: {}", cliente.getIdCliente());
             }
         } catch (SQLException e) {
             logger.error("Error al actualizar cliente: " + cliente.getNombre(), e);
@@ -280,10 +370,10 @@ public class ClienteDao implements Dao<Cliente, Integer> {
 
             int rowsAffected = stmt.executeUpdate();
             if (rowsAffected > 0) {
-                logger.info("Cliente eliminado correctamente con ID: " + id);
+                logger.info("Cliente eliminado correctamente con ID: {}", id);
                 return true;
             } else {
-                logger.warn("No se eliminó ningún cliente con ID: " + id);
+                logger.warn("No se eliminó ningún cliente con ID: {}", id);
             }
         } catch (SQLException e) {
             logger.error("Error al eliminar cliente con ID: " + id, e);
@@ -332,9 +422,12 @@ public class ClienteDao implements Dao<Cliente, Integer> {
             stmt.setInt(1, idCliente);
 
             try (ResultSet rs = stmt.executeQuery()) {
+                int leidas = 0;
                 while (rs.next()) {
+                    leidas++;
                     idsVentas.add(rs.getInt("id_venta"));
                 }
+                Metricas.filasLeidas(stmt, leidas);
             }
         } catch (SQLException e) {
             logger.error("Error al obtener historial de compras del cliente: " + idCliente, e);
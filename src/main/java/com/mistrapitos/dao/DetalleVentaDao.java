@@ -2,12 +2,15 @@ package com.mistrapitos.dao;
 
 import com.mistrapitos.models.DetalleVenta;
 import com.mistrapitos.utils.DatabaseUtil;
+import com.mistrapitos.utils.Metricas;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -34,10 +37,13 @@ public class DetalleVentaDao implements Dao<DetalleVenta, Integer> {
              PreparedStatement stmt = conn.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
             
+            int leidas = 0;
             while (rs.next()) {
+                leidas++;
                 DetalleVenta detalle = mapResultSetToDetalleVenta(rs);
                 detalles.add(detalle);
             }
+            Metricas.filasLeidas(stmt, leidas);
         } catch (SQLException e) {
             logger.error("Error al obtener todos los detalles de venta", e);
         }
@@ -96,10 +102,13 @@ public class DetalleVentaDao implements Dao<DetalleVenta, Integer> {
             stmt.setInt(1, idVenta);
             
             try (ResultSet rs = stmt.executeQuery()) {
+                int leidas = 0;
                 while (rs.next()) {
+                    leidas++;
                     DetalleVenta detalle = mapResultSetToDetalleVenta(rs);
                     detalles.add(detalle);
                 }
+                Metricas.filasLeidas(stmt, leidas);
             }
         } catch (SQLException e) {
             logger.error("Error al buscar detalles de venta por ID de venta: " + idVenta, e);
@@ -108,6 +117,46 @@ public class DetalleVentaDao implements Dao<DetalleVenta, Integer> {
         return detalles;
     }
     
+    /**
+     * Busca los detalles de varias ventas con una sola consulta, usando una conexión existente.
+     * @param idsVentas IDs de las ventas
+     * @param conn Conexión a la base de datos
+     * @return Detalles agrupados por ID de venta, cada lista ordenada por ID de detalle
+     * @throws SQLException Si ocurre un error al consultar los detalles
+     */
+    public Map<Integer, List<DetalleVenta>> findByVentas(List<Integer> idsVentas, Connection conn) throws SQLException {
+        Map<Integer, List<DetalleVenta>> detallesPorVenta = new HashMap<>();
+        if (idsVentas.isEmpty()) {
+            return detallesPorVenta;
+        }
+        String sql = "SELECT d.id_detalle, d.id_venta, d.id_producto, d.cantidad, d.precio_unitario, " +
+                     "d.descuento_aplicado, p.nombre as producto_nombre " +
+                     "FROM detalle_venta d " +
+                     "LEFT JOIN productos p ON d.id_producto = p.id_producto " +
+                     "WHERE d.id_venta = ANY(?) " +
+                     "ORDER BY d.id_venta, d.id_detalle";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            Array ids = conn.createArrayOf("integer", idsVentas.toArray());
+            try {
+                stmt.setArray(1, ids);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    int leidas = 0;
+                    while (rs.next()) {
+                        leidas++;
+                        DetalleVenta detalle = mapResultSetToDetalleVenta(rs);
+                        detallesPorVenta.computeIfAbsent(detalle.getIdVenta(), id -> new ArrayList<>()).add(detalle);
+                    }
+                    Metricas.filasLeidas(stmt, leidas);
+                }
+            } finally {
+                ids.free();
+            }
+        }
+
+        return detallesPorVenta;
+    }
+
     /**
      * Busca detalles de venta por ID de producto.
      * @param idProducto ID del producto
@@ -128,10 +177,13 @@ public class DetalleVentaDao implements Dao<DetalleVenta, Integer> {
             stmt.setInt(1, idProducto);
             
             try (ResultSet rs = stmt.executeQuery()) {
+                int leidas = 0;
                 while (rs.next()) {
+                    leidas++;
                     DetalleVenta detalle = mapResultSetToDetalleVenta(rs);
                     detalles.add(detalle);
                 }
+                Metricas.filasLeidas(stmt, leidas);
             }
         } catch (SQLException e) {
             logger.error("Error al buscar detalles de venta por ID de producto: " + idProducto, e);
@@ -176,7 +228,7 @@ public class DetalleVentaDao implements Dao<DetalleVenta, Integer> {
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
                     detalle.setIdDetalle(rs.getInt(1));
-                    logger.info("Detalle de venta guardado correctamente con ID: " + detalle.getIdDetalle());
+                    logger.info("Detalle de venta guardado correctamente con ID: {}", detalle.getIdDetalle());
                     return detalle;
                 }
             }
@@ -207,9 +259,9 @@ public class DetalleVentaDao implements Dao<DetalleVenta, Integer> {
             
             int rowsAffected = stmt.executeUpdate();
             if (rowsAffected > 0) {
-                logger.info("Detalle de venta actualizado correctamente con ID: " + detalle.getIdDetalle());
+                logger.info("Detalle de venta actualizado correctamente con ID: {}", detalle.getIdDetalle());
             } else {
-                logger.warn("No se actualizó ningún detalle de venta con ID: " + detalle.getIdDetalle());
+                logger.warn("No se actualizó ningún detalle de venta con ID: {}", detalle.getIdDetalle());
             }
         } catch (SQLException e) {
             logger.error("Error al actualizar detalle de venta con ID: " + detalle.getIdDetalle(), e);
@@ -248,10 +300,10 @@ public class DetalleVentaDao implements Dao<DetalleVenta, Integer> {
             
             int rowsAffected = stmt.executeUpdate();
             if (rowsAffected > 0) {
-                logger.info("Detalle de venta eliminado correctamente con ID: " + id);
+                logger.info("Detalle de venta eliminado correctamente con ID: {}", id);
                 return true;
             } else {
-                logger.warn("No se eliminó ningún detalle de venta con ID: " + id);
+                logger.warn("No se eliminó ningún detalle de venta con ID: {}", id);
             }
         }
         
@@ -272,7 +324,7 @@ public class DetalleVentaDao implements Dao<DetalleVenta, Integer> {
             stmt.setInt(1, idVenta);
             
             int rowsAffected = stmt.executeUpdate();
-            logger.info("Se eliminaron " + rowsAffected + " detalles de la venta con ID: " + idVenta);
+            logger.info("Se eliminaron {} detalles de la venta con ID: {}", rowsAffected, idVenta);
             return rowsAffected > 0;
         }
     }
@@ -341,12 +393,15 @@ public class DetalleVentaDao implements Dao<DetalleVenta, Integer> {
             stmt.setInt(1, limite);
             
             try (ResultSet rs = stmt.executeQuery()) {
+                int leidas = 0;
                 while (rs.next()) {
+                    leidas++;
                     Object[] producto = new Object[2];
                     producto[0] = rs.getInt("id_producto");
                     producto[1] = rs.getInt("total_vendido");
                     productos.add(producto);
                 }
+                Metricas.filasLeidas(stmt, leidas);
             }
         } catch (SQLException e) {
             logger.error("Error al obtener productos más vendidos", e);
@@ -1,13 +1,17 @@
 package com.mistrapitos.dao;
 
+import com.mistrapitos.models.FaltanteStock;
 import com.mistrapitos.models.Producto;
 import com.mistrapitos.utils.DatabaseUtil;
+import com.mistrapitos.utils.Metricas;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -16,6 +20,20 @@ import java.util.Optional;
 public class ProductoDao implements Dao<Producto, Integer> {
     
     private static final Logger logger = LoggerFactory.getLogger(ProductoDao.class);
+    private static final String SQL_BUSCAR_COLUMNAS =
+            "SELECT p.id_producto, p.nombre, p.descripcion, p.id_categoria, p.precio, " +
+            "p.stock, p.sizes, p.colors, p.descuento, p.barcode, c.nombre as categoria_nombre " +
+            "FROM productos p " +
+            "LEFT JOIN categorias c ON p.id_categoria = c.id_categoria ";
+    private static final String SQL_BUSCAR_ILIKE = SQL_BUSCAR_COLUMNAS +
+            "WHERE p.nombre ILIKE ? OR p.barcode ILIKE ? " +
+            "ORDER BY p.nombre LIMIT ?";
+    // Las expresiones coinciden con los índices de V007__busqueda_trigramas.sql
+    private static final String SQL_BUSCAR_TRIGRAMAS = SQL_BUSCAR_COLUMNAS +
+            "CROSS JOIN (SELECT busqueda_normalizar(?) AS patron, busqueda_normalizar(?) AS termino) b " +
+            "WHERE busqueda_normalizar(p.nombre) LIKE b.patron OR busqueda_normalizar(p.barcode) LIKE b.patron " +
+            "ORDER BY GREATEST(word_similarity(b.termino, busqueda_normalizar(p.nombre)), " +
+            "word_similarity(b.termino, busqueda_normalizar(p.barcode))) DESC, p.nombre LIMIT ?";
     
     /**
      * Obtiene todos los productos de la base de datos.
@@ -34,10 +52,13 @@ public class ProductoDao implements Dao<Producto, Integer> {
              PreparedStatement stmt = conn.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
             
+            int leidas = 0;
             while (rs.next()) {
+                leidas++;
                 Producto producto = mapResultSetToProducto(rs);
                 productos.add(producto);
             }
+            Metricas.filasLeidas(stmt, leidas);
         } catch (SQLException e) {
             logger.error("Error al obtener todos los productos", e);
         }
@@ -77,30 +98,51 @@ public class ProductoDao implements Dao<Producto, Integer> {
     }
     
     /**
-     * Busca productos por nombre o código de barras.
+     * Busca productos por nombre o código de barras, sin límite de resultados. Con pg_trgm
+     * no distingue acentos y ordena por parecido con el término; sin la extensión usa ILIKE
+     * y ordena por nombre.
      * @param termino Término de búsqueda
      * @return Lista de productos que coinciden con el término
      */
     public List<Producto> findByNombreOrBarcode(String termino) {
+        return buscar(termino, null);
+    }
+
+    /**
+     * Busca productos por nombre o código de barras, como mucho {@code limite}
+     * resultados: los más parecidos al término con pg_trgm, o los primeros por nombre sin ella.
+     * @param termino Término de búsqueda
+     * @param limite Máximo de resultados, mayor que cero
+     * @return Lista de productos que coinciden con el término
+     */
+    public List<Producto> findByNombreOrBarcode(String termino, int limite) {
+        if (limite < 1) {
+            throw new IllegalArgumentException("El límite de resultados debe ser mayor que cero");
+        }
+        return buscar(termino, limite);
+    }
+
+    /**
+     * @param limite Máximo de resultados, o null para traerlos todos ({@code LIMIT NULL})
+     */
+    private List<Producto> buscar(String termino, Integer limite) {
         List<Producto> productos = new ArrayList<>();
-        String sql = "SELECT p.id_producto, p.nombre, p.descripcion, p.id_categoria, p.precio, " +
-                     "p.stock, p.sizes, p.colors, p.descuento, p.barcode, c.nombre as categoria_nombre " +
-                     "FROM productos p " +
-                     "LEFT JOIN categorias c ON p.id_categoria = c.id_categoria " +
-                     "WHERE p.nombre ILIKE ? OR p.barcode ILIKE ? " +
-                     "ORDER BY p.nombre";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            String searchTerm = "%" + termino + "%";
-            stmt.setString(1, searchTerm);
-            stmt.setString(2, searchTerm);
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    Producto producto = mapResultSetToProducto(rs);
-                    productos.add(producto);
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            boolean trigramas = BusquedaTexto.conTrigramas(conn);
+            try (PreparedStatement stmt = conn.prepareStatement(trigramas ? SQL_BUSCAR_TRIGRAMAS : SQL_BUSCAR_ILIKE)) {
+                String patron = BusquedaTexto.contiene(termino);
+                stmt.setString(1, patron);
+                stmt.setString(2, trigramas ? termino : patron);
+                stmt.setObject(3, limite, Types.INTEGER);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    int leidas = 0;
+                    while (rs.next()) {
+                        leidas++;
+                        Producto producto = mapResultSetToProducto(rs);
+                        productos.add(producto);
+                    }
+                    Metricas.filasLeidas(stmt, leidas);
                 }
             }
         } catch (SQLException e) {
@@ -109,6 +151,7 @@ public class ProductoDao implements Dao<Producto, Integer> {
         
         return productos;
     }
+
     /**
      * Busca un producto por su código de barras.
      * @param barcode Código de barras
@@ -139,6 +182,88 @@ public class ProductoDao implements Dao<Producto, Integer> {
         return Optional.empty();
     }
 
+    /**
+     * Obtiene varios productos por sus IDs en una sola consulta.
+     * @param ids IDs de los productos
+     * @return Lista de productos encontrados
+     */
+    public List<Producto> findByIds(Collection<Integer> ids) {
+        List<Producto> productos = new ArrayList<>();
+        if (ids.isEmpty()) {
+            return productos;
+        }
+        String sql = "SELECT p.id_producto, p.nombre, p.descripcion, p.id_categoria, p.precio, " +
+                     "p.stock, p.sizes, p.colors, p.descuento, p.barcode, c.nombre as categoria_nombre " +
+                     "FROM productos p " +
+                     "LEFT JOIN categorias c ON p.id_categoria = c.id_categoria " +
+                     "WHERE p.id_producto = ANY(?)";
+
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setArray(1, conn.createArrayOf("integer", ids.toArray(new Integer[0])));
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                int leidas = 0;
+                while (rs.next()) {
+                    leidas++;
+                    productos.add(mapResultSetToProducto(rs));
+                }
+                Metricas.filasLeidas(stmt, leidas);
+            }
+        } catch (SQLException e) {
+            logger.error("Error al obtener productos por IDs: " + ids, e);
+        }
+
+        return productos;
+    }
+
+    /**
+     * Obtiene los productos modificados a partir de un instante, según la columna actualizado_en.
+     * @param desde Instante a partir del cual buscar cambios (hora del servidor)
+     * @return Lista de productos modificados
+     * @throws SQLException Si ocurre un error o la columna no existe todavía
+     */
+    public List<Producto> findActualizadosDesde(Timestamp desde) throws SQLException {
+        List<Producto> productos = new ArrayList<>();
+        String sql = "SELECT p.id_producto, p.nombre, p.descripcion, p.id_categoria, p.precio, " +
+                     "p.stock, p.sizes, p.colors, p.descuento, p.barcode, c.nombre as categoria_nombre " +
+                     "FROM productos p " +
+                     "LEFT JOIN categorias c ON p.id_categoria = c.id_categoria " +
+                     "WHERE p.actualizado_en >= ?";
+
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setTimestamp(1, desde);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                int leidas = 0;
+                while (rs.next()) {
+                    leidas++;
+                    productos.add(mapResultSetToProducto(rs));
+                }
+                Metricas.filasLeidas(stmt, leidas);
+            }
+        }
+
+        return productos;
+    }
+
+    /**
+     * Obtiene la hora actual del servidor de base de datos.
+     * @return Hora del servidor
+     * @throws SQLException Si ocurre un error al consultar
+     */
+    public Timestamp obtenerHoraServidor() throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT CAST(now() AS TIMESTAMP)");
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getTimestamp(1);
+        }
+    }
+
     /**
      * Actualiza el stock de un producto usando una conexión existente (para transacciones).
      * @param idProducto ID del producto
@@ -153,10 +278,10 @@ public class ProductoDao implements Dao<Producto, Integer> {
             stmt.setInt(2, idProducto);
             int rowsAffected = stmt.executeUpdate();
             if (rowsAffected > 0) {
-                logger.info("Stock actualizado correctamente (transacción) para producto ID: " + idProducto);
+                logger.info("Stock actualizado correctamente (transacción) para producto ID: {}", idProducto);
                 return true;
             } else {
-                logger.warn("No se actualizó el stock para ningún producto con ID: " + idProducto);
+                logger.warn("No se actualizó el stock para ningún producto con ID: {}", idProducto);
             }
         } catch (SQLException e) {
             logger.error("Error al actualizar stock del producto ID: " + idProducto, e);
@@ -164,6 +289,118 @@ public class ProductoDao implements Dao<Producto, Integer> {
         return false;
     }
 
+    /**
+     * Actualiza el stock de varios productos con una sola sentencia usando una conexión existente (para transacciones).
+     * @param cantidades Cantidad a sumar al stock por ID de producto (negativa para ventas)
+     * @param conn Conexión activa
+     * @throws SQLException Si ocurre un error o algún producto no existe
+     */
+    public void actualizarStockLote(Map<Integer, Integer> cantidades, Connection conn) throws SQLException {
+        if (cantidades.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE productos p SET stock = p.stock + v.cantidad " +
+                     "FROM unnest(?::int[], ?::int[]) AS v(id_producto, cantidad) " +
+                     "WHERE p.id_producto = v.id_producto";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("integer", cantidades.keySet().toArray(new Integer[0])));
+            stmt.setArray(2, conn.createArrayOf("integer", cantidades.values().toArray(new Integer[0])));
+            int rowsAffected = stmt.executeUpdate();
+            if (rowsAffected != cantidades.size()) {
+                throw new SQLException("Se esperaban " + cantidades.size() + " productos y se actualizaron " + rowsAffected);
+            }
+        }
+        logger.debug("Stock actualizado en lote para {} productos", cantidades.size());
+    }
+
+    /**
+     * Descuenta el stock de varios productos solo donde alcanza, con una sola sentencia
+     * usando una conexión existente (para transacciones). La condición stock >= cantidad se
+     * evalúa sobre la fila que se actualiza, por lo que no hace falta SELECT ... FOR UPDATE.
+     * @param cantidades Cantidad a descontar por ID de producto (positiva)
+     * @param conn Conexión activa
+     * @return Productos cuyo stock no alcanzó; vacía si se descontó todo
+     * @throws SQLException Si ocurre un error al actualizar el stock
+     */
+    public List<FaltanteStock> descontarStockDisponible(Map<Integer, Integer> cantidades, Connection conn) throws SQLException {
+        List<FaltanteStock> faltantes = new ArrayList<>();
+        if (cantidades.isEmpty()) {
+            return faltantes;
+        }
+        String sql = "WITH solicitud AS ( " +
+                     "  SELECT * FROM unnest(?::int[], ?::int[]) AS s(id_producto, cantidad)), " +
+                     "descontados AS ( " +
+                     "  UPDATE productos p SET stock = p.stock - s.cantidad " +
+                     "  FROM solicitud s " +
+                     "  WHERE p.id_producto = s.id_producto AND p.stock >= s.cantidad " +
+                     "  RETURNING p.id_producto) " +
+                     "SELECT s.id_producto, s.cantidad, p.nombre, COALESCE(p.stock, 0) AS stock " +
+                     "FROM solicitud s " +
+                     "LEFT JOIN productos p ON p.id_producto = s.id_producto " +
+                     "WHERE NOT EXISTS (SELECT 1 FROM descontados d WHERE d.id_producto = s.id_producto) " +
+                     "ORDER BY s.id_producto";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("integer", cantidades.keySet().toArray(new Integer[0])));
+            stmt.setArray(2, conn.createArrayOf("integer", cantidades.values().toArray(new Integer[0])));
+            try (ResultSet rs = stmt.executeQuery()) {
+                int leidas = 0;
+                while (rs.next()) {
+                    leidas++;
+                    faltantes.add(new FaltanteStock(
+                            rs.getInt("id_producto"),
+                            rs.getString("nombre"),
+                            rs.getInt("cantidad"),
+                            rs.getInt("stock")
+                    ));
+                }
+                Metricas.filasLeidas(stmt, leidas);
+            }
+        }
+        return faltantes;
+    }
+
+    /**
+     * Descuenta el stock de varios productos aunque no alcance, con una sola sentencia usando
+     * una conexión existente (para transacciones). Es para ventas que ya se cobraron, como
+     * las del diario local, que no se pueden rechazar: el stock puede quedar negativo y se
+     * informa qué productos no alcanzaron para revisarlos.
+     * @param cantidades Cantidad a descontar por ID de producto (positiva)
+     * @param conn Conexión activa
+     * @return Productos que quedaron con stock negativo, con el stock que tenían antes
+     * @throws SQLException Si ocurre un error o algún producto no existe
+     */
+    public List<FaltanteStock> descontarStockForzado(Map<Integer, Integer> cantidades, Connection conn) throws SQLException {
+        List<FaltanteStock> faltantes = new ArrayList<>();
+        if (cantidades.isEmpty()) {
+            return faltantes;
+        }
+        String sql = "UPDATE productos p SET stock = p.stock - s.cantidad " +
+                     "FROM unnest(?::int[], ?::int[]) AS s(id_producto, cantidad) " +
+                     "WHERE p.id_producto = s.id_producto " +
+                     "RETURNING p.id_producto, p.nombre, s.cantidad, p.stock";
+        int descontados = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("integer", cantidades.keySet().toArray(new Integer[0])));
+            stmt.setArray(2, conn.createArrayOf("integer", cantidades.values().toArray(new Integer[0])));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    descontados++;
+                    int stock = rs.getInt("stock");
+                    if (stock < 0) {
+                        int cantidad = rs.getInt("cantidad");
+                        faltantes.add(new FaltanteStock(rs.getInt("id_producto"), rs.getString("nombre"),
+                                cantidad, Math.max(0, stock + cantidad)));
+                    }
+                }
+                Metricas.filasLeidas(stmt, descontados);
+            }
+        }
+        if (descontados != cantidades.size()) {
+            throw new SQLException("Se esperaban " + cantidades.size() + " productos y se actualizaron " + descontados);
+        }
+        return faltantes;
+    }
+
     /**
      * Actualiza el descuento directo de un producto.
      * @param idProducto ID del producto
@@ -204,10 +441,13 @@ public class ProductoDao implements Dao<Producto, Integer> {
             stmt.setInt(1, idCategoria);
             
             try (ResultSet rs = stmt.executeQuery()) {
+                int leidas = 0;
                 while (rs.next()) {
+                    leidas++;
                     Producto producto = mapResultSetToProducto(rs);
                     productos.add(producto);
                 }
+                Metricas.filasLeidas(stmt, leidas);
             }
         } catch (SQLException e) {
             logger.error("Error al buscar productos por categoría: " + idCategoria, e);
@@ -216,6 +456,41 @@ public class ProductoDao implements Dao<Producto, Integer> {
         return productos;
     }
     
+    /**
+     * Busca los productos de un proveedor con un join sobre proveedor_productos.
+     * @param idProveedor ID del proveedor
+     * @return Lista de productos del proveedor ordenada por nombre
+     */
+    public List<Producto> findByProveedor(Integer idProveedor) {
+        List<Producto> productos = new ArrayList<>();
+        String sql = "SELECT p.id_producto, p.nombre, p.descripcion, p.id_categoria, p.precio, " +
+                     "p.stock, p.sizes, p.colors, p.descuento, p.barcode, c.nombre as categoria_nombre " +
+                     "FROM proveedor_productos pp " +
+                     "JOIN productos p ON p.id_producto = pp.id_producto " +
+                     "LEFT JOIN categorias c ON p.id_categoria = c.id_categoria " +
+                     "WHERE pp.id_proveedor = ? " +
+                     "ORDER BY p.nombre";
+        
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setInt(1, idProveedor);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                int leidas = 0;
+                while (rs.next()) {
+                    leidas++;
+                    productos.add(mapResultSetToProducto(rs));
+                }
+                Metricas.filasLeidas(stmt, leidas);
+            }
+        } catch (SQLException e) {
+            logger.error("Error al buscar productos por proveedor: " + idProveedor, e);
+        }
+        
+        return productos;
+    }
+    
     /**
      * Busca productos con stock bajo.
      * @param stockMinimo Stock mínimo
@@ -236,10 +511,13 @@ public class ProductoDao implements Dao<Producto, Integer> {
             stmt.setInt(1, stockMinimo);
             
             try (ResultSet rs = stmt.executeQuery()) {
+                int leidas = 0;
                 while (rs.next()) {
+                    leidas++;
                     Producto producto = mapResultSetToProducto(rs);
                     productos.add(producto);
                 }
+                Metricas.filasLeidas(stmt, leidas);
             }
         } catch (SQLException e) {
             logger.error("Error al buscar productos con stock bajo: " + stockMinimo, e);
@@ -281,7 +559,7 @@ public class ProductoDao implements Dao<Producto, Integer> {
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
                     producto.setIdProducto(rs.getInt(1));
-                    logger.info("Producto guardado correctamente: " + producto.getNombre());
+                    logger.info("Producto guardado correctamente: {}", producto.getNombre());
                     return producto;
                 }
             }
@@ -325,9 +603,9 @@ public class ProductoDao implements Dao<Producto, Integer> {
             
             int rowsAffected = stmt.executeUpdate();
             if (rowsAffected > 0) {
-                logger.info("Producto actualizado correctamente: " + producto.getNombre());
+                logger.info("Producto actualizado correctamente: {}", producto.getNombre());
             } else {
-                logger.warn("No se actualizó ningún producto con ID: " + producto.getIdProducto());
+                logger.warn("No se actualizó ningún producto con ID: {}", producto.getIdProducto());
             }
         } catch (SQLException e) {
             logger.error("Error al actualizar producto: " + producto.getNombre(), e);
@@ -353,10 +631,10 @@ public class ProductoDao implements Dao<Producto, Integer> {
             
             int rowsAffected = stmt.executeUpdate();
             if (rowsAffected > 0) {
-                logger.info("Stock actualizado correctamente para producto ID: " + idProducto);
+                logger.info("Stock actualizado correctamente para producto ID: {}", idProducto);
                 return true;
             } else {
-                logger.warn("No se actualizó el stock para ningún producto con ID: " + idProducto);
+                logger.warn("No se actualizó el stock para ningún producto con ID: {}", idProducto);
             }
         } catch (SQLException e) {
             logger.error("Error al actualizar stock del producto ID: " + idProducto, e);
@@ -381,10 +659,10 @@ public class ProductoDao implements Dao<Producto, Integer> {
             
             int rowsAffected = stmt.executeUpdate();
             if (rowsAffected > 0) {
-                logger.info("Producto eliminado correctamente con ID: " + id);
+                logger.info("Producto eliminado correctamente con ID: {}", id);
                 return true;
             } else {
-                logger.warn("No se eliminó ningún producto con ID: " + id);
+                logger.warn("No se eliminó ningún producto con ID: {}", id);
             }
         } catch (SQLException e) {
             logger.error("Error al eliminar producto con ID: " + id, e);
@@ -451,7 +729,7 @@ public class ProductoDao implements Dao<Producto, Integer> {
      * @return Objeto Producto
      * @throws SQLException Si ocurre un error al acceder a los datos
      */
-    private Producto mapResultSetToProducto(ResultSet rs) throws SQLException {
+    Producto mapResultSetToProducto(ResultSet rs) throws SQLException {
         Producto producto = new Producto(
             rs.getInt("id_producto"),
             rs.getString("nombre"),
@@ -2,6 +2,7 @@ package com.mistrapitos.dao;
 
 import com.mistrapitos.models.Promocion;
 import com.mistrapitos.utils.DatabaseUtil;
+import com.mistrapitos.utils.Metricas;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.mistrapitos.models.PromocionVista;
@@ -35,10 +36,13 @@ public class PromocionDao implements Dao<Promocion, Integer> {
              PreparedStatement stmt = conn.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
             
+            int leidas = 0;
             while (rs.next()) {
+                leidas++;
                 Promocion promocion = mapResultSetToPromocion(rs);
                 promociones.add(promocion);
             }
+            Metricas.filasLeidas(stmt, leidas);
         } catch (SQLException e) {
             logger.error("Error al obtener todas las promociones", e);
         }
@@ -62,10 +66,13 @@ public class PromocionDao implements Dao<Promocion, Integer> {
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, "%" + nombreProducto + "%");
             try (ResultSet rs = stmt.executeQuery()) {
+                int leidas = 0;
                 while (rs.next()) {
+                    leidas++;
                     Promocion promocion = mapResultSetToPromocion(rs);
                     promociones.add(promocion);
                 }
+                Metricas.filasLeidas(stmt, leidas);
             }
         } catch (SQLException e) {
             logger.error("Error al buscar promociones por nombre de producto: " + nombreProducto, e);
@@ -85,7 +92,9 @@ public class PromocionDao implements Dao<Promocion, Integer> {
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
+            int leidas = 0;
             while (rs.next()) {
+                leidas++;
                 PromocionVista vista = new PromocionVista(
                         rs.getInt("id_producto"),
                         rs.getString("nombre"),
@@ -97,6 +106,7 @@ public class PromocionDao implements Dao<Promocion, Integer> {
                 );
                 lista.add(vista);
             }
+            Metricas.filasLeidas(stmt, leidas);
         } catch (SQLException e) {
             logger.error("Error al obtener promociones y descuentos", e);
         }
@@ -117,7 +127,9 @@ public class PromocionDao implements Dao<Promocion, Integer> {
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, "%" + nombre + "%");
             try (ResultSet rs = stmt.executeQuery()) {
+                int leidas = 0;
                 while (rs.next()) {
+                    leidas++;
                     PromocionVista vista = new PromocionVista(
                             rs.getInt("id_producto"),
                             rs.getString("nombre"),
@@ -129,6 +141,7 @@ public class PromocionDao implements Dao<Promocion, Integer> {
                     );
                     lista.add(vista);
                 }
+                Metricas.filasLeidas(stmt, leidas);
             }
         } catch (SQLException e) {
             logger.error("Error al buscar promociones y descuentos por nombre", e);
@@ -235,10 +248,13 @@ public class PromocionDao implements Dao<Promocion, Integer> {
             stmt.setInt(1, idProducto);
             
             try (ResultSet rs = stmt.executeQuery()) {
+                int leidas = 0;
                 while (rs.next()) {
+                    leidas++;
                     Promocion promocion = mapResultSetToPromocion(rs);
                     promociones.add(promocion);
                 }
+                Metricas.filasLeidas(stmt, leidas);
             }
         } catch (SQLException e) {
             logger.error("Error al buscar promociones por producto: " + idProducto, e);
@@ -264,10 +280,13 @@ public class PromocionDao implements Dao<Promocion, Integer> {
              PreparedStatement stmt = conn.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
             
+            int leidas = 0;
             while (rs.next()) {
+                leidas++;
                 Promocion promocion = mapResultSetToPromocion(rs);
                 promociones.add(promocion);
             }
+            Metricas.filasLeidas(stmt, leidas);
         } catch (SQLException e) {
             logger.error("Error al buscar promociones activas", e);
         }
@@ -302,10 +321,13 @@ public class PromocionDao implements Dao<Promocion, Integer> {
             stmt.setDate(6, Date.valueOf(fechaFin));
             
             try (ResultSet rs = stmt.executeQuery()) {
+                int leidas = 0;
                 while (rs.next()) {
+                    leidas++;
                     Promocion promocion = mapResultSetToPromocion(rs);
                     promociones.add(promocion);
                 }
+                Metricas.filasLeidas(stmt, leidas);
             }
         } catch (SQLException e) {
             logger.error("Error al buscar promociones por rango de fechas: " + fechaInicio + " - " + fechaFin, e);
@@ -335,7 +357,7 @@ public class PromocionDao implements Dao<Promocion, Integer> {
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
                     promocion.setIdPromocion(rs.getInt(1));
-                    logger.info("Promoción guardada correctamente con ID: " + promocion.getIdPromocion());
+                    logger.info("Promoción guardada correctamente con ID: {}", promocion.getIdPromocion());
                     
                     // Actualizar el descuento en el producto si la promoción está activa
                     if (promocion.isActiva()) {
@@ -373,14 +395,14 @@ public class PromocionDao implements Dao<Promocion, Integer> {
             
             int rowsAffected = stmt.executeUpdate();
             if (rowsAffected > 0) {
-                logger.info("Promoción actualizada correctamente con ID: " + promocion.getIdPromocion());
+                logger.info("Promoción actualizada correctamente con ID: {}", promocion.getIdPromocion());
                 
                 // Actualizar el descuento en el producto
                 actualizarDescuentoProducto(promocion.getIdProducto());
                 
                 return promocion;
             } else {
-                logger.warn("No se actualizó ninguna promoción con ID: " + promocion.getIdPromocion());
+                logger.warn("No se actualizó ninguna promoción con ID: {}", promocion.getIdPromocion());
             }
         } catch (SQLException e) {
             logger.error("Error al actualizar promoción con ID: " + promocion.getIdPromocion(), e);
@@ -412,14 +434,14 @@ public class PromocionDao implements Dao<Promocion, Integer> {
             
             int rowsAffected = stmt.executeUpdate();
             if (rowsAffected > 0) {
-                logger.info("Promoción eliminada correctamente con ID: " + id);
+                logger.info("Promoción eliminada correctamente con ID: {}", id);
                 
                 // Actualizar el descuento en el producto
                 actualizarDescuentoProducto(promocion.getIdProducto());
                 
                 return true;
             } else {
-                logger.warn("No se eliminó ninguna promoción con ID: " + id);
+                logger.warn("No se eliminó ninguna promoción con ID: {}", id);
             }
         } catch (SQLException e) {
             logger.error("Error al eliminar promoción con ID: " + id, e);
@@ -457,7 +479,7 @@ public class PromocionDao implements Dao<Promocion, Integer> {
             stmtProducto.setInt(2, idProducto);
             stmtProducto.executeUpdate();
             
-            logger.info("Actualizado descuento del producto ID: " + idProducto + " a " + descuento + "%");
+            logger.info("Actualizado descuento del producto ID: {} a {}%", idProducto, descuento);
         } catch (SQLException e) {
             logger.error("Error al actualizar descuento del producto ID: " + idProducto, e);
         }
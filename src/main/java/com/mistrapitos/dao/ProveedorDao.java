@@ -2,11 +2,13 @@ package com.mistrapitos.dao;
 
 import com.mistrapitos.models.Proveedor;
 import com.mistrapitos.utils.DatabaseUtil;
+import com.mistrapitos.utils.Metricas;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,15 +16,23 @@ public class ProveedorDao implements Dao<Proveedor, Integer> {
 
     private static final Logger logger = LoggerFactory.getLogger(ProveedorDao.class);
 
+    // productos_vendidos se arma desde proveedor_productos; la columna de texto ya no se lee
+    private static final String COLUMNAS = "pr.id_proveedor, pr.nombre, pr.contacto, pr.direccion, pr.telefono, pr.correo, " +
+            "COALESCE((SELECT STRING_AGG(p.nombre, ', ' ORDER BY p.nombre) " +
+            "FROM proveedor_productos pp JOIN productos p ON p.id_producto = pp.id_producto " +
+            "WHERE pp.id_proveedor = pr.id_proveedor), '') AS productos_vendidos ";
+
     @Override
     public List<Proveedor> findAll() {
         List<Proveedor> proveedores = new ArrayList<>();
-        String sql = "SELECT id_proveedor, nombre, contacto, direccion, telefono, correo, productos_vendidos " +
-                "FROM proveedores ORDER BY nombre";
+        String sql = "SELECT " + COLUMNAS +
+                "FROM proveedores pr ORDER BY pr.nombre";
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
+            int leidas = 0;
             while (rs.next()) {
+                leidas++;
                 Proveedor proveedor = new Proveedor(
                         rs.getInt("id_proveedor"),
                         rs.getString("nombre"),
@@ -34,6 +44,7 @@ public class ProveedorDao implements Dao<Proveedor, Integer> {
                 );
                 proveedores.add(proveedor);
             }
+            Metricas.filasLeidas(stmt, leidas);
         } catch (SQLException e) {
             logger.error("Error al obtener todos los proveedores", e);
         }
@@ -42,8 +53,8 @@ public class ProveedorDao implements Dao<Proveedor, Integer> {
 
     @Override
     public Optional<Proveedor> findById(Integer id) {
-        String sql = "SELECT id_proveedor, nombre, contacto, direccion, telefono, correo, productos_vendidos " +
-                "FROM proveedores WHERE id_proveedor = ?";
+        String sql = "SELECT " + COLUMNAS +
+                "FROM proveedores pr WHERE pr.id_proveedor = ?";
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, id);
@@ -69,9 +80,9 @@ public class ProveedorDao implements Dao<Proveedor, Integer> {
 
     public List<Proveedor> findByTermino(String termino) {
         List<Proveedor> proveedores = new ArrayList<>();
-        String sql = "SELECT id_proveedor, nombre, contacto, direccion, telefono, correo, productos_vendidos FROM proveedores " +
-                "WHERE nombre ILIKE ? OR contacto ILIKE ? OR correo ILIKE ? " +
-                "ORDER BY nombre";
+        String sql = "SELECT " + COLUMNAS + "FROM proveedores pr " +
+                "WHERE pr.nombre ILIKE ? OR pr.contacto ILIKE ? OR pr.correo ILIKE ? " +
+                "ORDER BY pr.nombre";
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             String searchTerm = "%" + termino + "%";
@@ -79,7 +90,9 @@ public class ProveedorDao implements Dao<Proveedor, Integer> {
             stmt.setString(2, searchTerm);
             stmt.setString(3, searchTerm);
             try (ResultSet rs = stmt.executeQuery()) {
+                int leidas = 0;
                 while (rs.next()) {
+                    leidas++;
                     Proveedor proveedor = new Proveedor(
                             rs.getInt("id_proveedor"),
                             rs.getString("nombre"),
@@ -91,6 +104,7 @@ public class ProveedorDao implements Dao<Proveedor, Integer> {
                     );
                     proveedores.add(proveedor);
                 }
+                Metricas.filasLeidas(stmt, leidas);
             }
         } catch (SQLException e) {
             logger.error("Error al buscar proveedores por término: " + termino, e);
@@ -102,20 +116,31 @@ public class ProveedorDao implements Dao<Proveedor, Integer> {
     public Proveedor save(Proveedor proveedor) {
         String sql = "INSERT INTO proveedores (nombre, contacto, direccion, telefono, correo, productos_vendidos) " +
                 "VALUES (?, ?, ?, ?, ?, ?) RETURNING id_proveedor";
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, proveedor.getNombre());
-            stmt.setString(2, proveedor.getContacto());
-            stmt.setString(3, proveedor.getDireccion());
-            stmt.setString(4, proveedor.getTelefono());
-            stmt.setString(5, proveedor.getCorreo());
-            stmt.setString(6, proveedor.getProductosVendidos());
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    proveedor.setIdProveedor(rs.getInt(1));
-                    logger.info("Proveedor guardado correctamente: " + proveedor.getNombre());
-                    return proveedor;
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setString(1, proveedor.getNombre());
+                stmt.setString(2, proveedor.getContacto());
+                stmt.setString(3, proveedor.getDireccion());
+                stmt.setString(4, proveedor.getTelefono());
+                stmt.setString(5, proveedor.getCorreo());
+                stmt.setString(6, proveedor.getProductosVendidos());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        proveedor.setIdProveedor(rs.getInt(1));
+                    }
                 }
+                rechazarInexistentes(guardarProductos(proveedor, conn), conn);
+                conn.commit();
+                logger.info("Proveedor guardado correctamente: {}", proveedor.getNombre());
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } catch (IllegalArgumentException e) {
+                proveedor.setIdProveedor(0);
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
         } catch (SQLException e) {
             logger.error("Error al guardar proveedor: " + proveedor.getNombre(), e);
@@ -127,20 +152,29 @@ public class ProveedorDao implements Dao<Proveedor, Integer> {
     public Proveedor update(Proveedor proveedor) {
         String sql = "UPDATE proveedores SET nombre = ?, contacto = ?, direccion = ?, telefono = ?, correo = ?, productos_vendidos = ? " +
                 "WHERE id_proveedor = ?";
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, proveedor.getNombre());
-            stmt.setString(2, proveedor.getContacto());
-            stmt.setString(3, proveedor.getDireccion());
-            stmt.setString(4, proveedor.getTelefono());
-            stmt.setString(5, proveedor.getCorreo());
-            stmt.setString(6, proveedor.getProductosVendidos());
-            stmt.setInt(7, proveedor.getIdProveedor());
-            int rowsAffected = stmt.executeUpdate();
-            if (rowsAffected > 0) {
-                logger.info("Proveedor actualizado correctamente: " + proveedor.getNombre());
-            } else {
-                logger.warn("No se actualizó ningún proveedor con ID: " + proveedor.getIdProveedor());
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setString(1, proveedor.getNombre());
+                stmt.setString(2, proveedor.getContacto());
+                stmt.setString(3, proveedor.getDireccion());
+                stmt.setString(4, proveedor.getTelefono());
+                stmt.setString(5, proveedor.getCorreo());
+                stmt.setString(6, proveedor.getProductosVendidos());
+                stmt.setInt(7, proveedor.getIdProveedor());
+                int rowsAffected = stmt.executeUpdate();
+                if (rowsAffected > 0) {
+                    rechazarInexistentes(guardarProductos(proveedor, conn), conn);
+                    logger.info("Proveedor actualizado correctamente: {}", proveedor.getNombre());
+                } else {
+                    logger.warn("No se actualizó ningún proveedor con ID: {}", proveedor.getIdProveedor());
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
         } catch (SQLException e) {
             logger.error("Error al actualizar proveedor: " + proveedor.getNombre(), e);
@@ -156,10 +190,10 @@ public class ProveedorDao implements Dao<Proveedor, Integer> {
             stmt.setInt(1, id);
             int rowsAffected = stmt.executeUpdate();
             if (rowsAffected > 0) {
-                logger.info("Proveedor eliminado correctamente con ID: " + id);
+                logger.info("Proveedor eliminado correctamente con ID: {}", id);
                 return true;
             } else {
-                logger.warn("No se eliminó ningún proveedor con ID: " + id);
+                logger.warn("No se eliminó ningún proveedor con ID: {}", id);
             }
         } catch (SQLException e) {
             logger.error("Error al eliminar proveedor con ID: " + id, e);
@@ -167,16 +201,78 @@ public class ProveedorDao implements Dao<Proveedor, Integer> {
         return false;
     }
 
+    /**
+     * Reemplaza los productos del proveedor por los nombrados en productosVendidos
+     * (nombres separados por comas), en la transacción de la conexión recibida.
+     * @return Nombres que no corresponden a ningún producto; no se guardaron
+     */
+    private List<String> guardarProductos(Proveedor proveedor, Connection conn) throws SQLException {
+        String csv = proveedor.getProductosVendidos();
+        String[] nombres = csv == null ? new String[0] : Arrays.stream(csv.split(","))
+                .map(String::trim)
+                .filter(nombre -> !nombre.isEmpty())
+                .toArray(String[]::new);
+        List<String> inexistentes = new ArrayList<>();
+        try (PreparedStatement borrar = conn.prepareStatement(
+                     "DELETE FROM proveedor_productos WHERE id_proveedor = ?");
+             PreparedStatement insertar = conn.prepareStatement(
+                     "WITH nombres AS (SELECT DISTINCT unnest(?::varchar[]) AS nombre), " +
+                     "insertados AS ( " +
+                     "  INSERT INTO proveedor_productos (id_proveedor, id_producto) " +
+                     "  SELECT ?, p.id_producto FROM productos p JOIN nombres n ON n.nombre = p.nombre " +
+                     "  ON CONFLICT DO NOTHING) " +
+                     "SELECT n.nombre FROM nombres n " +
+                     "WHERE NOT EXISTS (SELECT 1 FROM productos p WHERE p.nombre = n.nombre) " +
+                     "ORDER BY n.nombre")) {
+            borrar.setInt(1, proveedor.getIdProveedor());
+            borrar.executeUpdate();
+            if (nombres.length > 0) {
+                Array lista = conn.createArrayOf("varchar", nombres);
+                try {
+                    insertar.setArray(1, lista);
+                    insertar.setInt(2, proveedor.getIdProveedor());
+                    try (ResultSet rs = insertar.executeQuery()) {
+                        int leidas = 0;
+                        while (rs.next()) {
+                            leidas++;
+                            inexistentes.add(rs.getString(1));
+                        }
+                        Metricas.filasLeidas(insertar, leidas);
+                    }
+                } finally {
+                    lista.free();
+                }
+            }
+        }
+        return inexistentes;
+    }
+
+    /**
+     * Revierte la transacción si algún nombre de productosVendidos no es un producto, para no
+     * perderlo sin avisar: antes el texto se guardaba tal cual y ahora solo se guarda la relación.
+     * @throws IllegalArgumentException Con los nombres que no existen
+     */
+    private void rechazarInexistentes(List<String> inexistentes, Connection conn) throws SQLException {
+        if (!inexistentes.isEmpty()) {
+            conn.rollback();
+            logger.warn("Proveedor no guardado; productos inexistentes: {}", inexistentes);
+            throw new IllegalArgumentException("No existen los productos: " + String.join(", ", inexistentes));
+        }
+    }
+
     public List<Integer> getProductosAsociados(Integer idProveedor) {
         List<Integer> idsProductos = new ArrayList<>();
-        String sql = "SELECT id_producto FROM productos WHERE proveedor_id = ?";
+        String sql = "SELECT id_producto FROM proveedor_productos WHERE id_proveedor = ? ORDER BY id_producto";
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, idProveedor);
             try (ResultSet rs = stmt.executeQuery()) {
+                int leidas = 0;
                 while (rs.next()) {
+                    leidas++;
                     idsProductos.add(rs.getInt("id_producto"));
                 }
+                Metricas.filasLeidas(stmt, leidas);
             }
         } catch (SQLException e) {
             logger.error("Error al obtener productos asociados al proveedor: " + idProveedor, e);
@@ -185,13 +281,13 @@ public class ProveedorDao implements Dao<Proveedor, Integer> {
     }
 
     public boolean tieneProductosAsociados(Integer id) {
-        String sql = "SELECT COUNT(*) FROM productos WHERE proveedor_id = ?";
+        String sql = "SELECT EXISTS (SELECT 1 FROM proveedor_productos WHERE id_proveedor = ?)";
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    return rs.getInt(1) > 0;
+                    return rs.getBoolean(1);
                 }
             }
         } catch (SQLException e) {
@@ -0,0 +1,307 @@
+package com.mistrapitos.dao;
+
+import com.mistrapitos.models.CategoriaVentaResumen;
+import com.mistrapitos.models.MetodoPagoResumen;
+import com.mistrapitos.models.ProductoVentaResumen;
+import com.mistrapitos.utils.DatabaseUtil;
+import com.mistrapitos.utils.Metricas;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DAO de los resúmenes diarios de ventas (resumen_ventas_producto_dia y resumen_ventas_dia).
+ * Los resúmenes se actualizan en la misma transacción que cada venta, así que las consultas
+ * de reportes no dependen de cuánto historial haya en ventas y detalle_venta.
+ * <p>
+ * Cada día, método de pago y ciudad se reparte en {@value #RANURAS} filas (columna ranura,
+ * migración V008) según el ID de la venta, para que dos cajas cobrando a la vez no esperen
+ * el bloqueo de la misma fila. Las consultas suman todas las ranuras.
+ * <p>
+ * La categoría y la ciudad salen de detalle_venta.id_categoria_venta y ventas.ciudad_venta,
+ * que se guardan al registrar la venta (migración V009). Así restar una venta toca las mismas
+ * filas que la sumaron aunque después cambie la categoría del producto o la ciudad del cliente.
+ */
+public class ResumenVentasDao {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResumenVentasDao.class);
+    // Los IDs de ventas simultáneas son consecutivos, así que caen en ranuras distintas
+    private static final int RANURAS = 8;
+
+    private static final String SQL_APLICAR_PRODUCTOS = aplicarProductos("v.id_venta = ?");
+    private static final String SQL_APLICAR_PRODUCTOS_VARIAS = aplicarProductos("v.id_venta = ANY(?)");
+    private static final String SQL_APLICAR_VENTA = aplicarVentas("v.id_venta = ?");
+    private static final String SQL_APLICAR_VENTAS_VARIAS = aplicarVentas("v.id_venta = ANY(?)");
+
+    private static String aplicarProductos(String filtro) {
+        return "INSERT INTO resumen_ventas_producto_dia AS r " +
+            "(dia, id_producto, id_categoria, metodo_pago, ciudad, ranura, cantidad, importe) " +
+            "SELECT CAST(v.fecha AS DATE), dv.id_producto, dv.id_categoria_venta, v.metodo_pago, " +
+            "v.ciudad_venta, v.id_venta % " + RANURAS + ", " +
+            "? * SUM(dv.cantidad), ? * SUM(dv.cantidad * dv.precio_unitario) " +
+            "FROM ventas v " +
+            "JOIN detalle_venta dv ON dv.id_venta = v.id_venta " +
+            "WHERE " + filtro + " " +
+            "GROUP BY 1, 2, 3, 4, 5, 6 " +
+            // Orden fijo de filas para que dos ventas simultáneas bloqueen el resumen en el mismo orden
+            "ORDER BY 1, 2, 3, 4, 5, 6 " +
+            "ON CONFLICT (dia, id_producto, id_categoria, metodo_pago, ciudad, ranura) DO UPDATE SET " +
+            "cantidad = r.cantidad + EXCLUDED.cantidad, importe = r.importe + EXCLUDED.importe";
+    }
+
+    private static String aplicarVentas(String filtro) {
+        // Agrupado para que varias ventas del mismo día, método, ciudad y ranura caigan en una sola fila del resumen
+        return "INSERT INTO resumen_ventas_dia AS r (dia, metodo_pago, ciudad, ranura, num_ventas, total) " +
+            "SELECT CAST(v.fecha AS DATE), v.metodo_pago, v.ciudad_venta, v.id_venta % " + RANURAS + ", " +
+            "? * COUNT(*), ? * SUM(v.total) " +
+            "FROM ventas v " +
+            "WHERE " + filtro + " " +
+            "GROUP BY 1, 2, 3, 4 " +
+            "ORDER BY 1, 2, 3, 4 " +
+            "ON CONFLICT (dia, metodo_pago, ciudad, ranura) DO UPDATE SET " +
+            "num_ventas = r.num_ventas + EXCLUDED.num_ventas, total = r.total + EXCLUDED.total";
+    }
+
+    /**
+     * Suma una venta a los resúmenes con su fecha, método de pago y detalles actuales, y la
+     * ciudad y categorías guardadas al registrarla.
+     * Debe llamarse después de guardar los detalles, con la conexión de la transacción de la venta.
+     * @param idVenta ID de la venta
+     * @param conn Conexión activa
+     * @throws SQLException Si falla la actualización; la transacción debe revertirse
+     */
+    public void sumarVenta(int idVenta, Connection conn) throws SQLException {
+        aplicarVenta(idVenta, 1, conn);
+    }
+
+    /**
+     * Resta una venta de los resúmenes tal como está guardada en este momento.
+     * Debe llamarse antes de modificar o eliminar la venta o sus detalles.
+     * @param idVenta ID de la venta
+     * @param conn Conexión activa
+     * @throws SQLException Si falla la actualización; la transacción debe revertirse
+     */
+    public void restarVenta(int idVenta, Connection conn) throws SQLException {
+        aplicarVenta(idVenta, -1, conn);
+    }
+
+    /**
+     * Resta varias ventas de los resúmenes con dos sentencias en total, agrupando por día.
+     * Debe llamarse antes de eliminar las ventas o sus detalles.
+     * @param idsVentas IDs de las ventas
+     * @param conn Conexión activa
+     * @throws SQLException Si falla la actualización; la transacción debe revertirse
+     */
+    public void restarVentas(List<Integer> idsVentas, Connection conn) throws SQLException {
+        if (idsVentas.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement productos = conn.prepareStatement(SQL_APLICAR_PRODUCTOS_VARIAS);
+             PreparedStatement ventas = conn.prepareStatement(SQL_APLICAR_VENTAS_VARIAS)) {
+            Array ids = conn.createArrayOf("integer", idsVentas.toArray(new Integer[0]));
+            try {
+                productos.setInt(1, -1);
+                productos.setInt(2, -1);
+                productos.setArray(3, ids);
+                productos.executeUpdate();
+
+                ventas.setInt(1, -1);
+                ventas.setInt(2, -1);
+                ventas.setArray(3, ids);
+                ventas.executeUpdate();
+            } finally {
+                ids.free();
+            }
+        }
+    }
+
+    private void aplicarVenta(int idVenta, int signo, Connection conn) throws SQLException {
+        try (PreparedStatement productos = conn.prepareStatement(SQL_APLICAR_PRODUCTOS);
+             PreparedStatement venta = conn.prepareStatement(SQL_APLICAR_VENTA)) {
+            productos.setInt(1, signo);
+            productos.setInt(2, signo);
+            productos.setInt(3, idVenta);
+            productos.executeUpdate();
+
+            venta.setInt(1, signo);
+            venta.setInt(2, signo);
+            venta.setInt(3, idVenta);
+            venta.executeUpdate();
+        }
+    }
+
+    /**
+     * Obtiene el total vendido por categoría en un rango de días.
+     * @param desde Fecha de inicio (inclusive)
+     * @param hasta Fecha de fin (inclusive)
+     * @return Totales por categoría, ordenados por nombre
+     */
+    public List<CategoriaVentaResumen> obtenerVentasPorCategoria(LocalDate desde, LocalDate hasta) {
+        List<CategoriaVentaResumen> lista = new ArrayList<>();
+        String sql = "SELECT c.nombre AS categoria, SUM(r.importe) AS total_vendido " +
+                "FROM resumen_ventas_producto_dia r " +
+                "JOIN categorias c ON r.id_categoria = c.id_categoria " +
+                "WHERE r.dia >= ? AND r.dia <= ? " +
+                "GROUP BY c.nombre " +
+                "HAVING SUM(r.cantidad) > 0 " +
+                "ORDER BY c.nombre";
+        try (Connection conn = DatabaseUtil.getReadOnlyConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setDate(1, Date.valueOf(desde));
+            stmt.setDate(2, Date.valueOf(hasta));
+            try (ResultSet rs = stmt.executeQuery()) {
+                int leidas = 0;
+                while (rs.next()) {
+                    leidas++;
+                    lista.add(new CategoriaVentaResumen(
+                            rs.getString("categoria"),
+                            rs.getDouble("total_vendido")
+                    ));
+                }
+                Metricas.filasLeidas(stmt, leidas);
+            }
+        } catch (SQLException e) {
+            logger.error("Error obteniendo ventas por categoría del resumen", e);
+        }
+        return lista;
+    }
+
+    /**
+     * Obtiene los productos más vendidos en un rango de días.
+     * @param desde Fecha de inicio (inclusive)
+     * @param hasta Fecha de fin (inclusive)
+     * @return Productos ordenados por cantidad vendida descendente
+     */
+    public List<ProductoVentaResumen> obtenerProductosMasVendidos(LocalDate desde, LocalDate hasta) {
+        return consultarProductosMasVendidos(desde, hasta);
+    }
+
+    /**
+     * Obtiene los productos más vendidos en todo el historial.
+     * @return Productos ordenados por cantidad vendida descendente
+     */
+    public List<ProductoVentaResumen> obtenerProductosMasVendidos() {
+        return consultarProductosMasVendidos(null, null);
+    }
+
+    private List<ProductoVentaResumen> consultarProductosMasVendidos(LocalDate desde, LocalDate hasta) {
+        List<ProductoVentaResumen> lista = new ArrayList<>();
+        String sql = "SELECT p.nombre, c.nombre AS categoria, SUM(r.cantidad) AS cantidad_vendida, " +
+                "SUM(r.importe) AS total_vendido " +
+                "FROM resumen_ventas_producto_dia r " +
+                "JOIN productos p ON r.id_producto = p.id_producto " +
+                "JOIN categorias c ON r.id_categoria = c.id_categoria " +
+                (desde != null ? "WHERE r.dia >= ? AND r.dia <= ? " : "") +
+                "GROUP BY p.nombre, c.nombre " +
+                "HAVING SUM(r.cantidad) > 0 " +
+                "ORDER BY cantidad_vendida DESC";
+        try (Connection conn = DatabaseUtil.getReadOnlyConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            if (desde != null) {
+                stmt.setDate(1, Date.valueOf(desde));
+                stmt.setDate(2, Date.valueOf(hasta));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                int leidas = 0;
+                while (rs.next()) {
+                    leidas++;
+                    lista.add(new ProductoVentaResumen(
+                            rs.getString("nombre"),
+                            rs.getString("categoria"),
+                            rs.getInt("cantidad_vendida"),
+                            rs.getDouble("total_vendido")
+                    ));
+                }
+                Metricas.filasLeidas(stmt, leidas);
+            }
+        } catch (SQLException e) {
+            logger.error("Error obteniendo productos más vendidos del resumen", e);
+        }
+        return lista;
+    }
+
+    /**
+     * Obtiene cuántas ventas se cobraron con cada método de pago en un rango de días.
+     * @param desde Fecha de inicio (inclusive)
+     * @param hasta Fecha de fin (inclusive)
+     * @return Métodos de pago ordenados por número de ventas descendente
+     */
+    public List<MetodoPagoResumen> obtenerMetodosPago(LocalDate desde, LocalDate hasta) {
+        List<MetodoPagoResumen> lista = new ArrayList<>();
+        String sql = "SELECT metodo_pago AS metodo, SUM(num_ventas) AS veces " +
+                "FROM resumen_ventas_dia " +
+                "WHERE dia >= ? AND dia <= ? " +
+                "GROUP BY metodo_pago " +
+                "HAVING SUM(num_ventas) > 0 " +
+                "ORDER BY veces DESC";
+        try (Connection conn = DatabaseUtil.getReadOnlyConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setDate(1, Date.valueOf(desde));
+            stmt.setDate(2, Date.valueOf(hasta));
+            try (ResultSet rs = stmt.executeQuery()) {
+                int leidas = 0;
+                while (rs.next()) {
+                    leidas++;
+                    lista.add(new MetodoPagoResumen(
+                            rs.getString("metodo"),
+                            rs.getInt("veces")
+                    ));
+                }
+                Metricas.filasLeidas(stmt, leidas);
+            }
+        } catch (SQLException e) {
+            logger.error("Error obteniendo métodos de pago del resumen", e);
+        }
+        return lista;
+    }
+
+    /**
+     * Obtiene el total cobrado en un rango de días.
+     * @param desde Fecha de inicio (inclusive)
+     * @param hasta Fecha de fin (inclusive)
+     * @return Total de ventas
+     */
+    public double obtenerTotal(LocalDate desde, LocalDate hasta) {
+        String sql = "SELECT COALESCE(SUM(total), 0) FROM resumen_ventas_dia WHERE dia >= ? AND dia <= ?";
+        try (Connection conn = DatabaseUtil.getReadOnlyConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setDate(1, Date.valueOf(desde));
+            stmt.setDate(2, Date.valueOf(hasta));
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getDouble(1);
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Error obteniendo total de ventas del resumen: " + desde + " - " + hasta, e);
+        }
+        return 0.0;
+    }
+
+    /**
+     * Obtiene el número de ventas en un rango de días.
+     * @param desde Fecha de inicio (inclusive)
+     * @param hasta Fecha de fin (inclusive)
+     * @return Número de ventas
+     */
+    public int obtenerNumeroVentas(LocalDate desde, LocalDate hasta) {
+        String sql = "SELECT COALESCE(SUM(num_ventas), 0) FROM resumen_ventas_dia WHERE dia >= ? AND dia <= ?";
+        try (Connection conn = DatabaseUtil.getReadOnlyConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setDate(1, Date.valueOf(desde));
+            stmt.setDate(2, Date.valueOf(hasta));
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Error obteniendo número de ventas del resumen: " + desde + " - " + hasta, e);
+        }
+        return 0;
+    }
+}
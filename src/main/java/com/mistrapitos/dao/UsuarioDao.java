@@ -2,6 +2,7 @@ package com.mistrapitos.dao;
 
 import com.mistrapitos.models.Usuario;
 import com.mistrapitos.utils.DatabaseUtil;
+import com.mistrapitos.utils.Metricas;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,7 +31,9 @@ public class UsuarioDao implements Dao<Usuario, Integer> {
              PreparedStatement stmt = conn.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
             
+            int leidas = 0;
             while (rs.next()) {
+                leidas++;
                 Usuario usuario = new Usuario(
                     rs.getInt("id_usuario"),
                     rs.getString("nombre_usuario"),
@@ -39,6 +42,7 @@ public class UsuarioDao implements Dao<Usuario, Integer> {
                 );
                 usuarios.add(usuario);
             }
+            Metricas.filasLeidas(stmt, leidas);
         } catch (SQLException e) {
             logger.error("Error al obtener todos los usuarios", e);
         }
@@ -128,7 +132,7 @@ public class UsuarioDao implements Dao<Usuario, Integer> {
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
                     usuario.setIdUsuario(rs.getInt(1));
-                    logger.info("Usuario guardado correctamente: " + usuario.getNombreUsuario());
+                    logger.info("Usuario guardado correctamente: {}", usuario.getNombreUsuario());
                     return usuario;
                 }
             }
@@ -158,9 +162,9 @@ public class UsuarioDao implements Dao<Usuario, Integer> {
             
             int rowsAffected = stmt.executeUpdate();
             if (rowsAffected > 0) {
-                logger.info("Usuario actualizado correctamente: " + usuario.getNombreUsuario());
+                logger.info("Usuario actualizado correctamente: {}", usuario.getNombreUsuario());
             } else {
-                logger.warn("No se actualizó ningún usuario con ID: " + usuario.getIdUsuario());
+                logger.warn("No se actualizó ningún usuario con ID: {}", usuario.getIdUsuario());
             }
         } catch (SQLException e) {
             logger.error("Error al actualizar usuario: " + usuario.getNombreUsuario(), e);
@@ -185,10 +189,10 @@ public class UsuarioDao implements Dao<Usuario, Integer> {
             
             int rowsAffected = stmt.executeUpdate();
             if (rowsAffected > 0) {
-                logger.info("Usuario eliminado correctamente con ID: " + id);
+                logger.info("Usuario eliminado correctamente con ID: {}", id);
                 return true;
             } else {
-                logger.warn("No se eliminó ningún usuario con ID: " + id);
+                logger.warn("No se eliminó ningún usuario con ID: {}", id);
             }
         } catch (SQLException e) {
             logger.error("Error al eliminar usuario con ID: " + id, e);
@@ -220,7 +224,7 @@ public class UsuarioDao implements Dao<Usuario, Integer> {
                         rs.getString("contrasena"),
                         rs.getString("rol")
                     );
-                    logger.info("Usuario autenticado correctamente: " + nombreUsuario);
+                    logger.info("Usuario autenticado correctamente: {}", nombreUsuario);
                     return Optional.of(usuario);
                 }
             }
@@ -228,7 +232,7 @@ public class UsuarioDao implements Dao<Usuario, Integer> {
             logger.error("Error al autenticar usuario: " + nombreUsuario, e);
         }
         
-        logger.warn("Intento de autenticación fallido para el usuario: " + nombreUsuario);
+        logger.warn("Intento de autenticación fallido para el usuario: {}", nombreUsuario);
         return Optional.empty();
     }
 }
\ No newline at end of file
@@ -1,8 +1,14 @@
 package com.mistrapitos.dao;
 
 import com.mistrapitos.models.DetalleVenta;
+import com.mistrapitos.models.FaltanteStock;
+import com.mistrapitos.models.FiltroVentas;
+import com.mistrapitos.models.ProductoEnCarrito;
+import com.mistrapitos.models.ResultadoAnulacion;
 import com.mistrapitos.models.Venta;
+import com.mistrapitos.services.StockInsuficienteException;
 import com.mistrapitos.utils.DatabaseUtil;
+import com.mistrapitos.utils.Metricas;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.mistrapitos.models.ProductoVentaResumen;
@@ -11,8 +17,15 @@ import java.sql.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
 
 /**
  * Implementación del DAO para la entidad Venta.
@@ -20,8 +33,73 @@ import java.util.Optional;
 public class VentaDao implements Dao<Venta, Integer> {
     
     private static final Logger logger = LoggerFactory.getLogger(VentaDao.class);
+    private static final String SQL_INSERTAR_VENTA_SIN_RETORNO =
+            "INSERT INTO ventas (id_cliente, fecha, metodo_pago, total, uuid_venta) VALUES (?, ?, ?, ?, ?)";
+    private static final String SQL_INSERTAR_VENTA = SQL_INSERTAR_VENTA_SIN_RETORNO + " RETURNING id_venta";
+    // Varias ventas en una sola sentencia; RETURNING no garantiza el orden de las filas, así que
+    // cada ID generado se asocia a su venta por el UUID
+    private static final String SQL_INSERTAR_VENTAS_LOTE =
+            "INSERT INTO ventas (id_cliente, fecha, metodo_pago, total, uuid_venta) " +
+            "SELECT * FROM unnest(?::int[], ?::timestamp[], ?::varchar[], ?::float8[], ?::uuid[]) " +
+            "RETURNING id_venta, uuid_venta";
+    // Ventas por sentencia al eliminar detalles y cabeceras en una anulación masiva
+    private static final int VENTAS_POR_LOTE_ANULACION = 1000;
+    // Cambios de una venta en una sola sentencia: todas las partes ven los detalles tal como estaban
+    // (anteriores), se borran, modifican o insertan solo las líneas que cambiaron y el stock recibe la
+    // diferencia neta por producto, siempre que no quede negativo. Las líneas nuevas toman su ID de la
+    // secuencia antes de insertarse, así RETURNING id_detalle lleva a la posición de cada una.
+    // Devuelve una fila por línea nueva (orden, id_detalle) y una por producto sin stock suficiente
+    // (id_faltante, nombre, solicitado, disponible); si hay de estas, la transacción debe revertirse.
+    private static final String SQL_ACTUALIZAR_VENTA =
+            "WITH nuevos AS ( " +
+            "  SELECT n.id_detalle, n.id_producto, n.cantidad, n.precio_unitario::numeric AS precio_unitario, " +
+            "         n.descuento_aplicado::numeric AS descuento_aplicado, n.orden " +
+            "  FROM unnest(?::int[], ?::int[], ?::int[], ?::float8[], ?::float8[]) " +
+            "       WITH ORDINALITY AS n(id_detalle, id_producto, cantidad, precio_unitario, descuento_aplicado, orden)), " +
+            "anteriores AS ( " +
+            "  SELECT id_detalle, id_producto, cantidad, precio_unitario, descuento_aplicado " +
+            "  FROM detalle_venta WHERE id_venta = ?), " +
+            "altas AS ( " +
+            "  SELECT nextval(pg_get_serial_sequence('detalle_venta', 'id_detalle')) AS id_nuevo, n.* FROM nuevos n " +
+            "  WHERE NOT EXISTS (SELECT 1 FROM anteriores a WHERE a.id_detalle = n.id_detalle)), " +
+            "cabecera AS ( " +
+            "  UPDATE ventas SET id_cliente = ?, fecha = ?, metodo_pago = ?, total = ? WHERE id_venta = ?), " +
+            "bajas AS ( " +
+            "  DELETE FROM detalle_venta d USING anteriores a " +
+            "  WHERE d.id_detalle = a.id_detalle " +
+            "    AND NOT EXISTS (SELECT 1 FROM nuevos n WHERE n.id_detalle = a.id_detalle)), " +
+            "cambios AS ( " +
+            "  UPDATE detalle_venta d SET id_producto = n.id_producto, cantidad = n.cantidad, " +
+            "         precio_unitario = n.precio_unitario, descuento_aplicado = n.descuento_aplicado " +
+            "  FROM nuevos n JOIN anteriores a ON a.id_detalle = n.id_detalle " +
+            "  WHERE d.id_detalle = n.id_detalle " +
+            "    AND (a.id_producto, a.cantidad, a.precio_unitario, a.descuento_aplicado) " +
+            "        IS DISTINCT FROM (n.id_producto, n.cantidad, n.precio_unitario, n.descuento_aplicado)), " +
+            "insertados AS ( " +
+            "  INSERT INTO detalle_venta (id_detalle, id_venta, id_producto, cantidad, precio_unitario, descuento_aplicado) " +
+            "  SELECT id_nuevo, ?, id_producto, cantidad, precio_unitario, descuento_aplicado FROM altas ORDER BY orden " +
+            "  RETURNING id_detalle), " +
+            "movimientos AS ( " +
+            "  SELECT id_producto, SUM(cantidad) AS cantidad FROM ( " +
+            "    SELECT id_producto, cantidad FROM anteriores " +
+            "    UNION ALL SELECT id_producto, -cantidad FROM nuevos) x " +
+            "  GROUP BY id_producto HAVING SUM(cantidad) <> 0), " +
+            // La condición se evalúa sobre la fila que se actualiza, como en ProductoDao.descontarStockDisponible
+            "stock AS ( " +
+            "  UPDATE productos p SET stock = p.stock + m.cantidad " +
+            "  FROM movimientos m " +
+            "  WHERE p.id_producto = m.id_producto AND (m.cantidad > 0 OR p.stock + m.cantidad >= 0) " +
+            "  RETURNING p.id_producto) " +
+            "SELECT a.orden, i.id_detalle, NULL::int AS id_faltante, NULL::varchar AS nombre, " +
+            "       NULL::int AS solicitado, NULL::int AS disponible " +
+            "FROM altas a JOIN insertados i ON i.id_detalle = a.id_nuevo " +
+            "UNION ALL " +
+            "SELECT NULL, NULL, m.id_producto, p.nombre, -m.cantidad::int, COALESCE(p.stock, 0) " +
+            "FROM movimientos m LEFT JOIN productos p ON p.id_producto = m.id_producto " +
+            "WHERE NOT EXISTS (SELECT 1 FROM stock s WHERE s.id_producto = m.id_producto)";
     private final DetalleVentaDao detalleVentaDao = new DetalleVentaDao();
     private final ProductoDao productoDao = new ProductoDao();
+    private final ResumenVentasDao resumenVentasDao = new ResumenVentasDao();
     
     /**
      * Obtiene todas las ventas de la base de datos.
@@ -39,10 +117,13 @@ public class VentaDao implements Dao<Venta, Integer> {
              PreparedStatement stmt = conn.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
             
+            int leidas = 0;
             while (rs.next()) {
+                leidas++;
                 Venta venta = mapResultSetToVenta(rs);
                 ventas.add(venta);
             }
+            Metricas.filasLeidas(stmt, leidas);
         } catch (SQLException e) {
             logger.error("Error al obtener todas las ventas", e);
         }
@@ -92,43 +173,18 @@ public class VentaDao implements Dao<Venta, Integer> {
      * @return Lista de productos más vendidos, ordenados por cantidad vendida descendente
      */
     public List<ProductoVentaResumen> obtenerProductosMasVendidos() {
-        List<ProductoVentaResumen> lista = new ArrayList<>();
-        String sql = "SELECT p.nombre, c.nombre AS categoria, SUM(dv.cantidad) AS cantidad_vendida, " +
-                "SUM(dv.cantidad * dv.precio_unitario) AS total_vendido " +
-                "FROM detalle_venta dv " +
-                "JOIN productos p ON dv.id_producto = p.id_producto " +
-                "JOIN categorias c ON p.id_categoria = c.id_categoria " +
-                "GROUP BY p.nombre, c.nombre " +
-                "HAVING SUM(dv.cantidad) >= 1 " +
-                "ORDER BY cantidad_vendida DESC";
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    ProductoVentaResumen resumen = new ProductoVentaResumen(
-                            rs.getString("nombre"),
-                            rs.getString("categoria"),
-                            rs.getInt("cantidad_vendida"),
-                            rs.getDouble("total_vendido")
-                    );
-                    lista.add(resumen);
-                }
-            }
-        } catch (Exception e) {
-            logger.error("Error al obtener productos más vendidos", e);
-        }
-        return lista;
+        return resumenVentasDao.obtenerProductosMasVendidos();
     }
 
     /**
      * Cuenta ventas entre dos fechas.
      */
     public int contarVentasEnRango(LocalDate desde, LocalDate hasta) throws SQLException {
-        String sql = "SELECT COUNT(*) FROM ventas WHERE fecha BETWEEN ? AND ?";
+        String sql = "SELECT COUNT(*) FROM ventas WHERE fecha >= ? AND fecha < ?";
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setDate(1, Date.valueOf(desde));
-            stmt.setDate(2, Date.valueOf(hasta));
+            stmt.setTimestamp(1, inicioDelDia(desde));
+            stmt.setTimestamp(2, inicioDelDia(hasta.plusDays(1)));
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) return rs.getInt(1);
         }
@@ -137,26 +193,19 @@ public class VentaDao implements Dao<Venta, Integer> {
 
     /**
      * Inserta una venta usando una conexión existente (para transacciones).
+     * Se guardan la fecha y el UUID que trae la venta.
      * @param venta Venta a insertar
      * @param conn Conexión activa
      * @return ID generado de la venta, o -1 si falla
      */
     public int insertar(Venta venta, Connection conn) {
-        String sql = "INSERT INTO ventas (id_cliente, fecha, metodo_pago, total) VALUES (?, ?, ?, ?) RETURNING id_venta";
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            if (venta.getIdCliente() > 0) {
-                stmt.setInt(1, venta.getIdCliente());
-            } else {
-                stmt.setNull(1, Types.INTEGER);
-            }
-            stmt.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
-            stmt.setString(3, venta.getMetodoPago());
-            stmt.setDouble(4, venta.getTotal());
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_INSERTAR_VENTA)) {
+            asignarParametrosInsercion(stmt, venta);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
                     int idVenta = rs.getInt("id_venta");
                     venta.setIdVenta(idVenta);
-                    logger.info("Venta insertada correctamente con ID: " + idVenta);
+                    logger.info("Venta insertada correctamente con ID: {}", idVenta);
                     return idVenta;
                 }
             }
@@ -166,6 +215,105 @@ public class VentaDao implements Dao<Venta, Integer> {
         return -1;
     }
 
+    /**
+     * Inserta varias ventas en una sola sentencia usando una conexión existente (para
+     * transacciones) y les asigna el ID generado.
+     * @param ventas Ventas a insertar, con fecha y UUID
+     * @param conn Conexión activa
+     * @throws SQLException Si ocurre un error al insertar el lote
+     * @throws IllegalArgumentException Si alguna venta no tiene UUID
+     */
+    public void insertarLote(List<Venta> ventas, Connection conn) throws SQLException {
+        if (ventas.isEmpty()) {
+            return;
+        }
+        Integer[] clientes = new Integer[ventas.size()];
+        Timestamp[] fechas = new Timestamp[ventas.size()];
+        String[] metodosPago = new String[ventas.size()];
+        Double[] totales = new Double[ventas.size()];
+        UUID[] uuids = new UUID[ventas.size()];
+        Map<UUID, Venta> porUuid = new LinkedHashMap<>();
+        for (int i = 0; i < ventas.size(); i++) {
+            Venta venta = ventas.get(i);
+            if (venta.getUuid() == null) {
+                throw new IllegalArgumentException("Las ventas de un lote necesitan UUID");
+            }
+            clientes[i] = venta.getIdCliente() > 0 ? venta.getIdCliente() : null;
+            fechas[i] = Timestamp.valueOf(venta.getFecha() != null ? venta.getFecha() : LocalDateTime.now());
+            metodosPago[i] = venta.getMetodoPago();
+            totales[i] = venta.getTotal();
+            uuids[i] = venta.getUuid();
+            porUuid.put(venta.getUuid(), venta);
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_INSERTAR_VENTAS_LOTE)) {
+            stmt.setArray(1, conn.createArrayOf("integer", clientes));
+            stmt.setArray(2, conn.createArrayOf("timestamp", fechas));
+            stmt.setArray(3, conn.createArrayOf("varchar", metodosPago));
+            stmt.setArray(4, conn.createArrayOf("float8", totales));
+            stmt.setArray(5, conn.createArrayOf("uuid", uuids));
+            int asignadas = 0;
+            try (ResultSet rs = stmt.executeQuery()) {
+                int leidas = 0;
+                while (rs.next()) {
+                    leidas++;
+                    Venta venta = porUuid.get(rs.getObject("uuid_venta", UUID.class));
+                    if (venta != null) {
+                        venta.setIdVenta(rs.getInt("id_venta"));
+                        asignadas++;
+                    }
+                }
+                Metricas.filasLeidas(stmt, leidas);
+            }
+            if (asignadas != ventas.size()) {
+                throw new SQLException("Se insertaron " + ventas.size() + " ventas y se recibió el ID de " + asignadas);
+            }
+        }
+        logger.debug("{} ventas insertadas en lote", ventas.size());
+    }
+
+    /**
+     * Indica cuáles de los UUID ya corresponden a una venta guardada.
+     * @param uuids UUID generados en la caja
+     * @param conn Conexión activa
+     * @return UUID que ya existen en la tabla de ventas
+     * @throws SQLException Si ocurre un error en la consulta
+     */
+    public Set<UUID> findUuidsExistentes(Collection<UUID> uuids, Connection conn) throws SQLException {
+        Set<UUID> existentes = new HashSet<>();
+        if (uuids.isEmpty()) {
+            return existentes;
+        }
+        String sql = "SELECT uuid_venta FROM ventas WHERE uuid_venta = ANY(?)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("uuid", uuids.toArray()));
+            try (ResultSet rs = stmt.executeQuery()) {
+                int leidas = 0;
+                while (rs.next()) {
+                    leidas++;
+                    existentes.add(rs.getObject(1, UUID.class));
+                }
+                Metricas.filasLeidas(stmt, leidas);
+            }
+        }
+        return existentes;
+    }
+
+    private void asignarParametrosInsercion(PreparedStatement stmt, Venta venta) throws SQLException {
+        if (venta.getIdCliente() > 0) {
+            stmt.setInt(1, venta.getIdCliente());
+        } else {
+            stmt.setNull(1, Types.INTEGER);
+        }
+        stmt.setTimestamp(2, Timestamp.valueOf(venta.getFecha() != null ? venta.getFecha() : LocalDateTime.now()));
+        stmt.setString(3, venta.getMetodoPago());
+        stmt.setDouble(4, venta.getTotal());
+        if (venta.getUuid() != null) {
+            stmt.setObject(5, venta.getUuid());
+        } else {
+            stmt.setNull(5, Types.OTHER);
+        }
+    }
+
     /**
      * Inserta un detalle de venta usando una conexión existente (para transacciones).
      * @param idVenta ID de la venta
@@ -186,7 +334,7 @@ public class VentaDao implements Dao<Venta, Integer> {
             stmt.setDouble(5, descuentoAplicado);
             int rows = stmt.executeUpdate();
             if (rows > 0) {
-                logger.info("Detalle de venta insertado correctamente para venta ID: " + idVenta + ", producto ID: " + idProducto);
+                logger.debug("Detalle de venta insertado correctamente para venta ID: {}, producto ID: {}", idVenta, idProducto);
                 return true;
             }
         } catch (SQLException e) {
@@ -195,6 +343,44 @@ public class VentaDao implements Dao<Venta, Integer> {
         return false;
     }
 
+    /**
+     * Inserta todos los detalles de una venta en un solo lote usando una conexión existente (para transacciones).
+     * Con reWriteBatchedInserts el driver envía el lote como un INSERT multi-fila.
+     * @param idVenta ID de la venta
+     * @param carrito Productos vendidos
+     * @param conn Conexión activa
+     * @throws SQLException Si ocurre un error al insertar el lote
+     */
+    public void insertarDetallesVenta(int idVenta, List<ProductoEnCarrito> carrito, Connection conn) throws SQLException {
+        insertarDetallesVentas(Map.of(idVenta, carrito), conn);
+    }
+
+    /**
+     * Inserta los detalles de varias ventas en un solo lote usando una conexión existente (para transacciones).
+     * @param productosPorVenta Productos vendidos por ID de venta
+     * @param conn Conexión activa
+     * @throws SQLException Si ocurre un error al insertar el lote
+     */
+    public void insertarDetallesVentas(Map<Integer, List<ProductoEnCarrito>> productosPorVenta, Connection conn) throws SQLException {
+        String sql = "INSERT INTO detalle_venta (id_venta, id_producto, cantidad, precio_unitario, descuento_aplicado) VALUES (?, ?, ?, ?, ?)";
+        int lineas = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Map.Entry<Integer, List<ProductoEnCarrito>> venta : productosPorVenta.entrySet()) {
+                for (ProductoEnCarrito item : venta.getValue()) {
+                    stmt.setInt(1, venta.getKey());
+                    stmt.setInt(2, item.getIdProducto());
+                    stmt.setInt(3, item.getCantidad());
+                    stmt.setDouble(4, item.getPrecioUnitario());
+                    stmt.setDouble(5, item.getDescuento());
+                    stmt.addBatch();
+                    lineas++;
+                }
+            }
+            stmt.executeBatch();
+        }
+        logger.debug("{} detalles de venta insertados para {} ventas", lineas, productosPorVenta.size());
+    }
+
     /**
      * Busca ventas por cliente.
      * @param idCliente ID del cliente
@@ -214,10 +400,13 @@ public class VentaDao implements Dao<Venta, Integer> {
             stmt.setInt(1, idCliente);
             
             try (ResultSet rs = stmt.executeQuery()) {
+                int leidas = 0;
                 while (rs.next()) {
+                    leidas++;
                     Venta venta = mapResultSetToVenta(rs);
                     ventas.add(venta);
                 }
+                Metricas.filasLeidas(stmt, leidas);
             }
         } catch (SQLException e) {
             logger.error("Error al buscar ventas por cliente: " + idCliente, e);
@@ -226,22 +415,98 @@ public class VentaDao implements Dao<Venta, Integer> {
         return ventas;
     }
 
+    /**
+     * Obtiene todas las ventas de un cliente con sus detalles, de la más reciente a la más antigua.
+     * @param idCliente ID del cliente
+     * @return Ventas del cliente con sus detalles cargados
+     */
+    public List<Venta> findByClienteConDetalles(Integer idCliente) {
+        return consultarVentasCliente(idCliente, null, null);
+    }
+
+    /**
+     * Obtiene una página de las ventas de un cliente con sus detalles, de la más reciente a la
+     * más antigua. Pagina por llave (fecha, id_venta) igual que findPagina.
+     * @param idCliente ID del cliente
+     * @param ultima Última venta de la página anterior, o null para la primera página
+     * @param tamano Número máximo de ventas de la página
+     * @return Ventas de la página con sus detalles; si son menos que tamano no hay más páginas
+     */
+    public List<Venta> findPaginaClienteConDetalles(Integer idCliente, Venta ultima, int tamano) {
+        return consultarVentasCliente(idCliente, ultima, tamano);
+    }
+
+    /**
+     * Carga las cabeceras de las ventas y todos sus detalles con dos consultas sobre la misma
+     * conexión, en lugar de una consulta de detalles por venta.
+     */
+    private List<Venta> consultarVentasCliente(Integer idCliente, Venta ultima, Integer tamano) {
+        List<Venta> ventas = new ArrayList<>();
+        String sql = "SELECT v.id_venta, v.id_cliente, v.fecha, v.metodo_pago, v.total, c.nombre as cliente_nombre " +
+                     "FROM ventas v " +
+                     "LEFT JOIN clientes c ON v.id_cliente = c.id_cliente " +
+                     "WHERE v.id_cliente = ? " +
+                     (ultima != null ? "AND (v.fecha, v.id_venta) < (?, ?) " : "") +
+                     "ORDER BY v.fecha DESC, v.id_venta DESC" +
+                     (tamano != null ? " LIMIT ?" : "");
+
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                int i = 1;
+                stmt.setInt(i++, idCliente);
+                if (ultima != null) {
+                    stmt.setTimestamp(i++, Timestamp.valueOf(ultima.getFecha()));
+                    stmt.setInt(i++, ultima.getIdVenta());
+                }
+                if (tamano != null) {
+                    stmt.setInt(i, tamano);
+                }
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    int leidas = 0;
+                    while (rs.next()) {
+                        leidas++;
+                        ventas.add(mapResultSetToVenta(rs));
+                    }
+                    Metricas.filasLeidas(stmt, leidas);
+                }
+            }
+
+            List<Integer> ids = new ArrayList<>(ventas.size());
+            for (Venta venta : ventas) {
+                ids.add(venta.getIdVenta());
+            }
+            Map<Integer, List<DetalleVenta>> detalles = detalleVentaDao.findByVentas(ids, conn);
+            for (Venta venta : ventas) {
+                venta.getDetalles().setAll(detalles.getOrDefault(venta.getIdVenta(), List.of()));
+            }
+        } catch (SQLException e) {
+            logger.error("Error al obtener ventas con detalles del cliente: " + idCliente, e);
+            ventas.clear();
+        }
+
+        return ventas;
+    }
+
     public List<MetodoPagoResumen> obtenerMetodosPagoMasUtilizados(LocalDate desde, LocalDate hasta) throws SQLException {
         String sql = "SELECT metodo_pago, COUNT(*) AS veces " +
-                "FROM ventas WHERE fecha BETWEEN ? AND ? " +
+                "FROM ventas WHERE fecha >= ? AND fecha < ? " +
                 "GROUP BY metodo_pago ORDER BY veces DESC";
         List<MetodoPagoResumen> lista = new ArrayList<>();
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setDate(1, Date.valueOf(desde));
-            stmt.setDate(2, Date.valueOf(hasta));
+            stmt.setTimestamp(1, inicioDelDia(desde));
+            stmt.setTimestamp(2, inicioDelDia(hasta.plusDays(1)));
             ResultSet rs = stmt.executeQuery();
+            int leidas = 0;
             while (rs.next()) {
+                leidas++;
                 lista.add(new MetodoPagoResumen(
                         rs.getString("metodo_pago"),
                         rs.getInt("veces")
                 ));
             }
+            Metricas.filasLeidas(stmt, leidas);
         }
         return lista;
     }
@@ -256,19 +521,23 @@ public class VentaDao implements Dao<Venta, Integer> {
         String sql = "SELECT v.id_venta, v.id_cliente, v.fecha, v.metodo_pago, v.total, c.nombre as cliente_nombre " +
                      "FROM ventas v " +
                      "LEFT JOIN clientes c ON v.id_cliente = c.id_cliente " +
-                     "WHERE DATE(v.fecha) = ? " +
+                     "WHERE v.fecha >= ? AND v.fecha < ? " +
                      "ORDER BY v.fecha DESC";
         
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            stmt.setDate(1, Date.valueOf(fecha));
+            stmt.setTimestamp(1, inicioDelDia(fecha));
+            stmt.setTimestamp(2, inicioDelDia(fecha.plusDays(1)));
             
             try (ResultSet rs = stmt.executeQuery()) {
+                int leidas = 0;
                 while (rs.next()) {
+                    leidas++;
                     Venta venta = mapResultSetToVenta(rs);
                     ventas.add(venta);
                 }
+                Metricas.filasLeidas(stmt, leidas);
             }
         } catch (SQLException e) {
             logger.error("Error al buscar ventas por fecha: " + fecha, e);
@@ -288,20 +557,23 @@ public class VentaDao implements Dao<Venta, Integer> {
         String sql = "SELECT v.id_venta, v.id_cliente, v.fecha, v.metodo_pago, v.total, c.nombre as cliente_nombre " +
                      "FROM ventas v " +
                      "LEFT JOIN clientes c ON v.id_cliente = c.id_cliente " +
-                     "WHERE DATE(v.fecha) BETWEEN ? AND ? " +
+                     "WHERE v.fecha >= ? AND v.fecha < ? " +
                      "ORDER BY v.fecha DESC";
         
         try (Connection conn = DatabaseUtil.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            stmt.setDate(1, Date.valueOf(fechaInicio));
-            stmt.setDate(2, Date.valueOf(fechaFin));
+            stmt.setTimestamp(1, inicioDelDia(fechaInicio));
+            stmt.setTimestamp(2, inicioDelDia(fechaFin.plusDays(1)));
             
             try (ResultSet rs = stmt.executeQuery()) {
+                int leidas = 0;
                 while (rs.next()) {
+                    leidas++;
                     Venta venta = mapResultSetToVenta(rs);
                     ventas.add(venta);
                 }
+                Metricas.filasLeidas(stmt, leidas);
             }
         } catch (SQLException e) {
             logger.error("Error al buscar ventas por rango de fechas: " + fechaInicio + " - " + fechaFin, e);
@@ -329,15 +601,88 @@ public class VentaDao implements Dao<Venta, Integer> {
             stmt.setString(1, metodoPago);
             
             try (ResultSet rs = stmt.executeQuery()) {
+                int leidas = 0;
                 while (rs.next()) {
+                    leidas++;
                     Venta venta = mapResultSetToVenta(rs);
                     ventas.add(venta);
                 }
+                Metricas.filasLeidas(stmt, leidas);
             }
         } catch (SQLException e) {
             logger.error("Error al buscar ventas por método de pago: " + metodoPago, e);
         }
-        
+
+        return ventas;
+    }
+
+    /**
+     * Obtiene una página de ventas ordenadas de la más reciente a la más antigua.
+     * Usa paginación por llave (fecha, id_venta) en lugar de OFFSET, así que cada página
+     * cuesta lo mismo sin importar qué tan atrás esté en el historial.
+     * @param filtro Criterios de búsqueda
+     * @param ultima Última venta de la página anterior, o null para la primera página
+     * @param tamano Número máximo de ventas de la página
+     * @return Ventas de la página; si son menos que tamano no hay más páginas
+     */
+    public List<Venta> findPagina(FiltroVentas filtro, Venta ultima, int tamano) {
+        List<Venta> ventas = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(
+                "SELECT v.id_venta, v.id_cliente, v.fecha, v.metodo_pago, v.total, c.nombre as cliente_nombre " +
+                "FROM ventas v " +
+                "LEFT JOIN clientes c ON v.id_cliente = c.id_cliente " +
+                "WHERE TRUE ");
+        List<Object> parametros = new ArrayList<>();
+        if (filtro.getDesde() != null) {
+            sql.append("AND v.fecha >= ? ");
+            parametros.add(Timestamp.valueOf(filtro.getDesde().atStartOfDay()));
+        }
+        if (filtro.getHasta() != null) {
+            sql.append("AND v.fecha < ? ");
+            parametros.add(Timestamp.valueOf(filtro.getHasta().plusDays(1).atStartOfDay()));
+        }
+        if (filtro.getIdCliente() != null) {
+            sql.append("AND v.id_cliente = ? ");
+            parametros.add(filtro.getIdCliente());
+        }
+        if (filtro.getMetodoPago() != null) {
+            sql.append("AND v.metodo_pago = ? ");
+            parametros.add(filtro.getMetodoPago());
+        }
+        if (filtro.getTexto() != null && !filtro.getTexto().isBlank()) {
+            sql.append("AND (c.nombre ILIKE ? OR v.metodo_pago ILIKE ?) ");
+            String patron = "%" + filtro.getTexto().trim()
+                    .replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+            parametros.add(patron);
+            parametros.add(patron);
+        }
+        if (ultima != null) {
+            sql.append("AND (v.fecha, v.id_venta) < (?, ?) ");
+            parametros.add(Timestamp.valueOf(ultima.getFecha()));
+            parametros.add(ultima.getIdVenta());
+        }
+        sql.append("ORDER BY v.fecha DESC, v.id_venta DESC LIMIT ?");
+        parametros.add(tamano);
+
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+
+            for (int i = 0; i < parametros.size(); i++) {
+                stmt.setObject(i + 1, parametros.get(i));
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                int leidas = 0;
+                while (rs.next()) {
+                    leidas++;
+                    ventas.add(mapResultSetToVenta(rs));
+                }
+                Metricas.filasLeidas(stmt, leidas);
+            }
+        } catch (SQLException e) {
+            logger.error("Error al obtener página de ventas", e);
+        }
+
         return ventas;
     }
     
@@ -373,16 +718,18 @@ public class VentaDao implements Dao<Venta, Integer> {
                         venta.setIdVenta(idVenta);
                         
                         // Guardar los detalles de la venta
+                        Map<Integer, Integer> stock = new TreeMap<>();
                         for (DetalleVenta detalle : venta.getDetalles()) {
                             detalle.setIdVenta(idVenta);
                             detalleVentaDao.save(detalle, conn);
-                            
-                            // Actualizar el stock del producto
-                            productoDao.updateStock(detalle.getIdProducto(), -detalle.getCantidad());
+                            stock.merge(detalle.getIdProducto(), -detalle.getCantidad(), Integer::sum);
                         }
                         
+                        // Stock y resumen diario en la misma transacción que la venta
+                        productoDao.actualizarStockLote(stock, conn);
+                        resumenVentasDao.sumarVenta(idVenta, conn);
                         conn.commit();
-                        logger.info("Venta guardada correctamente con ID: " + idVenta);
+                        logger.info("Venta guardada correctamente con ID: {}", idVenta);
                         return venta;
                     }
                 }
@@ -413,61 +760,45 @@ public class VentaDao implements Dao<Venta, Integer> {
     }
     
     /**
-     * Actualiza una venta existente en la base de datos.
-     * @param venta Venta a actualizar
-     * @return Venta actualizada
+     * Actualiza una venta existente en la base de datos. Solo se tocan las líneas que cambiaron
+     * (se comparan por ID de detalle; las de ID 0 o ajeno a la venta se insertan) y el stock se
+     * ajusta por la diferencia neta de cada producto, todo con la conexión de la transacción.
+     * @param venta Venta a actualizar, con todos sus detalles
+     * @return Venta actualizada, con los IDs de las líneas nuevas asignados
+     * @throws StockInsuficienteException Si algún producto quedaría con stock negativo; la
+     *         venta queda como estaba
      */
     @Override
     public Venta update(Venta venta) {
-        String sql = "UPDATE ventas SET id_cliente = ?, fecha = ?, metodo_pago = ?, total = ? WHERE id_venta = ?";
-        
         Connection conn = null;
         try {
             conn = DatabaseUtil.getConnection();
             conn.setAutoCommit(false);
-            
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                if (venta.getIdCliente() > 0) {
-                    stmt.setInt(1, venta.getIdCliente());
-                } else {
-                    stmt.setNull(1, Types.INTEGER);
-                }
-                
-                stmt.setTimestamp(2, Timestamp.valueOf(venta.getFecha()));
-                stmt.setString(3, venta.getMetodoPago());
-                stmt.setDouble(4, venta.getTotal());
-                stmt.setInt(5, venta.getIdVenta());
-                
-                int rowsAffected = stmt.executeUpdate();
-                if (rowsAffected > 0) {
-                    // Obtener los detalles actuales de la venta
-                    List<DetalleVenta> detallesActuales = detalleVentaDao.findByVenta(venta.getIdVenta());
-                    
-                    // Eliminar los detalles actuales
-                    for (DetalleVenta detalle : detallesActuales) {
-                        // Restaurar el stock del producto
-                        productoDao.updateStock(detalle.getIdProducto(), detalle.getCantidad());
-                        detalleVentaDao.delete(detalle.getIdDetalle(), conn);
-                    }
-                    
-                    // Guardar los nuevos detalles
-                    for (DetalleVenta detalle : venta.getDetalles()) {
-                        detalle.setIdVenta(venta.getIdVenta());
-                        detalleVentaDao.save(detalle, conn);
-                        
-                        // Actualizar el stock del producto
-                        productoDao.updateStock(detalle.getIdProducto(), -detalle.getCantidad());
-                    }
-                    
-                    conn.commit();
-                    logger.info("Venta actualizada correctamente con ID: " + venta.getIdVenta());
-                } else {
-                    conn.rollback();
-                    logger.warn("No se actualizó ninguna venta con ID: " + venta.getIdVenta());
-                }
+
+            // El bloqueo ordena las ediciones simultáneas de la misma venta: cada sentencia
+            // siguiente ve los detalles que dejó la edición anterior
+            if (!bloquearVenta(venta.getIdVenta(), conn)) {
+                conn.rollback();
+                logger.warn("No se actualizó ninguna venta con ID: {}", venta.getIdVenta());
+                return venta;
+            }
+
+            // Se quita la venta anterior del resumen antes de cambiar fecha, cliente o detalles
+            resumenVentasDao.restarVenta(venta.getIdVenta(), conn);
+            aplicarCambios(venta, conn);
+            resumenVentasDao.sumarVenta(venta.getIdVenta(), conn);
+            conn.commit();
+            logger.info("Venta actualizada correctamente con ID: {}", venta.getIdVenta());
+        } catch (StockInsuficienteException e) {
+            try {
+                conn.rollback();
+            } catch (SQLException ex) {
+                logger.error("Error al hacer rollback", ex);
             }
+            logger.warn("No se actualizó la venta con ID {}: {}", venta.getIdVenta(), e.getMessage());
+            throw e;
         } catch (SQLException e) {
-            logger.error("Error al actualizar venta con ID: " + venta.getIdVenta(), e);
+            logger.error("Error al actualizar venta con ID: {}", venta.getIdVenta(), e);
             if (conn != null) {
                 try {
                     conn.rollback();
@@ -488,66 +819,225 @@ public class VentaDao implements Dao<Venta, Integer> {
         
         return venta;
     }
+
+    private boolean bloquearVenta(int idVenta, Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT 1 FROM ventas WHERE id_venta = ? FOR UPDATE")) {
+            stmt.setInt(1, idVenta);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * Aplica la cabecera, las líneas y el stock de una venta con {@link #SQL_ACTUALIZAR_VENTA}.
+     * @param venta Venta con todos sus detalles
+     * @param conn Conexión de la transacción
+     * @throws SQLException Si falla la sentencia; la transacción debe revertirse
+     * @throws StockInsuficienteException Si algún producto quedaría con stock negativo; la
+     *         transacción debe revertirse
+     */
+    private void aplicarCambios(Venta venta, Connection conn) throws SQLException {
+        List<DetalleVenta> detalles = venta.getDetalles();
+        Integer[] idsDetalle = new Integer[detalles.size()];
+        Integer[] idsProducto = new Integer[detalles.size()];
+        Integer[] cantidades = new Integer[detalles.size()];
+        Double[] precios = new Double[detalles.size()];
+        Double[] descuentos = new Double[detalles.size()];
+        for (int i = 0; i < detalles.size(); i++) {
+            DetalleVenta detalle = detalles.get(i);
+            idsDetalle[i] = detalle.getIdDetalle();
+            idsProducto[i] = detalle.getIdProducto();
+            cantidades[i] = detalle.getCantidad();
+            precios[i] = detalle.getPrecioUnitario();
+            descuentos[i] = detalle.getDescuentoAplicado();
+        }
+
+        Map<Integer, Integer> idsNuevos = new TreeMap<>();
+        List<FaltanteStock> faltantes = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_ACTUALIZAR_VENTA)) {
+            stmt.setArray(1, conn.createArrayOf("integer", idsDetalle));
+            stmt.setArray(2, conn.createArrayOf("integer", idsProducto));
+            stmt.setArray(3, conn.createArrayOf("integer", cantidades));
+            stmt.setArray(4, conn.createArrayOf("float8", precios));
+            stmt.setArray(5, conn.createArrayOf("float8", descuentos));
+            stmt.setInt(6, venta.getIdVenta());
+            if (venta.getIdCliente() > 0) {
+                stmt.setInt(7, venta.getIdCliente());
+            } else {
+                stmt.setNull(7, Types.INTEGER);
+            }
+            stmt.setTimestamp(8, Timestamp.valueOf(venta.getFecha()));
+            stmt.setString(9, venta.getMetodoPago());
+            stmt.setDouble(10, venta.getTotal());
+            stmt.setInt(11, venta.getIdVenta());
+            stmt.setInt(12, venta.getIdVenta());
+            try (ResultSet rs = stmt.executeQuery()) {
+                int leidas = 0;
+                while (rs.next()) {
+                    leidas++;
+                    int idFaltante = rs.getInt("id_faltante");
+                    if (rs.wasNull()) {
+                        idsNuevos.put(rs.getInt("orden") - 1, rs.getInt("id_detalle"));
+                    } else {
+                        faltantes.add(new FaltanteStock(idFaltante, rs.getString("nombre"),
+                                rs.getInt("solicitado"), rs.getInt("disponible")));
+                    }
+                }
+                Metricas.filasLeidas(stmt, leidas);
+            }
+        }
+        if (!faltantes.isEmpty()) {
+            throw new StockInsuficienteException(faltantes);
+        }
+        // Los IDs se asignan solo si la sentencia se aplicó completa
+        idsNuevos.forEach((posicion, idDetalle) -> detalles.get(posicion).setIdDetalle(idDetalle));
+        for (DetalleVenta detalle : detalles) {
+            detalle.setIdVenta(venta.getIdVenta());
+        }
+        logger.debug("Venta {} actualizada con {} líneas, {} nuevas", venta.getIdVenta(), detalles.size(), idsNuevos.size());
+    }
     
     /**
-     * Elimina una venta de la base de datos por su ID.
+     * Elimina una venta de la base de datos por su ID, devolviendo su stock en la misma
+     * transacción (ver {@link #anularVentas(Collection, boolean)}).
      * @param id ID de la venta a eliminar
      * @return true si se eliminó correctamente, false en caso contrario
      */
     @Override
     public boolean delete(Integer id) {
-        Connection conn = null;
         try {
-            conn = DatabaseUtil.getConnection();
-            conn.setAutoCommit(false);
-            
-            // Obtener los detalles de la venta
-            List<DetalleVenta> detalles = detalleVentaDao.findByVenta(id);
-            
-            // Restaurar el stock de los productos
-            for (DetalleVenta detalle : detalles) {
-                productoDao.updateStock(detalle.getIdProducto(), detalle.getCantidad());
+            if (anularVentas(List.of(id), false).getVentas() == 0) {
+                logger.warn("No se eliminó ninguna venta con ID: {}", id);
+                return false;
             }
-            
-            // Eliminar los detalles de la venta
-            detalleVentaDao.deleteByVenta(id, conn);
-            
-            // Eliminar la venta
-            String sql = "DELETE FROM ventas WHERE id_venta = ?";
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setInt(1, id);
-                
-                int rowsAffected = stmt.executeUpdate();
-                if (rowsAffected > 0) {
-                    conn.commit();
-                    logger.info("Venta eliminada correctamente con ID: " + id);
-                    return true;
-                } else {
+            logger.info("Venta eliminada correctamente con ID: {}", id);
+            return true;
+        } catch (SQLException e) {
+            logger.error("Error al eliminar venta con ID: {}", id, e);
+            return false;
+        }
+    }
+
+    /**
+     * Anula varias ventas en una sola transacción: las quita del resumen, devuelve su stock
+     * con una sola sentencia agregada por producto y elimina detalles y cabeceras por lotes.
+     * Los IDs que no existen se ignoran.
+     * @param ids IDs de las ventas a anular
+     * @param simulacion Si es true, calcula el resultado y revierte la transacción sin cambiar nada
+     * @return Ventas anuladas y stock devuelto por producto
+     * @throws SQLException Si falla alguna sentencia; en ese caso no se aplica ningún cambio
+     */
+    public ResultadoAnulacion anularVentas(Collection<Integer> ids, boolean simulacion) throws SQLException {
+        if (ids.isEmpty()) {
+            return new ResultadoAnulacion(simulacion, List.of(), 0, 0, Map.of());
+        }
+        return anular("SELECT id_venta, total FROM ventas WHERE id_venta = ANY(?) ORDER BY id_venta FOR UPDATE",
+                (stmt, conn) -> stmt.setArray(1, conn.createArrayOf("integer", ids.toArray(new Integer[0]))),
+                simulacion);
+    }
+
+    /**
+     * Anula todas las ventas registradas entre dos fechas, ambas incluidas.
+     * @param desde Primer día
+     * @param hasta Último día
+     * @param simulacion Si es true, calcula el resultado y revierte la transacción sin cambiar nada
+     * @return Ventas anuladas y stock devuelto por producto
+     * @throws SQLException Si falla alguna sentencia; en ese caso no se aplica ningún cambio
+     * @see #anularVentas(Collection, boolean)
+     */
+    public ResultadoAnulacion anularVentasEnRango(LocalDate desde, LocalDate hasta, boolean simulacion) throws SQLException {
+        return anular("SELECT id_venta, total FROM ventas WHERE fecha >= ? AND fecha < ? ORDER BY id_venta FOR UPDATE",
+                (stmt, conn) -> {
+                    stmt.setTimestamp(1, inicioDelDia(desde));
+                    stmt.setTimestamp(2, inicioDelDia(hasta.plusDays(1)));
+                },
+                simulacion);
+    }
+
+    @FunctionalInterface
+    private interface ParametrosConsulta {
+        void asignar(PreparedStatement stmt, Connection conn) throws SQLException;
+    }
+
+    private ResultadoAnulacion anular(String sqlBloqueo, ParametrosConsulta parametros, boolean simulacion) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                ResultadoAnulacion resultado = anular(sqlBloqueo, parametros, simulacion, conn);
+                if (simulacion) {
                     conn.rollback();
-                    logger.warn("No se eliminó ninguna venta con ID: " + id);
+                } else {
+                    conn.commit();
                 }
+                logger.info("{}", resultado);
+                return resultado;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
-        } catch (SQLException e) {
-            logger.error("Error al eliminar venta con ID: " + id, e);
-            if (conn != null) {
-                try {
-                    conn.rollback();
-                } catch (SQLException ex) {
-                    logger.error("Error al hacer rollback", ex);
+        }
+    }
+
+    private ResultadoAnulacion anular(String sqlBloqueo, ParametrosConsulta parametros, boolean simulacion,
+                                      Connection conn) throws SQLException {
+        // El bloqueo en orden de ID evita interbloqueos con otras anulaciones y con update()
+        List<Integer> ids = new ArrayList<>();
+        double total = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(sqlBloqueo)) {
+            parametros.asignar(stmt, conn);
+            try (ResultSet rs = stmt.executeQuery()) {
+                int leidas = 0;
+                while (rs.next()) {
+                    leidas++;
+                    ids.add(rs.getInt("id_venta"));
+                    total += rs.getDouble("total");
                 }
+                Metricas.filasLeidas(stmt, leidas);
             }
-        } finally {
-            if (conn != null) {
-                try {
-                    conn.setAutoCommit(true);
-                    conn.close();
-                } catch (SQLException e) {
-                    logger.error("Error al cerrar conexión", e);
+        }
+        if (ids.isEmpty()) {
+            return new ResultadoAnulacion(simulacion, ids, 0, 0, Map.of());
+        }
+
+        Map<Integer, Integer> stock = new LinkedHashMap<>();
+        int lineas = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT id_producto, SUM(cantidad) AS cantidad, COUNT(*) AS lineas FROM detalle_venta " +
+                "WHERE id_venta = ANY(?) GROUP BY id_producto ORDER BY id_producto")) {
+            stmt.setArray(1, conn.createArrayOf("integer", ids.toArray(new Integer[0])));
+            try (ResultSet rs = stmt.executeQuery()) {
+                int leidas = 0;
+                while (rs.next()) {
+                    leidas++;
+                    stock.put(rs.getInt("id_producto"), rs.getInt("cantidad"));
+                    lineas += rs.getInt("lineas");
                 }
+                Metricas.filasLeidas(stmt, leidas);
             }
         }
-        
-        return false;
+        ResultadoAnulacion resultado = new ResultadoAnulacion(simulacion, ids, lineas, total, stock);
+        if (simulacion) {
+            return resultado;
+        }
+
+        productoDao.actualizarStockLote(stock, conn);
+        try (PreparedStatement detalles = conn.prepareStatement("DELETE FROM detalle_venta WHERE id_venta = ANY(?)");
+             PreparedStatement ventas = conn.prepareStatement("DELETE FROM ventas WHERE id_venta = ANY(?)")) {
+            for (int i = 0; i < ids.size(); i += VENTAS_POR_LOTE_ANULACION) {
+                List<Integer> lote = ids.subList(i, Math.min(i + VENTAS_POR_LOTE_ANULACION, ids.size()));
+                // El resumen se resta mientras los detalles del lote todavía existen
+                resumenVentasDao.restarVentas(lote, conn);
+                Array idsLote = conn.createArrayOf("integer", lote.toArray(new Integer[0]));
+                detalles.setArray(1, idsLote);
+                detalles.executeUpdate();
+                ventas.setArray(1, idsLote);
+                ventas.executeUpdate();
+            }
+        }
+        return resultado;
     }
     
     /**
@@ -556,7 +1046,7 @@ public class VentaDao implements Dao<Venta, Integer> {
      * @return Objeto Venta
      * @throws SQLException Si ocurre un error al acceder a los datos
      */
-    private Venta mapResultSetToVenta(ResultSet rs) throws SQLException {
+    Venta mapResultSetToVenta(ResultSet rs) throws SQLException {
         Venta venta = new Venta(
             rs.getInt("id_venta"),
             rs.getInt("id_cliente"),
@@ -575,23 +1065,7 @@ public class VentaDao implements Dao<Venta, Integer> {
      * @return Total de ventas del día
      */
     public double getTotalVentasPorDia(LocalDate fecha) {
-        String sql = "SELECT COALESCE(SUM(total), 0) FROM ventas WHERE DATE(fecha) = ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setDate(1, Date.valueOf(fecha));
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getDouble(1);
-                }
-            }
-        } catch (SQLException e) {
-            logger.error("Error al obtener total de ventas por día: " + fecha, e);
-        }
-        
-        return 0.0;
+        return resumenVentasDao.obtenerTotal(fecha, fecha);
     }
     
     /**
@@ -601,24 +1075,8 @@ public class VentaDao implements Dao<Venta, Integer> {
      * @return Total de ventas del mes
      */
     public double getTotalVentasPorMes(int año, int mes) {
-        String sql = "SELECT COALESCE(SUM(total), 0) FROM ventas WHERE EXTRACT(YEAR FROM fecha) = ? AND EXTRACT(MONTH FROM fecha) = ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, año);
-            stmt.setInt(2, mes);
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getDouble(1);
-                }
-            }
-        } catch (SQLException e) {
-            logger.error("Error al obtener total de ventas por mes: " + mes + "/" + año, e);
-        }
-        
-        return 0.0;
+        LocalDate primerDia = LocalDate.of(año, mes, 1);
+        return resumenVentasDao.obtenerTotal(primerDia, primerDia.plusMonths(1).minusDays(1));
     }
     
     /**
@@ -627,22 +1085,15 @@ public class VentaDao implements Dao<Venta, Integer> {
      * @return Número de ventas del día
      */
     public int getNumeroVentasPorDia(LocalDate fecha) {
-        String sql = "SELECT COUNT(*) FROM ventas WHERE DATE(fecha) = ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setDate(1, Date.valueOf(fecha));
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt(1);
-                }
-            }
-        } catch (SQLException e) {
-            logger.error("Error al obtener número de ventas por día: " + fecha, e);
-        }
-        
-        return 0;
+        return resumenVentasDao.obtenerNumeroVentas(fecha, fecha);
+    }
+
+    /**
+     * Inicio del día como marca de tiempo. Los filtros por fecha usan rangos semiabiertos
+     * (fecha >= inicio AND fecha < fin) sobre la columna sin funciones, para que PostgreSQL
+     * pueda usar el índice de ventas.fecha; DATE(fecha) o EXTRACT obligan a recorrer la tabla.
+     */
+    private static Timestamp inicioDelDia(LocalDate fecha) {
+        return Timestamp.valueOf(fecha.atStartOfDay());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,39 @@
+package com.mistrapitos.models;
+
+/**
+ * Modelo que describe una línea de venta sin stock suficiente.
+ */
+public class FaltanteStock {
+    private final int idProducto;
+    private final String nombre;
+    private final int solicitado;
+    private final int disponible;
+
+    public FaltanteStock(int idProducto, String nombre, int solicitado, int disponible) {
+        this.idProducto = idProducto;
+        this.nombre = nombre;
+        this.solicitado = solicitado;
+        this.disponible = disponible;
+    }
+
+    public int getIdProducto() {
+        return idProducto;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public int getSolicitado() {
+        return solicitado;
+    }
+
+    public int getDisponible() {
+        return disponible;
+    }
+
+    @Override
+    public String toString() {
+        return nombre + " (solicitado: " + solicitado + ", disponible: " + disponible + ")";
+    }
+}
@@ -0,0 +1,69 @@
+package com.mistrapitos.models;
+
+import java.time.LocalDate;
+
+/**
+ * Criterios para consultar ventas por páginas. Los campos nulos no filtran.
+ */
+public class FiltroVentas {
+
+    private final LocalDate desde;
+    private final LocalDate hasta;
+    private final Integer idCliente;
+    private final String metodoPago;
+    private final String texto;
+
+    private FiltroVentas(LocalDate desde, LocalDate hasta, Integer idCliente, String metodoPago, String texto) {
+        this.desde = desde;
+        this.hasta = hasta;
+        this.idCliente = idCliente;
+        this.metodoPago = metodoPago;
+        this.texto = texto;
+    }
+
+    /**
+     * @return Filtro sin criterios (todas las ventas)
+     */
+    public static FiltroVentas todas() {
+        return new FiltroVentas(null, null, null, null, null);
+    }
+
+    /**
+     * @param desde Fecha de inicio (inclusive)
+     * @param hasta Fecha de fin (inclusive)
+     * @return Filtro por rango de fechas
+     */
+    public static FiltroVentas rangoFechas(LocalDate desde, LocalDate hasta) {
+        return new FiltroVentas(desde, hasta, null, null, null);
+    }
+
+    /**
+     * @param idCliente ID del cliente
+     * @return Filtro por cliente
+     */
+    public static FiltroVentas cliente(int idCliente) {
+        return new FiltroVentas(null, null, idCliente, null, null);
+    }
+
+    /**
+     * @param metodoPago Método de pago exacto
+     * @return Filtro por método de pago
+     */
+    public static FiltroVentas metodoPago(String metodoPago) {
+        return new FiltroVentas(null, null, null, metodoPago, null);
+    }
+
+    /**
+     * @param texto Texto a buscar en el nombre del cliente o el método de pago
+     * @return Filtro por texto, sin distinguir mayúsculas
+     */
+    public static FiltroVentas texto(String texto) {
+        return new FiltroVentas(null, null, null, null, texto);
+    }
+
+    public LocalDate getDesde() { return desde; }
+    public LocalDate getHasta() { return hasta; }
+    public Integer getIdCliente() { return idCliente; }
+    public String getMetodoPago() { return metodoPago; }
+    public String getTexto() { return texto; }
+}
@@ -0,0 +1,61 @@
+package com.mistrapitos.models;
+
+import java.time.LocalDateTime;
+
+/**
+ * Modelo para el reporte de productos sin ventas (inventario inmóvil).
+ */
+public class ProductoSinVentaResumen {
+    private final int idProducto;
+    private final String nombre;
+    private final String categoria;
+    private final int stock;
+    private final double precio;
+    private final LocalDateTime ultimaVenta;
+    private final double valorInventario;
+
+    public ProductoSinVentaResumen(int idProducto, String nombre, String categoria, int stock, double precio,
+                                   LocalDateTime ultimaVenta, double valorInventario) {
+        this.idProducto = idProducto;
+        this.nombre = nombre;
+        this.categoria = categoria;
+        this.stock = stock;
+        this.precio = precio;
+        this.ultimaVenta = ultimaVenta;
+        this.valorInventario = valorInventario;
+    }
+
+    public int getIdProducto() {
+        return idProducto;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public String getCategoria() {
+        return categoria;
+    }
+
+    public int getStock() {
+        return stock;
+    }
+
+    public double getPrecio() {
+        return precio;
+    }
+
+    /**
+     * @return Fecha de la última venta, o null si el producto nunca se ha vendido
+     */
+    public LocalDateTime getUltimaVenta() {
+        return ultimaVenta;
+    }
+
+    /**
+     * @return Stock por precio: lo que vale el inventario que no se ha movido
+     */
+    public double getValorInventario() {
+        return valorInventario;
+    }
+}
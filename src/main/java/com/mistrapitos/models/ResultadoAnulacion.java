@@ -0,0 +1,63 @@
+package com.mistrapitos.models;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultado de anular varias ventas a la vez: qué ventas se eliminaron y cuánto stock se
+ * devolvió a cada producto. En una simulación los datos son los mismos, pero no se guardó nada.
+ */
+public class ResultadoAnulacion {
+    private final boolean simulacion;
+    private final List<Integer> idsVentas;
+    private final int lineas;
+    private final double total;
+    private final Map<Integer, Integer> stockRestaurado;
+
+    /**
+     * @param simulacion true si no se aplicó ningún cambio
+     * @param idsVentas IDs de las ventas anuladas, en orden ascendente
+     * @param lineas Número de detalles eliminados
+     * @param total Suma de los totales de las ventas
+     * @param stockRestaurado Unidades devueltas por ID de producto
+     */
+    public ResultadoAnulacion(boolean simulacion, List<Integer> idsVentas, int lineas, double total,
+                              Map<Integer, Integer> stockRestaurado) {
+        this.simulacion = simulacion;
+        this.idsVentas = Collections.unmodifiableList(idsVentas);
+        this.lineas = lineas;
+        this.total = total;
+        this.stockRestaurado = Collections.unmodifiableMap(stockRestaurado);
+    }
+
+    public boolean isSimulacion() {
+        return simulacion;
+    }
+
+    public List<Integer> getIdsVentas() {
+        return idsVentas;
+    }
+
+    public int getVentas() {
+        return idsVentas.size();
+    }
+
+    public int getLineas() {
+        return lineas;
+    }
+
+    public double getTotal() {
+        return total;
+    }
+
+    public Map<Integer, Integer> getStockRestaurado() {
+        return stockRestaurado;
+    }
+
+    @Override
+    public String toString() {
+        return (simulacion ? "Simulación: " : "") + idsVentas.size() + " ventas, " + lineas + " líneas, " +
+                stockRestaurado.size() + " productos con stock restaurado, total " + total;
+    }
+}
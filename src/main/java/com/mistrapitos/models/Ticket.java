@@ -0,0 +1,142 @@
+package com.mistrapitos.models;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Datos de un ticket de venta, independientes del formato en que se imprima
+ * (texto, ESC/POS o PDF).
+ */
+public class Ticket {
+    private final int numero;
+    private final LocalDateTime fecha;
+    private final String cliente;
+    private final String telefono;
+    private final String atiende;
+    private final String metodoPago;
+    private final List<Linea> lineas;
+    private final double total;
+
+    /**
+     * @param numero ID de la venta, o 0 si aún no tiene
+     * @param cliente Nombre del cliente, o null
+     * @param telefono Teléfono del cliente, o null
+     * @param atiende Usuario que cobró, o null
+     * @param metodoPago Método de pago, o null
+     */
+    public Ticket(int numero, LocalDateTime fecha, String cliente, String telefono, String atiende,
+                  String metodoPago, List<Linea> lineas, double total) {
+        this.numero = numero;
+        this.fecha = fecha;
+        this.cliente = cliente;
+        this.telefono = telefono;
+        this.atiende = atiende;
+        this.metodoPago = metodoPago;
+        this.lineas = Collections.unmodifiableList(lineas);
+        this.total = total;
+    }
+
+    /**
+     * Ticket de una venta registrada, con sus detalles.
+     */
+    public static Ticket deVenta(Venta venta, Optional<Cliente> cliente) {
+        List<Linea> lineas = new ArrayList<>(venta.getDetalles().size());
+        for (DetalleVenta detalle : venta.getDetalles()) {
+            lineas.add(new Linea(detalle.getProductoNombre(), detalle.getCantidad(),
+                    detalle.getPrecioConDescuento(), detalle.getDescuentoAplicado(), detalle.getSubtotal()));
+        }
+        return new Ticket(venta.getIdVenta(), venta.getFecha(),
+                cliente.map(Cliente::getNombre).orElse(null),
+                cliente.map(Cliente::getTelefono).orElse(null),
+                null, venta.getMetodoPago(), lineas, venta.getTotal());
+    }
+
+    /**
+     * Ticket del carrito en pantalla, fechado ahora; el total es la suma de los subtotales.
+     */
+    public static Ticket deCarrito(List<ProductoEnCarrito> carrito, String cliente, Usuario usuario) {
+        List<Linea> lineas = new ArrayList<>(carrito.size());
+        double total = 0;
+        for (ProductoEnCarrito p : carrito) {
+            double precio = p.getPrecioUnitario() * (1 - p.getDescuento() / 100.0);
+            lineas.add(new Linea(p.getNombre(), p.getCantidad(), precio, p.getDescuento(), p.getSubtotal()));
+            total += p.getSubtotal();
+        }
+        return new Ticket(0, LocalDateTime.now(), cliente, null,
+                usuario != null ? usuario.getNombreUsuario() : null, null, lineas, total);
+    }
+
+    public int getNumero() {
+        return numero;
+    }
+
+    public LocalDateTime getFecha() {
+        return fecha;
+    }
+
+    public String getCliente() {
+        return cliente;
+    }
+
+    public String getTelefono() {
+        return telefono;
+    }
+
+    public String getAtiende() {
+        return atiende;
+    }
+
+    public String getMetodoPago() {
+        return metodoPago;
+    }
+
+    public List<Linea> getLineas() {
+        return lineas;
+    }
+
+    public double getTotal() {
+        return total;
+    }
+
+    /**
+     * Una línea del ticket: producto, cantidad y precio ya con el descuento aplicado.
+     */
+    public static class Linea {
+        private final String producto;
+        private final int cantidad;
+        private final double precio;
+        private final double descuento;
+        private final double subtotal;
+
+        public Linea(String producto, int cantidad, double precio, double descuento, double subtotal) {
+            this.producto = producto;
+            this.cantidad = cantidad;
+            this.precio = precio;
+            this.descuento = descuento;
+            this.subtotal = subtotal;
+        }
+
+        public String getProducto() {
+            return producto;
+        }
+
+        public int getCantidad() {
+            return cantidad;
+        }
+
+        public double getPrecio() {
+            return precio;
+        }
+
+        public double getDescuento() {
+            return descuento;
+        }
+
+        public double getSubtotal() {
+            return subtotal;
+        }
+    }
+}
@@ -7,6 +7,7 @@ import javafx.collections.ObservableList;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 /**
  * Modelo que representa una venta.
@@ -23,6 +24,9 @@ public class Venta {
     private final StringProperty clienteNombre;
     private final ObservableList<DetalleVenta> detalles;
     
+    // Identificador generado en la caja; null en ventas anteriores a su introducción
+    private UUID uuid;
+    
     /**
      * Constructor por defecto.
      */
@@ -126,6 +130,15 @@ public class Venta {
         return clienteNombre;
     }
     
+    // Getters y setters para uuid
+    public UUID getUuid() {
+        return uuid;
+    }
+    
+    public void setUuid(UUID uuid) {
+        this.uuid = uuid;
+    }
+    
     // Getters y setters para detalles
     public ObservableList<DetalleVenta> getDetalles() {
         return detalles;
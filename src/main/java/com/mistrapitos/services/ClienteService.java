@@ -4,9 +4,11 @@ import com.mistrapitos.dao.ClienteDao;
 import com.mistrapitos.dao.VentaDao;
 import com.mistrapitos.models.Cliente;
 import com.mistrapitos.models.Venta;
+import com.mistrapitos.utils.Configuracion;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.mistrapitos.utils.DatabaseUtil;
+import com.mistrapitos.utils.Metricas;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -20,8 +22,10 @@ import java.util.Optional;
 public class ClienteService {
 
     private static final Logger logger = LoggerFactory.getLogger(ClienteService.class);
+    private static final int LIMITE_BUSQUEDA = Math.max(1, Configuracion.entero("busqueda.limite", 200));
     private final ClienteDao clienteDao;
     private final VentaDao ventaDao;
+    private final DirectorioClientes directorio = DirectorioClientes.getInstancia();
 
     /**
      * Constructor.
@@ -44,8 +48,8 @@ public class ClienteService {
                 int id = Integer.parseInt(nombreOId);
                 return clienteDao.findById(id);
             }
-            // Buscar por nombre exacto
-            List<Cliente> lista = clienteDao.findByTermino(nombreOId);
+            // Buscar por nombre exacto entre los más parecidos
+            List<Cliente> lista = clienteDao.findByTermino(nombreOId, LIMITE_BUSQUEDA);
             // Si hay coincidencia exacta, la retorna
             for (Cliente c : lista) {
                 if (c.getNombre().equalsIgnoreCase(nombreOId)) {
@@ -71,7 +75,7 @@ public class ClienteService {
                 logger.warn("El nombre del cliente es obligatorio");
                 throw new IllegalArgumentException("El nombre del cliente es obligatorio");
             }
-            return clienteDao.save(cliente);
+            return registrarEnDirectorio(clienteDao.save(cliente));
         } catch (Exception e) {
             logger.error("Error al registrar cliente", e);
             return null;
@@ -89,7 +93,7 @@ public class ClienteService {
     }
 
     public List<Cliente> buscarPorTermino(String termino) {
-        return clienteDao.findByTermino(termino);
+        return clienteDao.findByTermino(termino, LIMITE_BUSQUEDA);
     }
 
     public Cliente guardar(Cliente cliente) {
@@ -97,7 +101,7 @@ public class ClienteService {
             logger.warn("El nombre del cliente es obligatorio");
             throw new IllegalArgumentException("El nombre del cliente es obligatorio");
         }
-        return clienteDao.save(cliente);
+        return registrarEnDirectorio(clienteDao.save(cliente));
     }
 
     public Cliente actualizar(Cliente cliente) {
@@ -110,7 +114,15 @@ public class ClienteService {
             logger.warn("El nombre del cliente es obligatorio");
             throw new IllegalArgumentException("El nombre del cliente es obligatorio");
         }
-        return clienteDao.update(cliente);
+        return registrarEnDirectorio(clienteDao.update(cliente));
+    }
+
+    // Mantiene al día el directorio de autocompletado sin volver a leer la tabla
+    private Cliente registrarEnDirectorio(Cliente cliente) {
+        if (cliente != null) {
+            directorio.actualizar(cliente);
+        }
+        return cliente;
     }
     /**
      * Obtiene una lista de todas las ciudades únicas de los clientes
@@ -123,9 +135,12 @@ public class ClienteService {
              PreparedStatement stmt = conn.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
 
+            int leidas = 0;
             while (rs.next()) {
+                leidas++;
                 ciudades.add(rs.getString("ciudad"));
             }
+            Metricas.filasLeidas(stmt, leidas);
         } catch (Exception e) {
             logger.error("Error al obtener ciudades únicas", e);
         }
@@ -142,21 +157,43 @@ public class ClienteService {
             logger.warn("El cliente tiene ventas asociadas y no puede ser eliminado: " + id);
             throw new IllegalArgumentException("El cliente tiene ventas asociadas y no puede ser eliminado");
         }
-        return clienteDao.delete(id);
+        boolean eliminado = clienteDao.delete(id);
+        if (eliminado) {
+            directorio.quitar(id);
+        }
+        return eliminado;
     }
 
+    /**
+     * Obtiene todas las compras de un cliente con sus detalles, de la más reciente a la más antigua.
+     * @param idCliente ID del cliente
+     * @return Ventas del cliente con sus detalles
+     */
     public List<Venta> obtenerHistorialCompras(int idCliente) {
+        validarClienteExiste(idCliente);
+        return ventaDao.findByClienteConDetalles(idCliente);
+    }
+
+    /**
+     * Obtiene una página del historial de compras de un cliente, de la más reciente a la más antigua.
+     * @param idCliente ID del cliente
+     * @param ultima Última venta de la página anterior, o null para la primera página
+     * @param tamano Número máximo de ventas de la página
+     * @return Ventas de la página con sus detalles; si son menos que tamano no hay más páginas
+     */
+    public List<Venta> obtenerHistorialCompras(int idCliente, Venta ultima, int tamano) {
+        if (tamano <= 0) {
+            throw new IllegalArgumentException("El tamaño de página debe ser mayor que cero");
+        }
+        validarClienteExiste(idCliente);
+        return ventaDao.findPaginaClienteConDetalles(idCliente, ultima, tamano);
+    }
+
+    private void validarClienteExiste(int idCliente) {
         Optional<Cliente> existente = clienteDao.findById(idCliente);
         if (!existente.isPresent()) {
             logger.warn("No se encontró el cliente con ID: " + idCliente);
             throw new IllegalArgumentException("No se encontró el cliente");
         }
-        List<Integer> idsVentas = clienteDao.getHistorialCompras(idCliente);
-        List<Venta> ventas = new ArrayList<>();
-        for (Integer idVenta : idsVentas) {
-            Optional<Venta> venta = ventaDao.findById(idVenta);
-            venta.ifPresent(ventas::add);
-        }
-        return ventas;
     }
 }
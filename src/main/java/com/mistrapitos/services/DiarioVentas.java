@@ -0,0 +1,550 @@
+package com.mistrapitos.services;
+
+import com.mistrapitos.dao.ClienteDao;
+import com.mistrapitos.dao.ProductoDao;
+import com.mistrapitos.dao.ResumenVentasDao;
+import com.mistrapitos.dao.VentaDao;
+import com.mistrapitos.models.Cliente;
+import com.mistrapitos.models.FaltanteStock;
+import com.mistrapitos.models.ProductoEnCarrito;
+import com.mistrapitos.models.Venta;
+import com.mistrapitos.utils.Configuracion;
+import com.mistrapitos.utils.DatabaseUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Diario local de ventas para seguir cobrando cuando la base de datos no está disponible.
+ * <p>
+ * La venta se agrega a un archivo de solo anexar en la caja y se fuerza a disco antes de
+ * dar el cobro por bueno. Un hilo de fondo reenvía las ventas pendientes en lotes. Cada
+ * venta lleva un UUID generado en la caja, así que reenviar una que ya había llegado (por
+ * ejemplo si la aplicación se cerró entre el commit y la marca en el diario) no la duplica.
+ * <p>
+ * Cada registro se guarda como [longitud][CRC32][datos]; si la caja se apaga a media
+ * escritura, el registro incompleto del final se descarta al abrir. Cuando ya no quedan
+ * pendientes el archivo se vacía.
+ * <p>
+ * Las ventas del diario ya se cobraron, así que al enviarlas no se rechazan por falta de
+ * stock: el stock se descuenta aunque quede negativo y la venta se anota en
+ * ventas-sin-stock.txt para revisar el inventario.
+ */
+public class DiarioVentas {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiarioVentas.class);
+    private static final DiarioVentas instancia = new DiarioVentas(Paths.get(Configuracion.texto("diario.directorio",
+            Paths.get(System.getProperty("user.home"), "MisTrapitos", "diario").toString())));
+
+    private static final byte TIPO_VENTA = 1;
+    private static final byte TIPO_SINCRONIZADAS = 2;
+    private static final byte TIPO_RECHAZADAS = 3;
+    private static final int VENTAS_POR_LOTE = 50;
+    private static final long SEGUNDOS_ENTRE_INTENTOS = 15;
+    // Ningún registro válido se acerca a este tamaño; uno mayor indica un archivo dañado
+    private static final int LONGITUD_MAXIMA = 1 << 20;
+
+    /**
+     * Venta cobrada en la caja que todavía no está en la base de datos.
+     * @param cliente Copia del cliente al momento del cobro; con ID 0 se registra al enviarla
+     */
+    public record VentaPendiente(UUID uuid, LocalDateTime fecha, Cliente cliente, String metodoPago,
+                                 double total, List<ProductoEnCarrito> productos) {
+    }
+
+    private final Path archivo;
+    private final Path archivoRechazadas;
+    private final Path archivoSinStock;
+    private final VentaDao ventaDao = new VentaDao();
+    private final ClienteDao clienteDao = new ClienteDao();
+    private final ProductoDao productoDao = new ProductoDao();
+    private final ResumenVentasDao resumenVentasDao = new ResumenVentasDao();
+
+    // Protegidos por this
+    private final Map<UUID, VentaPendiente> pendientes = new LinkedHashMap<>();
+    private FileChannel canal;
+    private ScheduledExecutorService programador;
+
+    private final Object bloqueoSincronizacion = new Object();
+
+    DiarioVentas(Path directorio) {
+        this.archivo = directorio.resolve("ventas.diario");
+        this.archivoRechazadas = directorio.resolve("ventas-rechazadas.txt");
+        this.archivoSinStock = directorio.resolve("ventas-sin-stock.txt");
+    }
+
+    /**
+     * Obtiene la instancia compartida del diario.
+     * @return Diario de ventas de esta caja
+     */
+    public static DiarioVentas getInstancia() {
+        return instancia;
+    }
+
+    /**
+     * Abre el diario, recupera las ventas pendientes de una sesión anterior y programa
+     * su envío en segundo plano.
+     */
+    public synchronized void iniciar() {
+        if (programador != null) {
+            return;
+        }
+        try {
+            abrir();
+        } catch (IOException e) {
+            logger.error("No se pudo abrir el diario local de ventas en {}", archivo, e);
+        }
+        programador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "diario-ventas");
+            t.setDaemon(true);
+            return t;
+        });
+        programador.scheduleWithFixedDelay(this::sincronizar, 0, SEGUNDOS_ENTRE_INTENTOS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Detiene el envío en segundo plano y cierra el archivo. Las ventas pendientes se
+     * envían en la siguiente sesión.
+     */
+    public synchronized void detener() {
+        if (programador != null) {
+            programador.shutdownNow();
+            programador = null;
+        }
+        if (canal != null) {
+            try {
+                canal.close();
+            } catch (IOException e) {
+                logger.warn("Error al cerrar el diario local de ventas", e);
+            }
+            canal = null;
+        }
+    }
+
+    /**
+     * Pide un envío de las ventas pendientes en segundo plano, sin esperar al siguiente
+     * intento programado. Se usa cuando un cobro en línea muestra que la base ya responde.
+     */
+    public synchronized void programarEnvio() {
+        if (programador != null && !pendientes.isEmpty()) {
+            programador.execute(this::sincronizar);
+        }
+    }
+
+    /**
+     * Guarda una venta en el diario. Al volver el método, la venta ya está en disco.
+     * @param venta Venta cobrada
+     * @throws IOException Si no se pudo escribir en el disco de la caja
+     */
+    public synchronized void registrar(VentaPendiente venta) throws IOException {
+        if (canal == null) {
+            abrir();
+        }
+        escribir(serializar(venta));
+        pendientes.put(venta.uuid(), venta);
+        logger.warn("Venta {} guardada en el diario local; {} pendientes de enviar", venta.uuid(), pendientes.size());
+    }
+
+    /**
+     * @return true si hay ventas cobradas que aún no llegan a la base de datos
+     */
+    public synchronized boolean hayPendientes() {
+        return !pendientes.isEmpty();
+    }
+
+    public synchronized int getPendientes() {
+        return pendientes.size();
+    }
+
+    /**
+     * Envía a la base de datos las ventas pendientes, en lotes y en orden de cobro. Se
+     * detiene sin error si la base sigue sin responder. La falta de stock no impide enviar
+     * una venta (ver {@link #aplicar}); solo una venta que la base no puede guardar (por
+     * ejemplo porque su producto se eliminó) se aparta en ventas-rechazadas.txt para que no
+     * bloquee a las demás.
+     * @return Número de ventas enviadas
+     */
+    public int sincronizar() {
+        synchronized (bloqueoSincronizacion) {
+            int enviadas = 0;
+            try {
+                List<VentaPendiente> lote;
+                while (!(lote = siguienteLote()).isEmpty()) {
+                    try {
+                        aplicar(lote);
+                    } catch (SQLException | RuntimeException e) {
+                        if (DatabaseUtil.esFallaDeConexion(e) || !baseDisponible()) {
+                            logger.info("Sin conexión con la base de datos; {} ventas siguen en el diario local", getPendientes());
+                            break;
+                        }
+                        logger.warn("Falló el envío de un lote del diario local; se reintenta venta por venta", e);
+                        enviadas += aplicarUnaPorUna(lote);
+                        if (lote.stream().anyMatch(this::sigue)) {
+                            break;
+                        }
+                        continue;
+                    }
+                    marcar(lote, TIPO_SINCRONIZADAS);
+                    enviadas += lote.size();
+                }
+            } catch (IOException e) {
+                logger.error("No se pudo actualizar el diario local de ventas", e);
+            }
+            if (enviadas > 0) {
+                logger.info("{} ventas del diario local enviadas a la base de datos", enviadas);
+            }
+            return enviadas;
+        }
+    }
+
+    /**
+     * Envía las ventas del lote por separado para apartar solo las que la base rechaza.
+     * Se detiene si se pierde la conexión; las que falten siguen pendientes.
+     * @return Número de ventas enviadas
+     */
+    private int aplicarUnaPorUna(List<VentaPendiente> lote) throws IOException {
+        int enviadas = 0;
+        for (VentaPendiente venta : lote) {
+            try {
+                aplicar(List.of(venta));
+            } catch (SQLException | RuntimeException e) {
+                if (DatabaseUtil.esFallaDeConexion(e) || !baseDisponible()) {
+                    break;
+                }
+                logger.error("La base de datos rechazó la venta {} del diario local; se aparta en {}",
+                        venta.uuid(), archivoRechazadas, e);
+                apartar(venta, e);
+                marcar(List.of(venta), TIPO_RECHAZADAS);
+                continue;
+            }
+            marcar(List.of(venta), TIPO_SINCRONIZADAS);
+            enviadas++;
+        }
+        return enviadas;
+    }
+
+    private synchronized boolean sigue(VentaPendiente venta) {
+        return pendientes.containsKey(venta.uuid());
+    }
+
+    private synchronized List<VentaPendiente> siguienteLote() {
+        return pendientes.values().stream().limit(VENTAS_POR_LOTE).toList();
+    }
+
+    /**
+     * Inserta en una sola transacción las ventas del lote que aún no existen: clientes
+     * nuevos, ventas y detalles en lote, descuento de stock y resúmenes. A diferencia de un
+     * cobro en línea, el stock se descuenta aunque no alcance (otra caja vendió esas piezas
+     * mientras tanto): la venta ya se cobró y el cliente se fue, así que se guarda igual, el
+     * producto queda con stock negativo y la venta se anota en ventas-sin-stock.txt.
+     */
+    private void aplicar(List<VentaPendiente> lote) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Set<UUID> existentes = ventaDao.findUuidsExistentes(
+                        lote.stream().map(VentaPendiente::uuid).toList(), conn);
+                List<VentaPendiente> nuevas = lote.stream().filter(v -> !existentes.contains(v.uuid())).toList();
+
+                List<Venta> ventas = new ArrayList<>(nuevas.size());
+                for (VentaPendiente pendiente : nuevas) {
+                    Venta venta = new Venta(0, idCliente(pendiente.cliente(), conn), pendiente.fecha(),
+                            pendiente.metodoPago(), pendiente.total());
+                    venta.setUuid(pendiente.uuid());
+                    ventas.add(venta);
+                }
+                ventaDao.insertarLote(ventas, conn);
+
+                Map<Integer, List<ProductoEnCarrito>> productosPorVenta = new LinkedHashMap<>();
+                Map<Integer, Integer> cantidades = new TreeMap<>();
+                for (int i = 0; i < nuevas.size(); i++) {
+                    productosPorVenta.put(ventas.get(i).getIdVenta(), nuevas.get(i).productos());
+                    for (ProductoEnCarrito item : nuevas.get(i).productos()) {
+                        cantidades.merge(item.getIdProducto(), item.getCantidad(), Integer::sum);
+                    }
+                }
+                ventaDao.insertarDetallesVentas(productosPorVenta, conn);
+                List<FaltanteStock> faltantes = productoDao.descontarStockForzado(cantidades, conn);
+                for (Venta venta : ventas) {
+                    resumenVentasDao.sumarVenta(venta.getIdVenta(), conn);
+                }
+                conn.commit();
+
+                if (!existentes.isEmpty()) {
+                    logger.info("{} ventas del diario local ya estaban en la base de datos", existentes.size());
+                }
+                if (!faltantes.isEmpty()) {
+                    anotarSinStock(nuevas, faltantes);
+                }
+                IndiceBarcode.getInstancia().programarRefresco(cantidades.keySet());
+            } catch (SQLException | RuntimeException e) {
+                try { conn.rollback(); } catch (SQLException ignored) {}
+                throw e;
+            }
+        }
+    }
+
+    private int idCliente(Cliente cliente, Connection conn) throws SQLException {
+        if (cliente == null) {
+            return 0;
+        }
+        if (cliente.getIdCliente() > 0) {
+            return cliente.getIdCliente();
+        }
+        // Se inserta una copia: si la transacción se revierte, la venta pendiente no debe quedar con un ID inválido
+        int id = clienteDao.insertar(copiar(cliente), conn);
+        if (id <= 0) {
+            throw new SQLException("No se pudo registrar el cliente " + cliente.getNombre());
+        }
+        return id;
+    }
+
+    private boolean baseDisponible() {
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            return conn.isValid(2);
+        } catch (SQLException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    private synchronized void marcar(List<VentaPendiente> ventas, byte tipo) throws IOException {
+        if (canal == null) {
+            abrir();
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(tipo);
+        out.writeInt(ventas.size());
+        for (VentaPendiente venta : ventas) {
+            escribirUuid(out, venta.uuid());
+        }
+        escribir(bytes.toByteArray());
+        ventas.forEach(v -> pendientes.remove(v.uuid()));
+        if (pendientes.isEmpty()) {
+            // Todo lo escrito ya está en la base de datos (o apartado): se empieza un archivo nuevo
+            canal.truncate(0);
+            canal.position(0);
+            canal.force(true);
+        }
+    }
+
+    private void apartar(VentaPendiente venta, Exception causa) throws IOException {
+        StringBuilder linea = new StringBuilder()
+                .append(venta.uuid()).append(';').append(venta.fecha()).append(';')
+                .append(venta.cliente() != null ? venta.cliente().getNombre() : "").append(';')
+                .append(venta.metodoPago()).append(';').append(venta.total()).append(';');
+        for (ProductoEnCarrito item : venta.productos()) {
+            linea.append(item.getIdProducto()).append('x').append(item.getCantidad())
+                    .append('@').append(item.getPrecioUnitario()).append(' ');
+        }
+        linea.append(';').append(causa.getMessage()).append(System.lineSeparator());
+        Files.writeString(archivoRechazadas, linea, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+    }
+
+    /**
+     * Anota las ventas ya guardadas que dejaron productos con stock negativo, una línea por
+     * venta y producto. Si no se puede escribir se registra en el log: la venta ya está en la
+     * base de datos y el stock negativo se ve en el inventario.
+     */
+    private void anotarSinStock(List<VentaPendiente> ventas, List<FaltanteStock> faltantes) {
+        StringBuilder lineas = new StringBuilder();
+        for (FaltanteStock faltante : faltantes) {
+            for (VentaPendiente venta : ventas) {
+                for (ProductoEnCarrito item : venta.productos()) {
+                    if (item.getIdProducto() == faltante.getIdProducto()) {
+                        lineas.append(venta.uuid()).append(';').append(venta.fecha()).append(';')
+                                .append(item.getIdProducto()).append('x').append(item.getCantidad()).append(';')
+                                .append(faltante).append(System.lineSeparator());
+                    }
+                }
+            }
+        }
+        logger.warn("Ventas del diario local guardadas sin stock suficiente, el stock quedó negativo: {}", faltantes);
+        try {
+            Files.writeString(archivoSinStock, lineas, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+        } catch (IOException e) {
+            logger.error("No se pudo anotar en {} las ventas sin stock:{}{}", archivoSinStock,
+                    System.lineSeparator(), lineas, e);
+        }
+    }
+
+    private void abrir() throws IOException {
+        Files.createDirectories(archivo.getParent());
+        canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer contenido = ByteBuffer.allocate((int) canal.size());
+        while (contenido.hasRemaining()) {
+            if (canal.read(contenido, contenido.position()) < 0) {
+                break;
+            }
+        }
+        contenido.flip();
+        long valido = leerRegistros(contenido);
+        if (valido < canal.size()) {
+            logger.warn("Se descartaron {} bytes incompletos al final del diario local de ventas", canal.size() - valido);
+            canal.truncate(valido);
+            canal.force(true);
+        }
+        canal.position(valido);
+        if (!pendientes.isEmpty()) {
+            logger.warn("El diario local tiene {} ventas pendientes de enviar", pendientes.size());
+        }
+    }
+
+    /**
+     * @return Bytes del archivo que contienen registros completos y válidos
+     */
+    private long leerRegistros(ByteBuffer contenido) throws IOException {
+        long valido = 0;
+        CRC32 crc = new CRC32();
+        while (contenido.remaining() >= Integer.BYTES * 2) {
+            int longitud = contenido.getInt();
+            int suma = contenido.getInt();
+            if (longitud <= 0 || longitud > LONGITUD_MAXIMA || longitud > contenido.remaining()) {
+                break;
+            }
+            byte[] datos = new byte[longitud];
+            contenido.get(datos);
+            crc.reset();
+            crc.update(datos);
+            if ((int) crc.getValue() != suma) {
+                break;
+            }
+            aplicarRegistro(datos);
+            valido = contenido.position();
+        }
+        return valido;
+    }
+
+    private void aplicarRegistro(byte[] datos) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(datos));
+        byte tipo = in.readByte();
+        if (tipo == TIPO_VENTA) {
+            VentaPendiente venta = leerVenta(in);
+            pendientes.put(venta.uuid(), venta);
+        } else {
+            int cantidad = in.readInt();
+            for (int i = 0; i < cantidad; i++) {
+                pendientes.remove(leerUuid(in));
+            }
+        }
+    }
+
+    private void escribir(byte[] datos) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(datos);
+        ByteBuffer registro = ByteBuffer.allocate(Integer.BYTES * 2 + datos.length);
+        registro.putInt(datos.length).putInt((int) crc.getValue()).put(datos).flip();
+        while (registro.hasRemaining()) {
+            canal.write(registro);
+        }
+        canal.force(false);
+    }
+
+    private static byte[] serializar(VentaPendiente venta) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(TIPO_VENTA);
+        escribirUuid(out, venta.uuid());
+        out.writeUTF(venta.fecha().toString());
+        Cliente cliente = venta.cliente();
+        out.writeBoolean(cliente != null);
+        if (cliente != null) {
+            out.writeInt(cliente.getIdCliente());
+            escribirTexto(out, cliente.getNombre());
+            escribirTexto(out, cliente.getDireccion());
+            escribirTexto(out, cliente.getCorreo());
+            escribirTexto(out, cliente.getTelefono());
+            escribirTexto(out, cliente.getCiudad());
+        }
+        escribirTexto(out, venta.metodoPago());
+        out.writeDouble(venta.total());
+        out.writeInt(venta.productos().size());
+        for (ProductoEnCarrito item : venta.productos()) {
+            out.writeInt(item.getIdProducto());
+            escribirTexto(out, item.getNombre());
+            out.writeInt(item.getCantidad());
+            out.writeDouble(item.getPrecioUnitario());
+            out.writeDouble(item.getDescuento());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static VentaPendiente leerVenta(DataInputStream in) throws IOException {
+        UUID uuid = leerUuid(in);
+        LocalDateTime fecha = LocalDateTime.parse(in.readUTF());
+        Cliente cliente = null;
+        if (in.readBoolean()) {
+            cliente = new Cliente(in.readInt(), leerTexto(in), leerTexto(in), leerTexto(in), leerTexto(in), leerTexto(in));
+        }
+        String metodoPago = leerTexto(in);
+        double total = in.readDouble();
+        int lineas = in.readInt();
+        List<ProductoEnCarrito> productos = new ArrayList<>(lineas);
+        for (int i = 0; i < lineas; i++) {
+            ProductoEnCarrito item = new ProductoEnCarrito();
+            item.setIdProducto(in.readInt());
+            item.setNombre(leerTexto(in));
+            item.setCantidad(in.readInt());
+            item.setPrecioUnitario(in.readDouble());
+            item.setDescuento(in.readDouble());
+            productos.add(item);
+        }
+        return new VentaPendiente(uuid, fecha, cliente, metodoPago, total, productos);
+    }
+
+    /**
+     * @return Copia del cliente con los datos que se guardan en el diario
+     */
+    static Cliente copiar(Cliente cliente) {
+        return new Cliente(cliente.getIdCliente(), cliente.getNombre(), cliente.getDireccion(),
+                cliente.getCorreo(), cliente.getTelefono(), cliente.getCiudad());
+    }
+
+    private static void escribirUuid(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID leerUuid(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    private static void escribirTexto(DataOutputStream out, String texto) throws IOException {
+        out.writeBoolean(texto != null);
+        if (texto != null) {
+            out.writeUTF(texto);
+        }
+    }
+
+    private static String leerTexto(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,361 @@
+package com.mistrapitos.services;
+
+import com.mistrapitos.dao.ClienteDao;
+import com.mistrapitos.models.Cliente;
+import com.mistrapitos.utils.Configuracion;
+import com.mistrapitos.utils.TextoBusqueda;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Directorio de clientes en memoria para autocompletar por nombre, compartido por toda la
+ * aplicación. Se carga una vez desde la base y después ClienteService le avisa de cada alta,
+ * cambio o baja hecha en esta caja. Las altas y cambios de otras cajas se traen con
+ * {@link #refrescar()}, que solo lee los clientes con actualizado_en reciente.
+ * <p>
+ * Cada palabra del nombre (sin mayúsculas ni acentos) es una entrada de un arreglo ordenado:
+ * "José Pérez" se encuentra escribiendo "jos" o "per". Una búsqueda es una búsqueda binaria
+ * más, como mucho, {@code clientes.sugerencias} resultados. El índice es inmutable y se
+ * reemplaza completo en cada cambio, así que puede leerse desde cualquier hilo.
+ */
+public class DirectorioClientes {
+
+    private static final Logger logger = LoggerFactory.getLogger(DirectorioClientes.class);
+    private static final DirectorioClientes instancia = new DirectorioClientes(new ClienteDao());
+    private static final int MAXIMO_SUGERENCIAS = Math.max(1, Configuracion.entero("clientes.sugerencias", 20));
+    // Margen para no perder filas de transacciones que confirmaron después del último refresco
+    private static final long MARGEN_MS = 60_000;
+
+    private final ClienteDao clienteDao;
+    private final Object carga = new Object();
+    private volatile Indice indice;
+    private Timestamp ultimaSincronizacion;
+    // Cambios avisados mientras se lee la tabla; null cuando no hay una carga en curso
+    private Map<Integer, Cliente> cambiosDuranteCarga;
+
+    DirectorioClientes(ClienteDao clienteDao) {
+        this.clienteDao = clienteDao;
+    }
+
+    /**
+     * Obtiene el directorio compartido.
+     * @return Directorio de clientes de la aplicación
+     */
+    public static DirectorioClientes getInstancia() {
+        return instancia;
+    }
+
+    /**
+     * @return true si ya se cargó y las búsquedas no necesitan la base de datos
+     */
+    public boolean estaCargado() {
+        return indice != null;
+    }
+
+    /**
+     * Carga los clientes desde la base si aún no se hizo. Debe llamarse fuera del hilo de JavaFX.
+     */
+    public void cargar() {
+        if (indice != null) {
+            return;
+        }
+        synchronized (carga) {
+            if (indice != null) {
+                return;
+            }
+            Timestamp hora;
+            try {
+                hora = clienteDao.obtenerHoraServidor();
+            } catch (SQLException e) {
+                // Sin la hora no se podría refrescar por cambios; la próxima búsqueda vuelve a intentarlo
+                logger.error("Error al cargar el directorio de clientes", e);
+                return;
+            }
+            synchronized (this) {
+                cambiosDuranteCarga = new LinkedHashMap<>();
+            }
+            List<Cliente> clientes = clienteDao.findAll();
+            synchronized (this) {
+                // findAll devuelve una lista vacía también cuando falla la consulta; en ese caso
+                // no se guarda nada y la próxima búsqueda vuelve a intentarlo
+                if (!clientes.isEmpty()) {
+                    indice = aplicarCambiosDuranteCarga(new Indice(clientes));
+                    ultimaSincronizacion = hora;
+                    logger.info("Directorio de clientes cargado: {} clientes", clientes.size());
+                }
+                cambiosDuranteCarga = null;
+            }
+        }
+    }
+
+    /**
+     * Trae los clientes dados de alta o modificados desde el último refresco, incluidos los de
+     * otras cajas; si el directorio aún no se cargó lo carga completo. Los clientes eliminados
+     * en otra caja siguen apareciendo hasta reiniciar la aplicación. Debe llamarse fuera del
+     * hilo de JavaFX.
+     */
+    public void refrescar() {
+        if (indice == null) {
+            cargar();
+            return;
+        }
+        synchronized (carga) {
+            synchronized (this) {
+                cambiosDuranteCarga = new LinkedHashMap<>();
+            }
+            List<Cliente> cambios = Collections.emptyList();
+            Timestamp sincronizado = null;
+            try {
+                Timestamp hora = clienteDao.obtenerHoraServidor();
+                cambios = clienteDao.findActualizadosDesde(new Timestamp(ultimaSincronizacion.getTime() - MARGEN_MS));
+                sincronizado = hora;
+            } catch (SQLException e) {
+                logger.warn("No se pudo refrescar el directorio de clientes por cambios", e);
+            }
+            synchronized (this) {
+                Indice nuevo = indice;
+                for (Cliente cliente : cambios) {
+                    nuevo = nuevo.sin(cliente.getIdCliente()).con(cliente);
+                }
+                // Lo avisado por ClienteService mientras tanto es al menos tan reciente como lo leído
+                indice = aplicarCambiosDuranteCarga(nuevo);
+                if (sincronizado != null) {
+                    ultimaSincronizacion = sincronizado;
+                }
+                cambiosDuranteCarga = null;
+            }
+            logger.debug("Directorio de clientes refrescado: {} cambios", cambios.size());
+        }
+    }
+
+    private Indice aplicarCambiosDuranteCarga(Indice nuevo) {
+        for (Map.Entry<Integer, Cliente> cambio : cambiosDuranteCarga.entrySet()) {
+            nuevo = nuevo.sin(cambio.getKey());
+            if (cambio.getValue() != null) {
+                nuevo = nuevo.con(cambio.getValue());
+            }
+        }
+        return nuevo;
+    }
+
+    /**
+     * Clientes cuyo nombre tiene alguna palabra que empieza con el texto, sin distinguir
+     * mayúsculas ni acentos, en orden alfabético y como mucho {@code clientes.sugerencias}.
+     * @param texto Texto escrito; vacío devuelve los primeros clientes por nombre
+     * @return Clientes encontrados; vacío si el directorio aún no se cargó
+     */
+    public List<Cliente> buscar(String texto) {
+        Indice actual = indice;
+        if (actual == null) {
+            return Collections.emptyList();
+        }
+        String prefijo = TextoBusqueda.normalizar(texto).trim();
+        if (prefijo.isEmpty()) {
+            return Arrays.asList(Arrays.copyOf(actual.nombres.clientes, Math.min(MAXIMO_SUGERENCIAS, actual.nombres.tamano())));
+        }
+        List<Cliente> encontrados = new ArrayList<>(MAXIMO_SUGERENCIAS);
+        Set<Integer> vistos = new HashSet<>();
+        Entradas palabras = actual.palabras;
+        for (int i = palabras.desde(prefijo); i < palabras.tamano() && encontrados.size() < MAXIMO_SUGERENCIAS
+                && palabras.claves[i].startsWith(prefijo); i++) {
+            if (vistos.add(palabras.clientes[i].getIdCliente())) {
+                encontrados.add(palabras.clientes[i]);
+            }
+        }
+        return encontrados;
+    }
+
+    /**
+     * Cliente cuyo nombre completo es igual al texto, sin distinguir mayúsculas ni acentos.
+     * @param nombre Nombre a buscar
+     * @return Primer cliente con ese nombre; vacío si no hay o el directorio aún no se cargó
+     */
+    public Optional<Cliente> buscarExacto(String nombre) {
+        Indice actual = indice;
+        if (actual == null || nombre == null) {
+            return Optional.empty();
+        }
+        String clave = TextoBusqueda.normalizar(nombre).trim();
+        int i = actual.nombres.desde(clave);
+        if (i < actual.nombres.tamano() && actual.nombres.claves[i].equals(clave)) {
+            return Optional.of(actual.nombres.clientes[i]);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Agrega o reemplaza un cliente guardado, sin volver a consultar la base.
+     * @param cliente Cliente con su ID ya asignado
+     */
+    public synchronized void actualizar(Cliente cliente) {
+        if (cliente == null || cliente.getIdCliente() <= 0) {
+            return;
+        }
+        if (cambiosDuranteCarga != null) {
+            cambiosDuranteCarga.put(cliente.getIdCliente(), cliente);
+        } else if (indice != null) {
+            indice = indice.sin(cliente.getIdCliente()).con(cliente);
+        }
+    }
+
+    /**
+     * Quita un cliente eliminado.
+     * @param idCliente ID del cliente
+     */
+    public synchronized void quitar(int idCliente) {
+        if (cambiosDuranteCarga != null) {
+            cambiosDuranteCarga.put(idCliente, null);
+        } else if (indice != null) {
+            indice = indice.sin(idCliente);
+        }
+    }
+
+    /**
+     * Nombres completos y palabras de los nombres, cada uno ordenado por su clave normalizada.
+     */
+    private static class Indice {
+        private final Entradas nombres;
+        private final Entradas palabras;
+
+        Indice(List<Cliente> clientes) {
+            List<String> claves = new ArrayList<>(clientes.size());
+            List<Cliente> duenos = new ArrayList<>(clientes.size());
+            List<String> clavesPalabras = new ArrayList<>(clientes.size() * 2);
+            List<Cliente> duenosPalabras = new ArrayList<>(clientes.size() * 2);
+            for (Cliente cliente : clientes) {
+                String nombre = clave(cliente);
+                claves.add(nombre);
+                duenos.add(cliente);
+                for (String palabra : palabras(nombre)) {
+                    clavesPalabras.add(palabra);
+                    duenosPalabras.add(cliente);
+                }
+            }
+            this.nombres = Entradas.ordenar(claves, duenos);
+            this.palabras = Entradas.ordenar(clavesPalabras, duenosPalabras);
+        }
+
+        private Indice(Entradas nombres, Entradas palabras) {
+            this.nombres = nombres;
+            this.palabras = palabras;
+        }
+
+        Indice con(Cliente cliente) {
+            String nombre = clave(cliente);
+            Entradas conPalabras = palabras;
+            for (String palabra : palabras(nombre)) {
+                conPalabras = conPalabras.insertar(palabra, cliente);
+            }
+            return new Indice(nombres.insertar(nombre, cliente), conPalabras);
+        }
+
+        Indice sin(int idCliente) {
+            return new Indice(nombres.quitar(idCliente), palabras.quitar(idCliente));
+        }
+
+        private static String clave(Cliente cliente) {
+            return TextoBusqueda.normalizar(cliente.getNombre()).trim();
+        }
+
+        // Resto del nombre desde el inicio de cada palabra, para que "perez" encuentre "jose perez"
+        private static List<String> palabras(String nombre) {
+            List<String> palabras = new ArrayList<>(3);
+            for (int i = 0; i < nombre.length(); i++) {
+                if (!Character.isWhitespace(nombre.charAt(i)) && (i == 0 || Character.isWhitespace(nombre.charAt(i - 1)))) {
+                    palabras.add(nombre.substring(i));
+                }
+            }
+            return palabras;
+        }
+    }
+
+    /**
+     * Arreglos paralelos de claves y clientes, ordenados por clave.
+     */
+    private static class Entradas {
+        private final String[] claves;
+        private final Cliente[] clientes;
+
+        private Entradas(String[] claves, Cliente[] clientes) {
+            this.claves = claves;
+            this.clientes = clientes;
+        }
+
+        static Entradas ordenar(List<String> claves, List<Cliente> clientes) {
+            Integer[] orden = new Integer[claves.size()];
+            for (int i = 0; i < orden.length; i++) {
+                orden[i] = i;
+            }
+            Arrays.sort(orden, (a, b) -> claves.get(a).compareTo(claves.get(b)));
+            String[] ordenadas = new String[orden.length];
+            Cliente[] duenos = new Cliente[orden.length];
+            for (int i = 0; i < orden.length; i++) {
+                ordenadas[i] = claves.get(orden[i]);
+                duenos[i] = clientes.get(orden[i]);
+            }
+            return new Entradas(ordenadas, duenos);
+        }
+
+        int tamano() {
+            return claves.length;
+        }
+
+        /**
+         * Primera posición cuya clave es mayor o igual a la indicada.
+         */
+        int desde(String clave) {
+            int bajo = 0;
+            int alto = claves.length;
+            while (bajo < alto) {
+                int medio = (bajo + alto) >>> 1;
+                if (claves[medio].compareTo(clave) < 0) {
+                    bajo = medio + 1;
+                } else {
+                    alto = medio;
+                }
+            }
+            return bajo;
+        }
+
+        Entradas insertar(String clave, Cliente cliente) {
+            int posicion = desde(clave);
+            String[] nuevasClaves = new String[claves.length + 1];
+            Cliente[] nuevosClientes = new Cliente[claves.length + 1];
+            System.arraycopy(claves, 0, nuevasClaves, 0, posicion);
+            System.arraycopy(clientes, 0, nuevosClientes, 0, posicion);
+            nuevasClaves[posicion] = clave;
+            nuevosClientes[posicion] = cliente;
+            System.arraycopy(claves, posicion, nuevasClaves, posicion + 1, claves.length - posicion);
+            System.arraycopy(clientes, posicion, nuevosClientes, posicion + 1, claves.length - posicion);
+            return new Entradas(nuevasClaves, nuevosClientes);
+        }
+
+        Entradas quitar(int idCliente) {
+            String[] nuevasClaves = new String[claves.length];
+            Cliente[] nuevosClientes = new Cliente[claves.length];
+            int n = 0;
+            for (int i = 0; i < claves.length; i++) {
+                if (clientes[i].getIdCliente() != idCliente) {
+                    nuevasClaves[n] = claves[i];
+                    nuevosClientes[n++] = clientes[i];
+                }
+            }
+            if (n == claves.length) {
+                return this;
+            }
+            return new Entradas(Arrays.copyOf(nuevasClaves, n), Arrays.copyOf(nuevosClientes, n));
+        }
+    }
+}
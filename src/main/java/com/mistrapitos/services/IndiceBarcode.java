@@ -0,0 +1,237 @@
+package com.mistrapitos.services;
+
+import com.mistrapitos.dao.ProductoDao;
+import com.mistrapitos.models.Producto;
+import com.mistrapitos.utils.Metricas;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Índice en memoria de productos por código de barras para el escaneo en caja.
+ * Se carga completo al iniciar, se refresca por cambios (columna actualizado_en)
+ * cada pocos segundos y se recarga completo de forma periódica para quitar productos eliminados.
+ */
+public class IndiceBarcode {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndiceBarcode.class);
+    private static final IndiceBarcode instancia = new IndiceBarcode(new ProductoDao());
+
+    private static final long SEGUNDOS_ENTRE_REFRESCOS = 30;
+    private static final int REFRESCOS_ENTRE_RECARGAS = 120;
+    // Margen para no perder filas de transacciones que confirmaron después del último refresco
+    private static final long MARGEN_MS = 60_000;
+
+    private final ProductoDao productoDao;
+    private volatile Map<String, Producto> porBarcode = new ConcurrentHashMap<>();
+    private volatile Map<Integer, String> barcodePorId = new ConcurrentHashMap<>();
+    private volatile boolean cargado = false;
+    private volatile Timestamp ultimaSincronizacion;
+    private int refrescosDesdeRecarga = 0;
+    private ScheduledExecutorService programador;
+
+    // Latencia de escaneo en Metricas (JMX y CSV): todos los escaneos y los que fueron a la base
+    private final Metricas.Medidor escaneos = Metricas.escaneo("IndiceBarcode.buscar");
+    private final Metricas.Medidor escaneosEnBase = Metricas.escaneo("IndiceBarcode.buscar.base");
+
+    IndiceBarcode(ProductoDao productoDao) {
+        this.productoDao = productoDao;
+    }
+
+    /**
+     * Obtiene la instancia compartida del índice.
+     * @return Índice de códigos de barras
+     */
+    public static IndiceBarcode getInstancia() {
+        return instancia;
+    }
+
+    /**
+     * Inicia la carga del índice y el refresco periódico en segundo plano.
+     * Mientras no termine la carga, las búsquedas van directo a la base de datos.
+     */
+    public synchronized void iniciar() {
+        if (programador != null) {
+            return;
+        }
+        programador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "indice-barcode");
+            t.setDaemon(true);
+            return t;
+        });
+        programador.execute(this::recargar);
+        programador.scheduleWithFixedDelay(this::refrescarCambios,
+                SEGUNDOS_ENTRE_REFRESCOS, SEGUNDOS_ENTRE_REFRESCOS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Detiene el refresco periódico.
+     */
+    public synchronized void detener() {
+        if (programador != null) {
+            programador.shutdownNow();
+            programador = null;
+        }
+    }
+
+    /**
+     * Busca un producto por su código de barras. Si el código no está en el índice
+     * se consulta la base de datos, por si el producto se creó en otra caja.
+     * @param barcode Código de barras
+     * @return Copia del producto encontrado o vacío si no existe
+     */
+    public Optional<Producto> buscar(String barcode) {
+        long inicio = System.nanoTime();
+        boolean error = true;
+        try {
+            Producto producto = cargado ? porBarcode.get(barcode) : null;
+            if (producto == null) {
+                Optional<Producto> encontrado = buscarEnBase(barcode);
+                error = false;
+                return encontrado;
+            }
+            error = false;
+            return Optional.of(copiar(producto));
+        } finally {
+            escaneos.registrar(System.nanoTime() - inicio, error);
+        }
+    }
+
+    private Optional<Producto> buscarEnBase(String barcode) {
+        long inicio = System.nanoTime();
+        boolean error = true;
+        try {
+            Optional<Producto> encontrado = productoDao.buscarPorBarcode(barcode);
+            encontrado.ifPresent(p -> indexar(copiar(p)));
+            error = false;
+            return encontrado;
+        } finally {
+            escaneosEnBase.registrar(System.nanoTime() - inicio, error);
+        }
+    }
+
+    /**
+     * Vuelve a leer un producto desde la base de datos y actualiza el índice.
+     * @param idProducto ID del producto modificado
+     */
+    public void refrescar(int idProducto) {
+        refrescar(List.of(idProducto));
+    }
+
+    /**
+     * Vuelve a leer varios productos desde la base de datos y actualiza el índice.
+     * @param ids IDs de los productos modificados
+     */
+    public void refrescar(Collection<Integer> ids) {
+        for (Producto producto : productoDao.findByIds(ids)) {
+            indexar(producto);
+        }
+    }
+
+    /**
+     * Programa la relectura de varios productos en el hilo del índice, para no
+     * agregar una consulta a la ruta de cobro. Sin hilo activo se hace en el acto.
+     * @param ids IDs de los productos modificados
+     */
+    public void programarRefresco(Collection<Integer> ids) {
+        List<Integer> copia = List.copyOf(ids);
+        synchronized (this) {
+            if (programador != null) {
+                programador.execute(() -> refrescar(copia));
+                return;
+            }
+        }
+        refrescar(copia);
+    }
+
+    /**
+     * Quita un producto del índice.
+     * @param idProducto ID del producto eliminado
+     */
+    public void eliminar(int idProducto) {
+        String barcode = barcodePorId.remove(idProducto);
+        if (barcode != null) {
+            porBarcode.remove(barcode);
+        }
+    }
+
+    public int getTamano() {
+        return porBarcode.size();
+    }
+
+    private void recargar() {
+        try {
+            Timestamp hora = productoDao.obtenerHoraServidor();
+            List<Producto> productos = productoDao.findAll();
+            Map<String, Producto> nuevoPorBarcode = new ConcurrentHashMap<>();
+            Map<Integer, String> nuevoBarcodePorId = new ConcurrentHashMap<>();
+            for (Producto producto : productos) {
+                if (producto.getBarcode() != null && !producto.getBarcode().isBlank()) {
+                    nuevoPorBarcode.put(producto.getBarcode(), producto);
+                    nuevoBarcodePorId.put(producto.getIdProducto(), producto.getBarcode());
+                }
+            }
+            // Se reemplazan los mapas completos para que los escaneos nunca vean un índice a medio cargar
+            porBarcode = nuevoPorBarcode;
+            barcodePorId = nuevoBarcodePorId;
+            ultimaSincronizacion = hora;
+            refrescosDesdeRecarga = 0;
+            cargado = true;
+            logger.info("Índice de códigos de barras cargado con {} productos", productos.size());
+        } catch (SQLException e) {
+            logger.error("Error al cargar el índice de códigos de barras", e);
+        }
+    }
+
+    private void refrescarCambios() {
+        try {
+            if (!cargado || ++refrescosDesdeRecarga >= REFRESCOS_ENTRE_RECARGAS) {
+                recargar();
+                return;
+            }
+            Timestamp hora = productoDao.obtenerHoraServidor();
+            Timestamp desde = new Timestamp(ultimaSincronizacion.getTime() - MARGEN_MS);
+            List<Producto> cambios = productoDao.findActualizadosDesde(desde);
+            for (Producto producto : cambios) {
+                indexar(producto);
+            }
+            ultimaSincronizacion = hora;
+            logger.debug("Índice de códigos de barras: {} cambios, {} productos", cambios.size(), getTamano());
+        } catch (SQLException e) {
+            logger.warn("No se pudo refrescar el índice de códigos de barras por cambios; se hará una recarga completa", e);
+            refrescosDesdeRecarga = REFRESCOS_ENTRE_RECARGAS;
+        } catch (RuntimeException e) {
+            logger.error("Error al refrescar el índice de códigos de barras", e);
+        }
+    }
+
+    private void indexar(Producto producto) {
+        boolean conBarcode = producto.getBarcode() != null && !producto.getBarcode().isBlank();
+        String anterior = conBarcode
+                ? barcodePorId.put(producto.getIdProducto(), producto.getBarcode())
+                : barcodePorId.remove(producto.getIdProducto());
+        if (anterior != null && !anterior.equals(producto.getBarcode())) {
+            porBarcode.remove(anterior);
+        }
+        if (conBarcode) {
+            porBarcode.put(producto.getBarcode(), producto);
+        }
+    }
+
+    private Producto copiar(Producto p) {
+        Producto copia = new Producto(p.getIdProducto(), p.getNombre(), p.getDescripcion(), p.getIdCategoria(),
+                p.getPrecio(), p.getStock(), p.getSizes(), p.getColors(), p.getDescuento(), p.getBarcode());
+        copia.setCategoriaNombre(p.getCategoriaNombre());
+        return copia;
+    }
+}
@@ -4,6 +4,7 @@ import com.mistrapitos.dao.CategoriaDao;
 import com.mistrapitos.dao.ProductoDao;
 import com.mistrapitos.models.Categoria;
 import com.mistrapitos.models.Producto;
+import com.mistrapitos.utils.Configuracion;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -16,8 +17,10 @@ import java.util.Optional;
 public class ProductoService {
     
     private static final Logger logger = LoggerFactory.getLogger(ProductoService.class);
+    private static final int LIMITE_BUSQUEDA = Math.max(1, Configuracion.entero("busqueda.limite", 200));
     private final ProductoDao productoDao;
     private final CategoriaDao categoriaDao;
+    private final IndiceBarcode indiceBarcode;
     
     /**
      * Constructor.
@@ -25,6 +28,7 @@ public class ProductoService {
     public ProductoService() {
         this.productoDao = new ProductoDao();
         this.categoriaDao = new CategoriaDao();
+        this.indiceBarcode = IndiceBarcode.getInstancia();
     }
     
     /**
@@ -45,12 +49,12 @@ public class ProductoService {
     }
     
     /**
-     * Busca productos por nombre o código de barras.
+     * Busca productos por nombre o código de barras, hasta {@code busqueda.limite} resultados.
      * @param termino Término de búsqueda
      * @return Lista de productos que coinciden con el término
      */
     public List<Producto> buscarPorNombreOBarcode(String termino) {
-        return productoDao.findByNombreOrBarcode(termino);
+        return productoDao.findByNombreOrBarcode(termino, LIMITE_BUSQUEDA);
     }
     
     /**
@@ -62,6 +66,15 @@ public class ProductoService {
         return productoDao.findByCategoria(idCategoria);
     }
     
+    /**
+     * Busca los productos que vende un proveedor.
+     * @param idProveedor ID del proveedor
+     * @return Lista de productos del proveedor
+     */
+    public List<Producto> buscarPorProveedor(int idProveedor) {
+        return productoDao.findByProveedor(idProveedor);
+    }
+    
     /**
      * Busca productos con stock bajo.
      * @param stockMinimo Stock mínimo
@@ -87,7 +100,11 @@ public class ProductoService {
             producto.setCategoriaNombre(categoria.get().getNombre());
         }
         
-        return productoDao.save(producto);
+        Producto guardado = productoDao.save(producto);
+        if (guardado.getIdProducto() > 0) {
+            indiceBarcode.refrescar(guardado.getIdProducto());
+        }
+        return guardado;
     }
     /**
      * Busca un producto por su código de barras.
@@ -95,7 +112,7 @@ public class ProductoService {
      * @return Producto encontrado o vacío si no existe
      */
     public Optional<Producto> buscarPorBarcode(String barcode) {
-        return productoDao.buscarPorBarcode(barcode);
+        return indiceBarcode.buscar(barcode);
     }
 
     /**
@@ -139,7 +156,9 @@ public class ProductoService {
             producto.setCategoriaNombre(categoria.get().getNombre());
         }
         
-        return productoDao.update(producto);
+        Producto actualizado = productoDao.update(producto);
+        indiceBarcode.refrescar(producto.getIdProducto());
+        return actualizado;
     }
     
     /**
@@ -162,7 +181,11 @@ public class ProductoService {
             throw new IllegalArgumentException("El stock del producto no puede ser negativo");
         }
         
-        return productoDao.updateStock(idProducto, cantidad);
+        boolean actualizado = productoDao.updateStock(idProducto, cantidad);
+        if (actualizado) {
+            indiceBarcode.refrescar(idProducto);
+        }
+        return actualizado;
     }
     
     /**
@@ -178,7 +201,11 @@ public class ProductoService {
             throw new IllegalArgumentException("No se encontró el producto");
         }
         
-        return productoDao.delete(id);
+        boolean eliminado = productoDao.delete(id);
+        if (eliminado) {
+            indiceBarcode.eliminar(id);
+        }
+        return eliminado;
     }
     
     /**
@@ -11,7 +11,6 @@ import java.util.Vector;
 import com.mistrapitos.models.Producto;
 import com.mistrapitos.dao.ProductoDao;
 import com.mistrapitos.dao.VentaDao;
-import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -61,6 +60,7 @@ public class ProveedorService {
      * Guarda un nuevo proveedor.
      * @param proveedor Proveedor a guardar
      * @return Proveedor guardado con su ID generado
+     * @throws IllegalArgumentException Si falta el nombre o algún producto vendido no existe
      */
     public Proveedor guardar(Proveedor proveedor) {
         // Validar datos del proveedor
@@ -75,15 +75,11 @@ public class ProveedorService {
      * Obtiene los productos de un proveedor que estén en stock.
      */
     public List<Producto> obtenerProductosDeProveedorEnInventario(int idProveedor) {
-        Optional<Proveedor> opt = proveedorDao.findById(idProveedor);
-        if (opt.isEmpty()) return Collections.emptyList();
-        String csv = opt.get().getProductosVendidos();
         List<Producto> salida = new ArrayList<>();
-        for (String idStr : csv.split(",")) {
-            int id = Integer.parseInt(idStr.trim());
-            productoDao.findById(id)
-                    .filter(p -> p.getStock() > 0)
-                    .ifPresent(salida::add);
+        for (Producto p : productoDao.findByProveedor(idProveedor)) {
+            if (p.getStock() > 0) {
+                salida.add(p);
+            }
         }
         return salida;
     }
@@ -92,6 +88,7 @@ public class ProveedorService {
      * Actualiza un proveedor existente.
      * @param proveedor Proveedor a actualizar
      * @return Proveedor actualizado
+     * @throws IllegalArgumentException Si no existe, falta el nombre o algún producto vendido no existe
      */
     public Proveedor actualizar(Proveedor proveedor) {
         // Verificar si el proveedor existe
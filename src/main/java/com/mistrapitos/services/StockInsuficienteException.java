@@ -0,0 +1,35 @@
+package com.mistrapitos.services;
+
+import com.mistrapitos.models.FaltanteStock;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Excepción lanzada cuando una venta no puede completarse por falta de stock.
+ */
+public class StockInsuficienteException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    // FaltanteStock no es serializable; el mensaje ya resume las líneas que faltaron
+    private final transient List<FaltanteStock> faltantes;
+
+    /**
+     * Constructor.
+     * @param faltantes Líneas de la venta sin stock suficiente
+     */
+    public StockInsuficienteException(List<FaltanteStock> faltantes) {
+        super("Stock insuficiente: " + faltantes.stream()
+                .map(FaltanteStock::toString)
+                .collect(Collectors.joining(", ")));
+        this.faltantes = List.copyOf(faltantes);
+    }
+
+    /**
+     * @return Líneas sin stock suficiente; vacía si la excepción se deserializó
+     */
+    public List<FaltanteStock> getFaltantes() {
+        return faltantes != null ? faltantes : List.of();
+    }
+}
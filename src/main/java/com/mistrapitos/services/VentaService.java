@@ -4,12 +4,17 @@ import com.mistrapitos.dao.ClienteDao;
 import com.mistrapitos.dao.ProductoDao;
 import com.mistrapitos.dao.VentaDao;
 import com.mistrapitos.dao.DetalleVentaDao;
+import com.mistrapitos.dao.ResumenVentasDao;
 import com.mistrapitos.models.Cliente;
 import com.mistrapitos.models.DetalleVenta;
+import com.mistrapitos.models.FaltanteStock;
+import com.mistrapitos.models.FiltroVentas;
 import com.mistrapitos.models.Producto;
 import com.mistrapitos.models.CategoriaVentaResumen;
+import com.mistrapitos.utils.Configuracion;
 import com.mistrapitos.utils.ReporteUtil;
 import com.mistrapitos.utils.DatabaseUtil;
+import com.mistrapitos.utils.Metricas;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.util.ArrayList;
@@ -17,17 +22,25 @@ import com.mistrapitos.controllers.ReporteController;
 import com.mistrapitos.models.Venta;
 import com.mistrapitos.models.ProductoVentaResumen;
 import com.mistrapitos.models.ProductoEnCarrito;
+import com.mistrapitos.models.ResultadoAnulacion;
 import com.mistrapitos.models.Usuario;
 import org.slf4j.Logger;
+import java.util.Collection;
 import java.util.Collections;
 import com.mistrapitos.models.MetodoPagoResumen;
 import org.slf4j.LoggerFactory;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.io.IOException;
 
 /**
  * Servicio para la gestión de ventas.
@@ -35,10 +48,26 @@ import java.util.Optional;
 public class VentaService {
     
     private static final Logger logger = LoggerFactory.getLogger(VentaService.class);
+    // El cobro no espera la conexión tanto como el resto: sin base de datos tiene el diario local
+    private static final long ESPERA_CONEXION_COBRO_MS = Configuracion.largo("db.pool.esperaCobroMs", 3000);
     private final VentaDao ventaDao;
     private final ClienteDao clienteDao;
     private final ProductoDao productoDao;
     private final DetalleVentaDao detalleVentaDao;
+    private final ResumenVentasDao resumenVentasDao;
+    private final DiarioVentas diarioVentas;
+    
+    /**
+     * Resultado de registrar una venta en caja.
+     */
+    public enum ResultadoVenta {
+        /** Guardada en la base de datos */
+        REGISTRADA,
+        /** Guardada en el diario local de la caja; se enviará cuando vuelva la conexión */
+        PENDIENTE,
+        /** No se pudo guardar */
+        FALLIDA
+    }
     
     /**
      * Constructor.
@@ -48,6 +77,8 @@ public class VentaService {
         this.clienteDao = new ClienteDao();
         this.productoDao = new ProductoDao();
         this.detalleVentaDao = new DetalleVentaDao();
+        this.resumenVentasDao = new ResumenVentasDao();
+        this.diarioVentas = DiarioVentas.getInstancia();
     }
     
     /**
@@ -58,6 +89,20 @@ public class VentaService {
         return ventaDao.findAll();
     }
 
+    /**
+     * Obtiene una página de ventas, de la más reciente a la más antigua.
+     * @param filtro Criterios de búsqueda
+     * @param ultima Última venta de la página anterior, o null para la primera página
+     * @param tamano Número máximo de ventas de la página
+     * @return Ventas de la página
+     */
+    public List<Venta> obtenerPagina(FiltroVentas filtro, Venta ultima, int tamano) {
+        if (tamano <= 0) {
+            throw new IllegalArgumentException("El tamaño de página debe ser mayor a cero");
+        }
+        return ventaDao.findPagina(filtro, ultima, tamano);
+    }
+
     /**
      * Obtiene los detalles de una venta por su ID.
      * @param idVenta ID de la venta
@@ -155,11 +200,13 @@ public class VentaService {
                         "GROUP BY c.ciudad " +
                         "ORDER BY c.ciudad";
 
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getReadOnlyConnection();
              PreparedStatement stmt = conn.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
 
+            int leidas = 0;
             while (rs.next()) {
+                leidas++;
                 resultado.add(new ReporteController.VentaPorCiudad(
                         rs.getString("ciudad"),
                         rs.getInt("cantidad_ventas"),
@@ -167,6 +214,7 @@ public class VentaService {
                         rs.getString("productos")    // <-- aquí capturas la lista
                 ));
             }
+            Metricas.filasLeidas(stmt, leidas);
         } catch (SQLException e) {
             logger.error("Error al obtener ventas por ciudad", e);
         }
@@ -193,7 +241,7 @@ public class VentaService {
                         "WHERE c.ciudad = ? " +
                         "GROUP BY c.ciudad";
 
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getReadOnlyConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, ciudad);
@@ -214,6 +262,80 @@ public class VentaService {
         return resultado;
     }
 
+    /**
+     * Obtiene los productos que cada cliente ha comprado más de una vez (dos o más unidades
+     * en total), con una sola consulta agregada sobre ventas y detalle_venta.
+     * @param idCliente ID del cliente, o null para todos los clientes
+     * @param desde Fecha de inicio (inclusive), o null para no limitar
+     * @param hasta Fecha de fin (inclusive), o null para no limitar
+     * @param limite Máximo de productos por cliente, o 0 para todos
+     * @return Productos por cliente, ordenados por cliente y por unidades compradas descendente
+     */
+    public List<ReporteController.ProductoRepetido> obtenerProductosRepetidos(
+            Integer idCliente, LocalDate desde, LocalDate hasta, int limite) {
+        if (desde != null && hasta != null && desde.isAfter(hasta)) {
+            throw new IllegalArgumentException("La fecha de inicio no puede ser posterior a la fecha de fin");
+        }
+        List<ReporteController.ProductoRepetido> resultado = new ArrayList<>();
+        List<Object> parametros = new ArrayList<>();
+        StringBuilder filtros = new StringBuilder();
+        if (idCliente != null) {
+            filtros.append("AND v.id_cliente = ? ");
+            parametros.add(idCliente);
+        }
+        if (desde != null) {
+            filtros.append("AND v.fecha >= ? ");
+            parametros.add(Timestamp.valueOf(desde.atStartOfDay()));
+        }
+        if (hasta != null) {
+            filtros.append("AND v.fecha < ? ");
+            parametros.add(Timestamp.valueOf(hasta.plusDays(1).atStartOfDay()));
+        }
+        String sql =
+                "SELECT cliente, producto, veces FROM (" +
+                        " SELECT v.id_cliente, c.nombre AS cliente, p.nombre AS producto, " +
+                        "        SUM(d.cantidad) AS veces, " +
+                        "        ROW_NUMBER() OVER (PARTITION BY v.id_cliente " +
+                        "                           ORDER BY SUM(d.cantidad) DESC, p.nombre) AS puesto " +
+                        " FROM ventas v " +
+                        " JOIN clientes c ON v.id_cliente    = c.id_cliente " +
+                        " JOIN detalle_venta d ON v.id_venta  = d.id_venta " +
+                        " JOIN productos p ON d.id_producto   = p.id_producto " +
+                        " WHERE TRUE " + filtros +
+                        " GROUP BY v.id_cliente, c.nombre, d.id_producto, p.nombre " +
+                        " HAVING SUM(d.cantidad) >= 2" +
+                        ") t " +
+                        (limite > 0 ? "WHERE puesto <= ? " : "") +
+                        "ORDER BY cliente, id_cliente, puesto";
+        if (limite > 0) {
+            parametros.add(limite);
+        }
+
+        try (Connection conn = DatabaseUtil.getReadOnlyConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            for (int i = 0; i < parametros.size(); i++) {
+                stmt.setObject(i + 1, parametros.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                int leidas = 0;
+                while (rs.next()) {
+                    leidas++;
+                    resultado.add(new ReporteController.ProductoRepetido(
+                            rs.getString("cliente"),
+                            rs.getString("producto"),
+                            rs.getInt("veces")
+                    ));
+                }
+                Metricas.filasLeidas(stmt, leidas);
+            }
+        } catch (SQLException e) {
+            logger.error("Error al obtener productos comprados más de una vez", e);
+        }
+
+        return resultado;
+    }
+
     /**
      * Busca ventas por método de pago.
      * @param metodoPago Método de pago
@@ -226,16 +348,28 @@ public class VentaService {
 
     /**
      * Registra una venta, sus detalles y actualiza el stock.
+     * <p>
+     * Si la base de datos no responde, la venta se guarda en el diario local de la caja
+     * (ver {@link DiarioVentas}) y se envía en segundo plano cuando vuelva la conexión; en ese
+     * caso se guarda aunque el stock ya no alcance, y queda anotada para revisarla. La
+     * conexión se espera a lo sumo db.pool.esperaCobroMs. Cada cobro vuelve a intentar la
+     * base aunque haya ventas en el diario, y si lo logra adelanta el envío de esas ventas.
      * @param carrito Lista de productos en carrito
      * @param cliente Cliente (ya existente o recién registrado)
      * @param usuario Usuario que realiza la venta
      * @param metodoPago Método de pago (Efectivo, Tarjeta, Transferencia)
-     * @return true si la venta fue registrada correctamente
+     * @return Dónde quedó guardada la venta, o FALLIDA si no se pudo guardar
+     * @throws StockInsuficienteException Si alguna línea no tiene stock suficiente al momento de la venta
      */
-    public boolean registrarVenta(List<ProductoEnCarrito> carrito, Cliente cliente, Usuario usuario, String metodoPago) {
+    public ResultadoVenta registrarVenta(List<ProductoEnCarrito> carrito, Cliente cliente, Usuario usuario, String metodoPago) {
+        // Calcular total
+        double total = carrito.stream().mapToDouble(ProductoEnCarrito::getSubtotal).sum();
+        // Se toma la foto de la venta antes de intentar: el intento puede asignar IDs que luego se revierten
+        DiarioVentas.VentaPendiente pendiente = new DiarioVentas.VentaPendiente(UUID.randomUUID(),
+                LocalDateTime.now(), DiarioVentas.copiar(cliente), metodoPago, total, List.copyOf(carrito));
         Connection conn = null;
         try {
-            conn = com.mistrapitos.utils.DatabaseUtil.getConnection();
+            conn = obtenerConexionCobro();
             conn.setAutoCommit(false);
 
             // Si el cliente no tiene ID, lo insertamos (esto es opcional, normalmente ya debe existir)
@@ -244,41 +378,117 @@ public class VentaService {
                 cliente.setIdCliente(idCliente);
             }
 
-            // Calcular total
-            double total = carrito.stream().mapToDouble(ProductoEnCarrito::getSubtotal).sum();
-
             // Registrar venta
-            Venta venta = new Venta();
-            venta.setIdCliente(cliente.getIdCliente());
-            venta.setMetodoPago(metodoPago);
-            venta.setTotal(total);
+            Venta venta = new Venta(0, cliente.getIdCliente(), pendiente.fecha(), metodoPago, total);
+            venta.setUuid(pendiente.uuid());
             int idVenta = ventaDao.insertar(venta, conn);
+            if (idVenta <= 0) {
+                throw new SQLException("No se pudo insertar la venta");
+            }
 
-            // Registrar detalle y actualizar stock
-            for (ProductoEnCarrito item : carrito) {
-                ventaDao.insertarDetalleVenta(idVenta, item.getIdProducto(), item.getCantidad(), item.getPrecioUnitario(), item.getDescuento(), conn);
-                productoDao.actualizarStock(item.getIdProducto(), -item.getCantidad(), conn);
+            // Descontar stock solo donde alcanza; si alguna línea no alcanza se cancela la venta
+            Map<Integer, Integer> cantidades = agruparCantidades(carrito);
+            List<FaltanteStock> faltantes = productoDao.descontarStockDisponible(cantidades, conn);
+            if (!faltantes.isEmpty()) {
+                conn.rollback();
+                throw new StockInsuficienteException(faltantes);
             }
 
+            // Registrar detalles en lote
+            ventaDao.insertarDetallesVenta(idVenta, carrito, conn);
+            // Los reportes leen del resumen diario; se actualiza en la misma transacción
+            resumenVentasDao.sumarVenta(idVenta, conn);
+
             conn.commit();
-            return true;
+            IndiceBarcode.getInstancia().programarRefresco(cantidades.keySet());
+            // La base volvió a responder: no se espera al siguiente intento para enviar el diario
+            diarioVentas.programarEnvio();
+            return ResultadoVenta.REGISTRADA;
+        } catch (StockInsuficienteException e) {
+            logger.warn(e.getMessage());
+            throw e;
         } catch (Exception e) {
-            logger.error("Error al registrar venta", e);
             if (conn != null) {
                 try { conn.rollback(); } catch (SQLException ignored) {}
             }
-            return false;
+            // Si se cortó justo al confirmar, el UUID evita que el reenvío la duplique
+            if (sinConexion(e, conn)) {
+                logger.warn("Sin conexión con la base de datos al registrar la venta; se guarda en el diario local", e);
+                return guardarEnDiario(pendiente);
+            }
+            logger.error("Error al registrar venta", e);
+            return ResultadoVenta.FALLIDA;
         } finally {
             if (conn != null) {
                 try { conn.setAutoCommit(true); conn.close(); } catch (SQLException ignored) {}
             }
         }
     }
-    
+
+    private ResultadoVenta guardarEnDiario(DiarioVentas.VentaPendiente pendiente) {
+        try {
+            diarioVentas.registrar(pendiente);
+            return ResultadoVenta.PENDIENTE;
+        } catch (IOException e) {
+            logger.error("No se pudo guardar la venta en el diario local", e);
+            return ResultadoVenta.FALLIDA;
+        }
+    }
+
+    /**
+     * Los DAO de la ruta de cobro registran y devuelven -1 en vez de propagar la excepción,
+     * así que además de la causa se revisa si la conexión sigue viva.
+     */
+    /**
+     * Conexión para cobrar, con la espera corta de db.pool.esperaCobroMs. Si vence porque
+     * todas las conexiones están prestadas pero la base responde, se sigue esperando con la
+     * espera general del pool: una venta del diario local ya no se puede rechazar por stock
+     * al reenviarla, así que solo va ahí cuando la base no responde.
+     * @return Conexión a la base de datos
+     * @throws SQLException Si no se obtiene una conexión
+     */
+    private Connection obtenerConexionCobro() throws SQLException {
+        try {
+            return DatabaseUtil.getConnection(ESPERA_CONEXION_COBRO_MS);
+        } catch (SQLException e) {
+            if (!DatabaseUtil.esPoolOcupado(e)) {
+                throw e;
+            }
+            logger.debug("Pool ocupado al cobrar; se espera otra conexión: {}", e.getMessage());
+            return DatabaseUtil.getConnection();
+        }
+    }
+
+    private boolean sinConexion(Exception e, Connection conn) {
+        if (DatabaseUtil.esFallaDeConexion(e)) {
+            return true;
+        }
+        try {
+            return conn != null && !conn.isValid(2);
+        } catch (SQLException ex) {
+            return true;
+        }
+    }
+
+    /**
+     * Agrupa las cantidades del carrito por producto, ordenadas por ID para que
+     * las transacciones concurrentes bloqueen las filas siempre en el mismo orden.
+     * @param carrito Lista de productos en carrito
+     * @return Cantidad a descontar del stock por ID de producto
+     */
+    private Map<Integer, Integer> agruparCantidades(List<ProductoEnCarrito> carrito) {
+        Map<Integer, Integer> cantidades = new TreeMap<>();
+        for (ProductoEnCarrito item : carrito) {
+            cantidades.merge(item.getIdProducto(), item.getCantidad(), Integer::sum);
+        }
+        return cantidades;
+    }
+
     /**
      * Actualiza una venta existente.
      * @param venta Venta a actualizar
      * @return Venta actualizada
+     * @throws StockInsuficienteException Si algún producto quedaría con stock negativo
      */
     public Venta actualizarVenta(Venta venta) {
         // Verificar si la venta existe
@@ -309,15 +519,19 @@ public class VentaService {
             venta.setClienteNombre(cliente.get().getNombre());
         }
         
-        // Verificar stock y obtener datos de productos
+        // Obtener los datos de todos los productos de la venta con una sola consulta
+        Map<Integer, Producto> productos = new HashMap<>();
+        for (Producto producto : productoDao.findByIds(venta.getDetalles().stream().map(DetalleVenta::getIdProducto).toList())) {
+            productos.put(producto.getIdProducto(), producto);
+        }
         for (DetalleVenta detalle : venta.getDetalles()) {
-            Optional<Producto> producto = productoDao.findById(detalle.getIdProducto());
+            Optional<Producto> producto = Optional.ofNullable(productos.get(detalle.getIdProducto()));
             if (!producto.isPresent()) {
                 logger.warn("No se encontró el producto con ID: " + detalle.getIdProducto());
                 throw new IllegalArgumentException("No se encontró el producto con ID: " + detalle.getIdProducto());
             }
             
-            // Para actualización, no verificamos stock ya que se restaurará el stock de los detalles anteriores
+            // El stock se valida al aplicar los cambios, contando lo que devuelven los detalles anteriores
             
             detalle.setProductoNombre(producto.get().getNombre());
             detalle.setPrecioUnitario(producto.get().getPrecio());
@@ -351,6 +565,36 @@ public class VentaService {
         
         return ventaDao.delete(id);
     }
+
+    /**
+     * Anula varias ventas a la vez, devolviendo su stock en una sola transacción.
+     * @param ids IDs de las ventas; los que no existen se ignoran
+     * @param simulacion Si es true, solo informa qué se anularía y cuánto stock se devolvería
+     * @return Ventas anuladas y stock devuelto por producto
+     * @throws SQLException Si falla la anulación; en ese caso no se aplica ningún cambio
+     */
+    public ResultadoAnulacion anularVentas(Collection<Integer> ids, boolean simulacion) throws SQLException {
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("Debe indicar al menos una venta");
+        }
+        return ventaDao.anularVentas(ids, simulacion);
+    }
+
+    /**
+     * Anula todas las ventas entre dos fechas, ambas incluidas.
+     * @param desde Primer día
+     * @param hasta Último día
+     * @param simulacion Si es true, solo informa qué se anularía y cuánto stock se devolvería
+     * @return Ventas anuladas y stock devuelto por producto
+     * @throws SQLException Si falla la anulación; en ese caso no se aplica ningún cambio
+     */
+    public ResultadoAnulacion anularVentasEnRango(LocalDate desde, LocalDate hasta, boolean simulacion) throws SQLException {
+        if (desde.isAfter(hasta)) {
+            logger.warn("La fecha de inicio no puede ser posterior a la fecha de fin");
+            throw new IllegalArgumentException("La fecha de inicio no puede ser posterior a la fecha de fin");
+        }
+        return ventaDao.anularVentasEnRango(desde, hasta, simulacion);
+    }
     
     /**
      * Obtiene el total de ventas por día.
@@ -0,0 +1,102 @@
+package com.mistrapitos.utils;
+
+import javafx.scene.Node;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Tareas en segundo plano de una misma parte de la pantalla (una tabla, un buscador).
+ * Cada tarea nueva reemplaza a la anterior: solo se entrega el resultado de la más reciente,
+ * así una respuesta lenta no pisa a una más nueva. Mientras hay una tarea en curso se muestra
+ * el indicador, si se indicó uno. Los métodos deben llamarse desde el hilo de JavaFX.
+ */
+public class CanalTareas {
+
+    private final Node indicador;
+    private Future<?> enCurso;
+    private long generacion = 0;
+
+    public CanalTareas() {
+        this(null);
+    }
+
+    /**
+     * @param indicador Nodo visible mientras hay una tarea en curso (puede ser null)
+     */
+    public CanalTareas(Node indicador) {
+        this.indicador = indicador;
+        mostrarIndicador(false);
+    }
+
+    /**
+     * Ejecuta un trabajo reemplazando al que esté en curso. Los errores se registran en el log.
+     * @param trabajo Trabajo a ejecutar en segundo plano
+     * @param alTerminar Recibe el resultado en el hilo de JavaFX
+     * @param <T> Tipo del resultado
+     */
+    public <T> void ejecutar(Callable<T> trabajo, Consumer<? super T> alTerminar) {
+        ejecutar(trabajo, alTerminar, EjecutorUI::registrarFallo);
+    }
+
+    /**
+     * Ejecuta un trabajo reemplazando al que esté en curso.
+     * @param trabajo Trabajo a ejecutar en segundo plano
+     * @param alTerminar Recibe el resultado en el hilo de JavaFX
+     * @param alFallar Recibe la excepción en el hilo de JavaFX
+     * @param <T> Tipo del resultado
+     */
+    public <T> void ejecutar(Callable<T> trabajo, Consumer<? super T> alTerminar, Consumer<Exception> alFallar) {
+        cancelar();
+        long propia = generacion;
+        mostrarIndicador(true);
+        enCurso = EjecutorUI.ejecutar(trabajo,
+                resultado -> {
+                    if (terminar(propia)) {
+                        alTerminar.accept(resultado);
+                    }
+                },
+                error -> {
+                    if (terminar(propia)) {
+                        alFallar.accept(error);
+                    }
+                });
+    }
+
+    /**
+     * Descarta la tarea en curso; su resultado ya no se entregará.
+     */
+    public void cancelar() {
+        if (enCurso != null) {
+            // Sin interrumpir: interrumpir un hilo virtual bloqueado en el socket cierra la
+            // conexión de JDBC y el pool tendría que reemplazarla. Basta con ignorar el resultado.
+            enCurso.cancel(false);
+            enCurso = null;
+        }
+        generacion++;
+        mostrarIndicador(false);
+    }
+
+    /**
+     * @return true si hay una tarea cuyo resultado aún no se ha entregado
+     */
+    public boolean isOcupado() {
+        return enCurso != null;
+    }
+
+    private boolean terminar(long propia) {
+        if (propia != generacion) {
+            return false;
+        }
+        enCurso = null;
+        mostrarIndicador(false);
+        return true;
+    }
+
+    private void mostrarIndicador(boolean visible) {
+        if (indicador != null) {
+            indicador.setVisible(visible);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.mistrapitos.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cola única para generar e imprimir tickets fuera del hilo de JavaFX.
+ * <p>
+ * Un solo hilo atiende los trabajos en el orden en que llegan, así la impresora nunca
+ * recibe dos tickets a la vez. La cola es acotada: si se llena, {@link #encolar} falla de
+ * inmediato en lugar de acumular tickets que saldrían minutos después. Cada trabajo que
+ * falla se reintenta con una espera creciente, y tanto la espera en la cola como la
+ * duración de cada intento quedan en {@link Metricas} (tipo impresion).
+ * <p>
+ * Configuración opcional (ver {@link Configuracion}): impresion.cola.capacidad,
+ * impresion.intentos e impresion.esperaReintentoMs.
+ */
+public final class ColaImpresion {
+
+    private static final Logger logger = LoggerFactory.getLogger(ColaImpresion.class);
+
+    private static final int CAPACIDAD = Math.max(1, Configuracion.entero("impresion.cola.capacidad", 20));
+    private static final int INTENTOS = Math.max(1, Configuracion.entero("impresion.intentos", 3));
+    private static final long ESPERA_REINTENTO_MS = Configuracion.largo("impresion.esperaReintentoMs", 1000);
+    private static final long SEGUNDOS_PARA_VACIAR = 10;
+
+    private static ThreadPoolExecutor hilo;
+
+    private ColaImpresion() {
+    }
+
+    /**
+     * Trabajo de impresión: genera el ticket y lo envía a su destino.
+     */
+    @FunctionalInterface
+    public interface Trabajo {
+        /**
+         * @return true si se imprimió; false o una excepción provocan un reintento
+         */
+        boolean ejecutar() throws Exception;
+    }
+
+    /**
+     * Pone un trabajo al final de la cola.
+     * @param nombre Nombre del trabajo para el log y las métricas, por ejemplo ticketPdf
+     * @param trabajo Trabajo a ejecutar (no debe tocar controles de la interfaz)
+     * @return Se completa con true si el trabajo salió bien en alguno de los intentos
+     * @throws IllegalStateException Si la cola está llena
+     */
+    public static CompletableFuture<Boolean> encolar(String nombre, Trabajo trabajo) {
+        Encolado encolado = new Encolado(nombre, trabajo);
+        try {
+            ejecutor().execute(encolado);
+        } catch (RejectedExecutionException e) {
+            Metricas.impresion("cola").registrar(0, true);
+            throw new IllegalStateException("La cola de impresión está llena (" + CAPACIDAD
+                    + " tickets); espere a que terminen los pendientes", e);
+        }
+        return encolado.resultado;
+    }
+
+    /**
+     * @return Trabajos en la cola más el que se está imprimiendo
+     */
+    public static synchronized int pendientes() {
+        return hilo == null ? 0 : hilo.getQueue().size() + hilo.getActiveCount();
+    }
+
+    /**
+     * Deja de aceptar trabajos y espera a que salgan los que ya estaban en la cola. Si no
+     * salen a tiempo, se interrumpe el que se está imprimiendo y los que seguían en la cola
+     * se completan con {@link CancellationException}, para que nadie espere un resultado
+     * que ya no llegará.
+     */
+    public static void detener() {
+        ThreadPoolExecutor actual;
+        synchronized (ColaImpresion.class) {
+            actual = hilo;
+            hilo = null;
+        }
+        if (actual == null) {
+            return;
+        }
+        actual.shutdown();
+        try {
+            if (!actual.awaitTermination(SEGUNDOS_PARA_VACIAR, TimeUnit.SECONDS)) {
+                descartar(actual.shutdownNow());
+            }
+        } catch (InterruptedException e) {
+            descartar(actual.shutdownNow());
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void descartar(List<Runnable> descartados) {
+        for (Runnable r : descartados) {
+            if (r instanceof Encolado encolado) {
+                encolado.resultado.completeExceptionally(new CancellationException(
+                        "Se cerró la cola de impresión antes de imprimir " + encolado.nombre));
+            }
+        }
+        if (!descartados.isEmpty()) {
+            logger.warn("Se cerró la cola de impresión con {} tickets sin imprimir", descartados.size());
+        }
+    }
+
+    private static synchronized ThreadPoolExecutor ejecutor() {
+        if (hilo == null) {
+            hilo = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(CAPACIDAD), r -> {
+                        Thread t = new Thread(r, "cola-impresion");
+                        t.setDaemon(true);
+                        return t;
+                    });
+        }
+        return hilo;
+    }
+
+    /**
+     * Trabajo en la cola junto con el resultado que espera quien lo encoló.
+     */
+    private static final class Encolado implements Runnable {
+        private final String nombre;
+        private final Trabajo trabajo;
+        private final CompletableFuture<Boolean> resultado = new CompletableFuture<>();
+        private final long encolado = System.nanoTime();
+
+        Encolado(String nombre, Trabajo trabajo) {
+            this.nombre = nombre;
+            this.trabajo = trabajo;
+        }
+
+        @Override
+        public void run() {
+            Metricas.impresion("cola").registrar(System.nanoTime() - encolado, false);
+            try {
+                resultado.complete(conReintentos(nombre, trabajo));
+            } catch (RuntimeException e) {
+                resultado.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static boolean conReintentos(String nombre, Trabajo trabajo) {
+        Metricas.Medidor medidor = Metricas.impresion(nombre);
+        for (int intento = 1; intento <= INTENTOS; intento++) {
+            long inicio = System.nanoTime();
+            boolean exito = false;
+            try {
+                exito = trabajo.ejecutar();
+                if (!exito) {
+                    logger.warn("El trabajo de impresión {} falló (intento {} de {})", nombre, intento, INTENTOS);
+                }
+            } catch (InterruptedException e) {
+                // La cola se está cerrando: no se reintenta
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                logger.warn("El trabajo de impresión {} falló (intento {} de {})", nombre, intento, INTENTOS, e);
+            } finally {
+                medidor.registrar(System.nanoTime() - inicio, !exito);
+            }
+            if (exito) {
+                return true;
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            if (intento < INTENTOS) {
+                try {
+                    Thread.sleep(ESPERA_REINTENTO_MS * intento);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        logger.error("No se pudo completar el trabajo de impresión {} tras {} intentos", nombre, INTENTOS);
+        return false;
+    }
+}
@@ -0,0 +1,209 @@
+package com.mistrapitos.utils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Envuelve una conexión JDBC para medir cada sentencia sin tocar los DAO.
+ * <p>
+ * Solo se mide el execute* de cada sentencia: su latencia, sus errores y las filas que
+ * modificó. La latencia de una consulta es la del execute, es decir hasta que llega el
+ * primer lote de filas; los ResultSet se entregan sin envolver, así que recorrerlos no
+ * cuesta nada extra. Las filas leídas las informa el DAO al terminar de recorrerlas (ver
+ * {@link Metricas#filasLeidas}) y se suman a la última consulta ejecutada con esa sentencia.
+ * <p>
+ * El método de la aplicación que pidió la sentencia (por ejemplo VentaDao.insertar) se
+ * busca en la pila la primera vez que aparece cada texto SQL y después se recuerda, porque
+ * cada sentencia se arma en un solo lugar del código. El controlador desde el que se lanzó
+ * depende de la pantalla, así que se busca recorriendo la pila solo en una de cada
+ * {@value #MUESTREO_PANTALLA} sentencias: las métricas por pantalla son una muestra.
+ */
+final class ConexionMedida {
+
+    private static final String PAQUETE_APP = "com.mistrapitos.";
+    private static final StackWalker PILA = StackWalker.getInstance();
+    private static final int MUESTREO_PANTALLA = 16;
+    // Tope de textos SQL recordados, por si alguno se arma con valores literales
+    private static final int MAXIMO_SQL = 2048;
+    private static final Map<String, Metricas.Medidor> consultasPorSql = new ConcurrentHashMap<>();
+
+    private ConexionMedida() {
+    }
+
+    /**
+     * @param conexion Conexión entregada por el pool
+     * @return La misma conexión, medida
+     */
+    static Connection envolver(Connection conexion) {
+        return (Connection) Proxy.newProxyInstance(ConexionMedida.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ManejadorConexion(conexion));
+    }
+
+    private static Object invocar(Object destino, Method metodo, Object[] args) throws Throwable {
+        try {
+            return metodo.invoke(destino, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Medidor de la consulta con este texto SQL; solo la primera vez se recorre la pila.
+     */
+    private static Metricas.Medidor consulta(String sql) {
+        Metricas.Medidor medidor = consultasPorSql.get(sql);
+        if (medidor == null) {
+            medidor = Metricas.consulta(origenConsulta());
+            if (consultasPorSql.size() < MAXIMO_SQL) {
+                consultasPorSql.putIfAbsent(sql, medidor);
+            }
+        }
+        return medidor;
+    }
+
+    // El método más cercano de la aplicación que no sea esta clase
+    private static String origenConsulta() {
+        return PILA.walk(frames -> frames
+                .filter(f -> f.getClassName().startsWith(PAQUETE_APP)
+                        && !f.getClassName().equals(ConexionMedida.class.getName())
+                        && !f.getClassName().startsWith(ConexionMedida.class.getName() + "$"))
+                .findFirst()
+                .map(f -> nombreSimple(f.getClassName()) + "." + nombreMetodo(f.getMethodName()))
+                .orElse("desconocida"));
+    }
+
+    // El primer controlador en la pila, si la sentencia cayó en la muestra
+    private static Metricas.Medidor pantallaMuestreada() {
+        if (ThreadLocalRandom.current().nextInt(MUESTREO_PANTALLA) != 0) {
+            return null;
+        }
+        Optional<String> controlador = PILA.walk(frames -> frames
+                .map(StackWalker.StackFrame::getClassName)
+                .filter(c -> c.startsWith(PAQUETE_APP))
+                .map(ConexionMedida::nombreSimple)
+                .filter(c -> c.endsWith("Controller"))
+                .findFirst());
+        return controlador.map(Metricas::pantalla).orElse(null);
+    }
+
+    private static final class ManejadorConexion implements InvocationHandler {
+        private final Connection conexion;
+
+        ManejadorConexion(Connection conexion) {
+            this.conexion = conexion;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            Object resultado = invocar(conexion, metodo, args);
+            if (resultado instanceof Statement sentencia) {
+                Class<?> tipo = sentencia instanceof CallableStatement ? CallableStatement.class
+                        : sentencia instanceof PreparedStatement ? PreparedStatement.class
+                        : Statement.class;
+                // prepareStatement/prepareCall reciben el SQL; createStatement lo recibe en cada execute
+                Metricas.Medidor medidor = args != null && args.length > 0 && args[0] instanceof String sql
+                        ? consulta(sql) : null;
+                return Proxy.newProxyInstance(ConexionMedida.class.getClassLoader(), new Class<?>[]{tipo},
+                        new ManejadorSentencia(sentencia, medidor, pantallaMuestreada()));
+            }
+            return resultado;
+        }
+    }
+
+    private static final class ManejadorSentencia implements InvocationHandler {
+        private final Statement sentencia;
+        private final Metricas.Medidor preparada;
+        private final Metricas.Medidor pantalla;
+        // Consulta del último execute, para atribuirle las filas que lea el DAO
+        private volatile Metricas.Medidor ultima;
+
+        ManejadorSentencia(Statement sentencia, Metricas.Medidor preparada, Metricas.Medidor pantalla) {
+            this.sentencia = sentencia;
+            this.preparada = preparada;
+            this.pantalla = pantalla;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            String nombre = metodo.getName();
+            if (!nombre.startsWith("execute")) {
+                return invocar(sentencia, metodo, args);
+            }
+            Metricas.Medidor consulta = preparada != null ? preparada
+                    : args != null && args.length > 0 && args[0] instanceof String sql ? consulta(sql)
+                    : Metricas.consulta(origenConsulta());
+            ultima = consulta;
+            long inicio = System.nanoTime();
+            boolean error = true;
+            try {
+                Object resultado = invocar(sentencia, metodo, args);
+                error = false;
+                consulta.sumarFilas(filasModificadas(resultado));
+                return resultado;
+            } finally {
+                long duracion = System.nanoTime() - inicio;
+                consulta.registrar(duracion, error);
+                if (pantalla != null) {
+                    pantalla.registrar(duracion, error);
+                }
+            }
+        }
+
+        // executeUpdate devuelve un número y executeBatch uno por sentencia (o SUCCESS_NO_INFO en los
+        // INSERT que el controlador reescribe como uno solo); execute y executeQuery no cuentan
+        private static long filasModificadas(Object resultado) {
+            long filas = 0;
+            if (resultado instanceof Integer || resultado instanceof Long) {
+                filas = ((Number) resultado).longValue();
+            } else if (resultado instanceof int[] lote) {
+                for (int n : lote) {
+                    filas += Math.max(n, 0);
+                }
+            } else if (resultado instanceof long[] lote) {
+                for (long n : lote) {
+                    filas += Math.max(n, 0);
+                }
+            }
+            return Math.max(filas, 0);
+        }
+    }
+
+    /**
+     * Suma filas leídas a la última consulta ejecutada con la sentencia. Si la sentencia no
+     * viene de una conexión medida (métricas desactivadas) no hace nada.
+     */
+    static void sumarFilasLeidas(Statement sentencia, long filas) {
+        if (Proxy.isProxyClass(sentencia.getClass())
+                && Proxy.getInvocationHandler(sentencia) instanceof ManejadorSentencia manejador) {
+            Metricas.Medidor consulta = manejador.ultima;
+            if (consulta != null) {
+                consulta.sumarFilasLeidas(filas);
+            }
+        }
+    }
+
+    private static String nombreSimple(String clase) {
+        String simple = clase.substring(clase.lastIndexOf('.') + 1);
+        int interna = simple.indexOf('$');
+        return interna > 0 ? simple.substring(0, interna) : simple;
+    }
+
+    // lambda$cargarVentas$3 -> cargarVentas
+    private static String nombreMetodo(String metodo) {
+        if (metodo.startsWith("lambda$")) {
+            int fin = metodo.indexOf('$', "lambda$".length());
+            return fin > 0 ? metodo.substring("lambda$".length(), fin) : metodo;
+        }
+        return metodo;
+    }
+}
@@ -0,0 +1,81 @@
+package com.mistrapitos.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Acceso a config.properties con la posibilidad de sobrescribir cualquier clave desde
+ * una variable de entorno: db.pool.maximo se lee de MISTRAPITOS_DB_POOL_MAXIMO si existe.
+ * Así cada caja puede ajustar la conexión sin recompilar el archivo de configuración.
+ */
+public final class Configuracion {
+
+    private static final Logger logger = LoggerFactory.getLogger(Configuracion.class);
+    private static final String PREFIJO_ENTORNO = "MISTRAPITOS_";
+    private static final Properties propiedades = cargar();
+
+    private Configuracion() {
+    }
+
+    private static Properties cargar() {
+        Properties props = new Properties();
+        try (InputStream in = Configuracion.class.getResourceAsStream("/config.properties")) {
+            if (in != null) {
+                props.load(in);
+            } else {
+                logger.warn("No se encontró config.properties; solo se usarán variables de entorno y valores por defecto");
+            }
+        } catch (IOException e) {
+            logger.error("Error al leer config.properties", e);
+        }
+        return props;
+    }
+
+    /**
+     * @param clave Clave de config.properties, por ejemplo db.url
+     * @return Nombre de la variable de entorno que la sobrescribe, por ejemplo MISTRAPITOS_DB_URL
+     */
+    static String variableEntorno(String clave) {
+        return PREFIJO_ENTORNO + clave.replaceAll("([a-z])([A-Z])", "$1_$2")
+                .replace('.', '_')
+                .toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * @return El valor de la variable de entorno, el de config.properties o el valor por defecto, en ese orden
+     */
+    public static String texto(String clave, String porDefecto) {
+        String entorno = System.getenv(variableEntorno(clave));
+        if (entorno != null && !entorno.isBlank()) {
+            return entorno.trim();
+        }
+        String valor = propiedades.getProperty(clave);
+        return valor != null && !valor.isBlank() ? valor.trim() : porDefecto;
+    }
+
+    public static int entero(String clave, int porDefecto) {
+        return (int) largo(clave, porDefecto);
+    }
+
+    public static long largo(String clave, long porDefecto) {
+        String valor = texto(clave, null);
+        if (valor == null) {
+            return porDefecto;
+        }
+        try {
+            return Long.parseLong(valor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("El valor de " + clave + " debe ser un número: " + valor, e);
+        }
+    }
+
+    public static boolean logico(String clave, boolean porDefecto) {
+        String valor = texto(clave, null);
+        return valor != null ? Boolean.parseBoolean(valor) : porDefecto;
+    }
+}
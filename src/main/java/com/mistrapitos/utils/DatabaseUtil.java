@@ -2,74 +2,358 @@ package com.mistrapitos.utils;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.pool.HikariPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.net.ConnectException;
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.Properties;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Clase de utilidad para gestionar la conexión a la base de datos.
+ * <p>
+ * El pool se configura con las claves db.* de config.properties, que pueden sobrescribirse
+ * con variables de entorno (ver {@link Configuracion}):
+ * <ul>
+ *   <li>db.pool.maximo: conexiones máximas, o "auto" para calcularlo con los núcleos disponibles</li>
+ *   <li>db.pool.minimoInactivas: conexiones que se abren al iniciar y se mantienen listas</li>
+ *   <li>db.pool.esperaMaximaMs, db.pool.inactividadMs, db.pool.vidaMaximaMs: tiempos del pool</li>
+ *   <li>db.pool.esperaCobroMs: espera máxima por una conexión al cobrar, más corta que la
+ *       general para pasar pronto al diario local si la base no responde</li>
+ *   <li>db.pool.deteccionFugasMs: avisa en el log de conexiones prestadas por más tiempo (0 = apagado)</li>
+ *   <li>db.sentencias.umbralPreparacion, db.sentencias.cacheConsultas, db.sentencias.cacheMiB:
+ *       caché de sentencias preparadas del controlador de PostgreSQL</li>
+ *   <li>db.filasPorLote: filas por viaje al leer con autocommit apagado (0 = todas)</li>
+ * </ul>
+ * Si se define db.replica.url se abre además un pool de solo lectura hacia una réplica
+ * (db.replica.username, db.replica.password, db.replica.pool.maximo,
+ * db.replica.esperaMaximaMs) que atiende {@link #getReadOnlyConnection()}, para que los
+ * reportes pesados no compitan con las cajas por la base principal. Si la réplica falla,
+ * se usa la base principal durante db.replica.pausaMs antes de volver a intentarlo.
  */
 public class DatabaseUtil {
-    
+
     private static final Logger logger = LoggerFactory.getLogger(DatabaseUtil.class);
-    private static HikariDataSource dataSource;
-    
+    private static final String NOMBRE_POOL = "mistrapitos";
+    private static final String NOMBRE_REPLICA = "mistrapitos-replica";
+    // Tras un fallo de la réplica no se vuelve a intentar hasta pasado este tiempo
+    private static final long PAUSA_REPLICA_MS = Configuracion.largo("db.replica.pausaMs", 30_000);
+    // Hikari ignora umbrales de fuga menores a 2 segundos
+    private static final long FUGA_MINIMA_MS = 2000;
+    private static volatile HikariDataSource dataSource;
+    private static volatile HikariDataSource replica;
+    private static volatile long replicaEnPausaHasta;
+
     /**
-     * Inicializa el pool de conexiones a la base de datos.
+     * Inicializa el pool de conexiones a la base de datos, abre las conexiones mínimas y
+     * registra en el log la capacidad efectiva del pool. Solo la primera llamada crea el
+     * pool; las demás, aunque lleguen desde otros hilos, no hacen nada. Una réplica de
+     * lectura caída no impide iniciar: los reportes usan la base principal mientras tanto.
      */
-    public static void initialize() {
+    public static synchronized void initialize() {
+        if (dataSource != null) {
+            return;
+        }
         try {
-            Properties props = new Properties();
-            props.load(DatabaseUtil.class.getResourceAsStream("/config.properties"));
-            
-            HikariConfig config = new HikariConfig();
-            config.setJdbcUrl(props.getProperty("db.url"));
-            config.setUsername(props.getProperty("db.username"));
-            config.setPassword(props.getProperty("db.password"));
-            config.setDriverClassName("org.postgresql.Driver");
-            
-            // Configuración del pool de conexiones
-            config.setMaximumPoolSize(10);
-            config.setMinimumIdle(2);
-            config.setIdleTimeout(30000);
-            config.setConnectionTimeout(30000);
-            config.setMaxLifetime(1800000);
-            
-            // Propiedades adicionales
-            config.addDataSourceProperty("cachePrepStmts", "true");
-            config.addDataSourceProperty("prepStmtCacheSize", "250");
-            config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
-            
-            dataSource = new HikariDataSource(config);
+            String url = Configuracion.texto("db.url", null);
+            if (url == null) {
+                throw new IllegalArgumentException("Falta la URL de la base de datos (db.url)");
+            }
+            HikariConfig config = crearConfiguracion(NOMBRE_POOL, url,
+                    Configuracion.texto("db.username", null), Configuracion.texto("db.password", null));
+            HikariDataSource nuevo = new HikariDataSource(config);
+            try {
+                precalentar(nuevo, config.getMinimumIdle());
+                autoprueba(nuevo);
+            } catch (SQLException e) {
+                nuevo.close();
+                throw e;
+            }
+            dataSource = nuevo;
+            replica = crearReplica();
             logger.info("Conexión a la base de datos inicializada correctamente");
         } catch (Exception e) {
             logger.error("Error al inicializar la conexión a la base de datos", e);
             throw new RuntimeException("Error al inicializar la conexión a la base de datos", e);
         }
     }
-    
+
+    private static HikariConfig crearConfiguracion(String nombre, String url, String usuario, String contrasena) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(nombre);
+        config.setJdbcUrl(url);
+        config.setUsername(usuario);
+        config.setPassword(contrasena);
+        config.setDriverClassName("org.postgresql.Driver");
+
+        // Configuración del pool de conexiones
+        int maximo = tamanoMaximo();
+        config.setMaximumPoolSize(maximo);
+        config.setMinimumIdle(Math.min(Configuracion.entero("db.pool.minimoInactivas", 2), maximo));
+        config.setIdleTimeout(Configuracion.largo("db.pool.inactividadMs", 30000));
+        config.setConnectionTimeout(Configuracion.largo("db.pool.esperaMaximaMs", 30000));
+        config.setMaxLifetime(Configuracion.largo("db.pool.vidaMaximaMs", 1800000));
+        long fugas = Configuracion.largo("db.pool.deteccionFugasMs", 0);
+        if (fugas > 0) {
+            config.setLeakDetectionThreshold(Math.max(fugas, FUGA_MINIMA_MS));
+        }
+
+        // Caché de sentencias preparadas del controlador de PostgreSQL (las propiedades
+        // cachePrepStmts/prepStmtCacheSize que había aquí son de MySQL y pgjdbc las ignora)
+        config.addDataSourceProperty("prepareThreshold",
+                String.valueOf(Configuracion.entero("db.sentencias.umbralPreparacion", 5)));
+        config.addDataSourceProperty("preparedStatementCacheQueries",
+                String.valueOf(Configuracion.entero("db.sentencias.cacheConsultas", 256)));
+        config.addDataSourceProperty("preparedStatementCacheSizeMiB",
+                String.valueOf(Configuracion.entero("db.sentencias.cacheMiB", 5)));
+        config.addDataSourceProperty("defaultRowFetchSize",
+                String.valueOf(Configuracion.entero("db.filasPorLote", 0)));
+        // Los lotes de INSERT se reescriben como un solo INSERT multi-fila
+        config.addDataSourceProperty("reWriteBatchedInserts", "true");
+        return config;
+    }
+
+    /**
+     * Crea el pool de la réplica de lectura, o devuelve null si no hay réplica configurada.
+     * Se permite crearlo con la réplica apagada; sus conexiones se intentan al pedirlas.
+     */
+    private static HikariDataSource crearReplica() {
+        String url = Configuracion.texto("db.replica.url", null);
+        if (url == null) {
+            return null;
+        }
+        HikariConfig config = crearConfiguracion(NOMBRE_REPLICA, url,
+                Configuracion.texto("db.replica.username", Configuracion.texto("db.username", null)),
+                Configuracion.texto("db.replica.password", Configuracion.texto("db.password", null)));
+        int maximo = Math.max(1, Configuracion.entero("db.replica.pool.maximo", 4));
+        config.setMaximumPoolSize(maximo);
+        config.setMinimumIdle(Math.min(config.getMinimumIdle(), maximo));
+        // Espera corta: si la réplica no responde conviene pasar pronto a la base principal
+        config.setConnectionTimeout(Configuracion.largo("db.replica.esperaMaximaMs", 2000));
+        config.setReadOnly(true);
+        config.setInitializationFailTimeout(-1);
+
+        HikariDataSource ds = new HikariDataSource(config);
+        try {
+            autoprueba(ds);
+        } catch (SQLException e) {
+            pausarReplica(e);
+        }
+        return ds;
+    }
+
+    private static void pausarReplica(SQLException causa) {
+        replicaEnPausaHasta = System.currentTimeMillis() + PAUSA_REPLICA_MS;
+        logger.warn("La réplica de lectura no está disponible ({}); los reportes usarán la base principal " +
+                "durante {} ms", causa.getMessage(), PAUSA_REPLICA_MS);
+    }
+
+    /**
+     * Con "auto" el máximo sigue la regla de HikariCP (núcleos * 2 + 1), acotada a un
+     * rango razonable para una tienda; el servidor suele correr en la misma máquina.
+     */
+    private static int tamanoMaximo() {
+        String valor = Configuracion.texto("db.pool.maximo", "auto");
+        int maximo;
+        if ("auto".equalsIgnoreCase(valor)) {
+            maximo = Math.max(4, Math.min(20, Runtime.getRuntime().availableProcessors() * 2 + 1));
+        } else {
+            maximo = Configuracion.entero("db.pool.maximo", 10);
+        }
+        if (maximo < 1) {
+            throw new IllegalArgumentException("db.pool.maximo debe ser al menos 1: " + maximo);
+        }
+        return maximo;
+    }
+
+    /**
+     * Abre a la vez las conexiones mínimas para que la primera pantalla no pague el
+     * costo de conectarse (autenticación, TLS) mientras el cajero espera.
+     */
+    private static void precalentar(HikariDataSource ds, int conexiones) throws SQLException {
+        long inicio = System.nanoTime();
+        List<Connection> abiertas = new ArrayList<>(conexiones);
+        try {
+            for (int i = 0; i < conexiones; i++) {
+                abiertas.add(ds.getConnection());
+            }
+        } finally {
+            for (Connection conn : abiertas) {
+                conn.close();
+            }
+        }
+        logger.debug("Pool precalentado con {} conexiones en {} ms", abiertas.size(),
+                (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    /**
+     * Comprueba la conexión y reporta la capacidad del pool. Si en este momento el servidor
+     * no admite tantas conexiones como el máximo configurado, solo lo advierte: el máximo
+     * se conserva porque las conexiones que ocupan otros clientes suelen liberarse, y
+     * reducirlo aquí dejaría el pool pequeño hasta reiniciar la aplicación.
+     */
+    private static void autoprueba(HikariDataSource ds) throws SQLException {
+        HikariPoolMXBean pool = ds.getHikariPoolMXBean();
+        int maximo = ds.getMaximumPoolSize();
+        long idaYVuelta;
+        int admitidas;
+        try (Connection conn = ds.getConnection();
+             Statement stmt = conn.createStatement()) {
+            long inicio = System.nanoTime();
+            stmt.execute("SELECT 1");
+            idaYVuelta = (System.nanoTime() - inicio) / 1000;
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT current_setting('max_connections')::int " +
+                    "- current_setting('superuser_reserved_connections')::int " +
+                    "- (SELECT COUNT(*) FROM pg_stat_activity WHERE backend_type = 'client backend')")) {
+                rs.next();
+                // Las conexiones propias ya abiertas también cuentan como disponibles
+                admitidas = rs.getInt(1) + pool.getTotalConnections();
+            }
+        }
+        if (admitidas < maximo) {
+            logger.warn("El servidor solo admite {} conexiones más y el pool {} puede abrir hasta {}; " +
+                    "si se llenan, las cajas fallarán con \"too many clients\". Revise max_connections " +
+                    "o db.pool.maximo", admitidas, ds.getPoolName(), maximo);
+        }
+        logger.info("Pool {}: capacidad {} conexiones ({} abiertas, {} inactivas), espera máxima {} ms, " +
+                        "ida y vuelta {} µs, detección de fugas {}",
+                ds.getPoolName(), maximo, pool.getTotalConnections(), pool.getIdleConnections(),
+                ds.getConnectionTimeout(), idaYVuelta,
+                ds.getLeakDetectionThreshold() > 0 ? ds.getLeakDetectionThreshold() + " ms" : "apagada");
+    }
+
     /**
-     * Obtiene una conexión del pool de conexiones.
+     * Obtiene una conexión del pool de conexiones. Si las métricas están activas se
+     * registra el tiempo de espera por la conexión y esta se entrega medida.
      * @return Conexión a la base de datos
      * @throws SQLException Si ocurre un error al obtener la conexión
      */
     public static Connection getConnection() throws SQLException {
+        HikariDataSource ds = dataSource;
+        if (ds == null) {
+            initialize();
+            ds = dataSource;
+        }
+        return obtener(ds, 0);
+    }
+
+    /**
+     * Obtiene una conexión del pool esperando a lo sumo el tiempo indicado, en lugar de
+     * db.pool.esperaMaximaMs. Sirve a quien tiene algo mejor que hacer que esperar, como el
+     * cobro, que sin conexión guarda la venta en el diario local.
+     * @param esperaMaximaMs Espera máxima por una conexión libre o nueva (0 = la del pool)
+     * @return Conexión a la base de datos
+     * @throws SQLException Si no se obtiene una conexión a tiempo
+     */
+    public static Connection getConnection(long esperaMaximaMs) throws SQLException {
+        HikariDataSource ds = dataSource;
+        if (ds == null) {
+            initialize();
+            ds = dataSource;
+        }
+        return obtener(ds, esperaMaximaMs);
+    }
+
+    /**
+     * Obtiene una conexión de solo lectura para reportes y consultas de análisis. Sale de
+     * la réplica si hay una configurada y responde; si no, de la base principal. Los datos
+     * pueden ir unos instantes atrás de la base principal, así que no debe usarse para
+     * leer lo que se acaba de escribir ni dentro de una venta.
+     * @return Conexión a la réplica o, en su defecto, a la base principal
+     * @throws SQLException Si tampoco se puede obtener una conexión de la base principal
+     */
+    public static Connection getReadOnlyConnection() throws SQLException {
         if (dataSource == null) {
             initialize();
         }
-        return dataSource.getConnection();
+        HikariDataSource ds = replica;
+        if (ds != null && System.currentTimeMillis() >= replicaEnPausaHasta) {
+            try {
+                return obtener(ds, 0);
+            } catch (SQLException e) {
+                pausarReplica(e);
+            }
+        }
+        return getConnection();
     }
-    
+
+    private static Connection obtener(HikariDataSource ds, long esperaMaximaMs) throws SQLException {
+        if (!Metricas.habilitadas()) {
+            return prestar(ds, esperaMaximaMs);
+        }
+        long inicio = System.nanoTime();
+        boolean error = true;
+        try {
+            Connection conexion = ConexionMedida.envolver(prestar(ds, esperaMaximaMs));
+            error = false;
+            return conexion;
+        } finally {
+            Metricas.registrarEsperaPool(ds.getPoolName(), System.nanoTime() - inicio, error);
+        }
+    }
+
+    // HikariDataSource solo conoce la espera del pool; su HikariPool admite una por llamada
+    private static Connection prestar(HikariDataSource ds, long esperaMaximaMs) throws SQLException {
+        if (esperaMaximaMs > 0 && ds.getHikariPoolMXBean() instanceof HikariPool pool) {
+            return pool.getConnection(esperaMaximaMs);
+        }
+        return ds.getConnection();
+    }
+
+    /**
+     * Indica si un error se debe a que no hay conexión con la base de datos (servidor caído,
+     * red cortada o pool sin conexiones a tiempo) y no a la operación en sí.
+     * @param error Excepción a revisar, junto con sus causas
+     * @return true si es una falla de conexión
+     */
+    public static boolean esFallaDeConexion(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof SQLTransientConnectionException || t instanceof SQLNonTransientConnectionException
+                    || t instanceof ConnectException) {
+                return true;
+            }
+            // Clase 08 de SQLSTATE: excepciones de conexión
+            if (t instanceof SQLException sql && sql.getSQLState() != null && sql.getSQLState().startsWith("08")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Indica si el pool no entregó una conexión a tiempo solo porque todas estaban prestadas.
+     * Cuando la base no responde, Hikari adjunta como causa la última falla al abrir una
+     * conexión; sin causa, las conexiones se están abriendo bien y basta con esperar más.
+     * @param error Excepción de {@link #getConnection(long)}
+     * @return true si el pool está ocupado pero la base responde
+     */
+    public static boolean esPoolOcupado(SQLException error) {
+        return error instanceof SQLTransientConnectionException && error.getCause() == null;
+    }
+
     /**
      * Cierra el pool de conexiones.
      */
-    public static void close() {
-        if (dataSource != null && !dataSource.isClosed()) {
-            dataSource.close();
+    public static synchronized void close() {
+        HikariDataSource r = replica;
+        replica = null;
+        if (r != null && !r.isClosed()) {
+            r.close();
+        }
+        HikariDataSource ds = dataSource;
+        dataSource = null;
+        if (ds != null && !ds.isClosed()) {
+            ds.close();
             logger.info("Conexión a la base de datos cerrada correctamente");
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,94 @@
+package com.mistrapitos.utils;
+
+import javafx.application.Platform;
+import javafx.scene.control.ProgressIndicator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Ejecuta fuera del hilo de JavaFX el trabajo de base de datos que piden los controladores.
+ * Cada tarea corre en su propio hilo virtual y el resultado se entrega con Platform.runLater,
+ * así que el hilo de la interfaz nunca espera a la base de datos ni a una conexión del pool.
+ */
+public final class EjecutorUI {
+
+    private static final Logger logger = LoggerFactory.getLogger(EjecutorUI.class);
+
+    private static final ExecutorService hilos = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("tarea-ui-", 0).factory());
+
+    private EjecutorUI() {
+    }
+
+    /**
+     * Ejecuta un trabajo en segundo plano y entrega su resultado en el hilo de JavaFX.
+     * Si el trabajo falla, el error se registra en el log.
+     * @param trabajo Trabajo a ejecutar (no debe tocar controles de la interfaz)
+     * @param alTerminar Recibe el resultado en el hilo de JavaFX
+     * @param <T> Tipo del resultado
+     * @return Future de la tarea
+     */
+    public static <T> Future<?> ejecutar(Callable<T> trabajo, Consumer<? super T> alTerminar) {
+        return ejecutar(trabajo, alTerminar, EjecutorUI::registrarFallo);
+    }
+
+    /**
+     * Ejecuta un trabajo en segundo plano y entrega su resultado o su error en el hilo de JavaFX.
+     * @param trabajo Trabajo a ejecutar (no debe tocar controles de la interfaz)
+     * @param alTerminar Recibe el resultado en el hilo de JavaFX
+     * @param alFallar Recibe la excepción en el hilo de JavaFX
+     * @param <T> Tipo del resultado
+     * @return Future de la tarea
+     */
+    public static <T> Future<?> ejecutar(Callable<T> trabajo, Consumer<? super T> alTerminar,
+                                         Consumer<Exception> alFallar) {
+        return hilos.submit(() -> {
+            T resultado;
+            try {
+                resultado = trabajo.call();
+            } catch (Exception e) {
+                Platform.runLater(() -> alFallar.accept(e));
+                return;
+            }
+            Platform.runLater(() -> alTerminar.accept(resultado));
+        });
+    }
+
+    /**
+     * Crea un ProgresoReporte que muestra el avance en un indicador. Las actualizaciones
+     * se agrupan: mientras una no se haya pintado no se encola otra en el hilo de JavaFX.
+     * @param indicador Indicador a actualizar
+     * @return Progreso para pasar al trabajo en segundo plano
+     */
+    public static ProgresoReporte progresoEn(ProgressIndicator indicador) {
+        AtomicBoolean pendiente = new AtomicBoolean(false);
+        long[] ultimo = new long[2];
+        return (procesadas, total) -> {
+            synchronized (ultimo) {
+                ultimo[0] = procesadas;
+                ultimo[1] = total;
+            }
+            if (pendiente.compareAndSet(false, true)) {
+                Platform.runLater(() -> {
+                    pendiente.set(false);
+                    synchronized (ultimo) {
+                        indicador.setProgress(ultimo[1] > 0
+                                ? Math.min(1.0, (double) ultimo[0] / ultimo[1])
+                                : ProgressIndicator.INDETERMINATE_PROGRESS);
+                    }
+                });
+            }
+        };
+    }
+
+    static void registrarFallo(Exception e) {
+        logger.error("Error en tarea en segundo plano", e);
+    }
+}
@@ -0,0 +1,114 @@
+package com.mistrapitos.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latencias al estilo HDR: cubetas log-lineales en microsegundos con
+ * 32 subcubetas por potencia de dos, lo que da un error relativo menor al 3 % en
+ * cualquier percentil sin guardar las muestras.
+ * <p>
+ * Registrar un valor es un incremento atómico sobre un arreglo de tamaño fijo, así que
+ * puede usarse desde cualquier hilo sin bloqueos.
+ */
+public class HistogramaLatencia {
+
+    private static final int BITS_SUBCUBETA = 5;
+    private static final int SUBCUBETAS = 1 << BITS_SUBCUBETA;
+    // Los valores por debajo de 2 * SUBCUBETAS se guardan exactos
+    private static final int LIMITE_EXACTO = SUBCUBETAS * 2;
+    // Cubre hasta 2^32 µs (más de una hora); lo que pase de ahí cae en la última cubeta
+    private static final int EXPONENTE_MAXIMO = 32;
+    static final int CUBETAS = (EXPONENTE_MAXIMO - BITS_SUBCUBETA + 1) * SUBCUBETAS;
+
+    private final AtomicLongArray cuentas = new AtomicLongArray(CUBETAS);
+
+    /**
+     * Registra una medición.
+     * @param micros Duración en microsegundos
+     */
+    public void registrar(long micros) {
+        cuentas.incrementAndGet(indice(micros));
+    }
+
+    /**
+     * Copia las cuentas actuales. La copia no es atómica respecto de los registros
+     * concurrentes, lo que basta para exportar métricas.
+     * @return Cuentas por cubeta
+     */
+    public long[] instantanea() {
+        long[] copia = new long[CUBETAS];
+        for (int i = 0; i < CUBETAS; i++) {
+            copia[i] = cuentas.get(i);
+        }
+        return copia;
+    }
+
+    static int indice(long micros) {
+        if (micros < LIMITE_EXACTO) {
+            return (int) Math.max(micros, 0);
+        }
+        int exponente = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponente >= EXPONENTE_MAXIMO) {
+            return CUBETAS - 1;
+        }
+        int desplazamiento = exponente - BITS_SUBCUBETA;
+        return (desplazamiento + 1) * SUBCUBETAS + (int) ((micros >> desplazamiento) - SUBCUBETAS);
+    }
+
+    /**
+     * @return Mayor valor en microsegundos que cae en la cubeta indicada
+     */
+    static long valorMaximo(int indice) {
+        if (indice < LIMITE_EXACTO) {
+            return indice;
+        }
+        int desplazamiento = indice / SUBCUBETAS - 1;
+        long inferior = (long) (indice % SUBCUBETAS + SUBCUBETAS) << desplazamiento;
+        return inferior + (1L << desplazamiento) - 1;
+    }
+
+    /**
+     * Total de mediciones en unas cuentas.
+     */
+    public static long total(long[] cuentas) {
+        long total = 0;
+        for (long c : cuentas) {
+            total += c;
+        }
+        return total;
+    }
+
+    /**
+     * Calcula un percentil sobre unas cuentas obtenidas con {@link #instantanea()}
+     * (o la diferencia entre dos de ellas).
+     * @param cuentas Cuentas por cubeta
+     * @param percentil Valor entre 0 y 100
+     * @return Latencia en microsegundos, o 0 si no hay mediciones
+     */
+    public static long percentil(long[] cuentas, double percentil) {
+        long total = total(cuentas);
+        if (total == 0) {
+            return 0;
+        }
+        long objetivo = Math.max(1, (long) Math.ceil(total * percentil / 100.0));
+        long acumulado = 0;
+        for (int i = 0; i < cuentas.length; i++) {
+            acumulado += cuentas[i];
+            if (acumulado >= objetivo) {
+                return valorMaximo(i);
+            }
+        }
+        return valorMaximo(cuentas.length - 1);
+    }
+
+    /**
+     * Resta dos instantáneas para obtener solo lo registrado en el intervalo.
+     */
+    public static long[] diferencia(long[] actual, long[] anterior) {
+        long[] resultado = new long[actual.length];
+        for (int i = 0; i < actual.length; i++) {
+            resultado[i] = actual[i] - (anterior != null ? anterior[i] : 0);
+        }
+        return resultado;
+    }
+}
@@ -0,0 +1,102 @@
+package com.mistrapitos.utils;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Hoja de Excel que se escribe fila por fila con SXSSF: solo mantiene en memoria
+ * una ventana de filas y el resto se vuelca a un archivo temporal.
+ * El ancho de cada columna se calcula mientras se escriben las filas,
+ * en lugar de usar autoSizeColumn, que vuelve a recorrer todas las celdas.
+ */
+public class HojaExcel implements AutoCloseable {
+
+    /** Filas que se mantienen en memoria antes de volcarlas a disco */
+    static final int VENTANA_FILAS = 200;
+    // Excel no admite columnas de más de 255 caracteres
+    private static final int MAX_CARACTERES = 255;
+    private static final int MIN_CARACTERES = 6;
+
+    private final SXSSFWorkbook wb;
+    private final SXSSFSheet sheet;
+    private int[] anchos = new int[0];
+    private int fila = 0;
+
+    /**
+     * Crea un libro con una sola hoja.
+     * @param nombreHoja Nombre de la hoja
+     */
+    public HojaExcel(String nombreHoja) {
+        wb = new SXSSFWorkbook(VENTANA_FILAS);
+        wb.setCompressTempFiles(true);
+        sheet = wb.createSheet(nombreHoja);
+    }
+
+    /**
+     * Agrega una fila al final de la hoja. Los valores numéricos se guardan como número,
+     * el resto como texto; los nulos dejan la celda vacía.
+     * @param valores Valores de las celdas, en orden de columna
+     */
+    public void agregarFila(Object... valores) {
+        Row r = sheet.createRow(fila++);
+        if (valores.length > anchos.length) {
+            anchos = Arrays.copyOf(anchos, valores.length);
+        }
+        for (int i = 0; i < valores.length; i++) {
+            Object valor = valores[i];
+            if (valor == null) {
+                continue;
+            }
+            Cell cell = r.createCell(i);
+            String texto;
+            if (valor instanceof Number n) {
+                cell.setCellValue(n.doubleValue());
+                texto = n.toString();
+            } else {
+                texto = valor.toString();
+                cell.setCellValue(texto);
+            }
+            if (texto.length() > anchos[i]) {
+                anchos[i] = texto.length();
+            }
+        }
+    }
+
+    /**
+     * @return Número de filas escritas, incluidas las de encabezado
+     */
+    public int getFilas() {
+        return fila;
+    }
+
+    /**
+     * Aplica los anchos calculados y escribe el libro en la ruta indicada.
+     * @param ruta Ruta del archivo .xlsx
+     * @throws IOException Si no se puede escribir el archivo
+     */
+    public void guardar(String ruta) throws IOException {
+        for (int i = 0; i < anchos.length; i++) {
+            int caracteres = Math.min(Math.max(anchos[i] + 2, MIN_CARACTERES), MAX_CARACTERES);
+            sheet.setColumnWidth(i, caracteres * 256);
+        }
+        try (OutputStream out = new FileOutputStream(ruta)) {
+            wb.write(out);
+        }
+    }
+
+    /**
+     * Libera el libro y borra los archivos temporales de SXSSF.
+     */
+    @Override
+    public void close() throws IOException {
+        wb.dispose();
+        wb.close();
+    }
+}
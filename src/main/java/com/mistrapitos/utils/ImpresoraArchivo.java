@@ -0,0 +1,183 @@
+package com.mistrapitos.utils;
+
+import javax.print.Doc;
+import javax.print.DocFlavor;
+import javax.print.DocPrintJob;
+import javax.print.PrintException;
+import javax.print.PrintService;
+import javax.print.ServiceUIFactory;
+import javax.print.attribute.Attribute;
+import javax.print.attribute.AttributeSet;
+import javax.print.attribute.HashPrintJobAttributeSet;
+import javax.print.attribute.HashPrintServiceAttributeSet;
+import javax.print.attribute.PrintJobAttributeSet;
+import javax.print.attribute.PrintRequestAttributeSet;
+import javax.print.attribute.PrintServiceAttribute;
+import javax.print.attribute.PrintServiceAttributeSet;
+import javax.print.attribute.standard.PrinterName;
+import javax.print.event.PrintJobAttributeListener;
+import javax.print.event.PrintJobListener;
+import javax.print.event.PrintServiceAttributeListener;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Impresora que escribe cada trabajo en un archivo en lugar de mandarlo a un equipo.
+ * Sirve para cajas sin impresora de tickets y para probar la cola de impresión sin
+ * interfaz ni drivers (impresion.impresora=archivo en config.properties).
+ */
+public final class ImpresoraArchivo implements PrintService {
+
+    private static final String NOMBRE = "Archivo";
+    private static final DocFlavor[] FORMATOS = {DocFlavor.INPUT_STREAM.AUTOSENSE};
+
+    private final Path directorio;
+    private final AtomicLong trabajos = new AtomicLong();
+
+    /**
+     * @param directorio Carpeta donde se guarda un archivo ticket-N.txt por trabajo
+     */
+    public ImpresoraArchivo(Path directorio) {
+        this.directorio = directorio;
+    }
+
+    public Path getDirectorio() {
+        return directorio;
+    }
+
+    /**
+     * @return Trabajos impresos desde que se creó la impresora
+     */
+    public long getTrabajosImpresos() {
+        return trabajos.get();
+    }
+
+    @Override
+    public String getName() {
+        return NOMBRE;
+    }
+
+    @Override
+    public DocPrintJob createPrintJob() {
+        return new Trabajo();
+    }
+
+    @Override
+    public void addPrintServiceAttributeListener(PrintServiceAttributeListener listener) {
+    }
+
+    @Override
+    public void removePrintServiceAttributeListener(PrintServiceAttributeListener listener) {
+    }
+
+    @Override
+    public PrintServiceAttributeSet getAttributes() {
+        PrintServiceAttributeSet atributos = new HashPrintServiceAttributeSet();
+        atributos.add(new PrinterName(NOMBRE, null));
+        return atributos;
+    }
+
+    @Override
+    public <T extends PrintServiceAttribute> T getAttribute(Class<T> categoria) {
+        return categoria == PrinterName.class ? categoria.cast(new PrinterName(NOMBRE, null)) : null;
+    }
+
+    @Override
+    public DocFlavor[] getSupportedDocFlavors() {
+        return FORMATOS.clone();
+    }
+
+    @Override
+    public boolean isDocFlavorSupported(DocFlavor formato) {
+        return FORMATOS[0].equals(formato);
+    }
+
+    @Override
+    public Class<?>[] getSupportedAttributeCategories() {
+        return new Class<?>[0];
+    }
+
+    @Override
+    public boolean isAttributeCategorySupported(Class<? extends Attribute> categoria) {
+        return false;
+    }
+
+    @Override
+    public Object getDefaultAttributeValue(Class<? extends Attribute> categoria) {
+        return null;
+    }
+
+    @Override
+    public Object getSupportedAttributeValues(Class<? extends Attribute> categoria, DocFlavor formato,
+                                              AttributeSet atributos) {
+        return null;
+    }
+
+    @Override
+    public boolean isAttributeValueSupported(Attribute atributo, DocFlavor formato, AttributeSet atributos) {
+        return false;
+    }
+
+    @Override
+    public AttributeSet getUnsupportedAttributes(DocFlavor formato, AttributeSet atributos) {
+        // Copias y demás atributos se ignoran: un archivo por trabajo
+        return null;
+    }
+
+    @Override
+    public ServiceUIFactory getServiceUIFactory() {
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return NOMBRE + " (" + directorio + ")";
+    }
+
+    private final class Trabajo implements DocPrintJob {
+
+        @Override
+        public PrintService getPrintService() {
+            return ImpresoraArchivo.this;
+        }
+
+        @Override
+        public PrintJobAttributeSet getAttributes() {
+            return new HashPrintJobAttributeSet();
+        }
+
+        @Override
+        public void addPrintJobListener(PrintJobListener listener) {
+        }
+
+        @Override
+        public void removePrintJobListener(PrintJobListener listener) {
+        }
+
+        @Override
+        public void addPrintJobAttributeListener(PrintJobAttributeListener listener, PrintJobAttributeSet atributos) {
+        }
+
+        @Override
+        public void removePrintJobAttributeListener(PrintJobAttributeListener listener) {
+        }
+
+        @Override
+        public void print(Doc doc, PrintRequestAttributeSet atributos) throws PrintException {
+            if (!isDocFlavorSupported(doc.getDocFlavor())) {
+                throw new PrintException("Formato no soportado: " + doc.getDocFlavor());
+            }
+            try (InputStream in = doc.getStreamForBytes()) {
+                Files.createDirectories(directorio);
+                Path archivo = directorio.resolve("ticket-" + System.currentTimeMillis()
+                        + "-" + trabajos.incrementAndGet() + ".txt");
+                Files.copy(in, archivo);
+            } catch (IOException e) {
+                throw new PrintException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.mistrapitos.utils;
+
+import com.mistrapitos.models.Producto;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * Índice en memoria para buscar productos por nombre, código de barras y categoría mientras
+ * se escribe. El texto de cada producto se normaliza una sola vez con {@link TextoBusqueda}
+ * y se indexa por trigramas; una búsqueda recorre solo la lista del trigrama más raro de la
+ * consulta y confirma cada candidato con contains. Si la consulta nueva contiene a la
+ * anterior (el usuario siguió escribiendo), se filtran solo los resultados anteriores.
+ * <p>
+ * Se construye en segundo plano y después se usa desde un solo hilo (el de JavaFX), porque
+ * guarda la última búsqueda para refinarla.
+ */
+public class IndiceProductos {
+
+    private static final int[] VACIO = new int[0];
+
+    private final List<Producto> productos;
+    private final String[] textos;
+    private final Map<Long, int[]> trigramas;
+    private final String[] nombresOrdenados;
+    private final String[] nombresOriginales;
+
+    private String ultimaConsulta;
+    private int[] ultimoResultado;
+
+    /**
+     * @param productos Productos a indexar; la lista no se copia ni debe modificarse después
+     */
+    public IndiceProductos(List<Producto> productos) {
+        this.productos = productos;
+        this.textos = new String[productos.size()];
+        Map<Long, Posiciones> acumulados = new HashMap<>();
+        Integer[] porNombre = new Integer[productos.size()];
+        String[] nombres = new String[productos.size()];
+        for (int i = 0; i < textos.length; i++) {
+            Producto p = productos.get(i);
+            nombres[i] = TextoBusqueda.normalizar(p.getNombre());
+            // Salto de línea entre campos para que una consulta no coincida a caballo entre dos
+            textos[i] = nombres[i] + '\n' + TextoBusqueda.normalizar(p.getBarcode()) + '\n'
+                    + TextoBusqueda.normalizar(p.getCategoriaNombre());
+            for (int j = 0; j + 3 <= textos[i].length(); j++) {
+                acumulados.computeIfAbsent(trigrama(textos[i], j), k -> new Posiciones()).agregar(i);
+            }
+            porNombre[i] = i;
+        }
+        this.trigramas = new HashMap<>(acumulados.size() * 4 / 3 + 1);
+        for (Map.Entry<Long, Posiciones> e : acumulados.entrySet()) {
+            trigramas.put(e.getKey(), e.getValue().comoArreglo());
+        }
+
+        Arrays.sort(porNombre, Comparator.comparing(i -> nombres[i]));
+        this.nombresOrdenados = new String[porNombre.length];
+        this.nombresOriginales = new String[porNombre.length];
+        for (int i = 0; i < porNombre.length; i++) {
+            nombresOrdenados[i] = nombres[porNombre[i]];
+            nombresOriginales[i] = productos.get(porNombre[i]).getNombre();
+        }
+    }
+
+    /**
+     * @return Productos indexados, en el orden recibido
+     */
+    public List<Producto> getProductos() {
+        return productos;
+    }
+
+    /**
+     * Busca los productos cuyo nombre, código de barras o categoría contienen la consulta,
+     * sin distinguir mayúsculas ni acentos.
+     * @param consulta Texto escrito por el usuario
+     * @return Condición para un FilteredList: true para los productos encontrados
+     */
+    public Predicate<Producto> buscar(String consulta) {
+        int[] posiciones = posiciones(TextoBusqueda.normalizar(consulta));
+        BitSet ids = new BitSet();
+        for (int posicion : posiciones) {
+            ids.set(productos.get(posicion).getIdProducto());
+        }
+        return p -> ids.get(p.getIdProducto());
+    }
+
+    /**
+     * Cantidad de productos que coinciden con la consulta.
+     */
+    public int contar(String consulta) {
+        return posiciones(TextoBusqueda.normalizar(consulta)).length;
+    }
+
+    /**
+     * Primer nombre, en orden alfabético, que empieza con la consulta y no es igual a ella.
+     * @param consulta Texto escrito por el usuario
+     * @return Nombre completo del producto, tal como está guardado
+     */
+    public Optional<String> completar(String consulta) {
+        String q = TextoBusqueda.normalizar(consulta);
+        if (q.isEmpty()) {
+            return Optional.empty();
+        }
+        int i = Arrays.binarySearch(nombresOrdenados, q);
+        if (i < 0) {
+            i = -i - 1;
+        }
+        for (; i < nombresOrdenados.length && nombresOrdenados[i].startsWith(q); i++) {
+            if (!nombresOrdenados[i].equals(q)) {
+                return Optional.of(nombresOriginales[i]);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private int[] posiciones(String q) {
+        int[] resultado;
+        if (ultimaConsulta != null && q.contains(ultimaConsulta)) {
+            // Todo lo que contiene la consulta nueva contiene también a la anterior
+            resultado = confirmar(ultimoResultado, q);
+        } else if (q.length() < 3) {
+            resultado = recorrerTodos(q);
+        } else {
+            resultado = confirmar(menorLista(q), q);
+        }
+        ultimaConsulta = q;
+        ultimoResultado = resultado;
+        return resultado;
+    }
+
+    private int[] menorLista(String q) {
+        int[] menor = null;
+        for (int j = 0; j + 3 <= q.length(); j++) {
+            int[] lista = trigramas.get(trigrama(q, j));
+            if (lista == null) {
+                return VACIO;
+            }
+            if (menor == null || lista.length < menor.length) {
+                menor = lista;
+            }
+        }
+        return menor;
+    }
+
+    private int[] confirmar(int[] candidatos, String q) {
+        int[] resultado = new int[candidatos.length];
+        int n = 0;
+        for (int posicion : candidatos) {
+            if (textos[posicion].contains(q)) {
+                resultado[n++] = posicion;
+            }
+        }
+        return Arrays.copyOf(resultado, n);
+    }
+
+    private int[] recorrerTodos(String q) {
+        int[] resultado = new int[textos.length];
+        int n = 0;
+        for (int i = 0; i < textos.length; i++) {
+            if (textos[i].contains(q)) {
+                resultado[n++] = i;
+            }
+        }
+        return Arrays.copyOf(resultado, n);
+    }
+
+    private static long trigrama(String texto, int desde) {
+        return ((long) texto.charAt(desde) << 32) | ((long) texto.charAt(desde + 1) << 16) | texto.charAt(desde + 2);
+    }
+
+    /**
+     * Posiciones de productos de un trigrama, en orden y sin repetir.
+     */
+    private static class Posiciones {
+        private int[] datos = new int[4];
+        private int n;
+
+        void agregar(int posicion) {
+            if (n > 0 && datos[n - 1] == posicion) {
+                return;
+            }
+            if (n == datos.length) {
+                datos = Arrays.copyOf(datos, n * 2);
+            }
+            datos[n++] = posicion;
+        }
+
+        int[] comoArreglo() {
+            return Arrays.copyOf(datos, n);
+        }
+    }
+}
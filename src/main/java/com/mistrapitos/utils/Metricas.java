@@ -0,0 +1,412 @@
+package com.mistrapitos.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.ObjectName;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registro de métricas de acceso a datos: latencia por consulta y por pantalla,
+ * filas leídas y modificadas, errores y tiempo de espera por una conexión del pool. También guarda
+ * la espera y la duración de los trabajos de {@link ColaImpresion} y la latencia de los escaneos
+ * de códigos de barras en caja.
+ * <p>
+ * Las mediciones las toma {@link ConexionMedida} sobre las conexiones que entrega
+ * {@link DatabaseUtil#getConnection()}; aquí solo se acumulan y se exportan por JMX y a
+ * un CSV diario con una fila por consulta y por intervalo.
+ * <p>
+ * Configuración opcional (ver {@link Configuracion}): metricas.habilitadas,
+ * metricas.directorio y metricas.intervaloSegundos.
+ */
+public final class Metricas {
+
+    private static final Logger logger = LoggerFactory.getLogger(Metricas.class);
+
+    private static final String NOMBRE_JMX = "com.mistrapitos:type=Metricas";
+    private static final String ENCABEZADO_CSV =
+            "marca_tiempo,tipo,nombre,llamadas,errores,filas_modificadas,filas_leidas,p50_ms,p90_ms,p99_ms,max_ms,total_ms";
+    private static final int DIAS_RETENCION = 14;
+    private static final DateTimeFormatter FORMATO_MARCA = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final boolean HABILITADAS;
+    private static final Path DIRECTORIO;
+    private static final long INTERVALO_SEGUNDOS;
+
+    private static final Map<String, Medidor> consultas = new ConcurrentHashMap<>();
+    private static final Map<String, Medidor> pantallas = new ConcurrentHashMap<>();
+    private static final Map<String, Medidor> pools = new ConcurrentHashMap<>();
+    private static final Map<String, Medidor> impresiones = new ConcurrentHashMap<>();
+    private static final Map<String, Medidor> escaneos = new ConcurrentHashMap<>();
+
+    private static final Object bloqueoExportacion = new Object();
+    private static ScheduledExecutorService exportador;
+
+    static {
+        HABILITADAS = Configuracion.logico("metricas.habilitadas", true);
+        DIRECTORIO = Paths.get(Configuracion.texto("metricas.directorio",
+                Paths.get(System.getProperty("user.home"), "MisTrapitos", "metricas").toString()));
+        INTERVALO_SEGUNDOS = Configuracion.largo("metricas.intervaloSegundos", 60);
+    }
+
+    private Metricas() {
+    }
+
+    /**
+     * Acumulados de una consulta, una pantalla o del pool.
+     */
+    public static final class Medidor {
+        private final String tipo;
+        private final String nombre;
+        private final HistogramaLatencia latencias = new HistogramaLatencia();
+        private final LongAdder errores = new LongAdder();
+        private final LongAdder filas = new LongAdder();
+        private final LongAdder filasLeidas = new LongAdder();
+        private final LongAdder microsTotales = new LongAdder();
+
+        // Último estado exportado al CSV; solo lo toca el hilo exportador
+        private long[] exportado;
+        private long erroresExportados;
+        private long filasExportadas;
+        private long filasLeidasExportadas;
+        private long microsExportados;
+
+        private Medidor(String tipo, String nombre) {
+            this.tipo = tipo;
+            this.nombre = nombre;
+        }
+
+        /**
+         * Registra una ejecución.
+         * @param nanos Duración medida con System.nanoTime()
+         * @param error true si terminó con una excepción
+         */
+        public void registrar(long nanos, boolean error) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+            latencias.registrar(micros);
+            microsTotales.add(micros);
+            if (error) {
+                errores.increment();
+            }
+        }
+
+        /**
+         * @param cantidad Filas modificadas por una ejecución
+         */
+        public void sumarFilas(long cantidad) {
+            if (cantidad > 0) {
+                filas.add(cantidad);
+            }
+        }
+
+        /**
+         * @param cantidad Filas que el DAO leyó del resultado de una ejecución
+         */
+        public void sumarFilasLeidas(long cantidad) {
+            if (cantidad > 0) {
+                filasLeidas.add(cantidad);
+            }
+        }
+
+        public String getNombre() {
+            return nombre;
+        }
+
+        private String resumen() {
+            long[] cuentas = latencias.instantanea();
+            return String.format(Locale.ROOT,
+                    "%s llamadas=%d errores=%d filasModificadas=%d filasLeidas=%d p50=%.2fms p99=%.2fms total=%.1fms",
+                    nombre, HistogramaLatencia.total(cuentas), errores.sum(), filas.sum(), filasLeidas.sum(),
+                    HistogramaLatencia.percentil(cuentas, 50) / 1000.0,
+                    HistogramaLatencia.percentil(cuentas, 99) / 1000.0,
+                    microsTotales.sum() / 1000.0);
+        }
+    }
+
+    /**
+     * @return false si las métricas se desactivaron en la configuración
+     */
+    public static boolean habilitadas() {
+        return HABILITADAS;
+    }
+
+    /**
+     * @param nombre Nombre de la consulta, normalmente Clase.metodo del DAO que la ejecuta
+     */
+    public static Medidor consulta(String nombre) {
+        return consultas.computeIfAbsent(nombre, n -> new Medidor("consulta", n));
+    }
+
+    /**
+     * Registra las filas que un DAO leyó del resultado de la sentencia; se llama al terminar
+     * de recorrer el ResultSet. Las filas se suman a la última consulta ejecutada con ella.
+     * @param sentencia Sentencia de una conexión de {@link DatabaseUtil}
+     * @param filas Filas recorridas
+     */
+    public static void filasLeidas(Statement sentencia, int filas) {
+        if (HABILITADAS) {
+            ConexionMedida.sumarFilasLeidas(sentencia, filas);
+        }
+    }
+
+    /**
+     * @param nombre Nombre del controlador desde el que se lanzó la consulta
+     */
+    public static Medidor pantalla(String nombre) {
+        return pantallas.computeIfAbsent(nombre, n -> new Medidor("pantalla", n));
+    }
+
+    /**
+     * Registra cuánto tardó un pool en entregar una conexión.
+     * @param pool Nombre del pool (principal o réplica)
+     */
+    public static void registrarEsperaPool(String pool, long nanos, boolean error) {
+        pools.computeIfAbsent(pool, n -> new Medidor("pool", n)).registrar(nanos, error);
+    }
+
+    /**
+     * @param nombre Trabajo de la cola de impresión; "cola" mide la espera hasta que empieza
+     */
+    public static Medidor impresion(String nombre) {
+        return impresiones.computeIfAbsent(nombre, n -> new Medidor("impresion", n));
+    }
+
+    /**
+     * @param nombre Búsqueda de un escaneo en caja, por ejemplo IndiceBarcode.buscar
+     */
+    public static Medidor escaneo(String nombre) {
+        return escaneos.computeIfAbsent(nombre, n -> new Medidor("escaneo", n));
+    }
+
+    /**
+     * Publica el MBean y programa la exportación periódica al CSV.
+     */
+    public static synchronized void iniciar() {
+        if (!HABILITADAS || exportador != null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Jmx(), new ObjectName(NOMBRE_JMX));
+        } catch (Exception e) {
+            logger.warn("No se pudo registrar el MBean de métricas", e);
+        }
+        exportador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "exportador-metricas");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        exportador.scheduleAtFixedRate(Metricas::exportarSeguro, INTERVALO_SEGUNDOS, INTERVALO_SEGUNDOS, TimeUnit.SECONDS);
+        logger.info("Métricas de acceso a datos activas; CSV en {} cada {} s", DIRECTORIO, INTERVALO_SEGUNDOS);
+    }
+
+    /**
+     * Detiene la exportación, escribiendo antes el último intervalo.
+     */
+    public static synchronized void detener() {
+        if (exportador == null) {
+            return;
+        }
+        exportador.shutdown();
+        try {
+            exportador.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        exportarSeguro();
+        exportador = null;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(NOMBRE_JMX));
+        } catch (Exception e) {
+            logger.debug("El MBean de métricas ya no estaba registrado", e);
+        }
+    }
+
+    private static void exportarSeguro() {
+        synchronized (bloqueoExportacion) {
+            try {
+                exportarCsv();
+            } catch (IOException | RuntimeException e) {
+                logger.warn("No se pudieron exportar las métricas a CSV", e);
+            }
+        }
+    }
+
+    /**
+     * Agrega al CSV del día una fila por medidor con lo ocurrido desde la última exportación.
+     */
+    static void exportarCsv() throws IOException {
+        LocalDateTime ahora = LocalDateTime.now();
+        List<String> filas = new ArrayList<>();
+        String marca = ahora.format(FORMATO_MARCA);
+        pools.values().forEach(m -> agregarIntervalo(filas, marca, m));
+        consultas.values().forEach(m -> agregarIntervalo(filas, marca, m));
+        pantallas.values().forEach(m -> agregarIntervalo(filas, marca, m));
+        impresiones.values().forEach(m -> agregarIntervalo(filas, marca, m));
+        escaneos.values().forEach(m -> agregarIntervalo(filas, marca, m));
+        if (filas.isEmpty()) {
+            return;
+        }
+
+        Files.createDirectories(DIRECTORIO);
+        Path archivo = DIRECTORIO.resolve("metricas-" + ahora.toLocalDate() + ".csv");
+        boolean nuevo = Files.notExists(archivo);
+        try (BufferedWriter out = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (nuevo) {
+                out.write(ENCABEZADO_CSV);
+                out.newLine();
+            }
+            for (String fila : filas) {
+                out.write(fila);
+                out.newLine();
+            }
+        }
+        if (nuevo) {
+            eliminarAntiguos(ahora.toLocalDate().minusDays(DIAS_RETENCION));
+        }
+    }
+
+    private static void agregarIntervalo(List<String> filas, String marca, Medidor m) {
+        long[] actual = m.latencias.instantanea();
+        long[] intervalo = HistogramaLatencia.diferencia(actual, m.exportado);
+        long llamadas = HistogramaLatencia.total(intervalo);
+        long errores = m.errores.sum();
+        long filasModificadas = m.filas.sum();
+        long filasLeidas = m.filasLeidas.sum();
+        long micros = m.microsTotales.sum();
+        if (llamadas > 0) {
+            filas.add(String.format(Locale.ROOT, "%s,%s,%s,%d,%d,%d,%d,%.3f,%.3f,%.3f,%.3f,%.3f",
+                    marca, m.tipo, m.nombre, llamadas,
+                    errores - m.erroresExportados, filasModificadas - m.filasExportadas,
+                    filasLeidas - m.filasLeidasExportadas,
+                    HistogramaLatencia.percentil(intervalo, 50) / 1000.0,
+                    HistogramaLatencia.percentil(intervalo, 90) / 1000.0,
+                    HistogramaLatencia.percentil(intervalo, 99) / 1000.0,
+                    HistogramaLatencia.percentil(intervalo, 100) / 1000.0,
+                    (micros - m.microsExportados) / 1000.0));
+        }
+        m.exportado = actual;
+        m.erroresExportados = errores;
+        m.filasExportadas = filasModificadas;
+        m.filasLeidasExportadas = filasLeidas;
+        m.microsExportados = micros;
+    }
+
+    private static void eliminarAntiguos(LocalDate limite) {
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(DIRECTORIO, "metricas-*.csv")) {
+            for (Path archivo : archivos) {
+                String nombre = archivo.getFileName().toString();
+                String fecha = nombre.substring("metricas-".length(), nombre.length() - ".csv".length());
+                try {
+                    if (LocalDate.parse(fecha).isBefore(limite)) {
+                        Files.delete(archivo);
+                    }
+                } catch (RuntimeException e) {
+                    // Archivo con otro formato de nombre: se deja como está
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("No se pudieron limpiar los CSV de métricas antiguos", e);
+        }
+    }
+
+    private static String[] resumenes(Map<String, Medidor> medidores) {
+        return medidores.values().stream()
+                .sorted(Comparator.comparingLong((Medidor m) -> m.microsTotales.sum()).reversed())
+                .map(Medidor::resumen)
+                .toArray(String[]::new);
+    }
+
+    private static final class Jmx implements MetricasMXBean {
+
+        @Override
+        public String[] getConsultas() {
+            return resumenes(consultas);
+        }
+
+        @Override
+        public String[] getPantallas() {
+            return resumenes(pantallas);
+        }
+
+        @Override
+        public String[] getPools() {
+            return resumenes(pools);
+        }
+
+        @Override
+        public String[] getImpresiones() {
+            return resumenes(impresiones);
+        }
+
+        @Override
+        public String[] getEscaneos() {
+            return resumenes(escaneos);
+        }
+
+        @Override
+        public int getTicketsEnCola() {
+            return ColaImpresion.pendientes();
+        }
+
+        @Override
+        public long getConsultasEjecutadas() {
+            return consultas.values().stream().mapToLong(m -> HistogramaLatencia.total(m.latencias.instantanea())).sum();
+        }
+
+        @Override
+        public long getErroresConsultas() {
+            return consultas.values().stream().mapToLong(m -> m.errores.sum()).sum();
+        }
+
+        @Override
+        public long getFilasModificadas() {
+            return consultas.values().stream().mapToLong(m -> m.filas.sum()).sum();
+        }
+
+        @Override
+        public long getFilasLeidas() {
+            return consultas.values().stream().mapToLong(m -> m.filasLeidas.sum()).sum();
+        }
+
+        @Override
+        public long getEsperaPoolP99Micros() {
+            return pools.values().stream()
+                    .mapToLong(m -> HistogramaLatencia.percentil(m.latencias.instantanea(), 99))
+                    .max().orElse(0);
+        }
+
+        @Override
+        public long getErroresPool() {
+            return pools.values().stream().mapToLong(m -> m.errores.sum()).sum();
+        }
+
+        @Override
+        public long percentilMicros(String consulta, double percentil) {
+            Medidor m = consultas.get(consulta);
+            return m != null ? HistogramaLatencia.percentil(m.latencias.instantanea(), percentil) : -1;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.mistrapitos.utils;
+
+/**
+ * Vista JMX de las métricas de acceso a datos (consultable con JConsole o VisualVM
+ * bajo com.mistrapitos:type=Metricas).
+ */
+public interface MetricasMXBean {
+
+    /**
+     * @return Una línea por consulta, ordenadas de mayor a menor tiempo acumulado
+     */
+    String[] getConsultas();
+
+    /**
+     * @return Una línea por pantalla, ordenadas de mayor a menor tiempo acumulado; se
+     *         basa en una muestra de las sentencias (ver ConexionMedida)
+     */
+    String[] getPantallas();
+
+    /**
+     * @return Una línea por pool (principal y réplica) con la espera por una conexión
+     */
+    String[] getPools();
+
+    /**
+     * @return Una línea por trabajo de impresión, más la espera en la cola
+     */
+    String[] getImpresiones();
+
+    /**
+     * @return Una línea para todos los escaneos en caja y otra para los que no estaban en el
+     *         índice y se buscaron en la base
+     */
+    String[] getEscaneos();
+
+    /**
+     * @return Tickets esperando en la cola de impresión, incluido el que se está imprimiendo
+     */
+    int getTicketsEnCola();
+
+    long getConsultasEjecutadas();
+
+    long getErroresConsultas();
+
+    /**
+     * @return Filas modificadas por executeUpdate y executeBatch
+     */
+    long getFilasModificadas();
+
+    /**
+     * @return Filas que los DAO leyeron de los resultados de las consultas
+     */
+    long getFilasLeidas();
+
+    /**
+     * @return Percentil 99 de espera por una conexión del pool más lento
+     */
+    long getEsperaPoolP99Micros();
+
+    long getErroresPool();
+
+    /**
+     * @param consulta Nombre de la consulta, por ejemplo VentaDao.insertar
+     * @param percentil Valor entre 0 y 100
+     * @return Latencia en microsegundos, o -1 si la consulta no se ha ejecutado
+     */
+    long percentilMicros(String consulta, double percentil);
+}
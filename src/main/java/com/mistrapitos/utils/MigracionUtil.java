@@ -0,0 +1,105 @@
+package com.mistrapitos.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Clase de utilidad para aplicar las migraciones de esquema incluidas en la aplicación.
+ */
+public class MigracionUtil {
+
+    private static final Logger logger = LoggerFactory.getLogger(MigracionUtil.class);
+    private static final String RUTA = "/db/migraciones/";
+
+    /**
+     * Migraciones en orden de aplicación. Cada una se aplica una sola vez.
+     */
+    private static final String[] MIGRACIONES = {
+            "V001__productos_actualizado_en.sql",
+            "V002__ventas_paginacion.sql",
+            "V003__indices_reportes.sql",
+            "V004__resumen_ventas_diario.sql",
+            "V005__proveedor_productos.sql",
+            "V006__ventas_uuid.sql",
+            "V007__busqueda_trigramas.sql",
+            "V008__resumen_ventas_ranuras.sql",
+            "V009__resumen_ventas_claves.sql",
+            "V010__clientes_actualizado_en.sql"
+    };
+
+    /**
+     * Aplica las migraciones pendientes, cada una en su propia transacción.
+     * Si una migración falla se deshace solo esa y no se aplican las siguientes; el código
+     * espera el esquema completo, así que la aplicación no debe arrancar.
+     * @throws IllegalStateException Si no se pudo leer el esquema o aplicar alguna migración
+     */
+    public static void aplicarPendientes() {
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE IF NOT EXISTS schema_migraciones (" +
+                        "version VARCHAR(100) PRIMARY KEY, " +
+                        "aplicada_en TIMESTAMP NOT NULL DEFAULT now())");
+            }
+
+            Set<String> aplicadas = new HashSet<>();
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT version FROM schema_migraciones")) {
+                while (rs.next()) {
+                    aplicadas.add(rs.getString(1));
+                }
+            }
+
+            for (String migracion : MIGRACIONES) {
+                if (!aplicadas.contains(migracion)) {
+                    try {
+                        aplicar(conn, migracion);
+                    } catch (SQLException | IOException e) {
+                        logger.error("Error al aplicar la migración {}", migracion, e);
+                        throw new IllegalStateException("No se pudo aplicar la migración " + migracion
+                                + " de la base de datos: " + e.getMessage(), e);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Error al leer las migraciones aplicadas", e);
+            throw new IllegalStateException("No se pudieron revisar las migraciones de la base de datos: "
+                    + e.getMessage(), e);
+        }
+    }
+
+    private static void aplicar(Connection conn, String migracion) throws SQLException, IOException {
+        String sql;
+        try (InputStream in = MigracionUtil.class.getResourceAsStream(RUTA + migracion)) {
+            if (in == null) {
+                throw new IOException("No se encontró la migración " + migracion);
+            }
+            sql = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement();
+             PreparedStatement registro = conn.prepareStatement("INSERT INTO schema_migraciones (version) VALUES (?)")) {
+            stmt.execute(sql);
+            registro.setString(1, migracion);
+            registro.executeUpdate();
+            conn.commit();
+            logger.info("Migración aplicada: {}", migracion);
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+}
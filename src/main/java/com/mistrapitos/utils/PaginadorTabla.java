@@ -0,0 +1,144 @@
+package com.mistrapitos.utils;
+
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.control.TableView;
+
+import java.util.List;
+
+/**
+ * Llena un TableView por páginas: carga la primera al mostrarse y pide la siguiente
+ * cuando el usuario se desplaza cerca del final. El TableView ya solo dibuja las filas
+ * visibles, así que con esto tampoco se traen de la base las que nunca se ven.
+ * Las páginas se consultan en segundo plano; mientras llega la primera se muestra un indicador.
+ * @param <T> Tipo de las filas
+ */
+public final class PaginadorTabla<T> {
+
+    /**
+     * Carga una página a partir del último elemento de la anterior.
+     * @param <T> Tipo de las filas
+     */
+    @FunctionalInterface
+    public interface FuentePaginas<T> {
+        /**
+         * @param ultimo Último elemento cargado, o null para la primera página
+         * @param tamano Número máximo de elementos
+         * @return Elementos de la página; si son menos que tamano no hay más páginas
+         */
+        List<T> cargar(T ultimo, int tamano);
+    }
+
+    // Fracción del desplazamiento a partir de la cual se pide la siguiente página
+    private static final double UMBRAL_DESPLAZAMIENTO = 0.85;
+
+    private final TableView<T> tabla;
+    private final int tamanoPagina;
+    private final ObservableList<T> items = FXCollections.observableArrayList();
+    private final CanalTareas canal = new CanalTareas();
+    private final Node sinFilas;
+    private final ProgressIndicator cargando = new ProgressIndicator();
+    private FuentePaginas<T> fuente;
+    private Runnable alMostrar;
+    private boolean hayMas = false;
+
+    /**
+     * @param tabla Tabla a llenar
+     * @param tamanoPagina Filas por página
+     */
+    public PaginadorTabla(TableView<T> tabla, int tamanoPagina) {
+        this.tabla = tabla;
+        this.tamanoPagina = tamanoPagina;
+        this.sinFilas = tabla.getPlaceholder();
+        cargando.setMaxSize(40, 40);
+        if (tabla.getSkin() != null) {
+            engancharDesplazamiento();
+        } else {
+            tabla.skinProperty().addListener((obs, anterior, nuevo) -> {
+                if (nuevo != null) {
+                    engancharDesplazamiento();
+                }
+            });
+        }
+    }
+
+    /**
+     * Reemplaza el contenido de la tabla con la primera página de la fuente.
+     * @param fuente Origen de las páginas
+     */
+    public void mostrar(FuentePaginas<T> fuente) {
+        mostrar(fuente, null);
+    }
+
+    /**
+     * Reemplaza el contenido de la tabla con la primera página de la fuente.
+     * @param fuente Origen de las páginas
+     * @param alMostrar Se ejecuta cuando la primera página ya está en la tabla (puede ser null)
+     */
+    public void mostrar(FuentePaginas<T> fuente, Runnable alMostrar) {
+        this.fuente = fuente;
+        this.alMostrar = alMostrar;
+        hayMas = true;
+        canal.cancelar();
+        items.clear();
+        tabla.setItems(items);
+        tabla.setPlaceholder(cargando);
+        cargarSiguiente();
+        tabla.scrollTo(0);
+    }
+
+    /**
+     * Vuelve a cargar desde la primera página con la misma fuente.
+     */
+    public void recargar() {
+        if (fuente != null) {
+            mostrar(fuente);
+        }
+    }
+
+    /**
+     * Pide en segundo plano la siguiente página y la agrega al final de la tabla, si la hay.
+     */
+    public void cargarSiguiente() {
+        // Si otra parte del código puso otra lista en la tabla, ya no le toca al paginador
+        if (fuente == null || !hayMas || canal.isOcupado() || tabla.getItems() != items) {
+            return;
+        }
+        FuentePaginas<T> origen = fuente;
+        T ultimo = items.isEmpty() ? null : items.get(items.size() - 1);
+        canal.ejecutar(() -> origen.cargar(ultimo, tamanoPagina), pagina -> {
+            hayMas = pagina.size() >= tamanoPagina;
+            items.addAll(pagina);
+            tabla.setPlaceholder(sinFilas);
+            if (alMostrar != null) {
+                Runnable accion = alMostrar;
+                alMostrar = null;
+                accion.run();
+            }
+        }, error -> {
+            EjecutorUI.registrarFallo(error);
+            hayMas = false;
+            tabla.setPlaceholder(sinFilas);
+        });
+    }
+
+    private void engancharDesplazamiento() {
+        // La barra vertical la crea el skin; se busca después de la primera disposición
+        Platform.runLater(() -> {
+            for (Node nodo : tabla.lookupAll(".scroll-bar")) {
+                if (nodo instanceof ScrollBar barra && barra.getOrientation() == Orientation.VERTICAL) {
+                    barra.valueProperty().addListener((obs, anterior, valor) -> {
+                        if (valor.doubleValue() >= barra.getMax() * UMBRAL_DESPLAZAMIENTO) {
+                            cargarSiguiente();
+                        }
+                    });
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,19 @@
+package com.mistrapitos.utils;
+
+/**
+ * Recibe el avance de un reporte mientras se genera.
+ */
+@FunctionalInterface
+public interface ProgresoReporte {
+
+    /** No informa el avance. */
+    ProgresoReporte NINGUNO = (procesadas, total) -> { };
+
+    /**
+     * Se llama cada vez que se escribe un lote de filas y al terminar.
+     * Se ejecuta en el hilo que genera el reporte.
+     * @param procesadas Filas escritas hasta el momento
+     * @param total Total de filas del reporte
+     */
+    void actualizar(long procesadas, long total);
+}
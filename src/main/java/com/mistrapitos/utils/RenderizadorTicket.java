@@ -0,0 +1,338 @@
+package com.mistrapitos.utils;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.Element;
+import com.itextpdf.text.Font;
+import com.itextpdf.text.FontFactory;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.Phrase;
+import com.itextpdf.text.Rectangle;
+import com.itextpdf.text.pdf.PdfPCell;
+import com.itextpdf.text.pdf.PdfPTable;
+import com.itextpdf.text.pdf.PdfWriter;
+import com.mistrapitos.models.Ticket;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormatSymbols;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Genera un {@link Ticket} como texto de 40 columnas, como bytes ESC/POS para impresoras
+ * térmicas o como PDF.
+ * <p>
+ * Lo que no cambia entre tickets (encabezado, pie, separadores, comandos de la impresora,
+ * fuentes y celdas de título del PDF) se arma una sola vez al cargar la clase. Las líneas
+ * de cada venta se escriben en un StringBuilder por hilo que se reutiliza, y los importes
+ * se formatean a mano en lugar de con String.format.
+ */
+public final class RenderizadorTicket {
+
+    private static final int ANCHO = 40; // Caracteres
+    private static final int ANCHO_PRODUCTO = 20;
+    private static final String ESPACIOS = " ".repeat(ANCHO);
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+    private static final char SEPARADOR_MILES;
+    private static final char SEPARADOR_DECIMAL;
+    private static final String NO_NUMERO;
+    private static final String INFINITO;
+
+    private static final String SEPARADOR = "-".repeat(ANCHO) + "\n";
+    private static final String ENCABEZADO = centrar("MIS TRAPITOS") + "\n"
+            + centrar("TIENDA DE ROPA") + "\n"
+            + SEPARADOR;
+    private static final String ENCABEZADO_DETALLES =
+            String.format("%-20s %5s %7s %7s", "PRODUCTO", "CANT", "PRECIO", "TOTAL") + "\n" + SEPARADOR;
+    private static final String GRACIAS = centrar("¡GRACIAS POR SU COMPRA!") + "\n"
+            + centrar("VUELVA PRONTO") + "\n";
+    // Saltos de línea al final para que el papel avance
+    private static final String PIE = GRACIAS + "\n\n\n\n";
+
+    // ESC/POS: inicializar, página de códigos WPC1252 (acentos y ñ), título centrado en doble alto
+    private static final byte[] ESC_INICIO = {0x1B, '@', 0x1B, 't', 16};
+    private static final byte[] ESC_CENTRO = {0x1B, 'a', 1};
+    private static final byte[] ESC_IZQUIERDA = {0x1B, 'a', 0};
+    private static final byte[] ESC_NEGRITA = {0x1B, 'E', 1};
+    private static final byte[] ESC_NORMAL = {0x1B, 'E', 0, 0x1D, '!', 0};
+    private static final byte[] ESC_DOBLE_ALTO = {0x1D, '!', 0x01};
+    // Avanzar 4 líneas y corte parcial
+    private static final byte[] ESC_CORTE = {0x1B, 'd', 4, 0x1D, 'V', 66, 0};
+    private static final byte[] ESC_ENCABEZADO;
+    private static final byte[] ESC_PIE;
+
+    private static final Rectangle PAGINA_PDF = new Rectangle(230, 600);
+    private static final Font FUENTE_TITULO = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 14);
+    private static final Font FUENTE_NORMAL = FontFactory.getFont(FontFactory.HELVETICA, 9);
+    private static final Font FUENTE_NEGRITA = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 9);
+    private static final float[] ANCHOS_PDF = {2, 1, 1, 1};
+    // PdfPTable.addCell copia la celda, así que estas se pueden compartir entre tickets
+    private static final PdfPCell[] TITULOS_PDF = {
+            new PdfPCell(new Phrase("Producto", FUENTE_NEGRITA)),
+            new PdfPCell(new Phrase("Cant.", FUENTE_NEGRITA)),
+            new PdfPCell(new Phrase("P.Unit", FUENTE_NEGRITA)),
+            new PdfPCell(new Phrase("Subtotal", FUENTE_NEGRITA))
+    };
+
+    private static final ThreadLocal<StringBuilder> TEXTO = ThreadLocal.withInitial(() -> new StringBuilder(1024));
+
+    static {
+        DecimalFormatSymbols simbolos = DecimalFormatSymbols.getInstance();
+        SEPARADOR_MILES = simbolos.getGroupingSeparator();
+        SEPARADOR_DECIMAL = simbolos.getDecimalSeparator();
+        NO_NUMERO = simbolos.getNaN();
+        INFINITO = simbolos.getInfinity();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(ESC_INICIO);
+        out.writeBytes(ESC_CENTRO);
+        out.writeBytes(ESC_NEGRITA);
+        out.writeBytes(ESC_DOBLE_ALTO);
+        escribirLatin1(out, "MIS TRAPITOS\n");
+        out.writeBytes(ESC_NORMAL);
+        escribirLatin1(out, "TIENDA DE ROPA\n");
+        out.writeBytes(ESC_IZQUIERDA);
+        escribirLatin1(out, SEPARADOR);
+        ESC_ENCABEZADO = out.toByteArray();
+
+        out.reset();
+        out.writeBytes(ESC_CENTRO);
+        escribirLatin1(out, "¡GRACIAS POR SU COMPRA!\nVUELVA PRONTO\n");
+        out.writeBytes(ESC_IZQUIERDA);
+        out.writeBytes(ESC_CORTE);
+        ESC_PIE = out.toByteArray();
+    }
+
+    private RenderizadorTicket() {
+    }
+
+    /**
+     * @return El ticket como texto plano de 40 columnas
+     */
+    public static String texto(Ticket ticket) {
+        StringBuilder sb = TEXTO.get();
+        sb.setLength(0);
+        sb.append(ENCABEZADO);
+        agregarCuerpo(sb, ticket);
+        sb.append(PIE);
+        return sb.toString();
+    }
+
+    /**
+     * @return El ticket con los comandos ESC/POS de una impresora térmica, listo para enviar
+     */
+    public static byte[] escPos(Ticket ticket) {
+        StringBuilder sb = TEXTO.get();
+        sb.setLength(0);
+        agregarCuerpo(sb, ticket);
+        // Un carácter del cuerpo es un byte, así que el resultado se llena sin buffers intermedios
+        byte[] bytes = new byte[ESC_ENCABEZADO.length + sb.length() + ESC_PIE.length];
+        System.arraycopy(ESC_ENCABEZADO, 0, bytes, 0, ESC_ENCABEZADO.length);
+        int pos = ESC_ENCABEZADO.length;
+        for (int i = 0; i < sb.length(); i++) {
+            char c = sb.charAt(i);
+            bytes[pos++] = (byte) (c <= 0xFF ? c : '?');
+        }
+        System.arraycopy(ESC_PIE, 0, bytes, pos, ESC_PIE.length);
+        return bytes;
+    }
+
+    /**
+     * Escribe el ticket como PDF de 230 puntos de ancho. El documento se cierra al terminar,
+     * lo que también cierra el stream.
+     */
+    public static void pdf(Ticket ticket, OutputStream destino) throws DocumentException {
+        Document document = new Document(PAGINA_PDF, 10, 10, 10, 10);
+        try {
+            PdfWriter.getInstance(document, destino);
+            document.open();
+
+            Paragraph title = new Paragraph("Mis Trapitos", FUENTE_TITULO);
+            title.setAlignment(Element.ALIGN_CENTER);
+            document.add(title);
+
+            if (ticket.getNumero() > 0) {
+                document.add(new Paragraph("Ticket #" + ticket.getNumero(), FUENTE_NORMAL));
+            }
+            document.add(new Paragraph("Fecha: " + FORMATO_FECHA.format(ticket.getFecha()), FUENTE_NORMAL));
+            if (tieneTexto(ticket.getAtiende())) {
+                document.add(new Paragraph("Atiende: " + ticket.getAtiende(), FUENTE_NORMAL));
+            }
+            document.add(new Paragraph("Cliente: " + (ticket.getCliente() != null ? ticket.getCliente() : ""),
+                    FUENTE_NORMAL));
+            document.add(new Paragraph(" "));
+
+            PdfPTable table = new PdfPTable(ANCHOS_PDF.length);
+            table.setWidthPercentage(100);
+            table.setWidths(ANCHOS_PDF);
+            for (PdfPCell titulo : TITULOS_PDF) {
+                table.addCell(titulo);
+            }
+            for (Ticket.Linea linea : ticket.getLineas()) {
+                table.addCell(new PdfPCell(new Phrase(linea.getProducto(), FUENTE_NORMAL)));
+                table.addCell(new PdfPCell(new Phrase(String.valueOf(linea.getCantidad()), FUENTE_NORMAL)));
+                table.addCell(new PdfPCell(new Phrase(importe(linea.getPrecio()), FUENTE_NORMAL)));
+                table.addCell(new PdfPCell(new Phrase(importe(linea.getSubtotal()), FUENTE_NORMAL)));
+            }
+
+            document.add(table);
+            document.add(new Paragraph(" "));
+            document.add(new Paragraph("TOTAL: " + importe(ticket.getTotal()), FUENTE_TITULO));
+            if (tieneTexto(ticket.getMetodoPago())) {
+                document.add(new Paragraph("Método de pago: " + ticket.getMetodoPago(), FUENTE_NORMAL));
+            }
+            document.add(new Paragraph(" "));
+            document.add(new Paragraph("¡Gracias por su compra!", FUENTE_NEGRITA));
+        } finally {
+            if (document.isOpen()) {
+                document.close();
+            }
+        }
+    }
+
+    /**
+     * Datos de la venta, entre el encabezado y el pie.
+     */
+    private static void agregarCuerpo(StringBuilder sb, Ticket ticket) {
+        if (ticket.getNumero() > 0) {
+            sb.append("TICKET DE VENTA #").append(ticket.getNumero()).append('\n');
+        }
+        sb.append("FECHA: ");
+        FORMATO_FECHA.formatTo(ticket.getFecha(), sb);
+        sb.append('\n');
+        if (tieneTexto(ticket.getAtiende())) {
+            sb.append("ATIENDE: ").append(ticket.getAtiende()).append('\n');
+        }
+
+        // Datos del cliente
+        if (tieneTexto(ticket.getCliente())) {
+            sb.append("CLIENTE: ").append(ticket.getCliente()).append('\n');
+            if (tieneTexto(ticket.getTelefono())) {
+                sb.append("TELÉFONO: ").append(ticket.getTelefono()).append('\n');
+            }
+        }
+        sb.append(SEPARADOR);
+
+        // Detalles: %-20s %5d %7s %7s
+        sb.append(ENCABEZADO_DETALLES);
+        for (Ticket.Linea linea : ticket.getLineas()) {
+            String producto = linea.getProducto() != null ? linea.getProducto() : "";
+            if (producto.length() > ANCHO_PRODUCTO) {
+                sb.append(producto, 0, ANCHO_PRODUCTO - 3).append("...");
+            } else {
+                sb.append(producto).append(ESPACIOS, 0, ANCHO_PRODUCTO - producto.length());
+            }
+            sb.append(' ');
+            int inicio = sb.length();
+            sb.append(linea.getCantidad());
+            alinearDerecha(sb, inicio, 5);
+            sb.append(' ');
+            agregarImporteAlineado(sb, linea.getPrecio(), 7);
+            sb.append(' ');
+            agregarImporteAlineado(sb, linea.getSubtotal(), 7);
+            sb.append('\n');
+
+            // Si hay descuento, mostrarlo
+            if (linea.getDescuento() > 0) {
+                sb.append("  Desc: ").append(Math.round(linea.getDescuento())).append("% aplicado\n");
+            }
+        }
+        sb.append(SEPARADOR);
+
+        // Total: %32s %7s
+        sb.append(ESPACIOS, 0, 32 - "TOTAL:".length()).append("TOTAL: ");
+        agregarImporteAlineado(sb, ticket.getTotal(), 7);
+        sb.append('\n');
+        sb.append(SEPARADOR);
+
+        // Método de pago
+        if (tieneTexto(ticket.getMetodoPago())) {
+            sb.append("MÉTODO DE PAGO: ").append(ticket.getMetodoPago()).append('\n');
+            sb.append(SEPARADOR);
+        }
+    }
+
+    private static void agregarImporteAlineado(StringBuilder sb, double valor, int ancho) {
+        int inicio = sb.length();
+        sb.append('$');
+        agregarImporte(sb, valor);
+        alinearDerecha(sb, inicio, ancho);
+    }
+
+    // Rellena con espacios a la izquierda lo escrito desde inicio; como %Ns, no recorta
+    private static void alinearDerecha(StringBuilder sb, int inicio, int ancho) {
+        int faltan = ancho - (sb.length() - inicio);
+        if (faltan > 0) {
+            sb.insert(inicio, ESPACIOS, 0, faltan);
+        }
+    }
+
+    /**
+     * Importe con el patrón #,##0.00 y los separadores del idioma del equipo. Da lo mismo
+     * que DecimalFormat: redondea al centavo con mitad al par sobre el valor binario exacto
+     * del double (1.005 es en realidad 1.00499... y queda en 1.00) y conserva el signo de
+     * los negativos que redondean a cero.
+     */
+    static void agregarImporte(StringBuilder sb, double valor) {
+        if (!Double.isFinite(valor)) {
+            sb.append(Double.isNaN(valor) ? NO_NUMERO : valor < 0 ? "-" + INFINITO : INFINITO);
+            return;
+        }
+        long centavos = new BigDecimal(valor).setScale(2, RoundingMode.HALF_EVEN).unscaledValue().abs().longValue();
+        if (valor < 0 || Double.doubleToRawLongBits(valor) == Long.MIN_VALUE) {
+            sb.append('-');
+        }
+        agregarMiles(sb, centavos / 100);
+        int decimales = (int) (centavos % 100);
+        sb.append(SEPARADOR_DECIMAL);
+        if (decimales < 10) {
+            sb.append('0');
+        }
+        sb.append(decimales);
+    }
+
+    private static void agregarMiles(StringBuilder sb, long enteros) {
+        if (enteros < 1000) {
+            sb.append(enteros);
+            return;
+        }
+        agregarMiles(sb, enteros / 1000);
+        int resto = (int) (enteros % 1000);
+        sb.append(SEPARADOR_MILES);
+        if (resto < 100) {
+            sb.append('0');
+        }
+        if (resto < 10) {
+            sb.append('0');
+        }
+        sb.append(resto);
+    }
+
+    private static String importe(double valor) {
+        StringBuilder sb = new StringBuilder(16).append('$');
+        agregarImporte(sb, valor);
+        return sb.toString();
+    }
+
+    // WPC1252 coincide con ISO-8859-1 en los acentos, la ñ y los signos ¡ ¿
+    private static void escribirLatin1(ByteArrayOutputStream out, CharSequence texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            out.write(c <= 0xFF ? c : '?');
+        }
+    }
+
+    private static String centrar(String texto) {
+        if (texto.length() >= ANCHO) {
+            return texto;
+        }
+        int izquierda = (ANCHO - texto.length()) / 2;
+        return " ".repeat(izquierda) + texto + " ".repeat(ANCHO - texto.length() - izquierda);
+    }
+
+    private static boolean tieneTexto(String texto) {
+        return texto != null && !texto.isEmpty();
+    }
+}
@@ -1,9 +1,9 @@
 package com.mistrapitos.utils;
 
 import com.mistrapitos.controllers.ReporteController;
+import com.mistrapitos.dao.ResumenVentasDao;
 import com.mistrapitos.models.*;
 import java.io.FileOutputStream;
-import java.io.OutputStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -13,7 +13,6 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import com.itextpdf.text.Element;
-import com.itextpdf.text.Rectangle;
 import java.time.LocalDateTime;
 import com.itextpdf.text.Document;
 import com.itextpdf.text.Font;
@@ -25,10 +24,6 @@ import com.itextpdf.text.pdf.PdfPTable;
 import com.itextpdf.text.pdf.PdfWriter;
 import java.sql.Timestamp;
 import javax.sql.DataSource;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,51 +34,100 @@ import org.slf4j.LoggerFactory;
 public class ReporteUtil {
 
     private static final Logger logger = LoggerFactory.getLogger(ReporteUtil.class);
+    private final ResumenVentasDao resumenVentasDao = new ResumenVentasDao();
     private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("dd/MM/yyyy - hh:mm a");
+    private static final String[] COLUMNAS_VENTAS = {"ID Venta","Cliente","Fecha","Método Pago","Total"};
+    private static final String[] COLUMNAS_INVENTARIO_PDF = {"ID","Nombre","Categoría","Precio","Stock","Tallas","Colores","Descuento"};
+    // Filas que se piden a la base de datos por viaje y que se escriben al PDF por cada doc.add
+    private static final int FILAS_POR_LOTE = 1000;
+    private static final String[] COLUMNAS_SIN_VENTA = {"ID","Producto","Categoría","Stock","Precio","Última Venta","Valor Inventario"};
+    // Productos sin ventas desde una fecha: anti-join por id_producto contra las ventas del período
+    private static final String FILTRO_SIN_VENTA =
+            "WHERE NOT EXISTS (SELECT 1 FROM detalle_venta d " +
+            "JOIN ventas v ON v.id_venta = d.id_venta " +
+            "WHERE d.id_producto = p.id_producto AND v.fecha >= ?) ";
+    private static final String SQL_PRODUCTOS_SIN_VENTA =
+            "SELECT p.id_producto, p.nombre, c.nombre AS categoria_nombre, p.stock, p.precio, " +
+            "p.stock * p.precio AS valor_inventario, " +
+            "(SELECT MAX(v.fecha) FROM detalle_venta d JOIN ventas v ON v.id_venta = d.id_venta " +
+            "WHERE d.id_producto = p.id_producto) AS ultima_venta " +
+            "FROM productos p " +
+            "LEFT JOIN categorias c ON p.id_categoria = c.id_categoria " +
+            FILTRO_SIN_VENTA +
+            "ORDER BY valor_inventario DESC, p.nombre, p.id_producto";
+    private static final String SQL_CONTEO_SIN_VENTA = "SELECT COUNT(*) FROM productos p " + FILTRO_SIN_VENTA;
 
     public static boolean generarReporteVentasExcel(List<Venta> ventas, String ruta) {
-        try (Workbook wb = new XSSFWorkbook()) {
-            Sheet sheet = wb.createSheet("Ventas");
-            int fila = 0;
-
+        try (HojaExcel hoja = new HojaExcel("Ventas")) {
             // 1) Si todas las ventas son del mismo cliente, ponemos una fila "Cliente: X"
             if (!ventas.isEmpty()) {
                 String cli = ventas.get(0).getClienteNombre();
                 boolean mismo = ventas.stream()
                         .allMatch(v -> v.getClienteNombre().equals(cli));
                 if (mismo) {
-                    Row info = sheet.createRow(fila++);
-                    info.createCell(0).setCellValue("Cliente: " + cli);
+                    hoja.agregarFila("Cliente: " + cli);
                 }
             }
 
             // 2) Cabecera
-            Row header = sheet.createRow(fila++);
-            String[] cols = {"ID Venta","Cliente","Fecha","Método Pago","Total"};
-            for (int i = 0; i < cols.length; i++) {
-                header.createCell(i).setCellValue(cols[i]);
-            }
+            hoja.agregarFila((Object[]) COLUMNAS_VENTAS);
 
             // 3) Filas de datos
             for (Venta v : ventas) {
-                Row r = sheet.createRow(fila++);
-                r.createCell(0).setCellValue(v.getIdVenta());
-                r.createCell(1).setCellValue(v.getClienteNombre());
-                r.createCell(2).setCellValue(v.getFecha().format(DATE_TIME));
-                r.createCell(3).setCellValue(v.getMetodoPago());
-                r.createCell(4).setCellValue(v.getTotal());
+                hoja.agregarFila(v.getIdVenta(), v.getClienteNombre(), v.getFecha().format(DATE_TIME),
+                        v.getMetodoPago(), v.getTotal());
             }
 
-            // 4) Auto‑ancho (n columnas = cols.length)
-            for (int i = 0; i < cols.length; i++) {
-                sheet.autoSizeColumn(i);
-            }
+            // 4) Guardar (los anchos de columna se calculan al escribir)
+            hoja.guardar(ruta);
+            logger.info("Excel Ventas generado en {}", ruta);
+            return true;
+        } catch (Exception e) {
+            logger.error("Error generando Excel de Ventas", e);
+            return false;
+        }
+    }
 
-            // 5) Guardar
-            try (OutputStream out = new FileOutputStream(ruta)) {
-                wb.write(out);
+    /**
+     * Genera el reporte de ventas de un rango de fechas en Excel leyendo las filas
+     * directamente de un cursor de solo avance, sin cargar la lista de ventas en memoria.
+     * La memoria usada no depende del tamaño del rango.
+     * @param inicio Fecha de inicio (inclusive)
+     * @param fin Fecha de fin (inclusive)
+     * @param ruta Ruta donde se guardará el archivo
+     * @return true si se generó correctamente, false en caso contrario
+     */
+    public static boolean generarReporteVentasExcel(LocalDate inicio, LocalDate fin, String ruta) {
+        String sql = "SELECT v.id_venta, v.fecha, v.metodo_pago, v.total, c.nombre AS cliente_nombre " +
+                "FROM ventas v " +
+                "LEFT JOIN clientes c ON v.id_cliente = c.id_cliente " +
+                "WHERE v.fecha >= ? AND v.fecha < ? " +
+                "ORDER BY v.fecha DESC";
+        try (HojaExcel hoja = new HojaExcel("Ventas");
+             Connection conn = DatabaseUtil.getReadOnlyConnection()) {
+            // PostgreSQL solo respeta el fetch size dentro de una transacción
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(FILAS_POR_LOTE);
+                ps.setTimestamp(1, Timestamp.valueOf(inicio.atStartOfDay()));
+                ps.setTimestamp(2, Timestamp.valueOf(fin.plusDays(1).atStartOfDay()));
+
+                hoja.agregarFila((Object[]) COLUMNAS_VENTAS);
+                try (ResultSet rs = ps.executeQuery()) {
+                    int leidas = 0;
+                    while (rs.next()) {
+                        leidas++;
+                        hoja.agregarFila(rs.getInt("id_venta"), rs.getString("cliente_nombre"),
+                                rs.getTimestamp("fecha").toLocalDateTime().format(DATE_TIME),
+                                rs.getString("metodo_pago"), rs.getDouble("total"));
+                    }
+                    Metricas.filasLeidas(ps, leidas);
+                }
             }
-            logger.info("Excel Ventas generado en {}", ruta);
+            conn.commit();
+            hoja.guardar(ruta);
+            logger.info("Excel Ventas generado en {} ({} ventas)", ruta, hoja.getFilas() - 1);
             return true;
         } catch (Exception e) {
             logger.error("Error generando Excel de Ventas", e);
@@ -117,24 +161,19 @@ public class ReporteUtil {
             }
 
             // 2) Tabla de 5 columnas
-            PdfPTable table = new PdfPTable(5);
-            table.setWidthPercentage(100);
-            String[] cols = {"ID Venta","Cliente","Fecha","Método Pago","Total"};
-            for (String col : cols) {
-                PdfPCell h = new PdfPCell(new Phrase(col, headerFont));
-                h.setHorizontalAlignment(PdfPCell.ALIGN_CENTER);
-                table.addCell(h);
-            }
+            PdfPTable table = nuevaTablaPorLotes(COLUMNAS_VENTAS, headerFont);
 
             // 3) Filas
+            int filas = 0;
             for (Venta v : ventas) {
-                table.addCell(new PdfPCell(new Phrase(String.valueOf(v.getIdVenta()), cellFont)));
-                table.addCell(new PdfPCell(new Phrase(v.getClienteNombre(),    cellFont)));
-                table.addCell(new PdfPCell(new Phrase(v.getFecha().format(DATE_TIME), cellFont)));
-                table.addCell(new PdfPCell(new Phrase(v.getMetodoPago(),       cellFont)));
-                table.addCell(new PdfPCell(new Phrase(String.format("$%.2f", v.getTotal()), cellFont)));
+                agregarFilaVentaPdf(table, v.getIdVenta(), v.getClienteNombre(), v.getFecha(),
+                        v.getMetodoPago(), v.getTotal(), cellFont);
+                if (++filas % FILAS_POR_LOTE == 0) {
+                    doc.add(table);
+                }
             }
 
+            table.setComplete(true);
             doc.add(table);
             doc.close();
             logger.info("PDF Ventas generado en {}", ruta);
@@ -147,26 +186,133 @@ public class ReporteUtil {
     }
 
 
+    /**
+     * Genera el reporte de ventas de un rango de fechas en PDF leyendo las filas con un cursor.
+     * La tabla se escribe al documento por lotes, así que la memoria usada no depende del rango.
+     * @param inicio Fecha de inicio (inclusive)
+     * @param fin Fecha de fin (inclusive)
+     * @param ruta Ruta donde se guardará el archivo
+     * @param progreso Recibe el avance por cada lote escrito
+     * @return true si se generó correctamente, false en caso contrario
+     */
+    public static boolean generarReporteVentasPDF(LocalDate inicio, LocalDate fin, String ruta,
+                                                  ProgresoReporte progreso) {
+        String filtro = "WHERE v.fecha >= ? AND v.fecha < ? ";
+        String sqlConteo = "SELECT COUNT(*) FROM ventas v " + filtro;
+        String sql = "SELECT v.id_venta, v.fecha, v.metodo_pago, v.total, c.nombre AS cliente_nombre " +
+                "FROM ventas v " +
+                "LEFT JOIN clientes c ON v.id_cliente = c.id_cliente " +
+                filtro +
+                "ORDER BY v.fecha DESC";
+        Timestamp desde = Timestamp.valueOf(inicio.atStartOfDay());
+        Timestamp hasta = Timestamp.valueOf(fin.plusDays(1).atStartOfDay());
+        Document doc = new Document();
+        try (Connection conn = DatabaseUtil.getReadOnlyConnection()) {
+            // PostgreSQL solo respeta el fetch size dentro de una transacción
+            conn.setAutoCommit(false);
+            long total;
+            try (PreparedStatement ps = conn.prepareStatement(sqlConteo)) {
+                ps.setTimestamp(1, desde);
+                ps.setTimestamp(2, hasta);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    total = rs.getLong(1);
+                }
+            }
+
+            PdfWriter.getInstance(doc, new FileOutputStream(ruta));
+            doc.open();
+            Font titleFont  = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16);
+            Font headerFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 12);
+            Font cellFont   = FontFactory.getFont(FontFactory.HELVETICA, 10);
+            doc.add(new Paragraph("Reporte de Ventas", titleFont));
+            doc.add(new Paragraph(" "));
+            PdfPTable table = nuevaTablaPorLotes(COLUMNAS_VENTAS, headerFont);
+
+            long filas = 0;
+            try (PreparedStatement ps = conn.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(FILAS_POR_LOTE);
+                ps.setTimestamp(1, desde);
+                ps.setTimestamp(2, hasta);
+                try (ResultSet rs = ps.executeQuery()) {
+                    int leidas = 0;
+                    while (rs.next()) {
+                        leidas++;
+                        agregarFilaVentaPdf(table, rs.getInt("id_venta"), rs.getString("cliente_nombre"),
+                                rs.getTimestamp("fecha").toLocalDateTime(), rs.getString("metodo_pago"),
+                                rs.getDouble("total"), cellFont);
+                        if (++filas % FILAS_POR_LOTE == 0) {
+                            doc.add(table);
+                            progreso.actualizar(filas, total);
+                        }
+                    }
+                    Metricas.filasLeidas(ps, leidas);
+                }
+            }
+            conn.commit();
+
+            table.setComplete(true);
+            doc.add(table);
+            doc.close();
+            progreso.actualizar(filas, total);
+            logger.info("PDF Ventas generado en {} ({} ventas)", ruta, filas);
+            return true;
+        } catch (Exception e) {
+            logger.error("Error generando PDF de Ventas", e);
+            if (doc.isOpen()) doc.close();
+            return false;
+        }
+    }
+
+    /**
+     * Crea una tabla que se agrega al documento por partes: cada doc.add escribe las filas
+     * pendientes y las libera. El encabezado se repite en cada página.
+     * Al terminar hay que llamar setComplete(true) y agregarla una última vez.
+     */
+    private static PdfPTable nuevaTablaPorLotes(String[] cols, Font headerFont) {
+        PdfPTable table = new PdfPTable(cols.length);
+        table.setWidthPercentage(100);
+        table.setComplete(false);
+        table.setHeaderRows(1);
+        for (String col : cols) {
+            PdfPCell h = new PdfPCell(new Phrase(col, headerFont));
+            h.setHorizontalAlignment(PdfPCell.ALIGN_CENTER);
+            table.addCell(h);
+        }
+        return table;
+    }
+
+    private static void agregarFilaVentaPdf(PdfPTable table, int idVenta, String cliente, LocalDateTime fecha,
+                                            String metodoPago, double total, Font cellFont) {
+        table.addCell(new PdfPCell(new Phrase(String.valueOf(idVenta), cellFont)));
+        table.addCell(new PdfPCell(new Phrase(cliente, cellFont)));
+        table.addCell(new PdfPCell(new Phrase(fecha.format(DATE_TIME), cellFont)));
+        table.addCell(new PdfPCell(new Phrase(metodoPago, cellFont)));
+        table.addCell(new PdfPCell(new Phrase(String.format("$%.2f", total), cellFont)));
+    }
+
+    private static void agregarFilaInventarioPdf(PdfPTable table, int idProducto, String nombre, String categoria,
+                                                 double precio, int stock, String tallas, String colores,
+                                                 double descuento, Font cellFont) {
+        table.addCell(new PdfPCell(new Phrase(String.valueOf(idProducto), cellFont)));
+        table.addCell(new PdfPCell(new Phrase(nombre, cellFont)));
+        table.addCell(new PdfPCell(new Phrase(categoria, cellFont)));
+        table.addCell(new PdfPCell(new Phrase(String.format("$%.2f", precio), cellFont)));
+        table.addCell(new PdfPCell(new Phrase(String.valueOf(stock), cellFont)));
+        table.addCell(new PdfPCell(new Phrase(tallas, cellFont)));
+        table.addCell(new PdfPCell(new Phrase(colores, cellFont)));
+        table.addCell(new PdfPCell(new Phrase(String.format("%.2f%%", descuento), cellFont)));
+    }
+
     public static boolean generarReporteInventarioExcel(List<Producto> productos, String ruta) {
-        try (Workbook wb = new XSSFWorkbook()) {
-            Sheet sheet = wb.createSheet("Inventario");
-            Row header = sheet.createRow(0);
-            String[] cols = {"ID Producto","Nombre","Categoría","Precio","Stock","Tallas","Colores","Descuento"};
-            for (int i = 0; i < cols.length; i++) header.createCell(i).setCellValue(cols[i]);
-            int row = 1;
+        try (HojaExcel hoja = new HojaExcel("Inventario")) {
+            hoja.agregarFila("ID Producto","Nombre","Categoría","Precio","Stock","Tallas","Colores","Descuento");
             for (Producto p : productos) {
-                Row r = sheet.createRow(row++);
-                r.createCell(0).setCellValue(p.getIdProducto());
-                r.createCell(1).setCellValue(p.getNombre());
-                r.createCell(2).setCellValue(p.getCategoriaNombre());
-                r.createCell(3).setCellValue(p.getPrecio());
-                r.createCell(4).setCellValue(p.getStock());
-                r.createCell(5).setCellValue(p.getSizes());
-                r.createCell(6).setCellValue(p.getColors());
-                r.createCell(7).setCellValue(p.getDescuento());
-            }
-            for (int i = 0; i < cols.length; i++) sheet.autoSizeColumn(i);
-            try (OutputStream out = new FileOutputStream(ruta)) { wb.write(out); }
+                hoja.agregarFila(p.getIdProducto(), p.getNombre(), p.getCategoriaNombre(), p.getPrecio(),
+                        p.getStock(), p.getSizes(), p.getColors(), p.getDescuento());
+            }
+            hoja.guardar(ruta);
             logger.info("Excel Inventario generado en {}", ruta);
             return true;
         } catch (Exception e) {
@@ -185,24 +331,16 @@ public class ReporteUtil {
             Font cellFont = FontFactory.getFont(FontFactory.HELVETICA, 10);
             doc.add(new Paragraph("Reporte de Inventario", title));
             doc.add(new Paragraph(" "));
-            PdfPTable table = new PdfPTable(8);
-            table.setWidthPercentage(100);
-            String[] cols = {"ID","Nombre","Categoría","Precio","Stock","Tallas","Colores","Descuento"};
-            for (String c : cols) {
-                PdfPCell cell = new PdfPCell(new Phrase(c, headerFont));
-                cell.setHorizontalAlignment(PdfPCell.ALIGN_CENTER);
-                table.addCell(cell);
-            }
+            PdfPTable table = nuevaTablaPorLotes(COLUMNAS_INVENTARIO_PDF, headerFont);
+            int filas = 0;
             for (Producto p : productos) {
-                table.addCell(new PdfPCell(new Phrase(String.valueOf(p.getIdProducto()), cellFont)));
-                table.addCell(new PdfPCell(new Phrase(p.getNombre(), cellFont)));
-                table.addCell(new PdfPCell(new Phrase(p.getCategoriaNombre(), cellFont)));
-                table.addCell(new PdfPCell(new Phrase(String.format("$%.2f", p.getPrecio()), cellFont)));
-                table.addCell(new PdfPCell(new Phrase(String.valueOf(p.getStock()), cellFont)));
-                table.addCell(new PdfPCell(new Phrase(p.getSizes(), cellFont)));
-                table.addCell(new PdfPCell(new Phrase(p.getColors(), cellFont)));
-                table.addCell(new PdfPCell(new Phrase(String.format("%.2f%%", p.getDescuento()), cellFont)));
+                agregarFilaInventarioPdf(table, p.getIdProducto(), p.getNombre(), p.getCategoriaNombre(),
+                        p.getPrecio(), p.getStock(), p.getSizes(), p.getColors(), p.getDescuento(), cellFont);
+                if (++filas % FILAS_POR_LOTE == 0) {
+                    doc.add(table);
+                }
             }
+            table.setComplete(true);
             doc.add(table);
             doc.close();
             logger.info("PDF Inventario generado en {}", ruta);
@@ -214,6 +352,72 @@ public class ReporteUtil {
         }
     }
 
+    /**
+     * Genera el reporte de inventario en PDF leyendo los productos con un cursor
+     * y escribiendo la tabla al documento por lotes.
+     * @param ruta Ruta donde se guardará el archivo
+     * @param progreso Recibe el avance por cada lote escrito
+     * @return true si se generó correctamente, false en caso contrario
+     */
+    public static boolean generarReporteInventarioPDF(String ruta, ProgresoReporte progreso) {
+        String sql = "SELECT p.id_producto, p.nombre, p.precio, p.stock, p.sizes, p.colors, p.descuento, " +
+                "c.nombre AS categoria_nombre " +
+                "FROM productos p " +
+                "LEFT JOIN categorias c ON p.id_categoria = c.id_categoria " +
+                "ORDER BY p.nombre";
+        Document doc = new Document();
+        try (Connection conn = DatabaseUtil.getReadOnlyConnection()) {
+            conn.setAutoCommit(false);
+            long total;
+            try (PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM productos");
+                 ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                total = rs.getLong(1);
+            }
+
+            PdfWriter.getInstance(doc, new FileOutputStream(ruta));
+            doc.open();
+            Font title = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16);
+            Font headerFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 12);
+            Font cellFont = FontFactory.getFont(FontFactory.HELVETICA, 10);
+            doc.add(new Paragraph("Reporte de Inventario", title));
+            doc.add(new Paragraph(" "));
+            PdfPTable table = nuevaTablaPorLotes(COLUMNAS_INVENTARIO_PDF, headerFont);
+
+            long filas = 0;
+            try (PreparedStatement ps = conn.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(FILAS_POR_LOTE);
+                try (ResultSet rs = ps.executeQuery()) {
+                    int leidas = 0;
+                    while (rs.next()) {
+                        leidas++;
+                        agregarFilaInventarioPdf(table, rs.getInt("id_producto"), rs.getString("nombre"),
+                                rs.getString("categoria_nombre"), rs.getDouble("precio"), rs.getInt("stock"),
+                                rs.getString("sizes"), rs.getString("colors"), rs.getDouble("descuento"), cellFont);
+                        if (++filas % FILAS_POR_LOTE == 0) {
+                            doc.add(table);
+                            progreso.actualizar(filas, total);
+                        }
+                    }
+                    Metricas.filasLeidas(ps, leidas);
+                }
+            }
+            conn.commit();
+
+            table.setComplete(true);
+            doc.add(table);
+            doc.close();
+            progreso.actualizar(filas, total);
+            logger.info("PDF Inventario generado en {} ({} productos)", ruta, filas);
+            return true;
+        } catch (Exception e) {
+            logger.error("Error generando PDF de Inventario", e);
+            if (doc.isOpen()) doc.close();
+            return false;
+        }
+    }
+
     /**
      * Genera un ticket de venta en PDF con formato de ticket profesional.
      * @param carrito Lista de productos vendidos
@@ -223,54 +427,12 @@ public class ReporteUtil {
      * @return true si se generó correctamente, false en caso contrario
      */
     public static boolean generarTicketVentaPDF(List<ProductoEnCarrito> carrito, String cliente, Usuario usuario, String ruta) {
-        Document document = new Document(new Rectangle(230, 600), 10, 10, 10, 10);
-        try {
-            PdfWriter.getInstance(document, new FileOutputStream(ruta));
-            document.open();
-
-            Font titleFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 14);
-            Font normalFont = FontFactory.getFont(FontFactory.HELVETICA, 9);
-            Font boldFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 9);
-
-            Paragraph title = new Paragraph("Mis Trapitos", titleFont);
-                    title.setAlignment(Element.ALIGN_CENTER);
-            document.add(title);
-
-            document.add(new Paragraph("Fecha: " + LocalDateTime.now().format(DATE_TIME), normalFont));
-            document.add(new Paragraph("Atiende: " + usuario.getNombreUsuario(), normalFont));
-            document.add(new Paragraph("Cliente: " + cliente, normalFont));
-            document.add(new Paragraph(" "));
-
-            PdfPTable table = new PdfPTable(4);
-            table.setWidthPercentage(100);
-            table.setWidths(new float[]{2, 1, 1, 1});
-
-            table.addCell(new PdfPCell(new Phrase("Producto", boldFont)));
-            table.addCell(new PdfPCell(new Phrase("Cant.", boldFont)));
-            table.addCell(new PdfPCell(new Phrase("P.Unit", boldFont)));
-            table.addCell(new PdfPCell(new Phrase("Subtotal", boldFont)));
-
-            double total = 0;
-            for (ProductoEnCarrito p : carrito) {
-                table.addCell(new PdfPCell(new Phrase(p.getNombre(), normalFont)));
-                table.addCell(new PdfPCell(new Phrase(String.valueOf(p.getCantidad()), normalFont)));
-                table.addCell(new PdfPCell(new Phrase(String.format("$%.2f", p.getPrecioUnitario()), normalFont)));
-                table.addCell(new PdfPCell(new Phrase(String.format("$%.2f", p.getSubtotal()), normalFont)));
-                total += p.getSubtotal();
-            }
-
-            document.add(table);
-            document.add(new Paragraph(" "));
-            document.add(new Paragraph("TOTAL: $" + String.format("%.2f", total), titleFont));
-            document.add(new Paragraph(" "));
-            document.add(new Paragraph("¡Gracias por su compra!", boldFont));
-
-            document.close();
+        try (FileOutputStream out = new FileOutputStream(ruta)) {
+            RenderizadorTicket.pdf(Ticket.deCarrito(carrito, cliente, usuario), out);
             logger.info("Ticket PDF generado en {}", ruta);
             return true;
         } catch (Exception e) {
             logger.error("Error generando Ticket PDF", e);
-            if (document.isOpen()) document.close();
             return false;
         }
     }
@@ -280,26 +442,14 @@ public class ReporteUtil {
      */
     public static boolean generarReporteVentasPorCiudadExcel(
             List<ReporteController.VentaPorCiudad> ventas, String ruta) {
-        try (Workbook wb = new XSSFWorkbook()) {
-            Sheet sheet = wb.createSheet("VentasPorCiudad");
+        try (HojaExcel hoja = new HojaExcel("VentasPorCiudad")) {
             // Cabecera con 4 columnas
-            Row header = sheet.createRow(0);
-            header.createCell(0).setCellValue("Ciudad");
-            header.createCell(1).setCellValue("Cantidad de Ventas");
-            header.createCell(2).setCellValue("Total Vendido");
-            header.createCell(3).setCellValue("Productos");  // Nueva columna
-
-            int row = 1;
+            hoja.agregarFila("Ciudad", "Cantidad de Ventas", "Total Vendido", "Productos");
             for (ReporteController.VentaPorCiudad v : ventas) {
-                Row r = sheet.createRow(row++);
-                r.createCell(0).setCellValue(v.getCiudad());
-                r.createCell(1).setCellValue(v.getCantidadVentas());
-                r.createCell(2).setCellValue(v.getTotalVendido());
-                r.createCell(3).setCellValue(v.getProductos());  // Listado de productos
-            }
-            // Ajustar ancho de 4 columnas
-            for (int i = 0; i < 4; i++) sheet.autoSizeColumn(i);
-            try (OutputStream out = new FileOutputStream(ruta)) { wb.write(out); }
+                // Listado de productos en la última columna
+                hoja.agregarFila(v.getCiudad(), v.getCantidadVentas(), v.getTotalVendido(), v.getProductos());
+            }
+            hoja.guardar(ruta);
             logger.info("Excel Ventas por Ciudad generado en {}", ruta);
             return true;
         } catch (Exception e) {
@@ -354,90 +504,28 @@ public class ReporteUtil {
     }
 
 
+    /**
+     * Total vendido por categoría en un rango de fechas, leído del resumen diario.
+     */
     public List<CategoriaVentaResumen> obtenerVentasPorCategoria(LocalDate inicio, LocalDate fin) {
-        List<CategoriaVentaResumen> lista = new ArrayList<>();
-        String sql =
-                "SELECT c.nombre AS categoria, " +
-                        "       SUM(dv.cantidad * dv.precio_unitario) AS total_vendido " +
-                        "FROM detalle_venta dv " +
-                        "JOIN productos p ON dv.id_producto = p.id_producto " +
-                        "JOIN categorias c ON p.id_categoria = c.id_categoria " +
-                        "JOIN ventas v ON dv.id_venta = v.id_venta " +
-                        "WHERE v.fecha BETWEEN ? AND ? " +
-                        "GROUP BY c.nombre " +
-                        "ORDER BY c.nombre";
-        try (
-                Connection conn = DatabaseUtil.getConnection();
-                PreparedStatement ps = conn.prepareStatement(sql)
-        ) {
-            // aquí atrapamos el SQLException del setTimestamp
-            ps.setTimestamp(1, Timestamp.valueOf(inicio.atStartOfDay()));
-            ps.setTimestamp(2, Timestamp.valueOf(fin.atTime(23, 59, 59)));
-
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    lista.add(new CategoriaVentaResumen(
-                            rs.getString("categoria"),
-                            rs.getDouble("total_vendido")
-                    ));
-                }
-            }
-        } catch (SQLException e) {
-            logger.error("Error obteniendo ventas por categoría", e);
-        }
-        return lista;
+        return resumenVentasDao.obtenerVentasPorCategoria(inicio, fin);
     }
 
+    /**
+     * Productos más vendidos en un rango de fechas, leídos del resumen diario.
+     */
     public List<ProductoVentaResumen> obtenerProductosMasVendidos(LocalDate desde, LocalDate hasta) {
-        List<ProductoVentaResumen> lista = new ArrayList<>();
-        String sql = "SELECT p.nombre, c.nombre AS categoria, SUM(dv.cantidad) AS cantidad_vendida, " +
-                "SUM(dv.cantidad * dv.precio_unitario) AS total_vendido " +
-                "FROM detalle_venta dv " +
-                "JOIN productos p ON dv.id_producto = p.id_producto " +
-                "JOIN categorias c ON p.id_categoria = c.id_categoria " +
-                "JOIN ventas v ON dv.id_venta = v.id_venta " +
-                "WHERE DATE(v.fecha) BETWEEN ? AND ? " +
-                "GROUP BY p.nombre, c.nombre " +
-                "ORDER BY cantidad_vendida DESC";
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setDate(1, java.sql.Date.valueOf(desde));
-            stmt.setDate(2, java.sql.Date.valueOf(hasta));
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    lista.add(new ProductoVentaResumen(
-                            rs.getString("nombre"),
-                            rs.getString("categoria"),
-                            rs.getInt("cantidad_vendida"),
-                            rs.getDouble("total_vendido")
-                    ));
-                }
-            }
-        } catch (Exception e) {
-            logger.error("Error obteniendo productos más vendidos", e);
-        }
-        return lista;
+        return resumenVentasDao.obtenerProductosMasVendidos(desde, hasta);
     }
 
     public static boolean generarReporteProductosMasVendidosExcel(List<ProductoVentaResumen> items,
                                                                   String ruta) {
-        try (Workbook wb = new XSSFWorkbook()) {
-            Sheet sheet = wb.createSheet("Más Vendidos");
-            Row header = sheet.createRow(0);
-            header.createCell(0).setCellValue("Nombre");
-            header.createCell(1).setCellValue("Categoría");
-            header.createCell(2).setCellValue("Cantidad Vendida");
-            header.createCell(3).setCellValue("Total Vendido");
-            int row = 1;
+        try (HojaExcel hoja = new HojaExcel("Más Vendidos")) {
+            hoja.agregarFila("Nombre", "Categoría", "Cantidad Vendida", "Total Vendido");
             for (ProductoVentaResumen p : items) {
-                Row r = sheet.createRow(row++);
-                r.createCell(0).setCellValue(p.getNombre());
-                r.createCell(1).setCellValue(p.getCategoria());
-                r.createCell(2).setCellValue(p.getCantidadVendida());
-                r.createCell(3).setCellValue(p.getTotalVendido());
-            }
-            for (int i = 0; i < 4; i++) sheet.autoSizeColumn(i);
-            try (OutputStream out = new FileOutputStream(ruta)) { wb.write(out); }
+                hoja.agregarFila(p.getNombre(), p.getCategoria(), p.getCantidadVendida(), p.getTotalVendido());
+            }
+            hoja.guardar(ruta);
             logger.info("Excel Más Vendidos generado en {}", ruta);
             return true;
         } catch (Exception e) {
@@ -484,24 +572,12 @@ public class ReporteUtil {
      */
     public static boolean generarReporteVentasPorCategoriaExcel(
             List<CategoriaVentaResumen> items, String ruta) {
-        try (Workbook wb = new XSSFWorkbook()) {
-            Sheet sheet = wb.createSheet("VentasPorCategoria");
-            Row header = sheet.createRow(0);
-            header.createCell(0).setCellValue("Categoría");
-            header.createCell(1).setCellValue("Total Vendido");
-
-            int row = 1;
+        try (HojaExcel hoja = new HojaExcel("VentasPorCategoria")) {
+            hoja.agregarFila("Categoría", "Total Vendido");
             for (CategoriaVentaResumen c : items) {
-                Row r = sheet.createRow(row++);
-                r.createCell(0).setCellValue(c.getCategoria());
-                r.createCell(1).setCellValue(c.getTotal());
-            }
-            sheet.autoSizeColumn(0);
-            sheet.autoSizeColumn(1);
-
-            try (OutputStream out = new FileOutputStream(ruta)) {
-                wb.write(out);
+                hoja.agregarFila(c.getCategoria(), c.getTotal());
             }
+            hoja.guardar(ruta);
             logger.info("Excel Ventas por Categoría generado en {}", ruta);
             return true;
         } catch (Exception e) {
@@ -552,49 +628,19 @@ public class ReporteUtil {
             return false;
         }
     }
+    /**
+     * Número de ventas por método de pago en un rango de fechas, leído del resumen diario.
+     */
     public List<MetodoPagoResumen> obtenerMetodosPagoMasUtilizados(LocalDate inicio, LocalDate fin) {
-        List<MetodoPagoResumen> lista = new ArrayList<>();
-        String sql =
-                "SELECT v.metodo_pago AS metodo, " +
-                        "       COUNT(*)       AS veces " +
-                        "FROM ventas v " +
-                        "WHERE v.fecha BETWEEN ? AND ? " +
-                        "GROUP BY v.metodo_pago " +
-                        "ORDER BY veces DESC";
-        try (
-                Connection conn = DatabaseUtil.getConnection();
-                PreparedStatement ps = conn.prepareStatement(sql)
-        ) {
-            ps.setTimestamp(1, Timestamp.valueOf(inicio.atStartOfDay()));
-            ps.setTimestamp(2, Timestamp.valueOf(fin.atTime(23,59,59)));
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    lista.add(new MetodoPagoResumen(
-                            rs.getString("metodo"),
-                            rs.getInt("veces")
-                    ));
-                }
-            }
-        } catch (SQLException e) {
-            logger.error("Error obteniendo métodos de pago", e);
-        }
-        return lista;
+        return resumenVentasDao.obtenerMetodosPago(inicio, fin);
     }
     public static boolean generarReporteMetodosPagoExcel(List<MetodoPagoResumen> items, String ruta) {
-        try (Workbook wb = new XSSFWorkbook()) {
-            Sheet sheet = wb.createSheet("MétodosPago");
-            Row header = sheet.createRow(0);
-            header.createCell(0).setCellValue("Método");
-            header.createCell(1).setCellValue("Veces");
-            int row = 1;
+        try (HojaExcel hoja = new HojaExcel("MétodosPago")) {
+            hoja.agregarFila("Método", "Veces");
             for (MetodoPagoResumen m : items) {
-                Row r = sheet.createRow(row++);
-                r.createCell(0).setCellValue(m.getMetodoPago());
-                r.createCell(1).setCellValue(m.getVeces());
+                hoja.agregarFila(m.getMetodoPago(), m.getVeces());
             }
-            sheet.autoSizeColumn(0);
-            sheet.autoSizeColumn(1);
-            try (OutputStream out = new FileOutputStream(ruta)) { wb.write(out); }
+            hoja.guardar(ruta);
             logger.info("Excel MétodosPago generado en {}", ruta);
             return true;
         } catch (Exception e) {
@@ -629,20 +675,12 @@ public class ReporteUtil {
     }
 
     public static boolean generarReporteProductoMayorStockExcel(List<Producto> items, String ruta) {
-        try (Workbook wb = new XSSFWorkbook()) {
-            Sheet sheet = wb.createSheet("MayorStock");
-            Row h = sheet.createRow(0);
-            h.createCell(0).setCellValue("Nombre");
-            h.createCell(1).setCellValue("Stock");
-            int r = 1;
+        try (HojaExcel hoja = new HojaExcel("MayorStock")) {
+            hoja.agregarFila("Nombre", "Stock");
             for (Producto p : items) {
-                Row row = sheet.createRow(r++);
-                row.createCell(0).setCellValue(p.getNombre());
-                row.createCell(1).setCellValue(p.getStock());
+                hoja.agregarFila(p.getNombre(), p.getStock());
             }
-            sheet.autoSizeColumn(0);
-            sheet.autoSizeColumn(1);
-            try (OutputStream out = new FileOutputStream(ruta)) { wb.write(out); }
+            hoja.guardar(ruta);
             logger.info("Excel MayorStock generado en {}", ruta);
             return true;
         } catch (Exception e) {
@@ -684,27 +722,16 @@ public class ReporteUtil {
             String proveedor,
             List<Producto> items,
             String ruta) {
-        try (Workbook wb = new XSSFWorkbook()) {
-            Sheet sheet = wb.createSheet("ProductosProveedor");
+        try (HojaExcel hoja = new HojaExcel("ProductosProveedor")) {
             // Fila de proveedor
-            Row infoRow = sheet.createRow(0);
-            infoRow.createCell(0).setCellValue("Proveedor: " + proveedor);
+            hoja.agregarFila("Proveedor: " + proveedor);
             // Encabezado
-            Row header = sheet.createRow(1);
-            header.createCell(0).setCellValue("Producto");
-            header.createCell(1).setCellValue("Stock");
+            hoja.agregarFila("Producto", "Stock");
             // Datos
-            int row = 2;
             for (Producto p : items) {
-                Row r = sheet.createRow(row++);
-                r.createCell(0).setCellValue(p.getNombre());
-                r.createCell(1).setCellValue(p.getStock());
-            }
-            sheet.autoSizeColumn(0);
-            sheet.autoSizeColumn(1);
-            try (OutputStream out = new FileOutputStream(ruta)) {
-                wb.write(out);
+                hoja.agregarFila(p.getNombre(), p.getStock());
             }
+            hoja.guardar(ruta);
             logger.info("Excel ProductosPorProveedor generado en {}", ruta);
             return true;
         } catch (Exception e) {
@@ -754,33 +781,30 @@ public class ReporteUtil {
 
     /**
      * Genera un reporte de productos comprados más de una vez por cliente en formato Excel,
-     * incluyendo el nombre del cliente y el total de veces.
+     * incluyendo el nombre del cliente y el total de veces. Si cliente es null el reporte
+     * es de todos los clientes y lleva una columna con el cliente de cada fila.
      */
     public static boolean generarReporteCompradosMasDeUnaVezExcel(
             String cliente,
             List<ReporteController.ProductoRepetido> items,
             String ruta) {
-        try (Workbook wb = new XSSFWorkbook()) {
-            Sheet sheet = wb.createSheet("CompradosMasDeUnaVez");
-            // Fila de cliente
-            Row infoRow = sheet.createRow(0);
-            infoRow.createCell(0).setCellValue("Cliente: " + cliente);
-            // Encabezado
-            Row header = sheet.createRow(1);
-            header.createCell(0).setCellValue("Producto");
-            header.createCell(1).setCellValue("Veces");
-            // Datos
-            int r = 2;
-            for (ReporteController.ProductoRepetido pr : items) {
-                Row row = sheet.createRow(r++);
-                row.createCell(0).setCellValue(pr.getNombre());
-                row.createCell(1).setCellValue(pr.getVeces());
-            }
-            sheet.autoSizeColumn(0);
-            sheet.autoSizeColumn(1);
-            try (OutputStream out = new FileOutputStream(ruta)) {
-                wb.write(out);
+        try (HojaExcel hoja = new HojaExcel("CompradosMasDeUnaVez")) {
+            if (cliente != null) {
+                // Fila de cliente
+                hoja.agregarFila("Cliente: " + cliente);
+                // Encabezado
+                hoja.agregarFila("Producto", "Veces");
+                // Datos
+                for (ReporteController.ProductoRepetido pr : items) {
+                    hoja.agregarFila(pr.getNombre(), pr.getVeces());
+                }
+            } else {
+                hoja.agregarFila("Cliente", "Producto", "Veces");
+                for (ReporteController.ProductoRepetido pr : items) {
+                    hoja.agregarFila(pr.getCliente(), pr.getNombre(), pr.getVeces());
+                }
             }
+            hoja.guardar(ruta);
             logger.info("Excel CompradosMasDeUnaVez generado en {}", ruta);
             return true;
         } catch (Exception e) {
@@ -791,7 +815,7 @@ public class ReporteUtil {
 
     /**
      * Genera un reporte de productos comprados más de una vez por cliente en formato PDF,
-     * incluyendo el nombre del cliente.
+     * incluyendo el nombre del cliente. Si cliente es null el reporte es de todos los clientes.
      */
     public static boolean generarReporteCompradosMasDeUnaVezPDF(
             String cliente,
@@ -804,16 +828,23 @@ public class ReporteUtil {
             Font headerFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 12);
             Font cellFont = FontFactory.getFont(FontFactory.HELVETICA, 10);
             // Título con cliente
-            Paragraph title = new Paragraph("Comprados Más de Una Vez - Cliente: " + cliente,
+            Paragraph title = new Paragraph("Comprados Más de Una Vez - "
+                    + (cliente != null ? "Cliente: " + cliente : "Todos los clientes"),
                     FontFactory.getFont(FontFactory.HELVETICA_BOLD, 14));
             title.setAlignment(Element.ALIGN_CENTER);
             doc.add(title);
             doc.add(new Paragraph(" "));
-            PdfPTable table = new PdfPTable(2);
+            PdfPTable table = new PdfPTable(cliente != null ? 2 : 3);
             table.setWidthPercentage(100);
+            if (cliente == null) {
+                table.addCell(new PdfPCell(new Phrase("Cliente", headerFont)));
+            }
             table.addCell(new PdfPCell(new Phrase("Producto", headerFont)));
             table.addCell(new PdfPCell(new Phrase("Veces", headerFont)));
             for (ReporteController.ProductoRepetido pr : items) {
+                if (cliente == null) {
+                    table.addCell(new PdfPCell(new Phrase(pr.getCliente(), cellFont)));
+                }
                 table.addCell(new PdfPCell(new Phrase(pr.getNombre(), cellFont)));
                 table.addCell(new PdfPCell(new Phrase(String.valueOf(pr.getVeces()), cellFont)));
             }
@@ -828,45 +859,158 @@ public class ReporteUtil {
         }
     }
 
-    public static boolean generarReporteProductosNoVendidos3MesesExcel(List<Producto> items, String ruta) {
-        try (Workbook wb = new XSSFWorkbook()) {
-            Sheet sheet = wb.createSheet("NoVendidos3Meses");
-            Row header = sheet.createRow(0);
-            header.createCell(0).setCellValue("Producto");
-            int row = 1;
-            for (Producto p : items) {
-                Row r = sheet.createRow(row++);
-                r.createCell(0).setCellValue(p.getNombre());
+    /**
+     * Productos sin ventas desde una fecha (inventario inmóvil), con su última venta y el valor
+     * del stock. Usa un anti-join (NOT EXISTS) por id_producto, así que PostgreSQL solo revisa
+     * las ventas de cada producto en el índice de detalle_venta en lugar de traer los dos
+     * conjuntos completos para compararlos en memoria.
+     * @param desde Fecha desde la que se buscan ventas (inclusive)
+     * @return Productos sin ventas, del mayor al menor valor de inventario
+     */
+    public List<ProductoSinVentaResumen> obtenerProductosSinVenta(LocalDate desde) {
+        List<ProductoSinVentaResumen> lista = new ArrayList<>();
+        try (Connection conn = DatabaseUtil.getReadOnlyConnection();
+             PreparedStatement ps = conn.prepareStatement(SQL_PRODUCTOS_SIN_VENTA)) {
+            ps.setTimestamp(1, Timestamp.valueOf(desde.atStartOfDay()));
+            try (ResultSet rs = ps.executeQuery()) {
+                int leidas = 0;
+                while (rs.next()) {
+                    leidas++;
+                    lista.add(mapProductoSinVenta(rs));
+                }
+                Metricas.filasLeidas(ps, leidas);
             }
-            sheet.autoSizeColumn(0);
-            try (OutputStream out = new FileOutputStream(ruta)) { wb.write(out); }
-            logger.info("Excel NoVendidos3Meses generado en {}", ruta);
+        } catch (SQLException e) {
+            logger.error("Error obteniendo productos sin ventas desde " + desde, e);
+        }
+        return lista;
+    }
+
+    private static ProductoSinVentaResumen mapProductoSinVenta(ResultSet rs) throws SQLException {
+        Timestamp ultima = rs.getTimestamp("ultima_venta");
+        return new ProductoSinVentaResumen(
+                rs.getInt("id_producto"),
+                rs.getString("nombre"),
+                rs.getString("categoria_nombre"),
+                rs.getInt("stock"),
+                rs.getDouble("precio"),
+                ultima != null ? ultima.toLocalDateTime() : null,
+                rs.getDouble("valor_inventario"));
+    }
+
+    private static String textoUltimaVenta(ProductoSinVentaResumen p) {
+        return p.getUltimaVenta() != null ? p.getUltimaVenta().format(DATE_TIME) : "Nunca";
+    }
+
+    /**
+     * Genera el reporte de productos sin ventas en Excel leyendo las filas con un cursor.
+     * @param desde Fecha desde la que se buscan ventas (inclusive)
+     * @param ruta Ruta donde se guardará el archivo
+     * @return true si se generó correctamente, false en caso contrario
+     */
+    public static boolean generarReporteProductosSinVentaExcel(LocalDate desde, String ruta) {
+        try (HojaExcel hoja = new HojaExcel("SinVentas");
+             Connection conn = DatabaseUtil.getReadOnlyConnection()) {
+            // PostgreSQL solo respeta el fetch size dentro de una transacción
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(SQL_PRODUCTOS_SIN_VENTA,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(FILAS_POR_LOTE);
+                ps.setTimestamp(1, Timestamp.valueOf(desde.atStartOfDay()));
+
+                hoja.agregarFila((Object[]) COLUMNAS_SIN_VENTA);
+                try (ResultSet rs = ps.executeQuery()) {
+                    int leidas = 0;
+                    while (rs.next()) {
+                        leidas++;
+                        ProductoSinVentaResumen p = mapProductoSinVenta(rs);
+                        hoja.agregarFila(p.getIdProducto(), p.getNombre(), p.getCategoria(), p.getStock(),
+                                p.getPrecio(), textoUltimaVenta(p), p.getValorInventario());
+                    }
+                    Metricas.filasLeidas(ps, leidas);
+                }
+            }
+            conn.commit();
+            hoja.guardar(ruta);
+            logger.info("Excel SinVentas generado en {} ({} productos)", ruta, hoja.getFilas() - 1);
             return true;
         } catch (Exception e) {
-            logger.error("Error generando Excel de NoVendidos3Meses", e);
+            logger.error("Error generando Excel de SinVentas", e);
             return false;
         }
     }
 
-    public static boolean generarReporteProductosNoVendidos3MesesPDF(List<Producto> items, String ruta) {
+    /**
+     * Genera el reporte de productos sin ventas en PDF leyendo las filas con un cursor
+     * y escribiendo la tabla al documento por lotes.
+     * @param desde Fecha desde la que se buscan ventas (inclusive)
+     * @param ruta Ruta donde se guardará el archivo
+     * @param progreso Recibe el avance por cada lote escrito
+     * @return true si se generó correctamente, false en caso contrario
+     */
+    public static boolean generarReporteProductosSinVentaPDF(LocalDate desde, String ruta,
+                                                             ProgresoReporte progreso) {
+        Timestamp inicio = Timestamp.valueOf(desde.atStartOfDay());
         Document doc = new Document();
-        try {
+        try (Connection conn = DatabaseUtil.getReadOnlyConnection()) {
+            conn.setAutoCommit(false);
+            long total;
+            try (PreparedStatement ps = conn.prepareStatement(SQL_CONTEO_SIN_VENTA)) {
+                ps.setTimestamp(1, inicio);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    total = rs.getLong(1);
+                }
+            }
+
             PdfWriter.getInstance(doc, new FileOutputStream(ruta));
             doc.open();
+            Font title = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16);
             Font headerFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 12);
             Font cellFont = FontFactory.getFont(FontFactory.HELVETICA, 10);
-            PdfPTable table = new PdfPTable(1);
-            table.setWidthPercentage(100);
-            table.addCell(new PdfPCell(new Phrase("Producto", headerFont)));
-            for (Producto p : items) {
-                table.addCell(new PdfPCell(new Phrase(p.getNombre(), cellFont)));
+            doc.add(new Paragraph("Productos sin Ventas desde " + desde.format(DateTimeFormatter.ofPattern("dd/MM/yyyy")), title));
+            doc.add(new Paragraph(" "));
+            PdfPTable table = nuevaTablaPorLotes(COLUMNAS_SIN_VENTA, headerFont);
+
+            long filas = 0;
+            double valorTotal = 0;
+            try (PreparedStatement ps = conn.prepareStatement(SQL_PRODUCTOS_SIN_VENTA,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(FILAS_POR_LOTE);
+                ps.setTimestamp(1, inicio);
+                try (ResultSet rs = ps.executeQuery()) {
+                    int leidas = 0;
+                    while (rs.next()) {
+                        leidas++;
+                        ProductoSinVentaResumen p = mapProductoSinVenta(rs);
+                        table.addCell(new PdfPCell(new Phrase(String.valueOf(p.getIdProducto()), cellFont)));
+                        table.addCell(new PdfPCell(new Phrase(p.getNombre(), cellFont)));
+                        table.addCell(new PdfPCell(new Phrase(p.getCategoria(), cellFont)));
+                        table.addCell(new PdfPCell(new Phrase(String.valueOf(p.getStock()), cellFont)));
+                        table.addCell(new PdfPCell(new Phrase(String.format("$%.2f", p.getPrecio()), cellFont)));
+                        table.addCell(new PdfPCell(new Phrase(textoUltimaVenta(p), cellFont)));
+                        table.addCell(new PdfPCell(new Phrase(String.format("$%.2f", p.getValorInventario()), cellFont)));
+                        valorTotal += p.getValorInventario();
+                        if (++filas % FILAS_POR_LOTE == 0) {
+                            doc.add(table);
+                            progreso.actualizar(filas, total);
+                        }
+                    }
+                    Metricas.filasLeidas(ps, leidas);
+                }
             }
+            conn.commit();
+
+            table.setComplete(true);
             doc.add(table);
+            doc.add(new Paragraph(" "));
+            doc.add(new Paragraph(String.format("Valor total del inventario sin ventas: $%.2f", valorTotal), headerFont));
             doc.close();
-            logger.info("PDF NoVendidos3Meses generado en {}", ruta);
+            progreso.actualizar(filas, total);
+            logger.info("PDF SinVentas generado en {} ({} productos)", ruta, filas);
             return true;
         } catch (Exception e) {
-            logger.error("Error generando PDF de NoVendidos3Meses", e);
+            logger.error("Error generando PDF de SinVentas", e);
             if (doc.isOpen()) doc.close();
             return false;
         }
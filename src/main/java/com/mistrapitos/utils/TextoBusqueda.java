@@ -0,0 +1,41 @@
+package com.mistrapitos.utils;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Normalización de texto para búsquedas: minúsculas y sin acentos, así "cancion" encuentra
+ * "Canción" y "nino" encuentra "Niño".
+ */
+public final class TextoBusqueda {
+
+    private TextoBusqueda() {
+    }
+
+    /**
+     * @param texto Texto a normalizar (puede ser null)
+     * @return Texto en minúsculas sin marcas diacríticas; cadena vacía si texto es null
+     */
+    public static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        int i = 0;
+        while (i < texto.length() && texto.charAt(i) < 0x80) {
+            i++;
+        }
+        // La mayoría de nombres y códigos son ASCII y no necesitan descomponerse
+        if (i == texto.length()) {
+            return texto.toLowerCase(Locale.ROOT);
+        }
+        String descompuesto = Normalizer.normalize(texto, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(descompuesto.length());
+        for (int j = 0; j < descompuesto.length(); j++) {
+            char c = descompuesto.charAt(j);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return sb.toString();
+    }
+}
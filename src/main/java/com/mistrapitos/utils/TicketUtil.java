@@ -1,7 +1,7 @@
 package com.mistrapitos.utils;
 
 import com.mistrapitos.models.Cliente;
-import com.mistrapitos.models.DetalleVenta;
+import com.mistrapitos.models.Ticket;
 import com.mistrapitos.models.Venta;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,36 +12,63 @@ import javax.print.attribute.PrintRequestAttributeSet;
 import javax.print.attribute.standard.Copies;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
-import java.text.DecimalFormat;
-import java.time.format.DateTimeFormatter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Utilidad para la impresión de tickets de venta.
+ * <p>
+ * Con impresion.alCobrar=true la caja imprime el ticket de cada venta cobrada a través de
+ * {@link ColaImpresion}. La impresora se busca una sola vez y se reutiliza; si un envío
+ * falla se vuelve a buscar en el siguiente, por si la desconectaron o cambió la
+ * predeterminada. Con impresion.impresora se puede elegir una impresora por nombre o
+ * "archivo" para usar {@link ImpresoraArchivo} (carpeta en impresion.directorio).
  */
 public class TicketUtil {
     
     private static final Logger logger = LoggerFactory.getLogger(TicketUtil.class);
-    private static final DecimalFormat DECIMAL_FORMAT = new DecimalFormat("#,##0.00");
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
-    private static final int ANCHO_TICKET = 40; // Caracteres
+    private static final String IMPRESORA_ARCHIVO = "archivo";
+    // texto: líneas planas que cualquier impresora acepta; escpos: comandos de impresora térmica
+    private static final boolean ESC_POS = "escpos".equalsIgnoreCase(Configuracion.texto("impresion.formato", "texto"));
+    private static final boolean AL_COBRAR = Configuracion.logico("impresion.alCobrar", false);
+
+    private static volatile PrintService impresora;
     
     /**
-     * Imprime un ticket de venta en la impresora predeterminada.
-     * @param venta Venta para la que se imprimirá el ticket
-     * @param cliente Cliente de la venta (opcional)
+     * @return true si la caja debe imprimir el ticket de cada venta al cobrarla
+     */
+    public static boolean imprimirAlCobrar() {
+        return AL_COBRAR;
+    }
+    
+    /**
+     * Imprime un ticket en la impresora de tickets.
+     * @param ticket Ticket a imprimir
      * @return true si se imprimió correctamente, false en caso contrario
      */
-    public static boolean imprimirTicket(Venta venta, Optional<Cliente> cliente) {
+    public static boolean imprimirTicket(Ticket ticket) {
         try {
-            String contenido = generarContenidoTicket(venta, cliente);
+            byte[] contenido = ESC_POS ? RenderizadorTicket.escPos(ticket)
+                    : RenderizadorTicket.texto(ticket).getBytes(StandardCharsets.UTF_8);
             return enviarAImpresora(contenido);
         } catch (Exception e) {
-            logger.error("Error al imprimir ticket para la venta ID: " + venta.getIdVenta(), e);
+            logger.error("Error al imprimir el ticket #{}", ticket.getNumero(), e);
             return false;
         }
     }
     
+    /**
+     * Pone el ticket en la cola de impresión; se genera e imprime en segundo plano.
+     * @param ticket Ticket a imprimir
+     * @return Se completa con true si el ticket llegó a la impresora
+     * @throws IllegalStateException Si la cola de impresión está llena
+     */
+    public static CompletableFuture<Boolean> encolarTicket(Ticket ticket) {
+        return ColaImpresion.encolar("ticket", () -> imprimirTicket(ticket));
+    }
+    
     /**
      * Genera el contenido del ticket de venta.
      * @param venta Venta para la que se generará el ticket
@@ -49,69 +76,7 @@ public class TicketUtil {
      * @return Contenido del ticket
      */
     public static String generarContenidoTicket(Venta venta, Optional<Cliente> cliente) {
-        StringBuilder sb = new StringBuilder();
-        
-        // Encabezado
-        sb.append(centrarTexto("MIS TRAPITOS", ANCHO_TICKET)).append("\n");
-        sb.append(centrarTexto("TIENDA DE ROPA", ANCHO_TICKET)).append("\n");
-        sb.append(repetirCaracter('-', ANCHO_TICKET)).append("\n");
-        sb.append("TICKET DE VENTA #").append(venta.getIdVenta()).append("\n");
-        sb.append("FECHA: ").append(venta.getFecha().format(DATE_FORMATTER)).append("\n");
-        
-        // Datos del cliente
-        if (cliente.isPresent()) {
-            sb.append("CLIENTE: ").append(cliente.get().getNombre()).append("\n");
-            if (cliente.get().getTelefono() != null && !cliente.get().getTelefono().isEmpty()) {
-                sb.append("TELÉFONO: ").append(cliente.get().getTelefono()).append("\n");
-            }
-        }
-        
-        sb.append(repetirCaracter('-', ANCHO_TICKET)).append("\n");
-        
-        // Encabezado de detalles
-        sb.append(String.format("%-20s %5s %7s %7s", "PRODUCTO", "CANT", "PRECIO", "TOTAL")).append("\n");
-        sb.append(repetirCaracter('-', ANCHO_TICKET)).append("\n");
-        
-        // Detalles de la venta
-        for (DetalleVenta detalle : venta.getDetalles()) {
-            String nombreProducto = detalle.getProductoNombre();
-            if (nombreProducto.length() > 20) {
-                nombreProducto = nombreProducto.substring(0, 17) + "...";
-            }
-            
-            double precioUnitario = detalle.getPrecioConDescuento();
-            double subtotal = detalle.getSubtotal();
-            
-            sb.append(String.format("%-20s %5d %7s %7s", 
-                    nombreProducto, 
-                    detalle.getCantidad(), 
-                    "$" + DECIMAL_FORMAT.format(precioUnitario),
-                    "$" + DECIMAL_FORMAT.format(subtotal))).append("\n");
-            
-            // Si hay descuento, mostrarlo
-            if (detalle.getDescuentoAplicado() > 0) {
-                sb.append(String.format("  Desc: %.0f%% aplicado", detalle.getDescuentoAplicado())).append("\n");
-            }
-        }
-        
-        sb.append(repetirCaracter('-', ANCHO_TICKET)).append("\n");
-        
-        // Total
-        sb.append(String.format("%32s %7s", "TOTAL:", "$" + DECIMAL_FORMAT.format(venta.getTotal()))).append("\n");
-        sb.append(repetirCaracter('-', ANCHO_TICKET)).append("\n");
-        
-        // Método de pago
-        sb.append("MÉTODO DE PAGO: ").append(venta.getMetodoPago()).append("\n");
-        sb.append(repetirCaracter('-', ANCHO_TICKET)).append("\n");
-        
-        // Pie de página
-        sb.append(centrarTexto("¡GRACIAS POR SU COMPRA!", ANCHO_TICKET)).append("\n");
-        sb.append(centrarTexto("VUELVA PRONTO", ANCHO_TICKET)).append("\n");
-        
-        // Agregar saltos de línea al final para que el papel avance
-        sb.append("\n\n\n\n");
-        
-        return sb.toString();
+        return RenderizadorTicket.texto(Ticket.deVenta(venta, cliente));
     }
     
     /**
@@ -119,18 +84,14 @@ public class TicketUtil {
      * @param contenido Contenido a imprimir
      * @return true si se envió correctamente, false en caso contrario
      */
-    private static boolean enviarAImpresora(String contenido) {
+    private static boolean enviarAImpresora(byte[] contenido) {
+        PrintService impresora = obtenerImpresora();
+        if (impresora == null) {
+            logger.error("No se encontró ninguna impresora predeterminada");
+            return false;
+        }
         try {
-            // Obtener la impresora predeterminada
-            PrintService impresora = PrintServiceLookup.lookupDefaultPrintService();
-            if (impresora == null) {
-                logger.error("No se encontró ninguna impresora predeterminada");
-                return false;
-            }
-            
-            // Convertir el contenido a bytes
-            byte[] bytes = contenido.getBytes();
-            InputStream is = new ByteArrayInputStream(bytes);
+            InputStream is = new ByteArrayInputStream(contenido);
             
             // Crear el documento a imprimir
             DocFlavor flavor = DocFlavor.INPUT_STREAM.AUTOSENSE;
@@ -149,42 +110,42 @@ public class TicketUtil {
             // Cerrar el stream
             is.close();
             
-            logger.info("Ticket enviado a la impresora: " + impresora.getName());
+            logger.info("Ticket enviado a la impresora: {}", impresora.getName());
             return true;
         } catch (Exception e) {
-            logger.error("Error al enviar el ticket a la impresora", e);
+            logger.error("Error al enviar el ticket a la impresora {}", impresora.getName(), e);
+            // Se vuelve a buscar en el próximo intento, por si la desconectaron o cambió la predeterminada
+            TicketUtil.impresora = null;
             return false;
         }
     }
     
     /**
-     * Centra un texto en un ancho determinado.
-     * @param texto Texto a centrar
-     * @param ancho Ancho total
-     * @return Texto centrado
+     * @return La impresora de tickets, buscándola solo si aún no se conoce
      */
-    private static String centrarTexto(String texto, int ancho) {
-        if (texto.length() >= ancho) {
-            return texto;
+    private static PrintService obtenerImpresora() {
+        PrintService actual = impresora;
+        if (actual == null) {
+            actual = buscarImpresora(Configuracion.texto("impresion.impresora", ""));
+            impresora = actual;
         }
-        
-        int espaciosIzquierda = (ancho - texto.length()) / 2;
-        int espaciosDerecha = ancho - texto.length() - espaciosIzquierda;
-        
-        return repetirCaracter(' ', espaciosIzquierda) + texto + repetirCaracter(' ', espaciosDerecha);
+        return actual;
     }
     
-    /**
-     * Repite un carácter n veces.
-     * @param caracter Carácter a repetir
-     * @param n Número de repeticiones
-     * @return Cadena con el carácter repetido
-     */
-    private static String repetirCaracter(char caracter, int n) {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < n; i++) {
-            sb.append(caracter);
+    private static PrintService buscarImpresora(String nombre) {
+        if (nombre.isEmpty()) {
+            return PrintServiceLookup.lookupDefaultPrintService();
+        }
+        if (IMPRESORA_ARCHIVO.equalsIgnoreCase(nombre)) {
+            return new ImpresoraArchivo(Paths.get(Configuracion.texto("impresion.directorio",
+                    Paths.get(System.getProperty("user.home"), "MisTrapitos", "tickets").toString())));
+        }
+        for (PrintService servicio : PrintServiceLookup.lookupPrintServices(null, null)) {
+            if (servicio.getName().equalsIgnoreCase(nombre)) {
+                return servicio;
+            }
         }
-        return sb.toString();
+        logger.warn("No se encontró la impresora {}; se usará la predeterminada", nombre);
+        return PrintServiceLookup.lookupDefaultPrintService();
     }
 }
\ No newline at end of file
@@ -0,0 +1,134 @@
+package com.mistrapitos.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Revisa al iniciar el plan (EXPLAIN) de las consultas de ventas más usadas y avisa en el log
+ * cuando alguna recorre completa una tabla grande, lo que normalmente indica un índice faltante
+ * o un filtro que no puede usar el índice (por ejemplo DATE(fecha) = ?).
+ */
+public class VerificadorIndices {
+
+    private static final Logger logger = LoggerFactory.getLogger(VerificadorIndices.class);
+
+    // En tablas pequeñas el planificador prefiere el recorrido secuencial y está bien
+    private static final long FILAS_MINIMAS = 10_000;
+    private static final Pattern RECORRIDO_SECUENCIAL = Pattern.compile("Seq Scan on (\\w+)");
+
+    private record ConsultaCritica(String nombre, String sql, Object... parametros) {
+    }
+
+    /**
+     * Ejecuta la revisión en un hilo de fondo para no retrasar el arranque.
+     */
+    public static void verificarEnSegundoPlano() {
+        Thread hilo = new Thread(VerificadorIndices::verificar, "verificador-indices");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    /**
+     * Revisa los planes de las consultas críticas y registra una advertencia por cada
+     * recorrido secuencial sobre una tabla grande.
+     * @return Número de consultas con advertencias
+     */
+    public static int verificar() {
+        int conAdvertencias = 0;
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            Map<String, Long> filasPorTabla = filasEstimadas(conn);
+            for (ConsultaCritica consulta : consultasCriticas()) {
+                Set<String> tablas = recorridosSecuenciales(conn, consulta);
+                tablas.removeIf(t -> filasPorTabla.getOrDefault(t, 0L) < FILAS_MINIMAS);
+                if (!tablas.isEmpty()) {
+                    conAdvertencias++;
+                    logger.warn("La consulta '{}' recorre completa la tabla {}; revise los índices",
+                            consulta.nombre(), String.join(", ", tablas));
+                }
+            }
+            logger.info("Verificación de índices terminada: {} consultas con advertencias", conAdvertencias);
+        } catch (SQLException e) {
+            logger.error("No se pudo verificar el uso de índices", e);
+        }
+        return conAdvertencias;
+    }
+
+    private static List<ConsultaCritica> consultasCriticas() {
+        LocalDate hoy = LocalDate.now();
+        Timestamp inicioDia = Timestamp.valueOf(hoy.atStartOfDay());
+        Timestamp finDia = Timestamp.valueOf(hoy.plusDays(1).atStartOfDay());
+        Timestamp inicioMes = Timestamp.valueOf(hoy.withDayOfMonth(1).atStartOfDay());
+        Timestamp finMes = Timestamp.valueOf(hoy.withDayOfMonth(1).plusMonths(1).atStartOfDay());
+        return List.of(
+                new ConsultaCritica("ventas por rango de fechas",
+                        "SELECT v.id_venta, v.fecha, v.total, c.nombre FROM ventas v " +
+                        "LEFT JOIN clientes c ON v.id_cliente = c.id_cliente " +
+                        "WHERE v.fecha >= ? AND v.fecha < ? ORDER BY v.fecha DESC",
+                        inicioDia, finDia),
+                new ConsultaCritica("página de ventas",
+                        "SELECT v.id_venta, v.fecha, v.total FROM ventas v " +
+                        "ORDER BY v.fecha DESC, v.id_venta DESC LIMIT 100"),
+                new ConsultaCritica("total de ventas por mes",
+                        "SELECT COALESCE(SUM(total), 0) FROM ventas WHERE fecha >= ? AND fecha < ?",
+                        inicioMes, finMes),
+                // Con un día el join debe llegar a detalle_venta por índice; con rangos largos
+                // el planificador puede preferir con razón un hash join sobre toda la tabla
+                new ConsultaCritica("ventas por categoría del día",
+                        "SELECT c.nombre, SUM(dv.cantidad * dv.precio_unitario) FROM detalle_venta dv " +
+                        "JOIN productos p ON dv.id_producto = p.id_producto " +
+                        "JOIN categorias c ON p.id_categoria = c.id_categoria " +
+                        "JOIN ventas v ON dv.id_venta = v.id_venta " +
+                        "WHERE v.fecha >= ? AND v.fecha < ? GROUP BY c.nombre",
+                        inicioDia, finDia),
+                new ConsultaCritica("detalles de una venta",
+                        "SELECT d.id_detalle, p.nombre FROM detalle_venta d " +
+                        "JOIN productos p ON d.id_producto = p.id_producto WHERE d.id_venta = ?",
+                        1)
+        );
+    }
+
+    private static Set<String> recorridosSecuenciales(Connection conn, ConsultaCritica consulta) throws SQLException {
+        Set<String> tablas = new LinkedHashSet<>();
+        try (PreparedStatement stmt = conn.prepareStatement("EXPLAIN " + consulta.sql())) {
+            for (int i = 0; i < consulta.parametros().length; i++) {
+                stmt.setObject(i + 1, consulta.parametros()[i]);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Matcher m = RECORRIDO_SECUENCIAL.matcher(rs.getString(1));
+                    if (m.find()) {
+                        tablas.add(m.group(1));
+                    }
+                }
+            }
+        }
+        return tablas;
+    }
+
+    private static Map<String, Long> filasEstimadas(Connection conn) throws SQLException {
+        Map<String, Long> filas = new HashMap<>();
+        String sql = "SELECT relname, reltuples::bigint FROM pg_class " +
+                "WHERE relkind = 'r' AND relnamespace = 'public'::regnamespace";
+        try (PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                filas.put(rs.getString(1), rs.getLong(2));
+            }
+        }
+        return filas;
+    }
+}
@@ -0,0 +1,17 @@
+-- Marca de última modificación de productos para la sincronización incremental del índice de códigos de barras.
+ALTER TABLE productos ADD COLUMN IF NOT EXISTS actualizado_en TIMESTAMP NOT NULL DEFAULT now();
+
+CREATE OR REPLACE FUNCTION productos_marcar_actualizado() RETURNS trigger AS $$
+BEGIN
+    NEW.actualizado_en := now();
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_productos_actualizado_en ON productos;
+CREATE TRIGGER trg_productos_actualizado_en
+    BEFORE UPDATE ON productos
+    FOR EACH ROW EXECUTE FUNCTION productos_marcar_actualizado();
+
+CREATE INDEX IF NOT EXISTS idx_productos_actualizado_en ON productos (actualizado_en);
+CREATE INDEX IF NOT EXISTS idx_productos_barcode ON productos (barcode);
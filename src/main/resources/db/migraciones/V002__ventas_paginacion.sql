@@ -0,0 +1,4 @@
+-- Índice para la paginación por llave (fecha, id_venta) de los listados de ventas.
+-- Se recorre hacia atrás para ORDER BY fecha DESC, id_venta DESC.
+CREATE INDEX IF NOT EXISTS idx_ventas_fecha_id ON ventas (fecha, id_venta);
+CREATE INDEX IF NOT EXISTS idx_ventas_cliente_fecha ON ventas (id_cliente, fecha, id_venta);
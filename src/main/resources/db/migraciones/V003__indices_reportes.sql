@@ -0,0 +1,6 @@
+-- Índices para los filtros por rango de fechas (fecha >= ? AND fecha < ?) y los joins de los reportes.
+-- Los totales por día y por mes se resuelven solo con el índice gracias a INCLUDE.
+CREATE INDEX IF NOT EXISTS idx_ventas_fecha_totales ON ventas (fecha) INCLUDE (total, metodo_pago);
+CREATE INDEX IF NOT EXISTS idx_detalle_venta_venta ON detalle_venta (id_venta);
+CREATE INDEX IF NOT EXISTS idx_detalle_venta_producto ON detalle_venta (id_producto);
+CREATE INDEX IF NOT EXISTS idx_productos_categoria ON productos (id_categoria);
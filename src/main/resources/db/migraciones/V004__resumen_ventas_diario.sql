@@ -0,0 +1,46 @@
+-- Resúmenes diarios de ventas para los reportes. Se mantienen dentro de la misma transacción
+-- que registra, modifica o elimina cada venta (ver ResumenVentasDao), así que los reportes
+-- no necesitan volver a agregar ventas y detalle_venta.
+-- La categoría y la ciudad se guardan como estaban al momento de la venta.
+
+-- Por producto: cantidades e importes (cantidad * precio_unitario, igual que los reportes).
+CREATE TABLE IF NOT EXISTS resumen_ventas_producto_dia (
+    dia DATE NOT NULL,
+    id_producto INTEGER NOT NULL,
+    id_categoria INTEGER NOT NULL DEFAULT 0,
+    metodo_pago VARCHAR(30) NOT NULL,
+    ciudad VARCHAR(100) NOT NULL DEFAULT '',
+    cantidad BIGINT NOT NULL,
+    importe NUMERIC(14, 2) NOT NULL,
+    PRIMARY KEY (dia, id_producto, id_categoria, metodo_pago, ciudad)
+);
+
+-- Por venta: número de ventas y total cobrado (una venta con varios productos cuenta una vez).
+CREATE TABLE IF NOT EXISTS resumen_ventas_dia (
+    dia DATE NOT NULL,
+    metodo_pago VARCHAR(30) NOT NULL,
+    ciudad VARCHAR(100) NOT NULL DEFAULT '',
+    num_ventas BIGINT NOT NULL,
+    total NUMERIC(14, 2) NOT NULL,
+    PRIMARY KEY (dia, metodo_pago, ciudad)
+);
+
+CREATE INDEX IF NOT EXISTS idx_resumen_producto_dia_categoria ON resumen_ventas_producto_dia (dia, id_categoria);
+
+-- Carga inicial con el historial existente
+INSERT INTO resumen_ventas_producto_dia (dia, id_producto, id_categoria, metodo_pago, ciudad, cantidad, importe)
+SELECT CAST(v.fecha AS DATE), dv.id_producto, COALESCE(p.id_categoria, 0), v.metodo_pago, COALESCE(c.ciudad, ''),
+       SUM(dv.cantidad), SUM(dv.cantidad * dv.precio_unitario)
+FROM ventas v
+JOIN detalle_venta dv ON dv.id_venta = v.id_venta
+LEFT JOIN productos p ON p.id_producto = dv.id_producto
+LEFT JOIN clientes c ON c.id_cliente = v.id_cliente
+GROUP BY 1, 2, 3, 4, 5
+ON CONFLICT DO NOTHING;
+
+INSERT INTO resumen_ventas_dia (dia, metodo_pago, ciudad, num_ventas, total)
+SELECT CAST(v.fecha AS DATE), v.metodo_pago, COALESCE(c.ciudad, ''), COUNT(*), SUM(v.total)
+FROM ventas v
+LEFT JOIN clientes c ON c.id_cliente = v.id_cliente
+GROUP BY 1, 2, 3
+ON CONFLICT DO NOTHING;
@@ -0,0 +1,35 @@
+-- Relación proveedor-producto. Sustituye a la lista de nombres separada por comas de
+-- proveedores.productos_vendidos, que obligaba a recorrer todos los productos en memoria.
+-- La columna se conserva, pero las lecturas arman el texto a partir de esta tabla.
+CREATE TABLE IF NOT EXISTS proveedor_productos (
+    id_proveedor INTEGER NOT NULL REFERENCES proveedores (id_proveedor) ON DELETE CASCADE,
+    id_producto INTEGER NOT NULL REFERENCES productos (id_producto) ON DELETE CASCADE,
+    PRIMARY KEY (id_proveedor, id_producto)
+);
+
+-- La llave primaria cubre la búsqueda por proveedor; este índice, la búsqueda por producto.
+CREATE INDEX IF NOT EXISTS idx_proveedor_productos_producto ON proveedor_productos (id_producto);
+
+-- Carga inicial desde el texto: cada elemento es el nombre de un producto
+-- (algunos registros antiguos guardan el ID en su lugar)
+INSERT INTO proveedor_productos (id_proveedor, id_producto)
+SELECT pr.id_proveedor, p.id_producto
+FROM proveedores pr
+CROSS JOIN LATERAL unnest(string_to_array(pr.productos_vendidos, ',')) AS e(elemento)
+JOIN productos p ON p.nombre = trim(e.elemento) OR CAST(p.id_producto AS TEXT) = trim(e.elemento)
+WHERE pr.productos_vendidos IS NOT NULL
+ON CONFLICT DO NOTHING;
+
+-- Y desde productos.proveedor_id, en las bases que tienen esa columna
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_name = 'productos' AND column_name = 'proveedor_id') THEN
+        INSERT INTO proveedor_productos (id_proveedor, id_producto)
+        SELECT p.proveedor_id, p.id_producto
+        FROM productos p
+        JOIN proveedores pr ON pr.id_proveedor = p.proveedor_id
+        ON CONFLICT DO NOTHING;
+    END IF;
+END
+$$;
@@ -0,0 +1,6 @@
+-- Identificador generado por la caja para cada venta. Permite reenviar sin duplicar las
+-- ventas que se guardaron en el diario local mientras la base de datos no estaba disponible.
+-- Las ventas anteriores quedan con NULL, que no choca con el índice único.
+ALTER TABLE ventas ADD COLUMN IF NOT EXISTS uuid_venta UUID;
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_ventas_uuid_venta ON ventas (uuid_venta);
@@ -0,0 +1,35 @@
+-- Búsqueda de productos y clientes por trigramas (pg_trgm), sin distinguir mayúsculas ni acentos.
+-- busqueda_normalizar quita los acentos con translate, así que no depende de la extensión unaccent
+-- y puede usarse en índices (es IMMUTABLE). Se crea siempre; los índices solo si pg_trgm está
+-- disponible. Si no lo está, ProductoDao y ClienteDao siguen buscando con ILIKE.
+-- Si pg_trgm se instala después, borre 'V007__busqueda_trigramas.sql' de schema_migraciones
+-- para que la migración se vuelva a aplicar al iniciar.
+CREATE OR REPLACE FUNCTION busqueda_normalizar(texto TEXT) RETURNS TEXT
+    LANGUAGE sql IMMUTABLE PARALLEL SAFE AS
+$$
+SELECT lower(translate(coalesce(texto, ''),
+                       'áàâäãåéèêëíìîïóòôöõúùûüñçÁÀÂÄÃÅÉÈÊËÍÌÎÏÓÒÔÖÕÚÙÛÜÑÇ',
+                       'aaaaaaeeeeiiiiooooouuuuncAAAAAAEEEEIIIIOOOOOUUUUNC'))
+$$;
+
+DO $$
+BEGIN
+    BEGIN
+        CREATE EXTENSION IF NOT EXISTS pg_trgm;
+    EXCEPTION WHEN OTHERS THEN
+        RAISE WARNING 'pg_trgm no está disponible (%); la búsqueda seguirá usando ILIKE', SQLERRM;
+        RETURN;
+    END;
+
+    CREATE INDEX IF NOT EXISTS idx_productos_nombre_trgm
+        ON productos USING gin (busqueda_normalizar(nombre) gin_trgm_ops);
+    CREATE INDEX IF NOT EXISTS idx_productos_barcode_trgm
+        ON productos USING gin (busqueda_normalizar(barcode) gin_trgm_ops);
+    CREATE INDEX IF NOT EXISTS idx_clientes_nombre_trgm
+        ON clientes USING gin (busqueda_normalizar(nombre) gin_trgm_ops);
+    CREATE INDEX IF NOT EXISTS idx_clientes_correo_trgm
+        ON clientes USING gin (busqueda_normalizar(correo) gin_trgm_ops);
+    CREATE INDEX IF NOT EXISTS idx_clientes_telefono_trgm
+        ON clientes USING gin (busqueda_normalizar(telefono) gin_trgm_ops);
+END
+$$;
@@ -0,0 +1,13 @@
+-- Reparte las filas de los resúmenes diarios en ranuras para que las cajas no se formen en
+-- una sola fila. Antes todas las ventas del día con el mismo método de pago y ciudad
+-- actualizaban la misma fila de resumen_ventas_dia, y cada caja esperaba el bloqueo de la
+-- anterior hasta su commit. Ahora cada venta escribe en la ranura id_venta % 8 (ver
+-- ResumenVentasDao); los reportes ya suman con SUM ... GROUP BY, así que no cambian.
+-- Las filas existentes quedan en la ranura 0.
+ALTER TABLE resumen_ventas_dia ADD COLUMN IF NOT EXISTS ranura SMALLINT NOT NULL DEFAULT 0;
+ALTER TABLE resumen_ventas_dia DROP CONSTRAINT IF EXISTS resumen_ventas_dia_pkey;
+ALTER TABLE resumen_ventas_dia ADD PRIMARY KEY (dia, metodo_pago, ciudad, ranura);
+
+ALTER TABLE resumen_ventas_producto_dia ADD COLUMN IF NOT EXISTS ranura SMALLINT NOT NULL DEFAULT 0;
+ALTER TABLE resumen_ventas_producto_dia DROP CONSTRAINT IF EXISTS resumen_ventas_producto_dia_pkey;
+ALTER TABLE resumen_ventas_producto_dia ADD PRIMARY KEY (dia, id_producto, id_categoria, metodo_pago, ciudad, ranura);
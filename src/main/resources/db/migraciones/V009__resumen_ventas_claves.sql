@@ -0,0 +1,48 @@
+-- Guarda en cada venta la ciudad del cliente y en cada línea la categoría del producto tal
+-- como estaban al registrarlas. ResumenVentasDao suma y resta los resúmenes con estas
+-- columnas, así que cambiar la categoría de un producto o la ciudad de un cliente ya no hace
+-- que al editar o anular una venta se reste de una fila de resumen distinta a la que se sumó.
+-- Las columnas se llenan con triggers para cubrir todas las formas de insertar ventas
+-- (caja, diario local, edición, lotes). Las ventas existentes toman los valores actuales.
+ALTER TABLE ventas ADD COLUMN IF NOT EXISTS ciudad_venta VARCHAR(100);
+ALTER TABLE detalle_venta ADD COLUMN IF NOT EXISTS id_categoria_venta INTEGER;
+
+UPDATE ventas v
+SET ciudad_venta = COALESCE((SELECT c.ciudad FROM clientes c WHERE c.id_cliente = v.id_cliente), '')
+WHERE ciudad_venta IS NULL;
+
+UPDATE detalle_venta dv
+SET id_categoria_venta = COALESCE((SELECT p.id_categoria FROM productos p WHERE p.id_producto = dv.id_producto), 0)
+WHERE id_categoria_venta IS NULL;
+
+ALTER TABLE ventas ALTER COLUMN ciudad_venta SET NOT NULL;
+ALTER TABLE detalle_venta ALTER COLUMN id_categoria_venta SET NOT NULL;
+
+-- Al insertar, o si la venta cambia de cliente o la línea de producto, se toma el valor actual
+CREATE OR REPLACE FUNCTION ventas_guardar_ciudad() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'INSERT' OR NEW.id_cliente IS DISTINCT FROM OLD.id_cliente THEN
+        NEW.ciudad_venta := COALESCE((SELECT ciudad FROM clientes WHERE id_cliente = NEW.id_cliente), '');
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_ventas_ciudad_venta ON ventas;
+CREATE TRIGGER trg_ventas_ciudad_venta
+    BEFORE INSERT OR UPDATE OF id_cliente ON ventas
+    FOR EACH ROW EXECUTE FUNCTION ventas_guardar_ciudad();
+
+CREATE OR REPLACE FUNCTION detalle_venta_guardar_categoria() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'INSERT' OR NEW.id_producto IS DISTINCT FROM OLD.id_producto THEN
+        NEW.id_categoria_venta := COALESCE((SELECT id_categoria FROM productos WHERE id_producto = NEW.id_producto), 0);
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_detalle_venta_categoria_venta ON detalle_venta;
+CREATE TRIGGER trg_detalle_venta_categoria_venta
+    BEFORE INSERT OR UPDATE OF id_producto ON detalle_venta
+    FOR EACH ROW EXECUTE FUNCTION detalle_venta_guardar_categoria();
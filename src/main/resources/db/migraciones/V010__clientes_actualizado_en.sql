@@ -0,0 +1,17 @@
+-- Marca de última modificación de clientes para refrescar por cambios el directorio de
+-- autocompletado: los clientes dados de alta o editados en otra caja aparecen sin recargarlo.
+ALTER TABLE clientes ADD COLUMN IF NOT EXISTS actualizado_en TIMESTAMP NOT NULL DEFAULT now();
+
+CREATE OR REPLACE FUNCTION clientes_marcar_actualizado() RETURNS trigger AS $$
+BEGIN
+    NEW.actualizado_en := now();
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_clientes_actualizado_en ON clientes;
+CREATE TRIGGER trg_clientes_actualizado_en
+    BEFORE UPDATE ON clientes
+    FOR EACH ROW EXECUTE FUNCTION clientes_marcar_actualizado();
+
+CREATE INDEX IF NOT EXISTS idx_clientes_actualizado_en ON clientes (actualizado_en);